@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.client;
+
+import com.google.common.base.Defaults;
+import com.haulmont.cuba.core.app.BatchInvocationService;
+import com.haulmont.cuba.core.global.AppBeans;
+import com.haulmont.cuba.core.global.RemoteException;
+import com.haulmont.cuba.core.sys.remoting.BatchInvocation;
+import com.haulmont.cuba.core.sys.remoting.CubaRemoteInvocationFactory;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.remoting.support.RemoteInvocation;
+import org.springframework.remoting.support.RemoteInvocationFactory;
+import org.springframework.remoting.support.RemoteInvocationResult;
+import org.springframework.remoting.support.RemoteInvocationUtils;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * Collects invocations of middleware services and sends them to the middleware in one request, where they are
+ * executed in parallel. Use it when a screen or a client component needs results of several independent service
+ * calls, for example:
+ * <pre>
+ *     RemoteServiceBatch batch = new RemoteServiceBatch();
+ *     CompletableFuture&lt;Long&gt; count = batch.call(DataService.class, service -&gt; service.getCount(loadContext));
+ *     CompletableFuture&lt;String&gt; setting = batch.call(UserSettingService.class, service -&gt; service.loadSetting("name"));
+ *     batch.execute();
+ * </pre>
+ * Each function passed to {@link #call(Class, Function)} must invoke exactly one method of the service. The returned
+ * futures are completed by {@link #execute()} with the method results or with exceptions thrown by the methods.
+ * <p>Instances are not thread-safe and cannot be executed twice.
+ */
+public class RemoteServiceBatch {
+
+    protected final RemoteInvocationFactory remoteInvocationFactory = new CubaRemoteInvocationFactory();
+
+    protected final List<BatchInvocation> invocations = new ArrayList<>();
+    protected final List<CompletableFuture<Object>> futures = new ArrayList<>();
+
+    protected boolean executed;
+
+    /**
+     * Adds an invocation of a service to the batch. The service name is taken from the {@code NAME} constant
+     * of the service interface.
+     *
+     * @param serviceInterface service interface
+     * @param call             function invoking one method of the service
+     * @return future completed when the batch is executed
+     */
+    public <S, R> CompletableFuture<R> call(Class<S> serviceInterface, Function<S, R> call) {
+        return call(getServiceName(serviceInterface), serviceInterface, call);
+    }
+
+    /**
+     * Adds an invocation of a service to the batch.
+     *
+     * @param serviceName      name of the service on the middleware
+     * @param serviceInterface service interface
+     * @param call             function invoking one method of the service
+     * @return future completed when the batch is executed
+     */
+    @SuppressWarnings("unchecked")
+    public <S, R> CompletableFuture<R> call(String serviceName, Class<S> serviceInterface, Function<S, R> call) {
+        if (executed) {
+            throw new IllegalStateException("Batch is already executed");
+        }
+
+        List<RemoteInvocation> recorded = new ArrayList<>(1);
+        ProxyFactory proxyFactory = new ProxyFactory(serviceInterface, (MethodInterceptor) methodInvocation -> {
+            recorded.add(remoteInvocationFactory.createRemoteInvocation(methodInvocation));
+            return Defaults.defaultValue(methodInvocation.getMethod().getReturnType());
+        });
+        call.apply((S) proxyFactory.getProxy(serviceInterface.getClassLoader()));
+
+        if (recorded.size() != 1) {
+            throw new IllegalArgumentException("Function must invoke exactly one method of " + serviceInterface.getName()
+                    + ", invoked: " + recorded.size());
+        }
+
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        invocations.add(new BatchInvocation(serviceName, recorded.get(0)));
+        futures.add(future);
+        return (CompletableFuture<R>) future;
+    }
+
+    /**
+     * @return number of invocations added to the batch
+     */
+    public int size() {
+        return invocations.size();
+    }
+
+    /**
+     * Sends all invocations to the middleware in one request and completes the futures returned by
+     * {@link #call(Class, Function)}.
+     */
+    public void execute() {
+        if (executed) {
+            throw new IllegalStateException("Batch is already executed");
+        }
+        executed = true;
+
+        if (invocations.isEmpty()) {
+            return;
+        }
+
+        List<RemoteInvocationResult> results;
+        try {
+            BatchInvocationService batchInvocationService = AppBeans.get(BatchInvocationService.NAME);
+            results = batchInvocationService.invoke(invocations);
+        } catch (RuntimeException e) {
+            futures.forEach(future -> future.completeExceptionally(e));
+            throw e;
+        }
+
+        for (int i = 0; i < futures.size(); i++) {
+            CompletableFuture<Object> future = futures.get(i);
+            try {
+                future.complete(recreateResult(results.get(i)));
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Returns the result of a future completed by {@link #execute()}, rethrowing unchecked exceptions of the service
+     * method as is.
+     */
+    public static <R> R getResult(CompletableFuture<R> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    protected Object recreateResult(RemoteInvocationResult result) throws Throwable {
+        Throwable throwable = result.getException();
+        if (throwable instanceof InvocationTargetException) {
+            Throwable targetException = ((InvocationTargetException) throwable).getTargetException();
+            if (targetException instanceof RemoteException) {
+                Exception exception = ((RemoteException) targetException).getFirstCauseException();
+                if (exception != null) {
+                    RemoteInvocationUtils.fillInClientStackTraceIfPossible(exception);
+                    throw exception;
+                }
+            }
+        }
+        return result.recreate();
+    }
+
+    protected String getServiceName(Class<?> serviceInterface) {
+        try {
+            Field field = serviceInterface.getField("NAME");
+            return (String) field.get(null);
+        } catch (NoSuchFieldException | IllegalAccessException | ClassCastException e) {
+            throw new IllegalArgumentException("Service interface " + serviceInterface.getName()
+                    + " does not define NAME constant", e);
+        }
+    }
+}
@@ -22,9 +22,10 @@ import junit.framework.Assert;
 import org.springframework.mail.MailException;
 import org.springframework.mail.MailSendException;
 
+import javax.mail.Address;
+import javax.mail.MessagingException;
 import javax.mail.internet.MimeMessage;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
 
 /**
  * Used by functional tests.
@@ -36,8 +37,13 @@ public class TestMailSender extends CubaMailSender {
 
     private boolean mustFail;
 
+    private Set<String> failingRecipients = new HashSet<>();
+
+    private int batchCount;
+
     public void clearBuffer() {
         myMessages.clear();
+        batchCount = 0;
     }
 
     public int getBufferSize() {
@@ -57,6 +63,42 @@ public class TestMailSender extends CubaMailSender {
         myMessages.add(mimeMessage);
     }
 
+    @Override
+    public void send(MimeMessage... mimeMessages) throws MailException {
+        if (mustFail) {
+            throw new MailSendException("Smtp server not available");
+        }
+        batchCount++;
+        Map<Object, Exception> failedMessages = new LinkedHashMap<>();
+        for (MimeMessage mimeMessage : mimeMessages) {
+            if (isFailingRecipient(mimeMessage)) {
+                failedMessages.put(mimeMessage, new MessagingException("Invalid recipient"));
+            } else {
+                myMessages.add(mimeMessage);
+            }
+        }
+        if (!failedMessages.isEmpty()) {
+            throw new MailSendException(failedMessages);
+        }
+    }
+
+    private boolean isFailingRecipient(MimeMessage mimeMessage) {
+        try {
+            Address[] recipients = mimeMessage.getAllRecipients();
+            return recipients != null && Arrays.stream(recipients)
+                    .anyMatch(address -> failingRecipients.contains(address.toString()));
+        } catch (MessagingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @return number of {@link #send(MimeMessage...)} calls, i.e. SMTP connections, since the buffer was cleared
+     */
+    public int getBatchCount() {
+        return batchCount;
+    }
+
     public boolean isEmpty() {
         return myMessages.isEmpty();
     }
@@ -65,7 +107,12 @@ public class TestMailSender extends CubaMailSender {
         this.mustFail = true;
     }
 
+    public void failPleaseFor(String recipient) {
+        failingRecipients.add(recipient);
+    }
+
     public void workNormallyPlease() {
         this.mustFail = false;
+        this.failingRecipients.clear();
     }
 }
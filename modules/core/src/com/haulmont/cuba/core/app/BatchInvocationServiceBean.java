@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.app;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.haulmont.cuba.core.sys.AppContext;
+import com.haulmont.cuba.core.sys.SecurityContext;
+import com.haulmont.cuba.core.sys.remoting.BatchInvocation;
+import com.haulmont.cuba.core.sys.remoting.CubaRemoteInvocationExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationContext;
+import org.springframework.remoting.support.RemoteInvocation;
+import org.springframework.remoting.support.RemoteInvocationExecutor;
+import org.springframework.remoting.support.RemoteInvocationResult;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+@Service(BatchInvocationService.NAME)
+public class BatchInvocationServiceBean implements BatchInvocationService {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchInvocationServiceBean.class);
+
+    @Inject
+    protected ServerConfig serverConfig;
+
+    protected volatile ExecutorService executor;
+
+    protected volatile RemoteInvocationExecutor invocationExecutor;
+
+    @Override
+    public List<RemoteInvocationResult> invoke(List<BatchInvocation> invocations) {
+        SecurityContext callerContext = AppContext.getSecurityContextNN();
+
+        List<Future<RemoteInvocationResult>> futures = new ArrayList<>(invocations.size());
+        for (BatchInvocation invocation : invocations) {
+            futures.add(submit(invocation, callerContext));
+        }
+
+        List<RemoteInvocationResult> results = new ArrayList<>(futures.size());
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                results.add(futures.get(i).get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.subList(i, futures.size()).forEach(future -> future.cancel(true));
+                throw new RuntimeException("Batch invocation interrupted", e);
+            } catch (ExecutionException e) {
+                results.add(new RemoteInvocationResult(e.getCause()));
+            }
+        }
+        return results;
+    }
+
+    protected Future<RemoteInvocationResult> submit(BatchInvocation invocation, SecurityContext callerContext) {
+        try {
+            return getExecutor().submit(() -> {
+                // each invocation gets its own context, so it is not considered as invoked from another service
+                AppContext.setSecurityContext(new SecurityContext(callerContext.getSessionId()));
+                try {
+                    return invoke(invocation, false);
+                } finally {
+                    AppContext.setSecurityContext(null);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.debug("Batch invocation queue is full, invoking in the calling thread");
+            // the invocation executor would clear the security context and the request scope info of the caller,
+            // so the target method is invoked directly
+            AppContext.setSecurityContext(new SecurityContext(callerContext.getSessionId()));
+            try {
+                return CompletableFuture.completedFuture(invoke(invocation, true));
+            } finally {
+                AppContext.setSecurityContext(callerContext);
+            }
+        }
+    }
+
+    protected RemoteInvocationResult invoke(BatchInvocation batchInvocation, boolean callerThread) {
+        String serviceName = batchInvocation.getServiceName();
+        RemoteInvocation invocation = batchInvocation.getInvocation();
+        try {
+            Object service = getService(serviceName);
+            log.trace("Invoking {}.{} in batch", serviceName, invocation.getMethodName());
+            Object value = callerThread
+                    ? invocation.invoke(service)
+                    : getInvocationExecutor().invoke(invocation, service);
+            return new RemoteInvocationResult(value);
+        } catch (InvocationTargetException e) {
+            return new RemoteInvocationResult(e);
+        } catch (Throwable e) {
+            log.debug("Unable to invoke {}.{}: {}", serviceName, invocation.getMethodName(), e.toString());
+            return new RemoteInvocationResult(e);
+        }
+    }
+
+    protected Object getService(String serviceName) {
+        if (NAME.equals(serviceName)) {
+            throw new IllegalArgumentException("Nested batch invocations are not supported");
+        }
+        ApplicationContext applicationContext = AppContext.getApplicationContext();
+        if (!applicationContext.containsBean(serviceName)
+                || applicationContext.findAnnotationOnBean(serviceName, Service.class) == null) {
+            throw new IllegalArgumentException("Service not found: " + serviceName);
+        }
+        return applicationContext.getBean(serviceName);
+    }
+
+    protected RemoteInvocationExecutor getInvocationExecutor() {
+        if (invocationExecutor == null) {
+            synchronized (this) {
+                if (invocationExecutor == null) {
+                    invocationExecutor = new CubaRemoteInvocationExecutor();
+                }
+            }
+        }
+        return invocationExecutor;
+    }
+
+    protected ExecutorService getExecutor() {
+        if (executor == null) {
+            synchronized (this) {
+                if (executor == null) {
+                    int threads = serverConfig.getBatchInvocationThreads();
+                    ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(threads, threads,
+                            60L, TimeUnit.SECONDS,
+                            new LinkedBlockingQueue<>(threads * 16),
+                            new ThreadFactoryBuilder()
+                                    .setNameFormat("BatchInvocation-%d")
+                                    .setDaemon(true)
+                                    .build());
+                    threadPoolExecutor.allowCoreThreadTimeOut(true);
+                    executor = threadPoolExecutor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    @PreDestroy
+    protected void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -24,6 +24,10 @@ import com.haulmont.cuba.core.config.SourceType;
 import com.haulmont.cuba.core.config.defaults.DefaultBoolean;
 import com.haulmont.cuba.core.config.defaults.DefaultInt;
 import com.haulmont.cuba.core.config.defaults.DefaultLong;
+import com.haulmont.cuba.core.config.type.CommaSeparatedStringListTypeFactory;
+import com.haulmont.cuba.core.config.type.Factory;
+
+import java.util.List;
 
 /**
  * Middleware cluster configuration settings.
@@ -66,4 +70,40 @@ public interface ClusterConfig extends Config {
     @Property("cuba.cluster.messageSendingQueueCapacity")
     @DefaultInt(Integer.MAX_VALUE)
     int getClusterMessageSendingQueueCapacity();
+
+    /**
+     * @return whether asynchronously sent messages are combined into batches before sending to the cluster members
+     */
+    @Property("cuba.cluster.messageBatchingEnabled")
+    @DefaultBoolean(false)
+    boolean getMessageBatchingEnabled();
+
+    /**
+     * @return maximum time in milliseconds a message can wait in the batch before it is sent
+     */
+    @Property("cuba.cluster.messageBatchingMaxDelay")
+    @DefaultLong(50)
+    long getMessageBatchingMaxDelay();
+
+    /**
+     * @return maximum number of messages in one batch
+     */
+    @Property("cuba.cluster.messageBatchingMaxSize")
+    @DefaultInt(500)
+    int getMessageBatchingMaxSize();
+
+    /**
+     * @return name of the codec used to encode cluster messages, e.g. {@code standard} or {@code kryo}.
+     * If not set, messages are sent in the format compatible with previous platform versions.
+     * @see ClusterMessageCodec
+     */
+    @Property("cuba.cluster.messageCodec")
+    String getMessageCodec();
+
+    /**
+     * @return names of message classes which are always encoded by the standard codec
+     */
+    @Property("cuba.cluster.messageCodecExcludedClasses")
+    @Factory(factory = CommaSeparatedStringListTypeFactory.class)
+    List<String> getMessageCodecExcludedClasses();
 }
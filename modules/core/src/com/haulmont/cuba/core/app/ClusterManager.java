@@ -38,14 +38,13 @@ import org.springframework.context.event.EventListener;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.Nullable;
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 import javax.management.MBeanServer;
 import java.io.*;
 import java.lang.management.ManagementFactory;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.LongAdder;
 
@@ -65,6 +64,10 @@ public class ClusterManager implements ClusterManagerAPI {
 
     protected ThreadPoolExecutor executor;
 
+    protected BlockingQueue<Serializable> batchQueue;
+
+    protected ExecutorService batchSender;
+
     @Inject
     protected Resources resources;
 
@@ -72,13 +75,28 @@ public class ClusterManager implements ClusterManagerAPI {
     protected GlobalConfig globalConfig;
     @Inject
     protected ClusterConfig clusterConfig;
+    @Inject
+    protected List<ClusterMessageCodec> messageCodecs;
+
+    protected Map<Byte, ClusterMessageCodec> messageCodecsById = new HashMap<>();
+
+    protected ClusterMessageCodec messageCodec;
+
+    protected Map<Class, ClusterMessageCodec> messageCodecsByClass = new ConcurrentHashMap<>();
 
     protected ThreadLocal<Boolean> forceSyncSending = new ThreadLocal<>();
 
     protected Map<String, MessageStat> messagesStat = new ConcurrentHashMap<>();
 
+    protected LongAdder sentBatches = new LongAdder();
+    protected LongAdder batchedMessages = new LongAdder();
+    protected LongAdder deduplicatedMessages = new LongAdder();
+
     protected static final String STATE_MAGIC = "CUBA_STATE";
 
+    // Java serialization streams start with 0xACED, so they never start with this header
+    protected static final byte[] CODEC_MAGIC = {(byte) 0xCB, (byte) 0xC0, (byte) 0xDE};
+
     public JChannel getChannel() {
         return channel;
     }
@@ -91,8 +109,36 @@ public class ClusterManager implements ClusterManagerAPI {
                 new ThreadFactoryBuilder().setNameFormat("ClusterManagerMessageSender-%d").build(),
                 (r, executor) -> {
                     SendMessageRunnable sendMessageRunnable = (SendMessageRunnable) r;
-                    log.info("Queue capacity is exceeded. Message: {}: {}", sendMessageRunnable.message.getClass(), sendMessageRunnable.message);
+                    messageDropped(sendMessageRunnable.message);
                 });
+
+        initMessageCodecs();
+
+        if (clusterConfig.getMessageBatchingEnabled()) {
+            batchQueue = new LinkedBlockingQueue<>(clusterConfig.getClusterMessageSendingQueueCapacity());
+            batchSender = Executors.newSingleThreadExecutor(
+                    new ThreadFactoryBuilder().setNameFormat("ClusterManagerBatchSender-%d").setDaemon(true).build());
+            batchSender.execute(this::processBatches);
+        }
+    }
+
+    protected void initMessageCodecs() {
+        for (ClusterMessageCodec codec : messageCodecs) {
+            ClusterMessageCodec existing = messageCodecsById.put(codec.getId(), codec);
+            if (existing != null) {
+                throw new IllegalStateException(String.format("Cluster message codecs %s and %s have the same id %s",
+                        existing.getClass().getName(), codec.getClass().getName(), codec.getId()));
+            }
+        }
+
+        String codecName = clusterConfig.getMessageCodec();
+        if (!Strings.isNullOrEmpty(codecName)) {
+            messageCodec = messageCodecs.stream()
+                    .filter(codec -> codecName.equals(codec.getName()))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException("Unknown cluster message codec: " + codecName));
+            log.info("Using '{}' cluster message codec", codecName);
+        }
     }
 
     @EventListener(AppContextInitializedEvent.class)
@@ -106,9 +152,31 @@ public class ClusterManager implements ClusterManagerAPI {
     @EventListener(AppContextStoppedEvent.class)
     protected void applicationStopped() {
         executor.shutdown();
+        stopBatchSender();
         stop();
     }
 
+    protected void stopBatchSender() {
+        if (batchSender == null)
+            return;
+
+        batchSender.shutdownNow();
+        try {
+            batchSender.awaitTermination(clusterConfig.getMessageBatchingMaxDelay(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<Serializable> remaining = new ArrayList<>();
+        batchQueue.drainTo(remaining);
+        if (!remaining.isEmpty() && channel != null) {
+            log.debug("Sending {} remaining batched messages", remaining.size());
+            int maxSize = Math.max(clusterConfig.getMessageBatchingMaxSize(), 1);
+            for (int i = 0; i < remaining.size(); i += maxSize) {
+                sendBatch(remaining.subList(i, Math.min(i + maxSize, remaining.size())));
+            }
+        }
+    }
+
     @Override
     public void send(final Serializable message) {
         if (channel == null)
@@ -117,6 +185,11 @@ public class ClusterManager implements ClusterManagerAPI {
         Boolean sync = forceSyncSending.get();
         if (sync != null && sync) {
             internalSend(message, true);
+        } else if (batchQueue != null) {
+            log.trace("Submitting message: {}: {} to send in batch", message.getClass(), message);
+            if (!batchQueue.offer(message)) {
+                messageDropped(message);
+            }
         } else {
             log.trace("Submitting message: {}: {} to send asynchronously", message.getClass(), message);
             executor.execute(new SendMessageRunnable(message));
@@ -131,21 +204,100 @@ public class ClusterManager implements ClusterManagerAPI {
         internalSend(message, true);
     }
 
+    protected void messageDropped(Serializable message) {
+        log.info("Queue capacity is exceeded. Message: {}: {}", message.getClass(), message);
+        MessageStat stat = messagesStat.get(message.getClass().getName());
+        if (stat != null) {
+            stat.updateDropped();
+        }
+    }
+
+    /**
+     * Takes messages from the batch queue and sends them in batches. A batch is sent when it reaches the
+     * configured maximum size or when its first message has waited for the configured maximum delay.
+     */
+    protected void processBatches() {
+        int maxSize = Math.max(clusterConfig.getMessageBatchingMaxSize(), 1);
+        long maxDelay = TimeUnit.MILLISECONDS.toNanos(clusterConfig.getMessageBatchingMaxDelay());
+        List<Serializable> batch = new ArrayList<>(maxSize);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(batchQueue.take());
+                long deadline = System.nanoTime() + maxDelay;
+                while (batch.size() < maxSize) {
+                    batchQueue.drainTo(batch, maxSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxSize || remaining <= 0) {
+                        break;
+                    }
+                    Serializable next = batchQueue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                if (channel != null) {
+                    sendBatch(batch);
+                }
+            } catch (InterruptedException e) {
+                // put back the messages taken so far to send them on shutdown
+                batch.forEach(message -> batchQueue.offer(message));
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                log.error("Error sending batch of cluster messages", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    protected void sendBatch(List<Serializable> messages) {
+        List<Serializable> distinctMessages = removeDuplicates(messages);
+        if (distinctMessages.size() == 1) {
+            internalSend(distinctMessages.get(0), false);
+        } else if (!distinctMessages.isEmpty()) {
+            sentBatches.increment();
+            batchedMessages.add(distinctMessages.size());
+            internalSend(new ClusterMessageBatch(distinctMessages), false);
+        }
+    }
+
+    /**
+     * Removes repeated {@link IdempotentClusterMessage}s keeping the last occurrence of each message, so the
+     * receiver applies it after all preceding messages of the batch.
+     */
+    protected List<Serializable> removeDuplicates(List<Serializable> messages) {
+        Set<Serializable> idempotentMessages = new HashSet<>();
+        LinkedList<Serializable> result = new LinkedList<>();
+        for (ListIterator<Serializable> it = messages.listIterator(messages.size()); it.hasPrevious(); ) {
+            Serializable message = it.previous();
+            if (message instanceof IdempotentClusterMessage && !idempotentMessages.add(message)) {
+                deduplicatedMessages.increment();
+                MessageStat stat = messagesStat.get(message.getClass().getName());
+                if (stat != null) {
+                    stat.updateDeduplicated();
+                }
+                continue;
+            }
+            result.addFirst(message);
+        }
+        return new ArrayList<>(result);
+    }
+
     protected void internalSend(Serializable message, boolean sync) {
         StopWatch sw = new Slf4JStopWatch(String.format("sendClusterMessage(%s)", message.getClass().getSimpleName()));
         try {
             byte[] bytes;
+            long start = System.nanoTime();
             try {
-                bytes = SerializationSupport.serialize(message);
+                bytes = encode(message);
             } catch (Exception e) {
                 log.error("Cluster message serialization error", e);
                 throw new RuntimeException("Cluster message serialization error", e);
             }
+            long serializationTime = System.nanoTime() - start;
             log.debug("Sending message: {}: {} ({} bytes)", message.getClass(), message, bytes.length);
-            MessageStat stat = messagesStat.get(message.getClass().getName());
-            if (stat != null) {
-                stat.updateSent(bytes.length);
-            }
+            updateSentStat(message, bytes.length, serializationTime);
             Message msg = new Message()
                     .setBuffer(bytes);
             if (sync) {
@@ -161,6 +313,102 @@ public class ClusterManager implements ClusterManagerAPI {
         }
     }
 
+    /**
+     * Serializes the message. If a message codec is configured, the result is prefixed by the codec identifier.
+     */
+    protected byte[] encode(Serializable message) {
+        if (messageCodec == null) {
+            return SerializationSupport.serialize(message);
+        }
+
+        ClusterMessageCodec codec = getMessageCodec(message.getClass());
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        output.write(CODEC_MAGIC, 0, CODEC_MAGIC.length);
+        output.write(codec.getId());
+        try {
+            codec.encode(message, output);
+        } catch (RuntimeException e) {
+            ClusterMessageCodec fallbackCodec = messageCodecsById.get(StandardClusterMessageCodec.ID);
+            if (codec == fallbackCodec || fallbackCodec == null) {
+                throw e;
+            }
+            log.warn("Unable to encode cluster message {} by '{}' codec, '{}' codec will be used",
+                    message.getClass().getName(), codec.getName(), fallbackCodec.getName(), e);
+            messageCodecsByClass.put(message.getClass(), fallbackCodec);
+            return encode(message);
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * Deserializes the message using the codec defined by its prefix. Messages without the prefix are deserialized
+     * as before codecs were introduced. If a message sent without codec by a custom serialization starts with the
+     * same bytes as the prefix and cannot be decoded by the codec, it is deserialized as a message without codec.
+     */
+    protected Serializable decode(byte[] bytes) {
+        if (!hasCodecPrefix(bytes)) {
+            return decodeWithoutCodec(bytes);
+        }
+
+        byte codecId = bytes[CODEC_MAGIC.length];
+        ClusterMessageCodec codec = messageCodecsById.get(codecId);
+        try {
+            if (codec == null) {
+                throw new IllegalStateException("Unknown cluster message codec id: " + codecId);
+            }
+            int offset = CODEC_MAGIC.length + 1;
+            return codec.decode(new ByteArrayInputStream(bytes, offset, bytes.length - offset));
+        } catch (RuntimeException e) {
+            try {
+                return decodeWithoutCodec(bytes);
+            } catch (RuntimeException e1) {
+                e.addSuppressed(e1);
+                throw e;
+            }
+        }
+    }
+
+    protected boolean hasCodecPrefix(byte[] bytes) {
+        if (bytes.length <= CODEC_MAGIC.length) {
+            return false;
+        }
+        for (int i = 0; i < CODEC_MAGIC.length; i++) {
+            if (bytes[i] != CODEC_MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    protected Serializable decodeWithoutCodec(byte[] bytes) {
+        return (Serializable) SerializationSupport.deserialize(bytes);
+    }
+
+    protected ClusterMessageCodec getMessageCodec(Class messageClass) {
+        return messageCodecsByClass.computeIfAbsent(messageClass, aClass -> {
+            List<String> excludedClasses = clusterConfig.getMessageCodecExcludedClasses();
+            if (excludedClasses != null && excludedClasses.contains(aClass.getName())) {
+                return messageCodecsById.getOrDefault(StandardClusterMessageCodec.ID, messageCodec);
+            }
+            return messageCodec;
+        });
+    }
+
+    protected void updateSentStat(Serializable message, int bytes, long serializationTime) {
+        if (message instanceof ClusterMessageBatch) {
+            // size and time of a batched message are estimated as its share of the whole batch
+            List<Serializable> messages = ((ClusterMessageBatch) message).getMessages();
+            for (Serializable batchedMessage : messages) {
+                updateSentStat(batchedMessage, bytes / messages.size(), serializationTime / messages.size());
+            }
+            return;
+        }
+        MessageStat stat = messagesStat.get(message.getClass().getName());
+        if (stat != null) {
+            stat.updateSent(bytes, serializationTime);
+        }
+    }
+
     @Override
     public boolean getSyncSendingForCurrentThread() {
         return forceSyncSending.get() == null ? false : forceSyncSending.get();
@@ -275,7 +523,7 @@ public class ClusterManager implements ClusterManagerAPI {
 
     @Override
     public int getMessagesCount() {
-        return executor.getQueue().size();
+        return executor.getQueue().size() + (batchQueue != null ? batchQueue.size() : 0);
     }
 
     @Override
@@ -317,6 +565,29 @@ public class ClusterManager implements ClusterManagerAPI {
         return currentView == null ? "" : currentView.toString();
     }
 
+    @Override
+    public List<String> getCurrentViewMembers() {
+        View view = currentView;
+        if (view == null || channel == null)
+            return Collections.emptyList();
+
+        List<String> members = new ArrayList<>(view.size());
+        for (Address address : view.getMembers()) {
+            members.add(address.toString());
+        }
+        return members;
+    }
+
+    @Nullable
+    @Override
+    public String getLocalMember() {
+        JChannel ch = channel;
+        if (ch == null || ch.getAddress() == null)
+            return null;
+
+        return ch.getAddress().toString();
+    }
+
     @Override
     public String printSharedStateStat() {
         StringBuilder clusterStateStat = new StringBuilder();
@@ -342,11 +613,21 @@ public class ClusterManager implements ClusterManagerAPI {
             MessageStat stat = entry.getValue();
             if (stat != null) {
                 messagesStats
-                        .append(String.format("Class: %s; received: %s, %s bytes; sent: %s, %s bytes\n",
+                        .append(String.format("Class: %s; received: %s, %s bytes, %s ms; sent: %s, %s bytes, %s ms; " +
+                                        "deduplicated: %s; dropped: %s\n",
                                 entry.getKey(), stat.getReceivedMessages(), stat.getReceivedBytes(),
-                                stat.getSentMessages(), stat.getSentBytes()));
+                                TimeUnit.NANOSECONDS.toMillis(stat.getDeserializationTime()),
+                                stat.getSentMessages(), stat.getSentBytes(),
+                                TimeUnit.NANOSECONDS.toMillis(stat.getSerializationTime()),
+                                stat.getDeduplicatedMessages(), stat.getDroppedMessages()));
             }
         }
+        if (batchQueue != null) {
+            long batches = sentBatches.longValue();
+            messagesStats.append(String.format("Batches sent: %s, average batch size: %.1f, deduplicated messages: %s\n",
+                    batches, batches == 0 ? 0.0 : (double) batchedMessages.longValue() / batches,
+                    deduplicatedMessages.longValue()));
+        }
         return messagesStats.toString();
     }
 
@@ -390,6 +671,51 @@ public class ClusterManager implements ClusterManagerAPI {
         return 0;
     }
 
+    @Override
+    public long getSerializationTime(String className) {
+        Preconditions.checkNotNullArgument(className, "Message class is null");
+        MessageStat stat = messagesStat.get(className);
+        if (stat != null) {
+            return TimeUnit.NANOSECONDS.toMillis(stat.getSerializationTime());
+        }
+        return 0;
+    }
+
+    @Override
+    public long getDeserializationTime(String className) {
+        Preconditions.checkNotNullArgument(className, "Message class is null");
+        MessageStat stat = messagesStat.get(className);
+        if (stat != null) {
+            return TimeUnit.NANOSECONDS.toMillis(stat.getDeserializationTime());
+        }
+        return 0;
+    }
+
+    @Override
+    public long getDroppedMessages(String className) {
+        Preconditions.checkNotNullArgument(className, "Message class is null");
+        MessageStat stat = messagesStat.get(className);
+        if (stat != null) {
+            return stat.getDroppedMessages();
+        }
+        return 0;
+    }
+
+    @Override
+    public long getSentBatches() {
+        return sentBatches.longValue();
+    }
+
+    @Override
+    public long getBatchedMessages() {
+        return batchedMessages.longValue();
+    }
+
+    @Override
+    public long getDeduplicatedMessages() {
+        return deduplicatedMessages.longValue();
+    }
+
     protected class ClusterReceiver implements Receiver {
 
         @Override
@@ -403,29 +729,42 @@ public class ClusterManager implements ClusterManagerAPI {
             String simpleClassName = null;
             try {
                 Serializable data;
+                long start = System.nanoTime();
                 try {
-                    data = (Serializable) SerializationSupport.deserialize(bytes);
+                    data = decode(bytes);
                 } catch (Exception e) {
                     log.error("Cluster message deserialization error", e);
                     throw new RuntimeException("Cluster message deserialization error", e);
                 }
-                String className = data.getClass().getName();
+                long deserializationTime = System.nanoTime() - start;
                 simpleClassName = data.getClass().getSimpleName();
                 log.debug("Received message: {}: {} ({} bytes)", data.getClass(), data, bytes.length);
-                MessageStat stat = messagesStat.get(className);
-                if (stat != null) {
-                    stat.updateReceived(bytes.length);
-                }
-                @SuppressWarnings("unchecked")
-                ClusterListener<Serializable> listener = listeners.get(className);
-                if (listener != null) {
-                    listener.receive(data);
-                }
+                dispatch(data, bytes.length, deserializationTime);
             } finally {
                 sw.stop(String.format("receiveClusterMessage(%s)", simpleClassName));
             }
         }
 
+        protected void dispatch(Serializable data, int bytes, long deserializationTime) {
+            if (data instanceof ClusterMessageBatch) {
+                List<Serializable> messages = ((ClusterMessageBatch) data).getMessages();
+                for (Serializable message : messages) {
+                    dispatch(message, bytes / messages.size(), deserializationTime / messages.size());
+                }
+                return;
+            }
+            String className = data.getClass().getName();
+            MessageStat stat = messagesStat.get(className);
+            if (stat != null) {
+                stat.updateReceived(bytes, deserializationTime);
+            }
+            @SuppressWarnings("unchecked")
+            ClusterListener<Serializable> listener = listeners.get(className);
+            if (listener != null) {
+                listener.receive(data);
+            }
+        }
+
         @Override
         public void viewAccepted(View new_view) {
             log.info("New cluster view: {}", new_view);
@@ -537,17 +876,39 @@ public class ClusterManager implements ClusterManagerAPI {
         protected LongAdder receivedBytes = new LongAdder();
         protected LongAdder receivedMessages = new LongAdder();
         protected LongAdder sentMessages = new LongAdder();
+        protected LongAdder deduplicatedMessages = new LongAdder();
+        protected LongAdder droppedMessages = new LongAdder();
+        protected LongAdder serializationTime = new LongAdder();
+        protected LongAdder deserializationTime = new LongAdder();
 
         public void updateReceived(int bytes) {
             receivedMessages.increment();
             receivedBytes.add(bytes);
         }
 
+        public void updateReceived(int bytes, long nanos) {
+            updateReceived(bytes);
+            deserializationTime.add(nanos);
+        }
+
         public void updateSent(int bytes) {
             sentMessages.increment();
             sentBytes.add(bytes);
         }
 
+        public void updateSent(int bytes, long nanos) {
+            updateSent(bytes);
+            serializationTime.add(nanos);
+        }
+
+        public void updateDeduplicated() {
+            deduplicatedMessages.increment();
+        }
+
+        public void updateDropped() {
+            droppedMessages.increment();
+        }
+
         public long getSentBytes() {
             return sentBytes.longValue();
         }
@@ -563,5 +924,21 @@ public class ClusterManager implements ClusterManagerAPI {
         public long getReceivedMessages() {
             return receivedMessages.longValue();
         }
+
+        public long getDeduplicatedMessages() {
+            return deduplicatedMessages.longValue();
+        }
+
+        public long getDroppedMessages() {
+            return droppedMessages.longValue();
+        }
+
+        public long getSerializationTime() {
+            return serializationTime.longValue();
+        }
+
+        public long getDeserializationTime() {
+            return deserializationTime.longValue();
+        }
     }
 }
\ No newline at end of file
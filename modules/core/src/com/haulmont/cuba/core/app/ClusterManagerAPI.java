@@ -16,7 +16,9 @@
  */
 package com.haulmont.cuba.core.app;
 
+import javax.annotation.Nullable;
 import java.io.Serializable;
+import java.util.List;
 
 /**
  * Interface defining methods for communication in a middleware cluster.
@@ -85,6 +87,21 @@ public interface ClusterManagerAPI {
      */
     String getCurrentView();
 
+    /**
+     * Return names of the active nodes in the order they are listed in the current cluster view.
+     *
+     * @return list of node names, or empty list if the cluster is not started
+     */
+    List<String> getCurrentViewMembers();
+
+    /**
+     * Return the name of the current node as it is listed in {@link #getCurrentViewMembers()}.
+     *
+     * @return name of the current node, or null if the cluster is not started
+     */
+    @Nullable
+    String getLocalMember();
+
     /**
      * Join a cluster.
      */
@@ -151,4 +168,43 @@ public interface ClusterManagerAPI {
      * @return size in bytes
      */
     long getReceivedBytes(String className);
-}
\ No newline at end of file
+
+    /**
+     * Get total time spent on serialization of sent messages for specified {@code className}
+     *
+     * @return time in milliseconds
+     */
+    long getSerializationTime(String className);
+
+    /**
+     * Get total time spent on deserialization of received messages for specified {@code className}
+     *
+     * @return time in milliseconds
+     */
+    long getDeserializationTime(String className);
+
+    /**
+     * Get count of messages for specified {@code className} which were not sent because the sending queue is full
+     *
+     * @return messages count
+     */
+    long getDroppedMessages(String className);
+
+    /**
+     * @return count of message batches sent since the start
+     * @see ClusterConfig#getMessageBatchingEnabled()
+     */
+    long getSentBatches();
+
+    /**
+     * @return total count of messages sent in batches
+     * @see ClusterConfig#getMessageBatchingEnabled()
+     */
+    long getBatchedMessages();
+
+    /**
+     * @return count of {@link IdempotentClusterMessage}s which were not sent because an equal message
+     * was sent in the same batch
+     */
+    long getDeduplicatedMessages();
+}
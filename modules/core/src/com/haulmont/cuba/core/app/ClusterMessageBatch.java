@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.app;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Envelope combining several cluster messages into one JGroups message.
+ *
+ * @see ClusterConfig#getMessageBatchingEnabled()
+ */
+public class ClusterMessageBatch implements Serializable {
+
+    private static final long serialVersionUID = -2476012858146127304L;
+
+    protected final List<Serializable> messages;
+
+    public ClusterMessageBatch(Collection<? extends Serializable> messages) {
+        this.messages = new ArrayList<>(messages);
+    }
+
+    public List<Serializable> getMessages() {
+        return messages;
+    }
+
+    @Override
+    public String toString() {
+        return "ClusterMessageBatch{size=" + messages.size() + "}";
+    }
+}
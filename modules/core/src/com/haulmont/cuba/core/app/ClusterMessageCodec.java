@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.app;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+
+/**
+ * Converts cluster messages to bytes and back.
+ * <p>
+ * Each encoded message is prefixed by {@link ClusterManager} with the codec identifier, so the receiving node
+ * decodes it with the same codec regardless of its own settings. All codecs are Spring beans; the codec used for
+ * sending is selected by the {@link ClusterConfig#getMessageCodec()} property.
+ */
+public interface ClusterMessageCodec {
+
+    /**
+     * @return identifier written to each encoded message, unique among all codecs
+     */
+    byte getId();
+
+    /**
+     * @return codec name used in the {@link ClusterConfig#getMessageCodec()} property
+     */
+    String getName();
+
+    /**
+     * Writes the message to the stream.
+     *
+     * @throws com.haulmont.cuba.core.sys.serialization.SerializationException if the message cannot be encoded
+     */
+    void encode(Serializable message, OutputStream output);
+
+    /**
+     * Reads a message from the stream.
+     *
+     * @throws com.haulmont.cuba.core.sys.serialization.SerializationException if the message cannot be decoded
+     */
+    Serializable decode(InputStream input);
+}
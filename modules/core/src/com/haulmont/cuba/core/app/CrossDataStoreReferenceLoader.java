@@ -30,6 +30,8 @@ import org.springframework.stereotype.Component;
 
 import javax.inject.Inject;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 /**
@@ -56,6 +58,9 @@ public class CrossDataStoreReferenceLoader {
     @Inject
     private ServerConfig serverConfig;
 
+    @Inject
+    private CrossDataStoreReferenceLoadingSupport loadingSupport;
+
     private MetaClass metaClass;
 
     private View view;
@@ -126,11 +131,56 @@ public class CrossDataStoreReferenceLoader {
         if (entityCrossDataStorePropertyList.size() == 1) {
             loadOne(entityCrossDataStorePropertyList.get(0));
         } else {
-            entityCrossDataStorePropertyList.stream()
-                    .collect(Collectors.groupingBy(EntityCrossDataStoreProperty::getCrossProp))
-                    .forEach((ap, eapList) ->
-                            loadMany(ap, eapList.stream().map(eap -> eap.entity).collect(Collectors.toList()))
-                    );
+            Map<CrossDataStoreProperty, List<Entity>> entitiesByProperty = entityCrossDataStorePropertyList.stream()
+                    .collect(Collectors.groupingBy(EntityCrossDataStoreProperty::getCrossProp, LinkedHashMap::new,
+                            Collectors.mapping(eap -> eap.entity, Collectors.toList())));
+
+            if (entitiesByProperty.size() > 1 && isParallelLoading()) {
+                loadManyConcurrently(entitiesByProperty);
+            } else {
+                entitiesByProperty.forEach((ap, entityList) ->
+                        setReferences(ap, entityList, loadMany(ap, entityList))
+                );
+            }
+        }
+    }
+
+    private boolean isParallelLoading() {
+        // a joined transaction is bound to the calling thread
+        return !joinTransaction && serverConfig.getCrossDataStoreReferenceLoadingParallel();
+    }
+
+    private void loadManyConcurrently(Map<CrossDataStoreProperty, List<Entity>> entitiesByProperty) {
+        Map<CrossDataStoreProperty, Future<List<Entity>>> futures = new LinkedHashMap<>();
+        entitiesByProperty.forEach((ap, entityList) ->
+                futures.put(ap, loadingSupport.submit(() -> loadMany(ap, entityList)))
+        );
+        try {
+            // references are set in the calling thread because entities are not thread-safe
+            for (Map.Entry<CrossDataStoreProperty, Future<List<Entity>>> entry : futures.entrySet()) {
+                List<Entity> loadedEntities = getLoadedEntities(entry.getValue());
+                setReferences(entry.getKey(), entitiesByProperty.get(entry.getKey()), loadedEntities);
+            }
+        } finally {
+            futures.values().forEach(future -> future.cancel(true));
+        }
+    }
+
+    private List<Entity> getLoadedEntities(Future<List<Entity>> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while loading cross-datastore references", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException("Error loading cross-datastore references", cause);
         }
     }
 
@@ -172,33 +222,34 @@ public class CrossDataStoreReferenceLoader {
         if (aProp.viewProperty.getView() != null)
             loadContext.setView(aProp.viewProperty.getView());
         loadContext.setJoinTransaction(joinTransaction);
+
+        long start = System.nanoTime();
         Entity relatedEntity = dataManager.load(loadContext);
-        entity.setValue(aProp.property.getName(), relatedEntity);
-    }
+        loadingSupport.updateStat(metadataTools.getStoreName(aProp.property.getRange().asClass()),
+                System.nanoTime() - start, relatedEntity != null ? 1 : 0);
 
-    private void loadMany(CrossDataStoreProperty crossDataStoreProperty, List<Entity> entities) {
-        int offset = 0, limit = serverConfig.getCrossDataStoreReferenceLoadingBatchSize();
-        while (true) {
-            int end = offset + limit;
-            List<Entity> batch = entities.subList(offset, Math.min(end, entities.size()));
-            loadBatch(crossDataStoreProperty, batch);
-            if (end >= entities.size())
-                break;
-            else
-                offset += limit;
-        }
+        entity.setValue(aProp.property.getName(), relatedEntity);
     }
 
-    private void loadBatch(CrossDataStoreProperty crossDataStoreProperty, List<Entity> entities) {
+    private List<Entity> loadMany(CrossDataStoreProperty crossDataStoreProperty, List<Entity> entities) {
+        // entities often refer to the same instances, so the batches are built of distinct identifiers
         List<Object> idList = entities.stream()
                 .map(e -> e.getValue(crossDataStoreProperty.relatedPropertyName))
                 .filter(Objects::nonNull)
                 .distinct()
                 .collect(Collectors.toList());
 
-        if (idList.isEmpty())
-            return;
+        List<Entity> loadedEntities = new ArrayList<>(idList.size());
+        int offset = 0, limit = serverConfig.getCrossDataStoreReferenceLoadingBatchSize();
+        while (offset < idList.size()) {
+            int end = Math.min(offset + limit, idList.size());
+            loadedEntities.addAll(loadBatch(crossDataStoreProperty, idList.subList(offset, end)));
+            offset = end;
+        }
+        return loadedEntities;
+    }
 
+    private List<Entity> loadBatch(CrossDataStoreProperty crossDataStoreProperty, List<Object> idList) {
         MetaClass cdsrMetaClass = crossDataStoreProperty.property.getRange().asClass();
         LoadContext<Entity> loadContext = new LoadContext<>(cdsrMetaClass);
 
@@ -233,19 +284,25 @@ public class CrossDataStoreReferenceLoader {
         loadContext.setView(crossDataStoreProperty.viewProperty.getView());
         loadContext.setJoinTransaction(joinTransaction);
 
+        long start = System.nanoTime();
         List<Entity> loadedEntities = dataManager.loadList(loadContext);
+        loadingSupport.updateStat(metadataTools.getStoreName(cdsrMetaClass), System.nanoTime() - start, loadedEntities.size());
 
+        return loadedEntities;
+    }
+
+    private void setReferences(CrossDataStoreProperty crossDataStoreProperty, List<Entity> entities, List<Entity> loadedEntities) {
+        Map<Object, Entity> loadedEntitiesById = new HashMap<>(loadedEntities.size());
+        for (Entity loadedEntity : loadedEntities) {
+            Object id = loadedEntity.getId() instanceof IdProxy ? ((IdProxy) loadedEntity.getId()).getNN() : loadedEntity.getId();
+            loadedEntitiesById.putIfAbsent(id, loadedEntity);
+        }
         for (Entity entity : entities) {
             Object relatedPropertyValue = entity.getValue(crossDataStoreProperty.relatedPropertyName);
-            loadedEntities.stream()
-                    .filter(e -> {
-                        Object id = e.getId() instanceof IdProxy ? ((IdProxy) e.getId()).getNN() : e.getId();
-                        return id.equals(relatedPropertyValue);
-                    })
-                    .findAny()
-                    .ifPresent(e ->
-                            entity.setValue(crossDataStoreProperty.property.getName(), e)
-                    );
+            Entity loadedEntity = relatedPropertyValue != null ? loadedEntitiesById.get(relatedPropertyValue) : null;
+            if (loadedEntity != null) {
+                entity.setValue(crossDataStoreProperty.property.getName(), loadedEntity);
+            }
         }
     }
 
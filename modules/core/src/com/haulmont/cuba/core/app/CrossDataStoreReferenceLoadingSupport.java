@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.app;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.haulmont.cuba.core.sys.SecurityContextAwareCallable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nullable;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * INTERNAL.
+ * Executes concurrent loading of cross-datastore references and collects loading statistics per data store.
+ *
+ * @see CrossDataStoreReferenceLoader
+ */
+@Component(CrossDataStoreReferenceLoadingSupport.NAME)
+public class CrossDataStoreReferenceLoadingSupport {
+
+    public static final String NAME = "cuba_CrossDataStoreReferenceLoadingSupport";
+
+    private static final Logger log = LoggerFactory.getLogger(CrossDataStoreReferenceLoadingSupport.class);
+
+    protected static final ThreadLocal<Boolean> insideTask = new ThreadLocal<>();
+
+    @Inject
+    protected ServerConfig serverConfig;
+
+    protected volatile ExecutorService executor;
+
+    protected ConcurrentMap<String, StoreStat> storeStats = new ConcurrentHashMap<>();
+
+    /**
+     * Submits a loading task propagating the current security context to it. The task is executed in the calling
+     * thread if it is submitted from another loading task or if the executor queue is full.
+     */
+    public <T> Future<T> submit(Callable<T> task) {
+        if (Boolean.TRUE.equals(insideTask.get())) {
+            return runInCurrentThread(task);
+        }
+        Callable<T> securityAwareTask = new SecurityContextAwareCallable<>(() -> {
+            insideTask.set(true);
+            try {
+                return task.call();
+            } finally {
+                insideTask.remove();
+            }
+        });
+        try {
+            return getExecutor().submit(securityAwareTask);
+        } catch (RejectedExecutionException e) {
+            log.debug("Cross-datastore reference loading queue is full, loading in the calling thread");
+            return runInCurrentThread(task);
+        }
+    }
+
+    protected <T> Future<T> runInCurrentThread(Callable<T> task) {
+        FutureTask<T> futureTask = new FutureTask<>(task);
+        futureTask.run();
+        return futureTask;
+    }
+
+    protected ExecutorService getExecutor() {
+        if (executor == null) {
+            synchronized (this) {
+                if (executor == null) {
+                    int threads = serverConfig.getCrossDataStoreReferenceLoadingThreads();
+                    ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(threads, threads,
+                            60L, TimeUnit.SECONDS,
+                            new LinkedBlockingQueue<>(threads * 16),
+                            new ThreadFactoryBuilder()
+                                    .setNameFormat("CrossDataStoreReferenceLoader-%d")
+                                    .setDaemon(true)
+                                    .build());
+                    threadPoolExecutor.allowCoreThreadTimeOut(true);
+                    executor = threadPoolExecutor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    @PreDestroy
+    protected void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Registers a load operation against a data store.
+     *
+     * @param storeName   data store name
+     * @param nanos       time of the operation in nanoseconds
+     * @param entityCount number of loaded entities
+     */
+    public void updateStat(@Nullable String storeName, long nanos, int entityCount) {
+        StoreStat stat = storeStats.computeIfAbsent(Objects.toString(storeName, "undefined"), s -> new StoreStat());
+        stat.loads.increment();
+        stat.entities.add(entityCount);
+        stat.nanos.add(nanos);
+    }
+
+    public String printStat() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, StoreStat> entry : new TreeMap<>(storeStats).entrySet()) {
+            StoreStat stat = entry.getValue();
+            long loads = stat.loads.sum();
+            long millis = TimeUnit.NANOSECONDS.toMillis(stat.nanos.sum());
+            sb.append(entry.getKey())
+                    .append(": loads=").append(loads)
+                    .append(", entities=").append(stat.entities.sum())
+                    .append(", totalTime=").append(millis).append("ms")
+                    .append(", avgTime=").append(loads == 0 ? 0 : millis / loads).append("ms")
+                    .append("\n");
+        }
+        return sb.toString();
+    }
+
+    public void resetStat() {
+        storeStats.clear();
+    }
+
+    protected static class StoreStat {
+        protected final LongAdder loads = new LongAdder();
+        protected final LongAdder entities = new LongAdder();
+        protected final LongAdder nanos = new LongAdder();
+    }
+}
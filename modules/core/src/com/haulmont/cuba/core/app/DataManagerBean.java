@@ -17,6 +17,7 @@
 
 package com.haulmont.cuba.core.app;
 
+import com.google.common.collect.Iterators;
 import com.haulmont.chile.core.model.MetaClass;
 import com.haulmont.chile.core.model.MetaProperty;
 import com.haulmont.cuba.core.entity.*;
@@ -32,6 +33,8 @@ import javax.inject.Inject;
 import javax.validation.ConstraintViolation;
 import javax.validation.Validator;
 import java.util.*;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @Component(DataManager.NAME)
 public class DataManagerBean implements DataManager {
@@ -80,6 +83,25 @@ public class DataManagerBean implements DataManager {
         return entities;
     }
 
+    @Override
+    public <E extends Entity> Stream<E> loadStream(LoadContext<E> context, int batchSize) {
+        MetaClass metaClass = metadata.getClassNN(context.getMetaClass());
+        DataStore storage = storeFactory.get(getStoreName(metaClass));
+        Stream<E> stream = storage.loadStream(context, batchSize);
+        if (Stores.getAdditional().isEmpty() || context.getView() == null) {
+            return stream;
+        }
+        // read cross data store references by batches instead of one instance at a time
+        Iterator<List<E>> batches = Iterators.partition(stream.iterator(), batchSize);
+        Iterator<E> entities = Iterators.concat(Iterators.transform(batches, batch -> {
+            readCrossDataStoreReferences(batch, context.getView(), metaClass, context.isJoinTransaction());
+            return batch.iterator();
+        }));
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(entities, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(stream::close);
+    }
+
     @Override
     public long getCount(LoadContext<? extends Entity> context) {
         MetaClass metaClass = metadata.getClassNN(context.getMetaClass());
@@ -398,6 +420,12 @@ public class DataManagerBean implements DataManager {
             return dataManager.loadList(context);
         }
 
+        @Override
+        public <E extends Entity> Stream<E> loadStream(LoadContext<E> context, int batchSize) {
+            context.setAuthorizationRequired(true);
+            return dataManager.loadStream(context, batchSize);
+        }
+
         @Override
         public List<KeyValueEntity> loadValues(ValueLoadContext context) {
             context.setAuthorizationRequired(true);
@@ -21,10 +21,12 @@ import com.haulmont.cuba.core.entity.KeyValueEntity;
 import com.haulmont.cuba.core.global.CommitContext;
 import com.haulmont.cuba.core.global.LoadContext;
 import com.haulmont.cuba.core.global.ValueLoadContext;
+import com.haulmont.cuba.core.sys.PagingLoadIterator;
 
 import javax.annotation.Nullable;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * Interface defining methods for storing and loading entities in a persistent storage.
@@ -47,6 +49,15 @@ public interface DataStore {
      */
     <E extends Entity> List<E> loadList(LoadContext<E> context);
 
+    /**
+     * Loads entity instances lazily in batches. The returned stream must be closed by the caller.
+     * <p>The default implementation loads each batch by a separate {@link #loadList(LoadContext)} call.
+     * @return a sequential stream of instances
+     */
+    default <E extends Entity> Stream<E> loadStream(LoadContext<E> context, int batchSize) {
+        return PagingLoadIterator.stream(context, batchSize, this::loadList);
+    }
+
     /**
      * Returns the number of entity instances for the given query passed in the {@link LoadContext}.
      * @return number of instances in the storage
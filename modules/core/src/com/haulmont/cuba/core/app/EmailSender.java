@@ -28,6 +28,8 @@ import org.perf4j.StopWatch;
 import org.perf4j.slf4j.Slf4JStopWatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Component;
 
@@ -42,6 +44,10 @@ import javax.mail.internet.*;
 import java.io.*;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 @Component(EmailSenderAPI.NAME)
 public class EmailSender implements EmailSenderAPI {
@@ -72,6 +78,47 @@ public class EmailSender implements EmailSenderAPI {
         log.info("Email '{}' to '{}' has been sent successfully", msg.getSubject(), sendingMessage.getAddress());
     }
 
+    @Override
+    public Map<SendingMessage, Exception> sendEmails(List<SendingMessage> sendingMessages) {
+        Map<SendingMessage, Exception> failures = new HashMap<>();
+        Map<MimeMessage, SendingMessage> mimeMessages = new LinkedHashMap<>();
+        for (SendingMessage sendingMessage : sendingMessages) {
+            try {
+                mimeMessages.put(createMimeMessage(sendingMessage), sendingMessage);
+            } catch (Exception e) {
+                failures.put(sendingMessage, e);
+            }
+        }
+        if (mimeMessages.isEmpty()) {
+            return failures;
+        }
+
+        StopWatch sw = new Slf4JStopWatch("EmailSender.sendBatch");
+        try {
+            // JavaMailSender sends all messages through one connection
+            mailSender.send(mimeMessages.keySet().toArray(new MimeMessage[0]));
+        } catch (MailSendException e) {
+            if (e.getFailedMessages().isEmpty()) {
+                mimeMessages.values().forEach(sendingMessage -> failures.put(sendingMessage, e));
+            } else {
+                e.getFailedMessages().forEach((mimeMessage, messageException) -> {
+                    SendingMessage sendingMessage = mimeMessages.get(mimeMessage);
+                    if (sendingMessage != null) {
+                        failures.put(sendingMessage, new MailSendException("Failed to send message", messageException));
+                    }
+                });
+            }
+        } catch (MailException e) {
+            mimeMessages.values().forEach(sendingMessage -> failures.put(sendingMessage, e));
+        } finally {
+            sw.stop();
+        }
+
+        log.info("{} of {} emails have been sent successfully",
+                sendingMessages.size() - failures.size(), sendingMessages.size());
+        return failures;
+    }
+
     @Override
     public void updateSession() {
         if (mailSender instanceof CubaMailSender)
@@ -17,8 +17,10 @@
 package com.haulmont.cuba.core.app;
 
 import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
 import com.haulmont.cuba.core.EntityManager;
 import com.haulmont.cuba.core.Persistence;
+import com.haulmont.cuba.core.Query;
 import com.haulmont.cuba.core.Transaction;
 import com.haulmont.cuba.core.TypedQuery;
 import com.haulmont.cuba.core.entity.FileDescriptor;
@@ -46,6 +48,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 @Component(EmailerAPI.NAME)
 public class Emailer implements EmailerAPI {
@@ -58,6 +61,13 @@ public class Emailer implements EmailerAPI {
 
     protected AtomicInteger callCount = new AtomicInteger(0);
 
+    protected LongAdder sentCount = new LongAdder();
+    protected LongAdder notSentCount = new LongAdder();
+    protected LongAdder returnedToQueueCount = new LongAdder();
+    protected LongAdder sendingNanos = new LongAdder();
+    protected LongAdder timedMessagesCount = new LongAdder();
+    protected LongAdder deliveryLatencyMillis = new LongAdder();
+
     @Resource(name = "mailSendTaskExecutor")
     protected TaskExecutor mailSendTaskExecutor;
 
@@ -196,13 +206,11 @@ public class Emailer implements EmailerAPI {
     }
 
     protected void sendSendingMessage(SendingMessage sendingMessage) {
-        Objects.requireNonNull(sendingMessage, "sendingMessage is null");
-        Objects.requireNonNull(sendingMessage.getAddress(), "sendingMessage.address is null");
-        Objects.requireNonNull(sendingMessage.getCaption(), "sendingMessage.caption is null");
-        Objects.requireNonNull(sendingMessage.getContentText(), "sendingMessage.contentText is null");
-        Objects.requireNonNull(sendingMessage.getFrom(), "sendingMessage.from is null");
+        validateSendingMessage(sendingMessage);
         try {
+            long start = System.nanoTime();
             emailSender.sendEmail(sendingMessage);
+            updateSendingTime(System.nanoTime() - start, 1);
             markAsSent(sendingMessage);
         } catch (Exception e) {
             log.warn("Unable to send email to '" + sendingMessage.getAddress() + "'", e);
@@ -311,10 +319,21 @@ public class Emailer implements EmailerAPI {
     }
 
     protected String sendQueuedEmails() {
-        List<SendingMessage> messagesToSend = loadEmailsToSend();
-
-        for (SendingMessage msg : messagesToSend) {
-            submitExecutorTask(msg);
+        List<SendingMessage> messagesToSend;
+        if (config.getPipelinedSendingEnabled()) {
+            // bodies and attachments of a batch are loaded while the previous batches are being sent
+            messagesToSend = loadQueuedMessages();
+            for (List<SendingMessage> batch : Lists.partition(messagesToSend, config.getPipelineBatchSize())) {
+                for (SendingMessage message : batch) {
+                    loadBodyAndAttachments(message);
+                }
+                submitExecutorBatchTask(new ArrayList<>(batch));
+            }
+        } else {
+            messagesToSend = loadEmailsToSend();
+            for (SendingMessage msg : messagesToSend) {
+                submitExecutorTask(msg);
+            }
         }
 
         if (messagesToSend.isEmpty()) {
@@ -354,7 +373,135 @@ public class Emailer implements EmailerAPI {
         }
     }
 
+    protected void submitExecutorBatchTask(List<SendingMessage> messages) {
+        try {
+            mailSendTaskExecutor.execute(new EmailBatchSendTask(messages));
+        } catch (RejectedExecutionException e) {
+            updateStatuses(messages, SendingStatus.QUEUE);
+        }
+    }
+
+    /**
+     * Sends the messages through one SMTP connection and updates their statuses by bulk statements.
+     */
+    protected void sendSendingMessages(List<SendingMessage> sendingMessages) {
+        List<SendingMessage> messages = new ArrayList<>(sendingMessages.size());
+        for (SendingMessage message : sendingMessages) {
+            try {
+                validateSendingMessage(message);
+                messages.add(message);
+            } catch (NullPointerException e) {
+                // left in the sending status like an invalid message sent alone
+                log.error("Exception while sending email: ", e);
+            }
+        }
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        Map<SendingMessage, Exception> failures = emailSender.sendEmails(messages);
+        updateSendingTime(System.nanoTime() - start, messages.size());
+
+        List<SendingMessage> sent = new ArrayList<>(messages.size());
+        List<SendingMessage> toRetry = new ArrayList<>();
+        List<SendingMessage> notSent = new ArrayList<>();
+        for (SendingMessage message : messages) {
+            Exception e = failures.get(message);
+            if (e == null) {
+                sent.add(message);
+            } else {
+                log.warn("Unable to send email to '" + message.getAddress() + "'", e);
+                if (isNeedToRetry(e)) {
+                    toRetry.add(message);
+                } else {
+                    notSent.add(message);
+                }
+            }
+        }
+        updateStatuses(sent, SendingStatus.SENT);
+        updateStatuses(toRetry, SendingStatus.QUEUE);
+        updateStatuses(notSent, SendingStatus.NOTSENT);
+    }
+
+    protected void validateSendingMessage(SendingMessage sendingMessage) {
+        Objects.requireNonNull(sendingMessage, "sendingMessage is null");
+        Objects.requireNonNull(sendingMessage.getAddress(), "sendingMessage.address is null");
+        Objects.requireNonNull(sendingMessage.getCaption(), "sendingMessage.caption is null");
+        Objects.requireNonNull(sendingMessage.getContentText(), "sendingMessage.contentText is null");
+        Objects.requireNonNull(sendingMessage.getFrom(), "sendingMessage.from is null");
+    }
+
+    protected void updateStatuses(List<SendingMessage> messages, SendingStatus status) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        Date now = timeSource.currentTimestamp();
+        List<UUID> ids = new ArrayList<>(messages.size());
+        for (SendingMessage message : messages) {
+            ids.add(message.getId());
+        }
+        try (Transaction tx = persistence.createTransaction()) {
+            EntityManager em = persistence.getEntityManager();
+            Query query = em.createQuery(
+                    "update sys$SendingMessage sm set sm.status = :status, sm.attemptsMade = sm.attemptsMade + 1," +
+                            (status == SendingStatus.SENT ? " sm.dateSent = :dateSent," : "") +
+                            " sm.updateTs = :updateTs, sm.updatedBy = :updatedBy, sm.version = sm.version + 1" +
+                            " where sm.id in :ids");
+            query.setParameter("status", status.getId());
+            if (status == SendingStatus.SENT) {
+                query.setParameter("dateSent", now);
+            }
+            query.setParameter("updateTs", now);
+            query.setParameter("updatedBy", userSessionSource.getUserSession().getUser().getLogin());
+            query.setParameter("ids", ids);
+            query.executeUpdate();
+            tx.commit();
+        } catch (Exception e) {
+            log.error("Error updating status of {} messages to {}", messages.size(), status, e);
+            return;
+        }
+        for (SendingMessage message : messages) {
+            updateStatusStat(message, status, now);
+        }
+    }
+
+    protected void updateStatusStat(SendingMessage message, SendingStatus status, Date ts) {
+        switch (status) {
+            case SENT:
+                sentCount.increment();
+                if (message.getCreateTs() != null) {
+                    deliveryLatencyMillis.add(ts.getTime() - message.getCreateTs().getTime());
+                }
+                break;
+            case NOTSENT:
+                notSentCount.increment();
+                break;
+            case QUEUE:
+                returnedToQueueCount.increment();
+                break;
+            default:
+        }
+    }
+
+    protected void updateSendingTime(long nanos, int messageCount) {
+        sendingNanos.add(nanos);
+        timedMessagesCount.add(messageCount);
+    }
+
     protected List<SendingMessage> loadEmailsToSend() {
+        List<SendingMessage> emailsToSend = loadQueuedMessages();
+        for (SendingMessage message : emailsToSend) {
+            loadBodyAndAttachments(message);
+        }
+        return emailsToSend;
+    }
+
+    /**
+     * Loads messages to send and marks them as being sent. Bodies and attachments stored in the file storage
+     * are not loaded.
+     */
+    protected List<SendingMessage> loadQueuedMessages() {
         Date sendTimeoutTime = DateUtils.addSeconds(timeSource.currentTimestamp(), -config.getSendingTimeoutSec());
 
         List<SendingMessage> emailsToSend = new ArrayList<>();
@@ -389,10 +536,6 @@ public class Emailer implements EmailerAPI {
             }
             tx.commit();
         }
-
-        for (SendingMessage message : emailsToSend) {
-            loadBodyAndAttachments(message);
-        }
         return emailsToSend;
     }
 
@@ -425,6 +568,33 @@ public class Emailer implements EmailerAPI {
         emailSender.updateSession();
     }
 
+    @Override
+    public long getSentCount() {
+        return sentCount.sum();
+    }
+
+    @Override
+    public long getNotSentCount() {
+        return notSentCount.sum();
+    }
+
+    @Override
+    public long getReturnedToQueueCount() {
+        return returnedToQueueCount.sum();
+    }
+
+    @Override
+    public double getAvgSendingTime() {
+        long count = timedMessagesCount.sum();
+        return count == 0 ? 0 : sendingNanos.sum() / 1_000_000.0 / count;
+    }
+
+    @Override
+    public double getAvgDeliveryLatency() {
+        long count = sentCount.sum();
+        return count == 0 ? 0 : (double) deliveryLatencyMillis.sum() / count;
+    }
+
     protected void loadBodyAndAttachments(SendingMessage message) {
         try {
             if (message.getContentTextFile() != null) {
@@ -541,6 +711,7 @@ public class Emailer implements EmailerAPI {
             }
 
             tx.commit();
+            updateStatusStat(msg, SendingStatus.QUEUE, timeSource.currentTimestamp());
         } catch (Exception e) {
             log.error("Error returning message to '{}' to the queue", sendingMessage.getAddress(), e);
         }
@@ -559,6 +730,7 @@ public class Emailer implements EmailerAPI {
             }
 
             tx.commit();
+            updateStatusStat(msg, SendingStatus.SENT, msg.getDateSent());
         } catch (Exception e) {
             log.error("Error marking message to '{}' as sent", sendingMessage.getAddress(), e);
         }
@@ -577,6 +749,7 @@ public class Emailer implements EmailerAPI {
 
 
             tx.commit();
+            updateStatusStat(msg, SendingStatus.NOTSENT, timeSource.currentTimestamp());
         } catch (Exception e) {
             log.error("Error marking message to '{}' as not sent", sendingMessage.getAddress(), e);
         }
@@ -771,6 +944,33 @@ public class Emailer implements EmailerAPI {
         }
     }
 
+    protected static class EmailBatchSendTask implements Runnable {
+
+        private List<SendingMessage> sendingMessages;
+        private static final Logger log = LoggerFactory.getLogger(EmailBatchSendTask.class);
+
+        public EmailBatchSendTask(List<SendingMessage> messages) {
+            sendingMessages = messages;
+        }
+
+        @Override
+        public void run() {
+            try {
+                Authentication authentication = AppBeans.get(Authentication.NAME);
+                Emailer emailer = AppBeans.get(EmailerAPI.NAME);
+
+                authentication.begin(emailer.getEmailerLogin());
+                try {
+                    emailer.sendSendingMessages(sendingMessages);
+                } finally {
+                    authentication.end();
+                }
+            } catch (Exception e) {
+                log.error("Exception while sending emails: ", e);
+            }
+        }
+    }
+
     protected static class MessagePersistingContext {
         public final List<FileDescriptor> files = new ArrayList<>();
 
@@ -134,4 +134,29 @@ public interface EmailerAPI {
      * Updates {@code Properties} for JavaMail {@code Session}
      */
     void updateSession();
+
+    /**
+     * @return number of messages sent since the server start
+     */
+    long getSentCount();
+
+    /**
+     * @return number of messages marked as not sent since the server start
+     */
+    long getNotSentCount();
+
+    /**
+     * @return number of unsuccessful sending attempts after which messages were returned to the queue
+     */
+    long getReturnedToQueueCount();
+
+    /**
+     * @return average time of sending a message through the SMTP server, ms
+     */
+    double getAvgSendingTime();
+
+    /**
+     * @return average time between creating a message and sending it, ms
+     */
+    double getAvgDeliveryLatency();
 }
\ No newline at end of file
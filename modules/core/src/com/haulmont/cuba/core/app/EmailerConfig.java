@@ -199,4 +199,24 @@ public interface EmailerConfig extends Config {
     @Property("cuba.emailerUserLogin")
     @Default("admin")
     String getEmailerUserLogin();
+
+    /**
+     * When turned on, queued emails are sent in batches: a batch is sent through one SMTP connection,
+     * bodies and attachments of the next batch are loaded while the previous one is being sent, and statuses
+     * of its messages are updated by bulk statements.
+     */
+    @Property("cuba.email.pipelinedSendingEnabled")
+    @DefaultBoolean(false)
+    boolean getPipelinedSendingEnabled();
+
+    void setPipelinedSendingEnabled(boolean pipelinedSendingEnabled);
+
+    /**
+     * Maximum number of queued emails sent through one SMTP connection in the pipelined mode.
+     */
+    @Property("cuba.email.pipelineBatchSize")
+    @DefaultInt(50)
+    int getPipelineBatchSize();
+
+    void setPipelineBatchSize(int pipelineBatchSize);
 }
\ No newline at end of file
@@ -23,6 +23,7 @@ import com.google.common.collect.Maps;
 import com.haulmont.bali.util.StringHelper;
 import com.haulmont.chile.core.model.MetaClass;
 import com.haulmont.chile.core.model.MetaProperty;
+import com.haulmont.chile.core.model.MetaPropertyPath;
 import com.haulmont.cuba.core.EntityManager;
 import com.haulmont.cuba.core.PersistenceSecurity;
 import com.haulmont.cuba.core.Query;
@@ -58,6 +59,7 @@ public class JpqlQueryBuilder {
     protected String[] noConversionParams;
     protected Condition condition;
     protected Sort sort;
+    protected Map<String, Object> keysetValues;
 
     protected String entityName;
     protected List<String> valueProperties;
@@ -136,6 +138,11 @@ public class JpqlQueryBuilder {
         return this;
     }
 
+    public JpqlQueryBuilder setKeysetValues(Map<String, Object> keysetValues) {
+        this.keysetValues = keysetValues;
+        return this;
+    }
+
     public JpqlQueryBuilder setPreviousResults(UUID sessionId, int queryKey) {
         this.previousResults = true;
         this.sessionId = sessionId;
@@ -210,6 +217,7 @@ public class JpqlQueryBuilder {
             }
         }
         applyFiltering();
+        applyKeyset();
         applySorting();
         restrictByPreviousResults();
     }
@@ -231,6 +239,68 @@ public class JpqlQueryBuilder {
         }
     }
 
+    protected void applyKeyset() {
+        if (keysetValues == null || keysetValues.isEmpty()) {
+            return;
+        }
+        if (entityName == null) {
+            throw new DevelopmentException("Keyset pagination is supported only for queries returning entities");
+        }
+        MetaClass metaClass = metadata.getClassNN(entityName);
+        if (metadata.getTools().hasCompositePrimaryKey(metaClass)) {
+            throw new DevelopmentException(String.format("Keyset pagination is not supported for %s with composite primary key", entityName));
+        }
+        String pkName = getPrimaryKeyProperty().getName();
+
+        if (sort == null || sort.getOrders().isEmpty()) {
+            sort = Sort.by(pkName);
+        }
+        boolean asc = sort.getOrders().get(0).getDirection() == Sort.Direction.ASC;
+
+        // the sort generator appends the primary key to make the order unique, so it is a part of the key as well
+        List<String> keyProperties = new ArrayList<>();
+        for (Sort.Order order : sort.getOrders()) {
+            keyProperties.add(checkKeysetProperty(metaClass, order.getProperty()));
+        }
+        if (!keyProperties.contains(pkName)) {
+            keyProperties.add(pkName);
+        }
+
+        // (p0, p1, p2) > (:v0, :v1, :v2) expands to p0 > :v0 or (p0 = :v0 and p1 > :v1) or (p0 = :v0 and p1 = :v1 and p2 > :v2)
+        Map<String, Object> parameters = new HashMap<>(resultParameters);
+        List<String> disjuncts = new ArrayList<>(keyProperties.size());
+        StringBuilder equalities = new StringBuilder();
+        for (int i = 0; i < keyProperties.size(); i++) {
+            String property = keyProperties.get(i);
+            Object value = keysetValues.get(property);
+            if (value == null) {
+                throw new DevelopmentException(String.format("Keyset value for property '%s' is not specified", property));
+            }
+            String paramName = "_keyset" + i;
+            parameters.put(paramName, value);
+
+            disjuncts.add(String.format("(%s{E}.%s %s :%s)", equalities, property, asc ? ">" : "<", paramName));
+            equalities.append(String.format("{E}.%s = :%s and ", property, paramName));
+        }
+
+        QueryTransformer transformer = queryTransformerFactory.transformer(resultQuery);
+        transformer.addWhere("(" + String.join(" or ", disjuncts) + ")");
+        resultQuery = transformer.getResult();
+        resultParameters = parameters;
+    }
+
+    protected String checkKeysetProperty(MetaClass metaClass, String property) {
+        MetaPropertyPath propertyPath = metaClass.getPropertyPath(property);
+        if (propertyPath == null
+                || propertyPath.getRange().isClass()
+                || !metadata.getTools().isPersistent(propertyPath)
+                || metadata.getTools().isLob(propertyPath.getMetaProperty())) {
+            throw new DevelopmentException(String.format(
+                    "Keyset pagination supports only persistent datatype properties, '%s' of %s cannot be used", property, entityName));
+        }
+        return property;
+    }
+
     protected void restrictByPreviousResults() {
         if (previousResults) {
             Class type = getPrimaryKeyProperty().getJavaType();
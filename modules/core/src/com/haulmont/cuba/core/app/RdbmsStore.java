@@ -37,6 +37,10 @@ import com.haulmont.cuba.security.entity.EntityAttrAccess;
 import com.haulmont.cuba.security.entity.EntityOp;
 import com.haulmont.cuba.security.entity.PermissionType;
 import org.apache.commons.lang3.StringUtils;
+import org.eclipse.persistence.config.HintValues;
+import org.eclipse.persistence.config.QueryHints;
+import org.eclipse.persistence.queries.ReportQueryResult;
+import org.eclipse.persistence.queries.ScrollableCursor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Scope;
@@ -49,6 +53,8 @@ import java.util.*;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * INTERNAL.
@@ -271,6 +277,138 @@ public class RdbmsStore implements DataStore {
         return resultList;
     }
 
+    /**
+     * Loads entities lazily: identifiers are read through a scrollable cursor and object graphs are loaded by the
+     * context view for each batch of identifiers. The cursor transaction is committed when the stream is closed
+     * or all entities are read.
+     */
+    @Override
+    public <E extends Entity> Stream<E> loadStream(LoadContext<E> context, int batchSize) {
+        if (log.isDebugEnabled())
+            log.debug("loadStream: metaClass=" + context.getMetaClass() + ", view=" + context.getView()
+                    + (context.getPrevQueries().isEmpty() ? "" : ", from selected")
+                    + ", query=" + context.getQuery()
+                    + ", batchSize=" + batchSize);
+
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+
+        MetaClass metaClass = metadata.getClassNN(context.getMetaClass());
+
+        if (isAuthorizationRequired(context) && !isEntityOpPermitted(metaClass, EntityOp.READ)) {
+            log.debug("reading of {} not permitted, returning empty stream", metaClass);
+            return Stream.empty();
+        }
+
+        if (context.getId() != null || !context.getIds().isEmpty() || entityHasEmbeddedId(metaClass)) {
+            return DataStore.super.loadStream(context, batchSize);
+        }
+
+        Integer maxIdsBatchSize = DbmsSpecificFactory.getDbmsFeatures(storeName).getMaxIdsBatchSize();
+        if (maxIdsBatchSize != null && batchSize > maxIdsBatchSize) {
+            batchSize = maxIdsBatchSize;
+        }
+
+        queryResultsManager.savePreviousQueryResults(context);
+
+        Transaction tx = getLoadTransaction(context.isJoinTransaction());
+        try {
+            EntityManager em = persistence.getEntityManager(storeName);
+            em.setSoftDeletion(context.isSoftDeletion());
+
+            Query query = createQuery(em, context, false, false);
+            QueryTransformer transformer = queryTransformerFactory.transformer(query.getQueryString());
+            // databases do not allow ordering of distinct values by columns that are not selected,
+            // so duplicates of ordered queries are skipped by the iterator
+            boolean ensureDistinct = transformer.removeDistinct();
+            transformer.replaceWithSelectId(metadataTools.getPrimaryKeyName(metaClass));
+            if (ensureDistinct && !hasOrderBy(transformer.getResult())) {
+                transformer.addDistinct();
+                ensureDistinct = false;
+            }
+            query.setQueryString(transformer.getResult());
+
+            javax.persistence.Query jpaQuery = query.getDelegate();
+            jpaQuery.setHint(QueryHints.SCROLLABLE_CURSOR, HintValues.TRUE);
+            jpaQuery.setHint(QueryHints.JDBC_FETCH_SIZE, batchSize);
+            ScrollableCursor cursor = (ScrollableCursor) jpaQuery.getSingleResult();
+
+            CursorLoadIterator<E> iterator = new CursorLoadIterator<>(context, metaClass, createRestrictedView(context),
+                    tx, cursor, batchSize, ensureDistinct);
+            return StreamSupport.stream(
+                    Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                    .onClose(iterator::close);
+        } catch (RuntimeException e) {
+            tx.close();
+            throw e;
+        }
+    }
+
+    protected boolean hasOrderBy(String queryString) {
+        QueryTransformer transformer = queryTransformerFactory.transformer(queryString);
+        transformer.removeOrderBy();
+        return !transformer.getResult().equals(queryString);
+    }
+
+    @SuppressWarnings("unchecked")
+    protected <E extends Entity> List<E> loadStreamBatch(LoadContext<E> context, MetaClass metaClass, View view,
+                                                         List<Object> ids) {
+        EntityManager em = persistence.getEntityManager(storeName);
+
+        LoadContext<E> batchContext = new LoadContext<>(metaClass);
+        batchContext.setIds(ids);
+        batchContext.setSoftDeletion(context.isSoftDeletion());
+        batchContext.setAuthorizationRequired(context.isAuthorizationRequired());
+        if (context.getHints() != null) {
+            context.getHints().forEach(batchContext::setHint);
+        }
+
+        Query query = createQuery(em, batchContext, false, false);
+        query.setView(view);
+        List<E> entities = executeQuery(query, false);
+        if (needToFilterByInMemoryReadConstraints(context)) {
+            security.filterByConstraints((Collection<Entity>) entities);
+        }
+
+        // keep the order of the cursor, skip instances deleted or filtered after reading their ids
+        Map<Object, E> idToEntityMap = entities.stream().collect(Collectors.toMap(Entity::getId, Function.identity()));
+        List<E> result = new ArrayList<>(ids.size());
+        for (Object id : ids) {
+            E entity = idToEntityMap.get(id);
+            if (entity != null) {
+                result.add(entity);
+            }
+        }
+
+        if (!result.isEmpty() && result.get(0) instanceof BaseGenericIdEntity && context.isLoadDynamicAttributes()) {
+            dynamicAttributesManagerAPI.fetchDynamicAttributes((List<BaseGenericIdEntity>) result,
+                    collectEntityClassesWithDynamicAttributes(context.getView()));
+        }
+
+        boolean needToApplyInMemoryReadConstraints = needToApplyInMemoryReadConstraints(context);
+        if (needToApplyInMemoryReadConstraints) {
+            security.calculateFilteredData((Collection<Entity>) result);
+        }
+
+        attributeSecurity.onLoad(result, view);
+
+        // detach to release the persistence context, the transaction stays open while the stream is read
+        for (E entity : result) {
+            detachEntity(em, entity, view);
+        }
+
+        if (needToApplyInMemoryReadConstraints) {
+            security.applyConstraints((Collection<Entity>) result);
+        }
+
+        if (isAuthorizationRequired(context)) {
+            attributeSecurity.afterLoad(result);
+        }
+
+        return result;
+    }
+
     protected boolean entityHasEmbeddedId(MetaClass metaClass) {
         MetaProperty pkProperty = metadataTools.getPrimaryKeyProperty(metaClass);
         return pkProperty == null || pkProperty.getRange().isClass();
@@ -363,6 +501,7 @@ public class RdbmsStore implements DataStore {
                 }
                 context.getQuery().setFirstResult(0);
                 context.getQuery().setMaxResults(0);
+                context.getQuery().setKeysetValues(null);
 
                 Query query = createQuery(em, context, false, false);
                 query.setView(createRestrictedView(context));
@@ -734,7 +873,8 @@ public class RdbmsStore implements DataStore {
                     .setQueryParameters(contextQuery.getParameters())
                     .setNoConversionParams(contextQuery.getNoConversionParams());
             if (!countQuery) {
-                queryBuilder.setSort(contextQuery.getSort());
+                queryBuilder.setSort(contextQuery.getSort())
+                        .setKeysetValues(contextQuery.getKeysetValues());
             }
         }
 
@@ -1155,6 +1295,96 @@ public class RdbmsStore implements DataStore {
         });
     }
 
+    /**
+     * Reads entity identifiers from a cursor and loads entities by batches of identifiers.
+     * <p>If the query is distinct and ordered, identifiers of all read rows are kept in memory to skip duplicates,
+     * their number is limited by {@link ServerConfig#getLoadStreamMaxDistinctIds()}.
+     */
+    protected class CursorLoadIterator<E extends Entity> implements Iterator<E> {
+
+        protected final LoadContext<E> context;
+        protected final MetaClass metaClass;
+        protected final View view;
+        protected final Transaction tx;
+        protected final ScrollableCursor cursor;
+        protected final int batchSize;
+        protected final Set<Object> readIds;
+        protected final int maxReadIds;
+
+        protected Iterator<E> currentBatch = Collections.emptyIterator();
+        protected boolean closed;
+
+        public CursorLoadIterator(LoadContext<E> context, MetaClass metaClass, View view, Transaction tx,
+                                  ScrollableCursor cursor, int batchSize, boolean ensureDistinct) {
+            this.context = context;
+            this.metaClass = metaClass;
+            this.view = view;
+            this.tx = tx;
+            this.cursor = cursor;
+            this.batchSize = batchSize;
+            this.readIds = ensureDistinct ? new HashSet<>() : null;
+            this.maxReadIds = serverConfig.getLoadStreamMaxDistinctIds();
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!currentBatch.hasNext() && !closed) {
+                List<Object> ids = readIds();
+                if (ids.isEmpty()) {
+                    close();
+                } else {
+                    currentBatch = loadStreamBatch(context, metaClass, view, ids).iterator();
+                }
+            }
+            return currentBatch.hasNext();
+        }
+
+        @Override
+        public E next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return currentBatch.next();
+        }
+
+        protected List<Object> readIds() {
+            List<Object> ids = new ArrayList<>(batchSize);
+            while (ids.size() < batchSize && cursor.hasNext()) {
+                Object id = cursor.next();
+                if (id instanceof ReportQueryResult) {
+                    id = ((ReportQueryResult) id).getResults().get(0);
+                } else if (id instanceof Object[]) {
+                    id = ((Object[]) id)[0];
+                }
+                if (readIds == null) {
+                    ids.add(id);
+                } else if (readIds.add(id)) {
+                    if (readIds.size() > maxReadIds) {
+                        close();
+                        throw new IllegalStateException(String.format("Distinct ordered query of %s returned more "
+                                + "than %d rows, remove distinct or order by from the query or increase "
+                                + "cuba.loadStreamMaxDistinctIds", metaClass.getName(), maxReadIds));
+                    }
+                    ids.add(id);
+                }
+            }
+            return ids;
+        }
+
+        public void close() {
+            if (closed)
+                return;
+
+            closed = true;
+            try {
+                cursor.close();
+                tx.commit();
+            } finally {
+                tx.close();
+            }
+        }
+    }
+
     protected void mergeDynamicAttributes(BaseGenericIdEntity entity, BaseGenericIdEntity saved) {
         saved.setDynamicAttributes(entity.getDynamicAttributes());
         MetaClass metaClass = metadata.getClassNN(entity.getClass());
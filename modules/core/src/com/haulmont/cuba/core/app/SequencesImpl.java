@@ -17,6 +17,7 @@
 package com.haulmont.cuba.core.app;
 
 import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.Striped;
 import com.haulmont.bali.db.DbUtils;
 import com.haulmont.cuba.core.EntityManager;
 import com.haulmont.cuba.core.Persistence;
@@ -40,7 +41,6 @@ import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.regex.Pattern;
 
 @Component(Sequences.NAME)
@@ -49,7 +49,8 @@ public class SequencesImpl implements Sequences {
     @Inject
     protected Persistence persistence;
 
-    protected ReadWriteLock lock = new ReentrantReadWriteLock();
+    // sequences are locked separately, so creating or deleting one sequence does not block the others
+    protected Striped<ReadWriteLock> locks = Striped.readWriteLock(64);
     protected Set<String> existingSequences = ConcurrentHashMap.newKeySet();
 
     protected static final Pattern SEQ_PATTERN = Pattern.compile("[a-zA-Z0-9_]+");
@@ -74,6 +75,7 @@ public class SequencesImpl implements Sequences {
     public void setCurrentValue(Sequence sequence, long value) {
         Preconditions.checkNotNull(sequence, "Sequence can't be null");
         checkSequenceName(sequence.getName());
+        ReadWriteLock lock = getLock(sequence);
         String sqlScript = getSequenceSupport(sequence).modifySequenceSql(sequence.getName(), value);
         lock.readLock().lock();
         try {
@@ -98,6 +100,7 @@ public class SequencesImpl implements Sequences {
         if (!existingSequences.contains(sequenceName)) {
             throw new IllegalStateException(String.format("Attempt to delete nonexistent sequence '%s'", sequence));
         }
+        ReadWriteLock lock = getLock(sequence);
         String sqlScript = getSequenceSupport(sequence).deleteSequenceSql(sequenceName);
         lock.writeLock().lock();
         try {
@@ -126,6 +129,7 @@ public class SequencesImpl implements Sequences {
     }
 
     protected long getResult(Sequence sequence, String sqlScript) {
+        ReadWriteLock lock = getLock(sequence);
         lock.readLock().lock();
         try {
             Transaction tx = persistence.getTransaction(getDataStore(sequence));
@@ -159,6 +163,7 @@ public class SequencesImpl implements Sequences {
             return;
         }
 
+        ReadWriteLock lock = getLock(sequence);
         lock.readLock().unlock();
         lock.writeLock().lock();
         try {
@@ -216,6 +221,10 @@ public class SequencesImpl implements Sequences {
     }
 
 
+    protected ReadWriteLock getLock(Sequence sequence) {
+        return locks.get(sequence.getName());
+    }
+
     protected SequenceSupport getSequenceSupport(Sequence sequence) {
         return DbmsSpecificFactory.getSequenceSupport(getDataStore(sequence));
     }
@@ -111,6 +111,33 @@ public interface ServerConfig extends Config {
     @DefaultInt(1)
     int getUserSessionTouchTimeoutSec();
 
+    /**
+     * @return names of user session attributes indexed by {@link UserSessionsAPI} for looking up sessions by
+     * attribute values. An attribute value is indexed when the session is added, refreshed or propagated, for example
+     * by {@code UserSessionService.setSessionAttribute()}.
+     */
+    @Property("cuba.userSessionIndexedAttributes")
+    @Factory(factory = TokenizedStringListFactory.class)
+    List<String> getUserSessionIndexedAttributes();
+
+    /**
+     * Whether to propagate only last usage timestamps of refreshed user sessions to the cluster. The timestamps are
+     * sent in batches every {@code cuba.userSessionTouchPropagationInterval} milliseconds, and full sessions are sent
+     * only when they are created or changed. The user sessions cache is compressed when transferred to joining nodes.
+     * <p>Must have the same value on all cluster nodes.
+     */
+    @Property("cuba.userSessionDeltaPropagation")
+    @DefaultBoolean(false)
+    boolean getUserSessionDeltaPropagation();
+
+    /**
+     * @return Interval in milliseconds of sending last usage timestamps of refreshed user sessions to the cluster
+     * when {@link #getUserSessionDeltaPropagation()} is on
+     */
+    @Property("cuba.userSessionTouchPropagationInterval")
+    @DefaultLong(5000)
+    long getUserSessionTouchPropagationInterval();
+
     /**
      * @return DB scripts directory.
      * Does not end with "/"
@@ -140,6 +167,14 @@ public interface ServerConfig extends Config {
     @DefaultBoolean(true)
     boolean getImmutableFileStorage();
 
+    /**
+     * @return number of threads copying saved files to each secondary storage directory. Every secondary
+     * directory has its own threads, so a slow directory does not delay replication to the others.
+     */
+    @Property("cuba.fileStorageReplicaWriteThreads")
+    @DefaultInt(2)
+    int getFileStorageReplicaWriteThreads();
+
     /**
      * @return Scheduled tasks execution control.
      */
@@ -169,6 +204,38 @@ public interface ServerConfig extends Config {
 
     void setSchedulingThreadPoolSize(int value);
 
+    /**
+     * @return Interval in milliseconds of reloading active scheduled tasks by
+     * {@link com.haulmont.cuba.core.app.scheduling.ShardedCoordinator}
+     */
+    @Property("cuba.schedulingTasksReloadInterval")
+    @DefaultLong(30000)
+    long getSchedulingTasksReloadInterval();
+
+    /**
+     * @return Only each N-th execution of a high-frequency scheduled task is written to the execution history.
+     * Failed and manual executions are always written. 1 means no sampling.
+     */
+    @Property("cuba.schedulingHistorySamplingRate")
+    @DefaultInt(1)
+    int getSchedulingHistorySamplingRate();
+
+    /**
+     * @return Maximum period in seconds of scheduled tasks which executions are sampled according to
+     * {@link #getSchedulingHistorySamplingRate()}
+     */
+    @Property("cuba.schedulingHistorySamplingMaxPeriod")
+    @DefaultInt(60)
+    int getSchedulingHistorySamplingMaxPeriod();
+
+    /**
+     * @return Interval in milliseconds of writing the queued execution history of scheduled tasks by
+     * {@link com.haulmont.cuba.core.app.scheduling.ScheduledExecutionHistory}
+     */
+    @Property("cuba.schedulingHistoryFlushInterval")
+    @DefaultLong(5000)
+    long getSchedulingHistoryFlushInterval();
+
     /**
      * @return Tells DataService to ensure distinct results by processing them in memory, instead of issue
      * 'select distinct' to the database.
@@ -284,6 +351,36 @@ public interface ServerConfig extends Config {
     @DefaultInt(50)
     int getCrossDataStoreReferenceLoadingBatchSize();
 
+    /**
+     * @return whether to load references of different properties from other data stores concurrently
+     */
+    @Property("cuba.crossDataStoreReferenceLoadingParallel")
+    @Source(type = SourceType.DATABASE)
+    @DefaultBoolean(false)
+    boolean getCrossDataStoreReferenceLoadingParallel();
+
+    /**
+     * @return maximum number of threads loading references from different data stores concurrently
+     */
+    @Property("cuba.crossDataStoreReferenceLoadingThreads")
+    @DefaultInt(8)
+    int getCrossDataStoreReferenceLoadingThreads();
+
+    /**
+     * @return maximum number of threads executing service invocations received in batches from client tiers
+     */
+    @Property("cuba.batchInvocationThreads")
+    @DefaultInt(8)
+    int getBatchInvocationThreads();
+
+    /**
+     * @return maximum number of identifiers kept in memory to skip duplicates when a distinct query with
+     * {@code order by} is loaded by {@code DataManager.loadStream()}
+     */
+    @Property("cuba.loadStreamMaxDistinctIds")
+    @DefaultInt(1000000)
+    int getLoadStreamMaxDistinctIds();
+
     /**
      * @return use read-only transactions in {@code DataManager} load operations and do not commit them
      */
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.app;
+
+import com.haulmont.cuba.core.sys.serialization.SerializationSupport;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+
+/**
+ * Cluster message codec using the platform serialization defined by the {@code cuba.serialization.impl}
+ * property, which is standard Java serialization by default.
+ */
+@Component(StandardClusterMessageCodec.NAME)
+public class StandardClusterMessageCodec implements ClusterMessageCodec {
+
+    public static final String NAME = "cuba_StandardClusterMessageCodec";
+
+    public static final byte ID = 0;
+
+    @Override
+    public byte getId() {
+        return ID;
+    }
+
+    @Override
+    public String getName() {
+        return "standard";
+    }
+
+    @Override
+    public void encode(Serializable message, OutputStream output) {
+        SerializationSupport.serialize(message, output);
+    }
+
+    @Override
+    public Serializable decode(InputStream input) {
+        return (Serializable) SerializationSupport.deserialize(input);
+    }
+}
@@ -26,6 +26,7 @@ import com.haulmont.cuba.core.sys.SecurityContext;
 import com.haulmont.cuba.security.global.UserSession;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,13 +36,22 @@ import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
 
 import static com.haulmont.bali.util.Preconditions.checkNotNullArgument;
 
@@ -61,8 +71,15 @@ public class FileStorage implements FileStorageAPI {
 
     protected boolean isImmutableFileStorage;
 
-    protected ExecutorService writeExecutor = Executors.newFixedThreadPool(5,
-            new ThreadFactoryBuilder().setNameFormat("FileStorageWriter-%d").build());
+    protected ConcurrentMap<File, ExecutorService> replicaExecutors = new ConcurrentHashMap<>();
+
+    protected LongAdder bytesWritten = new LongAdder();
+    protected LongAdder writeNanos = new LongAdder();
+    protected LongAdder bytesReplicated = new LongAdder();
+    protected LongAdder replicationNanos = new LongAdder();
+    protected LongAdder replicaErrorCount = new LongAdder();
+
+    protected static final long TRANSFER_CHUNK_SIZE = 8 * 1024 * 1024;
 
     protected volatile File[] storageRoots;
 
@@ -116,21 +133,18 @@ public class FileStorage implements FileStorageAPI {
         final File file = new File(dir, getFileName(fileDescr));
         checkFileExists(file);
 
-        long size = 0;
-        OutputStream os = null;
-        try {
-            os = FileUtils.openOutputStream(file);
-            size = IOUtils.copyLarge(inputStream, os);
-            os.flush();
-            writeLog(file, false);
+        long size;
+        long start = System.nanoTime();
+        try (FileOutputStream os = FileUtils.openOutputStream(file)) {
+            size = copyToFile(inputStream, os.getChannel());
         } catch (IOException e) {
-            IOUtils.closeQuietly(os);
             FileUtils.deleteQuietly(file);
 
             throw new FileStorageException(FileStorageException.Type.IO_EXCEPTION, file.getAbsolutePath(), e);
-        } finally {
-            IOUtils.closeQuietly(os);
         }
+        bytesWritten.add(size);
+        writeNanos.add(System.nanoTime() - start);
+        writeLog(file, false);
 
         // Copy file to secondary storages asynchronously
 
@@ -144,14 +158,15 @@ public class FileStorage implements FileStorageAPI {
             File copyDir = getStorageDir(roots[i], fileDescr);
             final File fileCopy = new File(copyDir, getFileName(fileDescr));
 
-            writeExecutor.submit(new Runnable() {
+            getReplicaExecutor(roots[i]).submit(new Runnable() {
                 @Override
                 public void run() {
                     try {
                         AppContext.setSecurityContext(securityContext);
-                        FileUtils.copyFile(file, fileCopy, true);
+                        copyToReplica(file, fileCopy);
                         writeLog(fileCopy, false);
                     } catch (Exception e) {
+                        replicaErrorCount.increment();
                         log.error("Error saving {} into {} : {}", fileDescr, fileCopy.getAbsolutePath(), e.getMessage());
                     } finally {
                         AppContext.setSecurityContext(null);
@@ -163,6 +178,62 @@ public class FileStorage implements FileStorageAPI {
         return size;
     }
 
+    protected ExecutorService getReplicaExecutor(File root) {
+        return replicaExecutors.computeIfAbsent(root, r -> {
+            int threads = configuration.getConfig(ServerConfig.class).getFileStorageReplicaWriteThreads();
+            String nameFormat = "FileStorageWriter-" + r.getName().replace("%", "%%") + "-%d";
+            return Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat(nameFormat).build());
+        });
+    }
+
+    /**
+     * Copies the stream into the file channel. Contents of a {@link FileInputStream} are transferred
+     * by the file system without copying to the heap.
+     */
+    protected long copyToFile(InputStream inputStream, FileChannel out) throws IOException {
+        if (inputStream instanceof FileInputStream) {
+            FileChannel in = ((FileInputStream) inputStream).getChannel();
+            long position = in.position();
+            long size = transfer(in, position, in.size() - position, out);
+            in.position(position + size);
+            return size;
+        }
+
+        ReadableByteChannel in = Channels.newChannel(inputStream);
+        long size = 0;
+        long count;
+        while ((count = out.transferFrom(in, size, TRANSFER_CHUNK_SIZE)) > 0) {
+            size += count;
+        }
+        return size;
+    }
+
+    protected void copyToReplica(File file, File fileCopy) throws IOException {
+        long start = System.nanoTime();
+        FileUtils.forceMkdirParent(fileCopy);
+        long size;
+        try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(fileCopy.toPath(), StandardOpenOption.CREATE,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            size = transfer(in, 0, in.size(), out);
+        }
+        fileCopy.setLastModified(file.lastModified());
+        bytesReplicated.add(size);
+        replicationNanos.add(System.nanoTime() - start);
+    }
+
+    protected long transfer(FileChannel in, long position, long count, FileChannel out) throws IOException {
+        long transferred = 0;
+        while (transferred < count) {
+            long n = in.transferTo(position + transferred, Math.min(count - transferred, TRANSFER_CHUNK_SIZE), out);
+            if (n <= 0) {
+                break;
+            }
+            transferred += n;
+        }
+        return transferred;
+    }
+
     protected void checkFileExists(File file) throws FileStorageException {
         if (file.exists() && isImmutableFileStorage)
             throw new FileStorageException(FileStorageException.Type.FILE_ALREADY_EXISTS, file.getAbsolutePath());
@@ -288,15 +359,63 @@ public class FileStorage implements FileStorageAPI {
     }
 
     @Override
-    public byte[] loadFile(FileDescriptor fileDescr) throws FileStorageException {
-        InputStream inputStream = openStream(fileDescr);
+    public InputStream openStream(FileDescriptor fileDescr, long offset, long length) throws FileStorageException {
+        if (offset < 0 || length < 0) {
+            throw new IllegalArgumentException("Offset and length must not be negative");
+        }
+
+        FileChannel channel = openChannel(fileDescr);
         try {
-            return IOUtils.toByteArray(inputStream);
+            channel.position(offset);
         } catch (IOException e) {
+            IOUtils.closeQuietly(channel);
             throw new FileStorageException(FileStorageException.Type.IO_EXCEPTION, fileDescr.getId().toString(), e);
-        } finally {
-            IOUtils.closeQuietly(inputStream);
         }
+        return new BoundedInputStream(Channels.newInputStream(channel), length);
+    }
+
+    @Override
+    public byte[] loadFile(FileDescriptor fileDescr) throws FileStorageException {
+        try (FileChannel channel = openChannel(fileDescr)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE - 8) {
+                throw new IOException("File is too large to be loaded into memory: " + size + " bytes");
+            }
+            // read directly into an array of the file size instead of growing a buffer
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+            }
+            return buffer.hasRemaining() ? Arrays.copyOf(buffer.array(), buffer.position()) : buffer.array();
+        } catch (IOException e) {
+            throw new FileStorageException(FileStorageException.Type.IO_EXCEPTION, fileDescr.getId().toString(), e);
+        }
+    }
+
+    protected FileChannel openChannel(FileDescriptor fileDescr) throws FileStorageException {
+        checkFileDescriptor(fileDescr);
+
+        File[] roots = getStorageRoots();
+        if (roots.length == 0) {
+            log.error("No storage directories available");
+            throw new FileStorageException(FileStorageException.Type.FILE_NOT_FOUND, fileDescr.getId().toString());
+        }
+
+        for (File root : roots) {
+            File dir = getStorageDir(root, fileDescr);
+
+            File file = new File(dir, getFileName(fileDescr));
+            if (!file.exists()) {
+                log.error("File " + file + " not found");
+                continue;
+            }
+
+            try {
+                return FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            } catch (IOException e) {
+                log.error("Error opening channel for " + file, e);
+            }
+        }
+        throw new FileStorageException(FileStorageException.Type.FILE_NOT_FOUND, fileDescr.getId().toString());
     }
 
     @Override
@@ -336,8 +455,49 @@ public class FileStorage implements FileStorageAPI {
         return fileDescriptor.getId().toString() + "." + fileDescriptor.getExtension();
     }
 
+    /**
+     * @return number of bytes saved to the primary storage directory since the server start
+     */
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    /**
+     * @return average speed of saving files to the primary storage directory, bytes per second
+     */
+    public long getWriteThroughput() {
+        return throughput(bytesWritten.sum(), writeNanos.sum());
+    }
+
+    /**
+     * @return number of bytes copied to secondary storage directories since the server start
+     */
+    public long getBytesReplicated() {
+        return bytesReplicated.sum();
+    }
+
+    /**
+     * @return average speed of copying files to secondary storage directories, bytes per second
+     */
+    public long getReplicationThroughput() {
+        return throughput(bytesReplicated.sum(), replicationNanos.sum());
+    }
+
+    /**
+     * @return number of failed attempts to copy a file to a secondary storage directory
+     */
+    public long getReplicaErrorCount() {
+        return replicaErrorCount.sum();
+    }
+
+    protected long throughput(long bytes, long nanos) {
+        return nanos == 0 ? 0 : (long) (bytes * 1_000_000_000.0 / nanos);
+    }
+
     @PreDestroy
     protected void stopWriteExecutor() {
-        writeExecutor.shutdown();
+        for (ExecutorService executor : replicaExecutors.values()) {
+            executor.shutdown();
+        }
     }
 }
\ No newline at end of file
@@ -17,10 +17,13 @@
 
 package com.haulmont.cuba.core.app.scheduling;
 
+import com.haulmont.cuba.core.app.ClusterManagerAPI;
 import com.haulmont.cuba.core.entity.ScheduledTask;
+import com.haulmont.cuba.core.global.AppBeans;
 
 import java.util.Date;
 import java.util.List;
+import java.util.function.LongSupplier;
 
 /**
  * Interface used by {@link Scheduling} to coordinate work in distributed environment. Class {@link Scheduling} itself
@@ -43,4 +46,30 @@ public interface Coordinator {
     boolean isLastExecutionFinished(ScheduledTask task, long now);
 
     long getLastFinished(ScheduledTask task);
+
+    /**
+     * Starts a regular processing of scheduled tasks. The returned context can contain only the tasks that should be
+     * checked at the moment. By default, returns all active tasks like {@link #begin()}.
+     */
+    default Context beginProcessing() {
+        return begin();
+    }
+
+    /**
+     * Informs the coordinator about the time when the task processed by {@link Scheduling} should be checked again.
+     * The time is calculated lazily, so implementations that don't use it pay nothing.
+     *
+     * @param task               processed task
+     * @param nextProcessingTime supplier of the time in milliseconds
+     */
+    default void scheduleNextProcessing(ScheduledTask task, LongSupplier nextProcessingTime) {
+    }
+
+    /**
+     * Tells whether the current server is responsible for the singleton task which has no permitted servers.
+     * By default, such tasks are run by the cluster master.
+     */
+    default boolean isSingletonTaskOwner(ScheduledTask task) {
+        return AppBeans.get(ClusterManagerAPI.class).isMaster();
+    }
 }
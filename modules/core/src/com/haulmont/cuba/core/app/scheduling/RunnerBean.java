@@ -92,6 +92,12 @@ public class RunnerBean implements Runner {
     @Inject
     protected Configuration configuration;
 
+    @Inject
+    protected ScheduledExecutionHistory executionHistory;
+
+    @Inject
+    protected EntityStates entityStates;
+
     protected Map<String, UUID> userSessionIds = new ConcurrentHashMap<>();
 
     @PostConstruct
@@ -137,10 +143,13 @@ public class RunnerBean implements Runner {
                         setSecurityContext(taskCopy, userSession);
                         ScheduledExecution execution = registerExecutionStart(taskCopy, now);
                         statisticsCounter.incCubaScheduledTasksCount();
+                        long start = timeSource.currentTimeMillis();
                         try {
                             Object result = executeTask(taskCopy);
+                            executionHistory.recordExecution(taskCopy, timeSource.currentTimeMillis() - start, false);
                             registerExecutionFinish(taskCopy, execution, result, manually);
                         } catch (Throwable throwable) {
+                            executionHistory.recordExecution(taskCopy, timeSource.currentTimeMillis() - start, true);
                             registerExecutionFinish(taskCopy, execution, throwable, manually);
                             throw throwable;
                         }
@@ -171,8 +180,15 @@ public class RunnerBean implements Runner {
     }
 
     protected ScheduledExecution registerExecutionStart(ScheduledTask task, long now) {
-        if (!BooleanUtils.isTrue(task.getLogStart()) && !BooleanUtils.isTrue(task.getSingleton()) && task.getSchedulingType() != SchedulingType.FIXED_DELAY)
-            return null;
+        if (!isExecutionHistoryRequired(task)) {
+            if (!BooleanUtils.isTrue(task.getLogStart()))
+                return null;
+            if (!executionHistory.isSampled(task)) {
+                // the new instance is written in a batch by ScheduledExecutionHistory only if the execution fails
+                // or is started manually
+                return createExecution(task, now);
+            }
+        }
 
         log.trace("{}: registering execution start", task);
 
@@ -180,10 +196,8 @@ public class RunnerBean implements Runner {
         try {
             EntityManager em = persistence.getEntityManager();
 
-            ScheduledExecution execution = metadata.create(ScheduledExecution.class);
+            ScheduledExecution execution = createExecution(task, now);
             execution.setTask(em.getReference(ScheduledTask.class, task.getId()));
-            execution.setStartTime(new Date(now));
-            execution.setServer(serverInfo.getServerId());
 
             em.persist(execution);
             tx.commit();
@@ -195,26 +209,31 @@ public class RunnerBean implements Runner {
     }
 
     protected void registerExecutionFinish(ScheduledTask task, ScheduledExecution execution, Object result, boolean manually) {
-        if ((!BooleanUtils.isTrue(task.getLogFinish()) && !BooleanUtils.isTrue(task.getSingleton()) && task.getSchedulingType() != SchedulingType.FIXED_DELAY)
-                || execution == null)
+        if (execution == null)
             return;
 
+        if (!isExecutionHistoryRequired(task)) {
+            // the start is already written if the execution is sampled, so only the finish is written in a batch
+            boolean stored = !entityStates.isNew(execution);
+            if (stored && !BooleanUtils.isTrue(task.getLogFinish()))
+                return;
+            if (stored || manually || result instanceof Throwable) {
+                if (BooleanUtils.isTrue(task.getLogFinish())) {
+                    execution.setFinishTime(timeSource.currentTimestamp());
+                    execution.setResult(getExecutionResult(result, manually));
+                }
+                executionHistory.add(execution);
+            }
+            return;
+        }
+
         log.trace("{}: registering execution finish", task);
         Transaction tx = persistence.createTransaction();
         try {
             EntityManager em = persistence.getEntityManager();
             execution = em.merge(execution);
             execution.setFinishTime(timeSource.currentTimestamp());
-
-            StringBuilder sb = new StringBuilder();
-            if (result != null) {
-                sb.append(result.toString());
-            }
-
-            if (manually) {
-                sb.append("\n{Executed manually}");
-            }
-            execution.setResult(sb.toString());
+            execution.setResult(getExecutionResult(result, manually));
 
             tx.commit();
         } finally {
@@ -222,6 +241,34 @@ public class RunnerBean implements Runner {
         }
     }
 
+    /**
+     * Executions of singleton and fixed-delay tasks are used by {@link Coordinator} to decide when to start the task
+     * next time, so they are always written synchronously.
+     */
+    protected boolean isExecutionHistoryRequired(ScheduledTask task) {
+        return BooleanUtils.isTrue(task.getSingleton()) || task.getSchedulingType() == SchedulingType.FIXED_DELAY;
+    }
+
+    protected ScheduledExecution createExecution(ScheduledTask task, long now) {
+        ScheduledExecution execution = metadata.create(ScheduledExecution.class);
+        execution.setTask(task);
+        execution.setStartTime(new Date(now));
+        execution.setServer(serverInfo.getServerId());
+        return execution;
+    }
+
+    protected String getExecutionResult(Object result, boolean manually) {
+        StringBuilder sb = new StringBuilder();
+        if (result != null) {
+            sb.append(result.toString());
+        }
+
+        if (manually) {
+            sb.append("\n{Executed manually}");
+        }
+        return sb.toString();
+    }
+
     protected Object executeTask(ScheduledTask task) {
         switch (task.getDefinedBy()) {
             case BEAN: {
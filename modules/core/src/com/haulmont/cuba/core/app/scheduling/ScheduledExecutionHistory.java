@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.haulmont.cuba.core.app.scheduling;
+
+import com.haulmont.cuba.core.Persistence;
+import com.haulmont.cuba.core.TypedQuery;
+import com.haulmont.cuba.core.app.ServerConfig;
+import com.haulmont.cuba.core.entity.ScheduledExecution;
+import com.haulmont.cuba.core.entity.ScheduledTask;
+import com.haulmont.cuba.core.global.EntityStates;
+import com.haulmont.cuba.core.sys.events.AppContextStoppedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Writes the execution history of scheduled tasks which is not used for coordination in batches, and gathers
+ * execution time statistics in memory.
+ * <p>Executions of singleton and fixed-delay tasks are read by {@link Coordinator}, so {@link RunnerBean} stores them
+ * synchronously. For other tasks, the start of a sampled execution is also stored synchronously, so running
+ * executions are visible in the history. Their finish, as well as failed or manual executions which are not sampled,
+ * are queued by {@link #add(ScheduledExecution)} when they finish and are written by {@link #flush()}, which is
+ * invoked by the scheduler every {@code cuba.schedulingHistoryFlushInterval} milliseconds, or by the executing thread
+ * when the queue is full.</p>
+ */
+@Component(ScheduledExecutionHistory.NAME)
+public class ScheduledExecutionHistory {
+
+    public static final String NAME = "cuba_ScheduledExecutionHistory";
+
+    private static final Logger log = LoggerFactory.getLogger(ScheduledExecutionHistory.class);
+
+    protected static final int BATCH_SIZE = 500;
+    protected static final int MAX_QUEUE_SIZE = 50_000;
+    protected static final int DELETE_BATCH_SIZE = 1000;
+
+    protected static class Statistics {
+
+        protected volatile String task;
+        protected final LongAdder executionCount = new LongAdder();
+        protected final LongAdder failureCount = new LongAdder();
+        protected final LongAdder totalDuration = new LongAdder();
+        protected final LongAccumulator minDuration = new LongAccumulator(Math::min, Long.MAX_VALUE);
+        protected final LongAccumulator maxDuration = new LongAccumulator(Math::max, 0);
+        protected volatile long lastDuration;
+
+        protected ScheduledTaskStatistics snapshot() {
+            long count = executionCount.sum();
+            return new ScheduledTaskStatistics(task, count, failureCount.sum(), totalDuration.sum(),
+                    count == 0 ? 0 : minDuration.get(), maxDuration.get(), lastDuration);
+        }
+    }
+
+    @Inject
+    protected Persistence persistence;
+
+    @Inject
+    protected ServerConfig serverConfig;
+
+    @Inject
+    protected EntityStates entityStates;
+
+    protected Queue<ScheduledExecution> queue = new ConcurrentLinkedQueue<>();
+    protected AtomicInteger queueSize = new AtomicInteger();
+    protected ConcurrentMap<UUID, AtomicLong> samplingCounters = new ConcurrentHashMap<>();
+    protected ConcurrentMap<UUID, Statistics> statistics = new ConcurrentHashMap<>();
+
+    /**
+     * Tells whether the current execution of the task should be written to the history, according to
+     * {@link ServerConfig#getSchedulingHistorySamplingRate()}.
+     */
+    public boolean isSampled(ScheduledTask task) {
+        int rate = serverConfig.getSchedulingHistorySamplingRate();
+        if (rate <= 1 || task.getPeriod() == null
+                || task.getPeriod() > serverConfig.getSchedulingHistorySamplingMaxPeriod()) {
+            return true;
+        }
+        AtomicLong counter = samplingCounters.computeIfAbsent(task.getId(), id -> new AtomicLong());
+        return counter.getAndIncrement() % rate == 0;
+    }
+
+    /**
+     * Queues a new execution instance, or an already stored instance with the finish set, to be written by the next
+     * {@link #flush()}. If the queue is full, it is written in the calling thread.
+     */
+    public void add(ScheduledExecution execution) {
+        queue.add(execution);
+        if (queueSize.incrementAndGet() >= MAX_QUEUE_SIZE) {
+            log.debug("Execution history queue is full, writing it synchronously");
+            flush();
+        }
+    }
+
+    /**
+     * Writes queued executions in batches, each batch in its own transaction.
+     */
+    public void flush() {
+        List<ScheduledExecution> batch = new ArrayList<>(Math.min(queueSize.get(), BATCH_SIZE));
+        ScheduledExecution execution;
+        while ((execution = queue.poll()) != null) {
+            queueSize.decrementAndGet();
+            batch.add(execution);
+            if (batch.size() == BATCH_SIZE) {
+                write(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            write(batch);
+        }
+    }
+
+    protected void write(List<ScheduledExecution> executions) {
+        log.trace("Writing {} executions", executions.size());
+        try {
+            persistence.runInTransaction(em -> {
+                for (ScheduledExecution execution : executions) {
+                    if (entityStates.isNew(execution)) {
+                        execution.setTask(em.getReference(ScheduledTask.class, execution.getTask().getId()));
+                        em.persist(execution);
+                    } else {
+                        em.merge(execution);
+                    }
+                }
+            });
+        } catch (Exception e) {
+            log.error("Unable to write {} executions to the history", executions.size(), e);
+        }
+    }
+
+    /**
+     * Registers an execution in the statistics.
+     *
+     * @param task     executed task
+     * @param duration execution duration in milliseconds
+     * @param failed   whether the execution threw an exception
+     */
+    public void recordExecution(ScheduledTask task, long duration, boolean failed) {
+        Statistics taskStatistics = statistics.computeIfAbsent(task.getId(), id -> new Statistics());
+        taskStatistics.task = task.toString();
+        taskStatistics.executionCount.increment();
+        if (failed) {
+            taskStatistics.failureCount.increment();
+        }
+        taskStatistics.totalDuration.add(duration);
+        taskStatistics.minDuration.accumulate(duration);
+        taskStatistics.maxDuration.accumulate(duration);
+        taskStatistics.lastDuration = duration;
+    }
+
+    /**
+     * @return execution statistics by task id
+     */
+    public Map<UUID, ScheduledTaskStatistics> getStatistics() {
+        Map<UUID, ScheduledTaskStatistics> result = new HashMap<>(statistics.size());
+        for (Map.Entry<UUID, Statistics> entry : statistics.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        return result;
+    }
+
+    /**
+     * Removes executions started earlier than the specified date. Identifiers of existing executions are selected
+     * in batches, and each batch is deleted in its own transaction, so transactions stay small.
+     *
+     * @param before    executions started before this date are removed
+     * @param maxPeriod if not null, only executions of tasks with period lesser than or equal to it (in seconds)
+     *                  are removed
+     * @return number of removed executions
+     */
+    public int removeExecutionHistory(Date before, @Nullable Integer maxPeriod) {
+        int count = 0;
+        List<UUID> ids;
+        do {
+            ids = loadExecutionIds(before, maxPeriod);
+            if (!ids.isEmpty()) {
+                count += deleteExecutions(ids);
+            }
+        } while (ids.size() == DELETE_BATCH_SIZE);
+        return count;
+    }
+
+    protected List<UUID> loadExecutionIds(Date before, @Nullable Integer maxPeriod) {
+        return persistence.callInTransaction(em -> {
+            em.setSoftDeletion(false);
+            String jpql = "select e.id from sys$ScheduledExecution e where e.startTime < :before";
+            if (maxPeriod != null) {
+                jpql += " and e.task.period <= :maxPeriod";
+            }
+            jpql += " order by e.startTime";
+
+            TypedQuery<UUID> query = em.createQuery(jpql, UUID.class)
+                    .setParameter("before", before)
+                    .setMaxResults(DELETE_BATCH_SIZE);
+            if (maxPeriod != null) {
+                query.setParameter("maxPeriod", maxPeriod);
+            }
+            return query.getResultList();
+        });
+    }
+
+    protected int deleteExecutions(List<UUID> ids) {
+        log.trace("Deleting {} executions", ids.size());
+        return persistence.callInTransaction(em ->
+                em.createQuery("delete from sys$ScheduledExecution e where e.id in :ids")
+                        .setParameter("ids", ids)
+                        .executeUpdate());
+    }
+
+    @EventListener(AppContextStoppedEvent.class)
+    protected void applicationStopped() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.warn("Unable to write execution history on shutdown", e);
+        }
+    }
+}
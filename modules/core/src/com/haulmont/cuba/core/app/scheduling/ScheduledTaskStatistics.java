@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.haulmont.cuba.core.app.scheduling;
+
+import com.google.common.base.MoreObjects;
+
+import java.io.Serializable;
+
+/**
+ * Immutable snapshot of execution time statistics of a scheduled task, gathered since the server start.
+ */
+public class ScheduledTaskStatistics implements Serializable {
+
+    private static final long serialVersionUID = -2675830416624389127L;
+
+    protected final String task;
+    protected final long executionCount;
+    protected final long failureCount;
+    protected final long totalDuration;
+    protected final long minDuration;
+    protected final long maxDuration;
+    protected final long lastDuration;
+
+    public ScheduledTaskStatistics(String task, long executionCount, long failureCount,
+                                   long totalDuration, long minDuration, long maxDuration, long lastDuration) {
+        this.task = task;
+        this.executionCount = executionCount;
+        this.failureCount = failureCount;
+        this.totalDuration = totalDuration;
+        this.minDuration = minDuration;
+        this.maxDuration = maxDuration;
+        this.lastDuration = lastDuration;
+    }
+
+    /**
+     * @return string representation of the task
+     */
+    public String getTask() {
+        return task;
+    }
+
+    /**
+     * @return number of executions on this server
+     */
+    public long getExecutionCount() {
+        return executionCount;
+    }
+
+    /**
+     * @return number of executions which threw an exception
+     */
+    public long getFailureCount() {
+        return failureCount;
+    }
+
+    /**
+     * @return total duration of executions in milliseconds
+     */
+    public long getTotalDuration() {
+        return totalDuration;
+    }
+
+    /**
+     * @return minimum duration of an execution in milliseconds
+     */
+    public long getMinDuration() {
+        return minDuration;
+    }
+
+    /**
+     * @return maximum duration of an execution in milliseconds
+     */
+    public long getMaxDuration() {
+        return maxDuration;
+    }
+
+    /**
+     * @return duration of the last execution in milliseconds
+     */
+    public long getLastDuration() {
+        return lastDuration;
+    }
+
+    /**
+     * @return average duration of an execution in milliseconds, or 0 if there were no executions
+     */
+    public long getAverageDuration() {
+        return executionCount == 0 ? 0 : totalDuration / executionCount;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("task", task)
+                .add("executionCount", executionCount)
+                .add("failureCount", failureCount)
+                .add("averageDuration", getAverageDuration())
+                .add("minDuration", minDuration)
+                .add("maxDuration", maxDuration)
+                .add("lastDuration", lastDuration)
+                .toString();
+    }
+}
@@ -82,6 +82,9 @@ public class Scheduling implements SchedulingAPI {
     @Inject
     protected ServerInfoService serverInfoService;
 
+    @Inject
+    protected ScheduledExecutionHistory executionHistory;
+
     protected ConcurrentMap<ScheduledTask, Long> runningTasks = new ConcurrentHashMap<>();
 
     protected Map<ScheduledTask, Long> lastStartCache = new ConcurrentHashMap<>();
@@ -111,13 +114,14 @@ public class Scheduling implements SchedulingAPI {
             StopWatch sw = new Slf4JStopWatch("Scheduling.processTasks");
             Coordinator.Context context;
             try {
-                context = coordinator.begin();
+                context = coordinator.beginProcessing();
             } catch (SchedulingLockException e) {
                 return;
             }
             try {
                 for (ScheduledTask task : context.getTasks()) {
                     processTask(task);
+                    coordinator.scheduleNextProcessing(task, () -> getNextProcessingTime(task));
                 }
             } finally {
                 coordinator.end(context);
@@ -180,6 +184,11 @@ public class Scheduling implements SchedulingAPI {
         return tasks;
     }
 
+    @Override
+    public Map<UUID, ScheduledTaskStatistics> getExecutionStatistics() {
+        return executionHistory.getStatistics();
+    }
+
     protected long getSchedulingInterval() {
         return configuration.getConfig(ServerConfig.class).getSchedulingInterval();
     }
@@ -199,11 +208,8 @@ public class Scheduling implements SchedulingAPI {
             if (!checkFirst(task, serverPriority, now))
                 return;
 
-            long period = task.getPeriod() != null ? task.getPeriod() * 1000 : 0;
-            long frame = task.getTimeFrame() != null ? task.getTimeFrame() * 1000 : period / 2;
-            if (frame == 0) {//for cron tasks, where period is null we set default frame as scheduling interval
-                frame = getSchedulingInterval();
-            }
+            long period = getPeriod(task);
+            long frame = getTimeFrame(task, period);
 
             if (BooleanUtils.isTrue(task.getSingleton())) {
                 if (task.getStartDate() != null || SchedulingType.CRON == task.getSchedulingType()) {
@@ -290,6 +296,67 @@ public class Scheduling implements SchedulingAPI {
         }
     }
 
+    protected long getPeriod(ScheduledTask task) {
+        return task.getPeriod() != null ? task.getPeriod() * 1000 : 0;
+    }
+
+    protected long getTimeFrame(ScheduledTask task, long period) {
+        long frame = task.getTimeFrame() != null ? task.getTimeFrame() * 1000 : period / 2;
+        if (frame == 0) {//for cron tasks, where period is null we set default frame as scheduling interval
+            frame = getSchedulingInterval();
+        }
+        return frame;
+    }
+
+    /**
+     * Calculates the earliest time when the task can be started after it has been processed. If the time depends
+     * on the state of other servers or running executions, the next scheduling tick is returned.
+     */
+    protected long getNextProcessingTime(ScheduledTask task) {
+        long now = timeSource.currentTimeMillis();
+        long nextTick = now + getSchedulingInterval();
+        if (isRunning(task))
+            return nextTick;
+
+        if (task.getStartDate() != null && task.getStartDate().getTime() > now)
+            return Math.max(nextTick, task.getStartDate().getTime());
+
+        if (task.getStartDelay() != null) {
+            long delayedStart = schedulingStartTime + task.getStartDelay() * 1000;
+            if (delayedStart > now)
+                return Math.max(nextTick, delayedStart);
+        }
+
+        boolean singleton = BooleanUtils.isTrue(task.getSingleton());
+        if (singleton && StringUtils.isNotBlank(task.getPermittedServers()))
+            return nextTick; // switching between permitted servers is decided on each tick
+
+        long period = getPeriod(task);
+        long frame = getTimeFrame(task, period);
+        long lastStart = singleton ? task.getLastStart() : lastStartCache.getOrDefault(task, 0L);
+
+        long next;
+        if (SchedulingType.CRON == task.getSchedulingType()) {
+            long currentStart = calculateNextCronDate(task, lastStart, now, frame);
+            if (needToStartInTimeFrame(now, frame, lastStart, currentStart))
+                return nextTick;
+            next = new CronSequenceGenerator(task.getCron(), getCurrentTimeZone()).next(new Date(now)).getTime();
+        } else if (SchedulingType.FIXED_DELAY == task.getSchedulingType()) {
+            Long lastFinish = lastFinishCache.get(task);
+            if (lastFinish == null || lastStart == 0 || lastStart > lastFinish)
+                return nextTick;
+            next = lastFinish + period;
+        } else if (task.getStartDate() != null) {
+            long currentStart = calculateNextPeriodDate(task, lastStart, now, frame, period);
+            if (needToStartInTimeFrame(now, frame, lastStart, currentStart))
+                return nextTick;
+            next = currentStart > now ? currentStart : lastStart + period;
+        } else {
+            next = lastStart + period;
+        }
+        return Math.max(nextTick, next);
+    }
+
     protected boolean needToStartInTimeFrame(long now, long frame, long lastStart, long currentStart) {
         return currentStart <= now && now < currentStart + frame && lastStart < currentStart;
     }
@@ -384,7 +451,7 @@ public class Scheduling implements SchedulingAPI {
         String permittedServers = task.getPermittedServers();
 
         if (StringUtils.isBlank(permittedServers)) {
-            if (BooleanUtils.isTrue(task.getSingleton()) && !clusterManager.isMaster())
+            if (BooleanUtils.isTrue(task.getSingleton()) && !coordinator.isSingletonTaskOwner(task))
                 return null;
             else
                 return 0;
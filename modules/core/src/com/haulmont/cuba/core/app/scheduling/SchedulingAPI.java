@@ -21,6 +21,8 @@ import com.haulmont.cuba.core.entity.ScheduledTask;
 import com.haulmont.cuba.core.global.RunTaskOnceException;
 
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 /**
  * Interface to control processing of {@link ScheduledTask}s.
@@ -88,4 +90,9 @@ public interface SchedulingAPI {
      * @return a list of running scheduled tasks
      */
     List<ScheduledTask> getRunningTasks();
+
+    /**
+     * @return execution time statistics of tasks executed on this server since its start, by task id
+     */
+    Map<UUID, ScheduledTaskStatistics> getExecutionStatistics();
 }
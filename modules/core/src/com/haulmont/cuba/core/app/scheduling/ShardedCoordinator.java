@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.haulmont.cuba.core.app.scheduling;
+
+import com.google.common.hash.Hashing;
+import com.haulmont.cuba.core.EntityManager;
+import com.haulmont.cuba.core.Transaction;
+import com.haulmont.cuba.core.app.ClusterManagerAPI;
+import com.haulmont.cuba.core.app.ServerConfig;
+import com.haulmont.cuba.core.entity.ScheduledTask;
+import com.haulmont.cuba.core.global.TimeSource;
+import org.apache.commons.lang3.BooleanUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.persistence.LockModeType;
+import javax.persistence.PessimisticLockException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.LongSupplier;
+
+/**
+ * Implementation of {@link Coordinator} which spreads singleton tasks over the cluster and checks only the tasks
+ * that are due.
+ * <ul>
+ *     <li>Active tasks are cached and reloaded from the database every {@code cuba.schedulingTasksReloadInterval}
+ *     milliseconds or when the cluster view changes.</li>
+ *     <li>Each singleton task without permitted servers is owned by one cluster member, selected by rendezvous
+ *     hashing of the task id over the current cluster view. So such tasks are not all run by the master.</li>
+ *     <li>Owned tasks are queued by the next processing time calculated by {@link Scheduling}, and
+ *     {@link #beginProcessing()} returns only the tasks whose time has come.</li>
+ *     <li>A transaction is started only if some tasks are due, and only due singleton tasks are locked.</li>
+ * </ul>
+ * The implementation is not registered by default. To use it, override the {@code cuba_SchedulingCoordinator} bean
+ * in the {@code spring.xml} of the core module of your application:
+ * <pre>
+ *     &lt;bean name="cuba_SchedulingCoordinator" class="com.haulmont.cuba.core.app.scheduling.ShardedCoordinator"/&gt;
+ * </pre>
+ */
+public class ShardedCoordinator extends DbBasedCoordinator {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardedCoordinator.class);
+
+    protected static class QueueEntry {
+
+        protected final UUID taskId;
+        protected final long time;
+
+        protected QueueEntry(UUID taskId, long time) {
+            this.taskId = taskId;
+            this.time = time;
+        }
+    }
+
+    @Inject
+    protected ClusterManagerAPI clusterManager;
+
+    @Inject
+    protected TimeSource timeSource;
+
+    @Inject
+    protected ServerConfig serverConfig;
+
+    protected Map<UUID, ScheduledTask> tasks = new HashMap<>();
+    protected Map<UUID, Long> nextProcessingTimes = new HashMap<>();
+    protected PriorityQueue<QueueEntry> queue = new PriorityQueue<>(Comparator.comparingLong(e -> e.time));
+    protected List<String> members = Collections.emptyList();
+    protected long lastReloadTime;
+
+    @Override
+    public synchronized Context begin() {
+        refresh(timeSource.currentTimeMillis());
+        return new ContextImpl(new ArrayList<>(tasks.values()), null);
+    }
+
+    @Override
+    public synchronized Context beginProcessing() {
+        long now = timeSource.currentTimeMillis();
+        refresh(now);
+
+        List<UUID> dueIds = pollDueTasks(now);
+        if (dueIds.isEmpty()) {
+            return new ContextImpl(Collections.emptyList(), null);
+        }
+
+        Transaction tx = persistence.createTransaction();
+        try {
+            List<ScheduledTask> dueTasks = new ArrayList<>(dueIds.size());
+            List<UUID> singletonIds = new ArrayList<>();
+            for (UUID id : dueIds) {
+                ScheduledTask task = tasks.get(id);
+                if (task == null)
+                    continue;
+                if (BooleanUtils.isTrue(task.getSingleton()))
+                    singletonIds.add(id);
+                else
+                    dueTasks.add(task);
+            }
+            if (!singletonIds.isEmpty()) {
+                for (ScheduledTask task : lockTasks(singletonIds)) {
+                    tasks.put(task.getId(), task);
+                    dueTasks.add(task);
+                }
+            }
+            return new ContextImpl(dueTasks, tx);
+        } catch (SchedulingLockException e) {
+            //noinspection IncorrectClosingTransaction
+            tx.end();
+            scheduleAll(dueIds, now);
+            throw e;
+        } catch (Exception e) {
+            //noinspection IncorrectClosingTransaction
+            tx.end();
+            scheduleAll(dueIds, now);
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public synchronized void end(Context context) {
+        Transaction tx = ((ContextImpl) context).getTransaction();
+        if (tx != null) {
+            log.trace("Commit transaction thereby unlock due tasks");
+            tx.commit();
+            tx.end();
+        }
+        // tasks which were not rescheduled by Scheduling are checked again on the next tick
+        long nextTick = timeSource.currentTimeMillis() + serverConfig.getSchedulingInterval();
+        for (ScheduledTask task : context.getTasks()) {
+            if (tasks.containsKey(task.getId()) && !nextProcessingTimes.containsKey(task.getId())) {
+                schedule(task.getId(), nextTick);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void scheduleNextProcessing(ScheduledTask task, LongSupplier nextProcessingTime) {
+        if (tasks.containsKey(task.getId()) && isOwned(task)) {
+            schedule(task.getId(), nextProcessingTime.getAsLong());
+        }
+    }
+
+    @Override
+    public boolean isSingletonTaskOwner(ScheduledTask task) {
+        List<String> currentMembers = clusterManager.getCurrentViewMembers();
+        String localMember = clusterManager.getLocalMember();
+        if (currentMembers.isEmpty() || localMember == null)
+            return true;
+
+        String owner = null;
+        long ownerWeight = Long.MIN_VALUE;
+        for (String member : currentMembers) {
+            long weight = Hashing.murmur3_128().newHasher()
+                    .putString(member, StandardCharsets.UTF_8)
+                    .putLong(task.getId().getMostSignificantBits())
+                    .putLong(task.getId().getLeastSignificantBits())
+                    .hash().asLong();
+            if (owner == null || weight > ownerWeight) {
+                owner = member;
+                ownerWeight = weight;
+            }
+        }
+        return localMember.equals(owner);
+    }
+
+    /**
+     * Reloads active tasks if the reload interval has passed or the cluster view has changed. New and modified tasks
+     * become due immediately, and the tasks are reassigned if the cluster view has changed.
+     */
+    protected void refresh(long now) {
+        List<String> currentMembers = clusterManager.getCurrentViewMembers();
+        boolean membersChanged = !currentMembers.equals(members);
+        if (!membersChanged && lastReloadTime != 0
+                && now < lastReloadTime + serverConfig.getSchedulingTasksReloadInterval()) {
+            return;
+        }
+
+        log.trace("Reload active tasks, cluster view changed: {}", membersChanged);
+        List<ScheduledTask> loadedTasks = loadTasks();
+        members = currentMembers;
+        lastReloadTime = now;
+
+        Map<UUID, ScheduledTask> loaded = new HashMap<>(loadedTasks.size());
+        for (ScheduledTask task : loadedTasks) {
+            loaded.put(task.getId(), task);
+            ScheduledTask cached = tasks.get(task.getId());
+            if (!isOwned(task)) {
+                nextProcessingTimes.remove(task.getId());
+            } else if (cached == null || membersChanged
+                    || !Objects.equals(cached.getUpdateTs(), task.getUpdateTs())
+                    || !nextProcessingTimes.containsKey(task.getId())) {
+                schedule(task.getId(), now);
+            }
+        }
+        nextProcessingTimes.keySet().retainAll(loaded.keySet());
+        tasks = loaded;
+    }
+
+    protected List<ScheduledTask> loadTasks() {
+        return persistence.callInTransaction(em ->
+                em.createQuery("select t from sys$ScheduledTask t where t.active = true", ScheduledTask.class)
+                        .getResultList());
+    }
+
+    protected List<ScheduledTask> lockTasks(List<UUID> ids) {
+        log.trace("Read due singleton tasks from DB and lock them");
+        EntityManager em = persistence.getEntityManager();
+        try {
+            return em.createQuery("select t from sys$ScheduledTask t where t.id in :ids and t.active = true",
+                    ScheduledTask.class)
+                    .setParameter("ids", ids)
+                    .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                    .getResultList();
+        } catch (PessimisticLockException e) {
+            log.info("Unable to acquire lock on tasks");
+            if (log.isTraceEnabled()) {
+                log.trace("Unable to acquire lock on tasks. Error:", e);
+            }
+            throw new SchedulingLockException("Lock exception while acquiring tasks");
+        }
+    }
+
+    protected boolean isOwned(ScheduledTask task) {
+        return !BooleanUtils.isTrue(task.getSingleton())
+                || StringUtils.isNotBlank(task.getPermittedServers())
+                || isSingletonTaskOwner(task);
+    }
+
+    protected List<UUID> pollDueTasks(long now) {
+        List<UUID> dueIds = new ArrayList<>();
+        while (!queue.isEmpty() && queue.peek().time <= now) {
+            QueueEntry entry = queue.poll();
+            // entries replaced by a later scheduling are skipped
+            if (Objects.equals(nextProcessingTimes.get(entry.taskId), entry.time)) {
+                nextProcessingTimes.remove(entry.taskId);
+                dueIds.add(entry.taskId);
+            }
+        }
+        return dueIds;
+    }
+
+    protected void schedule(UUID taskId, long time) {
+        nextProcessingTimes.put(taskId, time);
+        queue.add(new QueueEntry(taskId, time));
+    }
+
+    protected void scheduleAll(Collection<UUID> taskIds, long time) {
+        for (UUID taskId : taskIds) {
+            schedule(taskId, time);
+        }
+    }
+}
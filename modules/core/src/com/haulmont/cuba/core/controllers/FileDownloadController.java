@@ -35,6 +35,7 @@ import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletRequest;
@@ -88,9 +89,28 @@ public class FileDownloadController {
             InputStream is = null;
             ServletOutputStream os = null;
             try {
-                is = fd != null ? fileStorage.openStream(fd) : FileUtils.openInputStream(file);
+                if (fd != null && fd.getSize() != null) {
+                    response.setHeader("Accept-Ranges", "bytes");
+                    String range = request.getHeader("Range");
+                    if (range != null) {
+                        long[] bounds = parseRange(range, fd.getSize());
+                        if (bounds == null) {
+                            response.setHeader("Content-Range", "bytes */" + fd.getSize());
+                            response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                            return;
+                        }
+                        long length = bounds[1] - bounds[0] + 1;
+                        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                        response.setHeader("Content-Range", "bytes " + bounds[0] + "-" + bounds[1] + "/" + fd.getSize());
+                        response.setContentLengthLong(length);
+                        is = fileStorage.openStream(fd, bounds[0], length);
+                    }
+                }
+                if (is == null) {
+                    is = fd != null ? fileStorage.openStream(fd) : FileUtils.openInputStream(file);
+                }
                 os = response.getOutputStream();
-                IOUtils.copy(is, os);
+                IOUtils.copyLarge(is, os);
                 os.flush();
             } catch (FileStorageException e) {
                 log.error("Unable to download file", e);
@@ -107,6 +127,43 @@ public class FileDownloadController {
         }
     }
 
+    /**
+     * Parses a single byte range of the {@code Range} request header.
+     *
+     * @return first and last byte positions, or null if the range cannot be satisfied
+     */
+    @Nullable
+    protected long[] parseRange(String range, long size) {
+        if (!range.startsWith("bytes=") || range.contains(",")) {
+            return null;
+        }
+        String spec = range.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            long first;
+            long last;
+            if (dash == 0) {
+                // suffix range: the last N bytes
+                long suffixLength = Long.parseLong(spec.substring(1));
+                first = Math.max(size - suffixLength, 0);
+                last = size - 1;
+            } else {
+                first = Long.parseLong(spec.substring(0, dash));
+                String lastStr = spec.substring(dash + 1);
+                last = lastStr.isEmpty() ? size - 1 : Math.min(Long.parseLong(lastStr), size - 1);
+            }
+            if (first < 0 || first > last) {
+                return null;
+            }
+            return new long[]{first, last};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
     protected UserSession getSession(HttpServletRequest request, HttpServletResponse response) throws IOException {
         UUID sessionId;
         try {
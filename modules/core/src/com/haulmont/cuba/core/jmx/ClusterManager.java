@@ -111,4 +111,34 @@ public class ClusterManager implements ClusterManagerMBean {
     public long getReceivedBytes(String className) {
         return className == null ? -1 : clusterManager.getReceivedBytes(className);
     }
+
+    @Override
+    public long getSerializationTime(String className) {
+        return className == null ? -1 : clusterManager.getSerializationTime(className);
+    }
+
+    @Override
+    public long getDeserializationTime(String className) {
+        return className == null ? -1 : clusterManager.getDeserializationTime(className);
+    }
+
+    @Override
+    public long getDroppedMessages(String className) {
+        return className == null ? -1 : clusterManager.getDroppedMessages(className);
+    }
+
+    @Override
+    public long getSentBatches() {
+        return clusterManager.getSentBatches();
+    }
+
+    @Override
+    public long getBatchedMessages() {
+        return clusterManager.getBatchedMessages();
+    }
+
+    @Override
+    public long getDeduplicatedMessages() {
+        return clusterManager.getDeduplicatedMessages();
+    }
 }
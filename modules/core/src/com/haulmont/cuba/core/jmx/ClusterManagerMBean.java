@@ -78,4 +78,31 @@ public interface ClusterManagerMBean {
 
     @ManagedOperation(description = "Get received bytes for specified class")
     long getReceivedBytes(String className);
+
+    @ManagedOperation(description = "Get serialization time in milliseconds for specified class")
+    long getSerializationTime(String className);
+
+    @ManagedOperation(description = "Get deserialization time in milliseconds for specified class")
+    long getDeserializationTime(String className);
+
+    @ManagedOperation(description = "Get dropped messages count for specified class")
+    long getDroppedMessages(String className);
+
+    /**
+     * @return count of message batches sent since the start
+     * @see com.haulmont.cuba.core.app.ClusterManagerAPI#getSentBatches()
+     */
+    long getSentBatches();
+
+    /**
+     * @return total count of messages sent in batches
+     * @see com.haulmont.cuba.core.app.ClusterManagerAPI#getBatchedMessages()
+     */
+    long getBatchedMessages();
+
+    /**
+     * @return count of messages removed from batches as duplicates
+     * @see com.haulmont.cuba.core.app.ClusterManagerAPI#getDeduplicatedMessages()
+     */
+    long getDeduplicatedMessages();
 }
@@ -159,6 +159,31 @@ public class Emailer implements EmailerMBean {
         config.setSmtpConnectionTimeoutSec(timeoutSec);
     }
 
+    @Override
+    public long getSentCount() {
+        return emailer.getSentCount();
+    }
+
+    @Override
+    public long getNotSentCount() {
+        return emailer.getNotSentCount();
+    }
+
+    @Override
+    public long getReturnedToQueueCount() {
+        return emailer.getReturnedToQueueCount();
+    }
+
+    @Override
+    public double getAvgSendingTime() {
+        return emailer.getAvgSendingTime();
+    }
+
+    @Override
+    public double getAvgDeliveryLatency() {
+        return emailer.getAvgDeliveryLatency();
+    }
+
     @Authenticated
     @Override
     public void updateSession() {
@@ -54,6 +54,31 @@ public interface EmailerMBean {
     int getSmtpConnectionTimeoutSec();
     void setSmtpConnectionTimeoutSec(int timeoutSec);
 
+    /**
+     * @return number of messages sent since the server start
+     */
+    long getSentCount();
+
+    /**
+     * @return number of messages marked as not sent since the server start
+     */
+    long getNotSentCount();
+
+    /**
+     * @return number of messages returned to the queue for another attempt since the server start
+     */
+    long getReturnedToQueueCount();
+
+    /**
+     * @return average time of passing a message to the SMTP server, in milliseconds
+     */
+    double getAvgSendingTime();
+
+    /**
+     * @return average time between queueing and sending a message, in milliseconds
+     */
+    double getAvgDeliveryLatency();
+
     @ManagedOperation(description = "Update properties for JavaMail session")
     void updateSession();
 
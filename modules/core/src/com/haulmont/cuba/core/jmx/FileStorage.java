@@ -30,6 +30,7 @@ import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import java.io.File;
 import java.util.Collection;
@@ -53,6 +54,46 @@ public class FileStorage implements FileStorageMBean {
         }
     }
 
+    @Override
+    public long getBytesWritten() {
+        com.haulmont.cuba.core.app.filestorage.FileStorage fileStorage = getFileStorageImpl();
+        return fileStorage != null ? fileStorage.getBytesWritten() : 0;
+    }
+
+    @Override
+    public long getWriteThroughput() {
+        com.haulmont.cuba.core.app.filestorage.FileStorage fileStorage = getFileStorageImpl();
+        return fileStorage != null ? fileStorage.getWriteThroughput() : 0;
+    }
+
+    @Override
+    public long getBytesReplicated() {
+        com.haulmont.cuba.core.app.filestorage.FileStorage fileStorage = getFileStorageImpl();
+        return fileStorage != null ? fileStorage.getBytesReplicated() : 0;
+    }
+
+    @Override
+    public long getReplicationThroughput() {
+        com.haulmont.cuba.core.app.filestorage.FileStorage fileStorage = getFileStorageImpl();
+        return fileStorage != null ? fileStorage.getReplicationThroughput() : 0;
+    }
+
+    @Override
+    public long getReplicaErrorCount() {
+        com.haulmont.cuba.core.app.filestorage.FileStorage fileStorage = getFileStorageImpl();
+        return fileStorage != null ? fileStorage.getReplicaErrorCount() : 0;
+    }
+
+    @Nullable
+    protected com.haulmont.cuba.core.app.filestorage.FileStorage getFileStorageImpl() {
+        FileStorageAPI fileStorageAPI = AppBeans.get(FileStorageAPI.class);
+        if (fileStorageAPI instanceof com.haulmont.cuba.core.app.filestorage.FileStorage) {
+            return (com.haulmont.cuba.core.app.filestorage.FileStorage) fileStorageAPI;
+        } else {
+            return null;
+        }
+    }
+
     @Override
     public String findOrphanDescriptors() {
         com.haulmont.cuba.core.app.filestorage.FileStorage fileStorage;
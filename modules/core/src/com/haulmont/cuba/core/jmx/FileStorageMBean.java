@@ -38,4 +38,29 @@ public interface FileStorageMBean {
      * @return the list of files in the storage which have no corresponding descriptors in the database
      */
     String findOrphanFiles();
+
+    /**
+     * @return number of bytes saved to the primary storage directory since the server start
+     */
+    long getBytesWritten();
+
+    /**
+     * @return average speed of saving files to the primary storage directory, bytes per second
+     */
+    long getWriteThroughput();
+
+    /**
+     * @return number of bytes copied to secondary storage directories since the server start
+     */
+    long getBytesReplicated();
+
+    /**
+     * @return average speed of copying files to secondary storage directories, bytes per second
+     */
+    long getReplicationThroughput();
+
+    /**
+     * @return number of failed attempts to copy a file to a secondary storage directory
+     */
+    long getReplicaErrorCount();
 }
@@ -17,8 +17,10 @@
 
 package com.haulmont.cuba.core.jmx;
 
+import com.google.common.cache.CacheStats;
 import com.haulmont.chile.core.model.MetaClass;
 import com.haulmont.cuba.core.*;
+import com.haulmont.cuba.core.app.CrossDataStoreReferenceLoadingSupport;
 import com.haulmont.cuba.core.app.PersistenceConfig;
 import com.haulmont.cuba.core.app.PersistenceManagerAPI;
 import com.haulmont.cuba.core.app.ServerConfig;
@@ -26,6 +28,7 @@ import com.haulmont.cuba.core.entity.EntityStatistics;
 import com.haulmont.cuba.core.global.*;
 import com.haulmont.cuba.core.sys.DbInitializationException;
 import com.haulmont.cuba.core.sys.DbUpdater;
+import com.haulmont.cuba.core.sys.NumberIdCache;
 import com.haulmont.cuba.core.sys.persistence.DbmsType;
 import com.haulmont.cuba.security.app.Authenticated;
 import org.apache.commons.lang3.StringUtils;
@@ -41,6 +44,7 @@ import java.io.File;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 @Component("cuba_PersistenceManagerMBean")
@@ -60,6 +64,15 @@ public class PersistenceManager implements PersistenceManagerMBean {
     @Inject
     protected PersistenceSecurity security;
 
+    @Inject
+    protected CrossDataStoreReferenceLoadingSupport crossDataStoreReferenceLoadingSupport;
+
+    @Inject
+    protected QueryTransformerFactory queryTransformerFactory;
+
+    @Inject
+    protected NumberIdCache numberIdCache;
+
     protected PersistenceConfig persistenceConfig;
 
     protected ServerConfig serverConfig;
@@ -335,4 +348,37 @@ public class PersistenceManager implements PersistenceManagerMBean {
             return ExceptionUtils.getStackTrace(e);
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    public String printCrossDataStoreReferenceLoadingStat() {
+        return crossDataStoreReferenceLoadingSupport.printStat();
+    }
+
+    @Override
+    public void resetCrossDataStoreReferenceLoadingStat() {
+        crossDataStoreReferenceLoadingSupport.resetStat();
+    }
+
+    @Override
+    public String printJpqlTreeCacheStat() {
+        CacheStats stats = queryTransformerFactory.getQueryTreeCacheStats();
+        if (stats == null) {
+            return "Parsed JPQL queries are not cached";
+        }
+        return String.format("requests=%d, hits=%d, misses=%d, hitRate=%.3f, evictions=%d, avgParseTime=%.3fms",
+                stats.requestCount(), stats.hitCount(), stats.missCount(), stats.hitRate(), stats.evictionCount(),
+                stats.averageLoadPenalty() / 1_000_000);
+    }
+
+    @Override
+    public void resetJpqlTreeCache() {
+        queryTransformerFactory.resetDomainModel();
+    }
+
+    @Override
+    public String printNumberIdCacheStat() {
+        return String.format("Sequence fetches: %d, prefetches: %d, block switches: %d, block switch time: %d ms",
+                numberIdCache.getSequenceFetches(), numberIdCache.getPrefetches(), numberIdCache.getBlockWaits(),
+                TimeUnit.NANOSECONDS.toMillis(numberIdCache.getBlockWaitNanos()));
+    }
+}
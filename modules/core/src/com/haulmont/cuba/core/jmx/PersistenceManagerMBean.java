@@ -138,4 +138,28 @@ public interface PersistenceManagerMBean {
      */
     @ManagedOperation(description = "Flush statistics cache. It will be reloaded on a next request")
     String flushStatisticsCache();
+
+    /**
+     * @return number of loads and loading time of cross-datastore references per data store
+     */
+    @ManagedOperation(description = "Show statistics of loading cross-datastore references per data store")
+    String printCrossDataStoreReferenceLoadingStat();
+
+    @ManagedOperation(description = "Reset statistics of loading cross-datastore references")
+    void resetCrossDataStoreReferenceLoadingStat();
+
+    /**
+     * @return hit rate and other statistics of the parsed JPQL queries cache
+     */
+    @ManagedOperation(description = "Show statistics of the parsed JPQL queries cache")
+    String printJpqlTreeCacheStat();
+
+    @ManagedOperation(description = "Discard the JPQL domain model and parsed queries")
+    void resetJpqlTreeCache();
+
+    /**
+     * @return number of database sequence requests and time spent waiting for new blocks of cached ids
+     */
+    @ManagedOperation(description = "Show statistics of the cache of generated ids")
+    String printNumberIdCacheStat();
 }
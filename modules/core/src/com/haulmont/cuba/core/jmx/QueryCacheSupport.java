@@ -45,6 +45,31 @@ public class QueryCacheSupport implements QueryCacheSupportMBean {
         return queryCache.size();
     }
 
+    @Override
+    public long getHitCount() {
+        return queryCache.getStats().getHitCount();
+    }
+
+    @Override
+    public long getMissCount() {
+        return queryCache.getStats().getMissCount();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return queryCache.getStats().getEvictionCount();
+    }
+
+    @Override
+    public long getInvalidationCount() {
+        return queryCache.getStats().getInvalidationCount();
+    }
+
+    @Override
+    public double getHitRate() {
+        return queryCache.getStats().getHitRate();
+    }
+
     @Override
     public String evictAll() {
         queryCacheMgr.invalidateAll(true);
@@ -27,6 +27,21 @@ public interface QueryCacheSupportMBean {
     @ManagedAttribute(description = "Current number of cached queries")
     long getSize();
 
+    @ManagedAttribute(description = "Number of lookups that returned a cached result")
+    long getHitCount();
+
+    @ManagedAttribute(description = "Number of lookups that found no cached result")
+    long getMissCount();
+
+    @ManagedAttribute(description = "Number of query results evicted because of the cache size limit")
+    long getEvictionCount();
+
+    @ManagedAttribute(description = "Number of query results discarded by invalidation")
+    long getInvalidationCount();
+
+    @ManagedAttribute(description = "Ratio of cache hits to all lookups")
+    double getHitRate();
+
     @ManagedOperation(description = "Discard all query results in the cache")
     String evictAll();
 
@@ -17,10 +17,8 @@
 
 package com.haulmont.cuba.core.jmx;
 
-import com.haulmont.cuba.core.EntityManager;
-import com.haulmont.cuba.core.Persistence;
-import com.haulmont.cuba.core.Query;
-import com.haulmont.cuba.core.Transaction;
+import com.haulmont.cuba.core.app.scheduling.ScheduledExecutionHistory;
+import com.haulmont.cuba.core.app.scheduling.ScheduledTaskStatistics;
 import com.haulmont.cuba.core.app.scheduling.SchedulingAPI;
 import com.haulmont.cuba.core.entity.ScheduledTask;
 import com.haulmont.cuba.core.global.TimeSource;
@@ -35,7 +33,6 @@ import javax.inject.Inject;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.List;
-import java.util.UUID;
 
 @Component("cuba_SchedulingMBean")
 public class Scheduling implements SchedulingMBean {
@@ -44,7 +41,7 @@ public class Scheduling implements SchedulingMBean {
     protected SchedulingAPI scheduling;
 
     @Inject
-    protected Persistence persistence;
+    protected ScheduledExecutionHistory executionHistory;
 
     @Inject
     protected TimeSource timeSource;
@@ -96,42 +93,25 @@ public class Scheduling implements SchedulingMBean {
     @Authenticated
     @Override
     public String removeExecutionHistory(String age, String maxPeriod) {
-        List<UUID> list;
-        Transaction tx = persistence.createTransaction();
-        try {
-            EntityManager em = persistence.getEntityManager();
-            String jpql = "select e.id from sys$ScheduledExecution e where e.startTime < ?1";
-            if (maxPeriod != null) {
-                jpql += " and e.task.period <= ?2";
-            }
-            jpql += " order by e.startTime";
-
-            Query query = em.createQuery(jpql);
-
-            Date startDate = DateUtils.addHours(timeSource.currentTimestamp(), -Integer.parseInt(age));
-            query.setParameter(1, startDate);
-            if (maxPeriod != null) {
-                query.setParameter(2, Integer.parseInt(maxPeriod) * 3600);
-            }
-            list = query.getResultList();
-
-            tx.commit();
-        } finally {
-            tx.end();
-        }
+        Date startDate = DateUtils.addHours(timeSource.currentTimestamp(), -Integer.parseInt(age));
+        Integer maxPeriodSec = maxPeriod != null ? Integer.parseInt(maxPeriod) * 3600 : null;
+        int count = executionHistory.removeExecutionHistory(startDate, maxPeriodSec);
+        return "Deleted " + count;
+    }
 
-        for (int i = 0; i < list.size(); i += 100) {
-            final List<UUID> subList = list.subList(i, Math.min(i + 100, list.size()));
-            persistence.createTransaction().execute(new Transaction.Runnable() {
-                @Override
-                public void run(EntityManager em) {
-                    Query query = em.createQuery("delete from sys$ScheduledExecution e where e.id in ?1");
-                    query.setParameter(1, subList);
-                    query.executeUpdate();
-                }
-            });
+    @Override
+    public String printExecutionStatistics() {
+        StringBuilder sb = new StringBuilder();
+        for (ScheduledTaskStatistics statistics : scheduling.getExecutionStatistics().values()) {
+            sb.append(statistics.getTask())
+                    .append(": executions=").append(statistics.getExecutionCount())
+                    .append(", failures=").append(statistics.getFailureCount())
+                    .append(", avg=").append(statistics.getAverageDuration())
+                    .append("ms, min=").append(statistics.getMinDuration())
+                    .append("ms, max=").append(statistics.getMaxDuration())
+                    .append("ms, last=").append(statistics.getLastDuration())
+                    .append("ms\n");
         }
-
-        return "Deleted " + list.size();
+        return sb.toString();
     }
-}
\ No newline at end of file
+}
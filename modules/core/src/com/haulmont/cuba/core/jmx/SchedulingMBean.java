@@ -52,4 +52,7 @@ public interface SchedulingMBean {
             @ManagedOperationParameter(name = "age", description = "Execution age in hours"),
             @ManagedOperationParameter(name = "maxPeriod", description = "Max task period in hours")})
     String removeExecutionHistory(String age, String maxPeriod);
+
+    @ManagedOperation(description = "Print execution time statistics of tasks executed on this server")
+    String printExecutionStatistics();
 }
@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys.entitycache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.collect.Maps;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link QueryCache} implementation that does not use a global lock and keeps its indexes in sync with the cache
+ * content.
+ * <ul>
+ *     <li>The entity type index contains concurrent key sets, so adding and removing a key does not copy anything.</li>
+ *     <li>Keys are removed from the indexes when the underlying cache evicts or invalidates an entry.</li>
+ *     <li>Query identifiers are indexed, so {@link #findQueryKeyById(UUID)} and {@link #invalidate(UUID)}
+ *     do not scan the cache.</li>
+ *     <li>Hit, miss, eviction and invalidation counters are available via {@link #getStats()}.</li>
+ * </ul>
+ * The implementation is not registered by default. To use it, override the {@code cuba_QueryCache} bean
+ * in the {@code spring.xml} of the core module of your application:
+ * <pre>
+ *     &lt;bean name="cuba_QueryCache" class="com.haulmont.cuba.core.sys.entitycache.IndexedQueryCache"/&gt;
+ * </pre>
+ */
+public class IndexedQueryCache implements QueryCache {
+
+    protected Cache<QueryKey, QueryResult> data;
+    protected ConcurrentMap<String, Set<QueryKey>> typeIndex = new ConcurrentHashMap<>();
+    protected ConcurrentMap<UUID, QueryKey> idIndex = new ConcurrentHashMap<>();
+
+    protected LongAdder hitCount = new LongAdder();
+    protected LongAdder missCount = new LongAdder();
+    protected LongAdder evictionCount = new LongAdder();
+    protected LongAdder invalidationCount = new LongAdder();
+
+    @Inject
+    protected QueryCacheConfig queryCacheConfig;
+
+    protected static final Logger log = LoggerFactory.getLogger(QueryCache.class);
+
+    @PostConstruct
+    protected void init() {
+        data = CacheBuilder.newBuilder()
+                .maximumSize(queryCacheConfig.getQueryCacheMaxSize())
+                .removalListener(this::onRemoval)
+                .build();
+    }
+
+    @Override
+    public QueryResult get(QueryKey queryKey) {
+        QueryResult result = data.getIfPresent(queryKey);
+        if (result != null) {
+            hitCount.increment();
+        } else {
+            missCount.increment();
+        }
+        return result;
+    }
+
+    @Override
+    public void put(QueryKey queryKey, QueryResult queryResult) {
+        index(queryKey, queryResult);
+        data.put(queryKey, queryResult);
+    }
+
+    @Override
+    public QueryKey findQueryKeyById(UUID queryId) {
+        return idIndex.get(queryId);
+    }
+
+    @Override
+    public void invalidate(QueryKey queryKey) {
+        log.debug("Invalidate query by key {}", queryKey.printDescription());
+        data.invalidate(queryKey);
+    }
+
+    @Override
+    public void invalidate(String typeName) {
+        Set<QueryKey> keys = typeIndex.get(typeName);
+        if (keys == null || keys.isEmpty()) return;
+        log.debug("Invalidate cache for type {}", typeName);
+        data.invalidateAll(keys);
+    }
+
+    @Override
+    public void invalidate(Set<String> typeNames) {
+        for (String typeName : typeNames) {
+            invalidate(typeName);
+        }
+    }
+
+    @Override
+    public QueryKey invalidate(UUID queryId) {
+        QueryKey key = idIndex.get(queryId);
+        if (key != null) {
+            log.debug("Invalidate query by identifier {}", queryId);
+            data.invalidate(key);
+        }
+        return key;
+    }
+
+    @Override
+    public void invalidateAll() {
+        log.debug("Invalidate all cache");
+        data.invalidateAll();
+    }
+
+    @Override
+    public long size() {
+        return data.size();
+    }
+
+    @Override
+    public long getMaxSize() {
+        return queryCacheConfig.getQueryCacheMaxSize();
+    }
+
+    @Override
+    public Map<QueryKey, QueryResult> asMap() {
+        return Maps.newHashMap(data.asMap());
+    }
+
+    @Override
+    public QueryCacheStats getStats() {
+        return new QueryCacheStats(hitCount.sum(), missCount.sum(), evictionCount.sum(), invalidationCount.sum());
+    }
+
+    protected void index(QueryKey queryKey, QueryResult queryResult) {
+        idIndex.put(queryKey.getId(), queryKey);
+        for (String type : getRelatedTypes(queryResult)) {
+            typeIndex.computeIfAbsent(type, t -> ConcurrentHashMap.newKeySet()).add(queryKey);
+        }
+    }
+
+    protected void unindex(QueryKey queryKey, QueryResult queryResult) {
+        idIndex.remove(queryKey.getId(), queryKey);
+        for (String type : getRelatedTypes(queryResult)) {
+            Set<QueryKey> keys = typeIndex.get(type);
+            if (keys != null) {
+                keys.remove(queryKey);
+            }
+        }
+    }
+
+    protected void onRemoval(RemovalNotification<QueryKey, QueryResult> notification) {
+        QueryKey queryKey = notification.getKey();
+        QueryResult queryResult = notification.getValue();
+        if (queryKey == null || queryResult == null) {
+            return;
+        }
+
+        RemovalCause cause = notification.getCause();
+        if (cause == RemovalCause.EXPLICIT) {
+            invalidationCount.increment();
+        } else if (notification.wasEvicted()) {
+            evictionCount.increment();
+        }
+
+        unindex(queryKey, queryResult);
+
+        // the same key could have been put again while the notification was being processed
+        QueryResult current = data.asMap().get(queryKey);
+        if (current != null) {
+            index(queryKey, current);
+        }
+    }
+
+    protected Set<String> getRelatedTypes(QueryResult queryResult) {
+        return queryResult.getRelatedTypes() != null ? queryResult.getRelatedTypes() : Collections.emptySet();
+    }
+}
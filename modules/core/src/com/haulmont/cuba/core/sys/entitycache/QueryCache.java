@@ -85,4 +85,12 @@ public interface QueryCache {
      * the map doesn't affect the cache.
      */
     Map<QueryKey, QueryResult> asMap();
+
+    /**
+     * Returns a snapshot of the cache usage counters. Implementations that do not collect
+     * statistics return {@link QueryCacheStats#EMPTY}.
+     */
+    default QueryCacheStats getStats() {
+        return QueryCacheStats.EMPTY;
+    }
 }
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys.entitycache;
+
+import com.google.common.base.MoreObjects;
+
+import java.io.Serializable;
+
+/**
+ * Immutable snapshot of {@link QueryCache} usage counters.
+ */
+public class QueryCacheStats implements Serializable {
+
+    private static final long serialVersionUID = 6541207896213564178L;
+
+    public static final QueryCacheStats EMPTY = new QueryCacheStats(0, 0, 0, 0);
+
+    protected final long hitCount;
+    protected final long missCount;
+    protected final long evictionCount;
+    protected final long invalidationCount;
+
+    public QueryCacheStats(long hitCount, long missCount, long evictionCount, long invalidationCount) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.invalidationCount = invalidationCount;
+    }
+
+    /**
+     * @return number of lookups that returned a cached result
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return number of lookups that found no cached result
+     */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * @return number of entries evicted because of the cache size limit
+     */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * @return number of entries discarded explicitly by invalidation
+     */
+    public long getInvalidationCount() {
+        return invalidationCount;
+    }
+
+    /**
+     * @return ratio of hits to all lookups, or 1.0 if there were no lookups
+     */
+    public double getHitRate() {
+        long requestCount = hitCount + missCount;
+        return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("hitCount", hitCount)
+                .add("missCount", missCount)
+                .add("evictionCount", evictionCount)
+                .add("invalidationCount", invalidationCount)
+                .toString();
+    }
+}
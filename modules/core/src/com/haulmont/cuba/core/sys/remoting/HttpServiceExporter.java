@@ -18,31 +18,39 @@
 package com.haulmont.cuba.core.sys.remoting;
 
 import com.google.common.base.Joiner;
+import com.haulmont.cuba.core.sys.AppContext;
 import com.haulmont.cuba.core.sys.serialization.SerializationException;
 import com.haulmont.cuba.core.sys.serialization.SerializationSupport;
 import org.springframework.beans.factory.BeanNameAware;
 import org.springframework.remoting.httpinvoker.HttpInvokerServiceExporter;
 import org.springframework.remoting.support.RemoteInvocation;
 import org.springframework.remoting.support.RemoteInvocationResult;
+import org.springframework.util.ClassUtils;
 import org.springframework.web.util.NestedServletException;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.io.OptionalDataException;
+import java.io.*;
+import java.rmi.RemoteException;
+import java.util.zip.GZIPInputStream;
 
 /**
  * Exports a middleware service bean as an HTTP invoker service endpoint.
  */
 public class HttpServiceExporter extends HttpInvokerServiceExporter implements BeanNameAware {
 
+    protected int compressionThreshold;
+
+    protected boolean kryoEnabled = RemotingSerialization.isKryoEnabled();
+
     public HttpServiceExporter() {
         super();
         setRegisterTraceInterceptor(false);
         setRemoteInvocationExecutor(new CubaRemoteInvocationExecutor());
+
+        String compressionThresholdProp = AppContext.getProperty("cuba.remotingCompressionThreshold");
+        compressionThreshold = compressionThresholdProp == null ? 0 : Integer.parseInt(compressionThresholdProp);
     }
 
     @Override
@@ -74,6 +82,13 @@ public class HttpServiceExporter extends HttpInvokerServiceExporter implements B
             return;
         }
 
+        if (!kryoEnabled && RemotingSerialization.isKryoContentType(request.getContentType())) {
+            // the client repeats the request in the default format
+            logger.debug("Kryo request is rejected due to 'cuba.remotingKryoSerialization' is not set to true");
+            response.sendError(HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE);
+            return;
+        }
+
         RemoteInvocationResult result;
         RemoteInvocation invocation = null;
         try {
@@ -105,6 +120,61 @@ public class HttpServiceExporter extends HttpInvokerServiceExporter implements B
         }
     }
 
+    @Override
+    protected RemoteInvocation readRemoteInvocation(HttpServletRequest request, InputStream is)
+            throws IOException, ClassNotFoundException {
+        if (kryoEnabled && RemotingSerialization.isKryoContentType(request.getContentType())) {
+            try (InputStream decoratedStream = decorateInputStream(request, is)) {
+                Object invocation = RemotingSerialization.readKryo(decoratedStream);
+                if (!(invocation instanceof RemoteInvocation)) {
+                    throw new RemoteException("Deserialized object needs to be assignable to type ["
+                            + RemoteInvocation.class.getName() + "]: " + ClassUtils.getDescriptiveType(invocation));
+                }
+                return (RemoteInvocation) invocation;
+            }
+        }
+        return super.readRemoteInvocation(request, is);
+    }
+
+    @Override
+    protected void writeRemoteInvocationResult(HttpServletRequest request, HttpServletResponse response,
+                                               RemoteInvocationResult result) throws IOException {
+        boolean kryoRequest = RemotingSerialization.isKryoContentType(request.getContentType());
+        if (kryoEnabled && (kryoRequest || RemotingSerialization.acceptsKryo(request.getHeader("Accept")))) {
+            response.setContentType(RemotingSerialization.KRYO_CONTENT_TYPE);
+            try (OutputStream os = decorateOutputStream(request, response, response.getOutputStream())) {
+                RemotingSerialization.writeKryo(result, os);
+            }
+        } else {
+            super.writeRemoteInvocationResult(request, response, result);
+        }
+    }
+
+    @Override
+    protected InputStream decorateInputStream(HttpServletRequest request, InputStream is) throws IOException {
+        String encoding = request.getHeader("Content-Encoding");
+        if (encoding != null && encoding.toLowerCase().contains("gzip")) {
+            return new GZIPInputStream(is, 8192);
+        }
+        return is;
+    }
+
+    @Override
+    protected OutputStream decorateOutputStream(HttpServletRequest request, HttpServletResponse response,
+                                                OutputStream os) throws IOException {
+        if (compressionThreshold <= 0) {
+            return os;
+        }
+        // let the client know that it can send compressed requests, see RFC 7694
+        response.setHeader("Accept-Encoding", "gzip");
+
+        String acceptEncoding = request.getHeader("Accept-Encoding");
+        if (acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip")) {
+            return new ThresholdGzipOutputStream(response, os, compressionThreshold);
+        }
+        return os;
+    }
+
     @Override
     protected void doWriteRemoteInvocationResult(RemoteInvocationResult result, ObjectOutputStream oos) throws IOException {
         SerializationSupport.serialize(result, oos);
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys.remoting;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Buffers the response until its size exceeds the threshold. Small responses are written as is, large responses
+ * are compressed by gzip on the fly with the corresponding {@code Content-Encoding} header.
+ */
+public class ThresholdGzipOutputStream extends OutputStream {
+
+    protected final HttpServletResponse response;
+    protected final OutputStream target;
+    protected final int threshold;
+
+    protected ByteArrayOutputStream buffer;
+    protected OutputStream gzip;
+
+    public ThresholdGzipOutputStream(HttpServletResponse response, OutputStream target, int threshold) {
+        this.response = response;
+        this.target = target;
+        this.threshold = threshold;
+        this.buffer = new ByteArrayOutputStream(Math.min(threshold, 8192));
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (gzip == null && buffer.size() + len > threshold) {
+            response.setHeader("Content-Encoding", "gzip");
+            gzip = new GZIPOutputStream(target, 8192);
+            buffer.writeTo(gzip);
+            buffer = null;
+        }
+        if (gzip != null) {
+            gzip.write(b, off, len);
+        } else {
+            buffer.write(b, off, len);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (gzip != null) {
+            gzip.close();
+        } else {
+            response.setContentLength(buffer.size());
+            buffer.writeTo(target);
+            target.close();
+        }
+    }
+}
@@ -42,13 +42,11 @@ import org.springframework.transaction.support.TransactionSynchronizationAdapter
 import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import javax.annotation.Nullable;
-import javax.annotation.concurrent.GuardedBy;
 import javax.inject.Inject;
 import java.beans.PropertyChangeListener;
 import java.io.IOException;
 import java.io.StringWriter;
 import java.util.*;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -78,16 +76,14 @@ public class EntityLog implements EntityLogAPI {
     protected DataManager dataManager;
     @Inject
     protected ServerConfig serverConfig;
+    @Inject
+    protected EntityLogAsyncWriter asyncWriter;
 
-    protected volatile boolean loaded;
     protected EntityLogConfig config;
 
-    @GuardedBy("lock")
-    protected Map<String, Set<String>> entitiesManual;
-    @GuardedBy("lock")
-    protected Map<String, Set<String>> entitiesAuto;
-
-    protected ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // null if not loaded yet or invalidated
+    protected volatile LoggedEntities loggedEntities;
+    protected final Object loadLock = new Object();
     protected ThreadLocal<Boolean> entityLogSwitchedOn = new ThreadLocal<>();
 
     @Inject
@@ -218,6 +214,10 @@ public class EntityLog implements EntityLogAPI {
     }
 
     protected void saveItem(EntityLogItem item) {
+        if (asyncWriter.isEnabled()) {
+            saveItemAsync(item);
+            return;
+        }
         String storeName = metadataTools.getStoreName(metadata.getClassNN(item.getEntity()));
         if (item.getDbGeneratedIdEntity() == null) {
             if (Stores.isMain(storeName)) {
@@ -247,8 +247,21 @@ public class EntityLog implements EntityLogAPI {
         }
     }
 
+    protected void saveItemAsync(EntityLogItem item) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                if (item.getDbGeneratedIdEntity() != null) {
+                    Number id = item.getDbGeneratedIdEntity().getId().getNN();
+                    item.setObjectEntityId(id);
+                }
+                asyncWriter.enqueue(item);
+            }
+        });
+    }
+
     @Override
-    public synchronized boolean isEnabled() {
+    public boolean isEnabled() {
         return config.getEnabled() && isLoggingForCurrentThread();
     }
 
@@ -261,52 +274,32 @@ public class EntityLog implements EntityLogAPI {
 
     @Override
     public void invalidateCache() {
-        lock.writeLock().lock();
-        try {
+        // wait for a concurrent loading to complete, otherwise it would publish the outdated configuration
+        synchronized (loadLock) {
             log.debug("Invalidating cache");
-            entitiesManual = null;
-            entitiesAuto = null;
-            loaded = false;
-        } finally {
-            lock.writeLock().unlock();
+            loggedEntities = null;
         }
     }
 
+    @Nullable
     protected Set<String> getLoggedAttributes(String entity, boolean auto) {
-        lock.readLock().lock();
-        try {
-            if (!loaded) {
-                // upgrade lock
-                lock.readLock().unlock();
-                lock.writeLock().lock();
-                try {
-                    if (!loaded) { // recheck because we unlocked for a while
-                        loadEntities();
-                        loaded = true;
-                    }
-                } finally {
-                    // downgrade lock
-                    lock.writeLock().unlock();
-                    lock.readLock().lock();
+        LoggedEntities current = loggedEntities;
+        if (current == null) {
+            synchronized (loadLock) {
+                current = loggedEntities;
+                if (current == null) {
+                    current = loadEntities();
+                    loggedEntities = current;
                 }
             }
-
-            Set<String> attributes;
-            if (auto)
-                attributes = entitiesAuto.get(entity);
-            else
-                attributes = entitiesManual.get(entity);
-
-            return attributes == null ? null : Collections.unmodifiableSet(attributes);
-        } finally {
-            lock.readLock().unlock();
         }
+        return current.getAttributes(entity, auto);
     }
 
-    protected void loadEntities() {
+    protected LoggedEntities loadEntities() {
         log.debug("Loading entities");
-        entitiesManual = new HashMap<>();
-        entitiesAuto = new HashMap<>();
+        Map<String, Set<String>> entitiesManual = new HashMap<>();
+        Map<String, Set<String>> entitiesAuto = new HashMap<>();
         Transaction tx = persistence.createTransaction();
         try {
             EntityManager em = persistence.getEntityManager();
@@ -335,6 +328,7 @@ public class EntityLog implements EntityLogAPI {
             tx.end();
         }
         log.debug("Loaded: entitiesAuto={}, entitiesManual={}", entitiesAuto.size(), entitiesManual.size());
+        return new LoggedEntities(entitiesManual, entitiesAuto);
     }
 
     protected String getEntityName(Entity entity) {
@@ -904,4 +898,32 @@ public class EntityLog implements EntityLogAPI {
     protected void logError(Entity entity, Exception e) {
         log.warn("Unable to log entity {}, id={}", entity, entity.getId(), e);
     }
-}
\ No newline at end of file
+
+    /**
+     * Immutable configuration of logged entities. Replaced as a whole when the configuration is invalidated,
+     * so reading it requires neither locking nor copying.
+     */
+    protected static class LoggedEntities {
+
+        protected final Map<String, Set<String>> entitiesManual;
+        protected final Map<String, Set<String>> entitiesAuto;
+
+        public LoggedEntities(Map<String, Set<String>> entitiesManual, Map<String, Set<String>> entitiesAuto) {
+            this.entitiesManual = immutableCopy(entitiesManual);
+            this.entitiesAuto = immutableCopy(entitiesAuto);
+        }
+
+        protected static Map<String, Set<String>> immutableCopy(Map<String, Set<String>> entities) {
+            Map<String, Set<String>> copy = new HashMap<>(entities.size() * 2);
+            for (Map.Entry<String, Set<String>> entry : entities.entrySet()) {
+                copy.put(entry.getKey(), Collections.unmodifiableSet(new HashSet<>(entry.getValue())));
+            }
+            return Collections.unmodifiableMap(copy);
+        }
+
+        @Nullable
+        public Set<String> getAttributes(String entity, boolean auto) {
+            return auto ? entitiesAuto.get(entity) : entitiesManual.get(entity);
+        }
+    }
+}
@@ -0,0 +1,354 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.security.app;
+
+import com.haulmont.cuba.core.EntityManager;
+import com.haulmont.cuba.core.Persistence;
+import com.haulmont.cuba.core.Transaction;
+import com.haulmont.cuba.core.global.Configuration;
+import com.haulmont.cuba.core.sys.AuditInfoProvider;
+import com.haulmont.cuba.core.global.GlobalConfig;
+import com.haulmont.cuba.core.sys.AppContext;
+import com.haulmont.cuba.core.sys.SecurityContext;
+import com.haulmont.cuba.core.sys.serialization.SerializationSupport;
+import com.haulmont.cuba.security.entity.EntityLogItem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nullable;
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Writes {@link EntityLogItem}s in a background thread after the business transaction is committed.
+ * <p>Items are collected in a bounded queue and written in batches, one transaction per batch. If the queue is full,
+ * the calling thread waits for {@link EntityLogConfig#getAsyncEnqueueTimeout()} and then writes the item itself.
+ * The writer thread is started on application start or on the first enqueued item. Items remaining in the queue on
+ * shutdown, as well as items enqueued after it, are written synchronously; if that fails, they are saved to a file in
+ * the data directory and written on behalf of the system user after the next start.
+ * <p>Audit fields are set from the login of the user who made the changes, even if the user session is already closed
+ * when the item is written.
+ *
+ * @see EntityLogConfig#getAsyncWriteEnabled()
+ */
+@Component(EntityLogAsyncWriter.NAME)
+public class EntityLogAsyncWriter implements AppContext.Listener {
+
+    public static final String NAME = "cuba_EntityLogAsyncWriter";
+
+    private static final Logger log = LoggerFactory.getLogger(EntityLogAsyncWriter.class);
+
+    protected static final String UNSAVED_ITEMS_DIR = "entitylog";
+    protected static final String UNSAVED_ITEMS_EXT = ".ser";
+
+    @Inject
+    protected Persistence persistence;
+
+    @Inject
+    protected AuditInfoProvider auditInfoProvider;
+
+    @Inject
+    protected Authentication authentication;
+
+    protected EntityLogConfig config;
+    protected GlobalConfig globalConfig;
+
+    protected BlockingQueue<QueuedItem> queue;
+    protected Thread writerThread;
+    protected volatile boolean stopped;
+
+    protected LongAdder writtenCount = new LongAdder();
+    protected LongAdder batchCount = new LongAdder();
+    protected LongAdder droppedCount = new LongAdder();
+    protected LongAdder callerWrittenCount = new LongAdder();
+    protected LongAdder flushNanos = new LongAdder();
+    protected volatile long lastFlushNanos;
+
+    @Inject
+    public void setConfiguration(Configuration configuration) {
+        config = configuration.getConfig(EntityLogConfig.class);
+        globalConfig = configuration.getConfig(GlobalConfig.class);
+    }
+
+    @PostConstruct
+    protected void init() {
+        queue = new LinkedBlockingQueue<>(config.getAsyncQueueCapacity());
+        AppContext.addListener(this);
+    }
+
+    /**
+     * @return whether log items should be passed to this writer instead of being saved in the business transaction
+     */
+    public boolean isEnabled() {
+        return config.getAsyncWriteEnabled();
+    }
+
+    /**
+     * Puts the item to the queue. Should be invoked after the transaction that produced the item is committed.
+     */
+    public void enqueue(EntityLogItem item) {
+        QueuedItem queuedItem = new QueuedItem(item, AppContext.getSecurityContext(),
+                auditInfoProvider.getCurrentUserLogin());
+        if (stopped) {
+            log.debug("Entity log writer is stopped, writing item in the calling thread");
+            writeInCallingThread(queuedItem);
+            return;
+        }
+        startWriter();
+
+        boolean queued;
+        try {
+            queued = queue.offer(queuedItem, config.getAsyncEnqueueTimeout(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            queued = false;
+        }
+        if (!queued) {
+            log.debug("Entity log queue is full, writing item in the calling thread");
+            writeInCallingThread(queuedItem);
+        } else if (stopped && queue.remove(queuedItem)) {
+            // the writer has been stopped after the check above, and the queue may be already drained
+            log.debug("Entity log writer is stopped, writing item in the calling thread");
+            writeInCallingThread(queuedItem);
+        }
+    }
+
+    protected void writeInCallingThread(QueuedItem queuedItem) {
+        callerWrittenCount.increment();
+        writeBatch(Collections.singletonList(queuedItem));
+    }
+
+    protected synchronized void startWriter() {
+        if (writerThread != null || stopped) {
+            return;
+        }
+        writerThread = new Thread(this::processQueue, "EntityLogWriter");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @Override
+    public void applicationStarted() {
+        stopped = false;
+        restoreUnsavedItems();
+        startWriter();
+    }
+
+    @Override
+    public void applicationStopped() {
+        Thread thread;
+        synchronized (this) {
+            stopped = true;
+            thread = writerThread;
+            writerThread = null;
+        }
+        if (thread != null) {
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        List<QueuedItem> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (remaining.isEmpty()) {
+            return;
+        }
+        log.info("Writing {} remaining entity log items", remaining.size());
+        try {
+            persistItems(remaining);
+            writtenCount.add(remaining.size());
+        } catch (Exception e) {
+            log.error("Unable to write remaining entity log items, saving them to a file", e);
+            saveUnsavedItems(remaining);
+        }
+    }
+
+    protected void processQueue() {
+        List<QueuedItem> batch = new ArrayList<>();
+        while (!stopped) {
+            try {
+                QueuedItem first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, config.getAsyncBatchSize() - 1);
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Throwable e) {
+                log.error("Error writing entity log items", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    protected void writeBatch(List<QueuedItem> batch) {
+        long start = System.nanoTime();
+        try {
+            persistItems(batch);
+            lastFlushNanos = System.nanoTime() - start;
+            flushNanos.add(lastFlushNanos);
+            writtenCount.add(batch.size());
+            batchCount.increment();
+        } catch (Exception e) {
+            if (batch.size() == 1) {
+                log.error("Unable to write entity log item {}", batch.get(0).item, e);
+                droppedCount.increment();
+            } else {
+                // find out the failing items
+                log.warn("Unable to write a batch of entity log items, writing them one by one", e);
+                for (QueuedItem queuedItem : batch) {
+                    writeBatch(Collections.singletonList(queuedItem));
+                }
+            }
+        }
+    }
+
+    protected void persistItems(List<QueuedItem> items) {
+        SecurityContext previousSecurityContext = AppContext.getSecurityContext();
+        try (Transaction tx = persistence.createTransaction()) {
+            EntityManager em = persistence.getEntityManager();
+            for (QueuedItem queuedItem : items) {
+                AppContext.setSecurityContext(queuedItem.securityContext);
+                em.persist(queuedItem.item);
+                // the user session can be closed by now, so the login is not taken from the security context
+                queuedItem.item.setCreatedBy(queuedItem.createdBy);
+            }
+            tx.commit();
+        } finally {
+            AppContext.setSecurityContext(previousSecurityContext);
+        }
+    }
+
+    protected File getUnsavedItemsDir() {
+        return new File(globalConfig.getDataDir(), UNSAVED_ITEMS_DIR);
+    }
+
+    protected void saveUnsavedItems(List<QueuedItem> items) {
+        ArrayList<EntityLogItem> logItems = new ArrayList<>(items.size());
+        for (QueuedItem queuedItem : items) {
+            queuedItem.item.setCreatedBy(queuedItem.createdBy);
+            logItems.add(queuedItem.item);
+        }
+        File dir = getUnsavedItemsDir();
+        File file = new File(dir, "unsaved-" + System.currentTimeMillis() + UNSAVED_ITEMS_EXT);
+        try {
+            if (!dir.exists() && !dir.mkdirs()) {
+                throw new IOException("Unable to create directory " + dir);
+            }
+            try (OutputStream os = new BufferedOutputStream(new FileOutputStream(file))) {
+                SerializationSupport.serialize(logItems, os);
+            }
+            log.info("{} entity log items saved to {}", logItems.size(), file);
+        } catch (Exception e) {
+            log.error("Unable to save entity log items to {}", file, e);
+            droppedCount.add(logItems.size());
+        }
+    }
+
+    protected void restoreUnsavedItems() {
+        File[] files = getUnsavedItemsDir().listFiles((dir, name) -> name.endsWith(UNSAVED_ITEMS_EXT));
+        if (files == null || files.length == 0) {
+            return;
+        }
+        // sessions of the users who made the changes do not exist anymore
+        authentication.withSystemUser(() -> {
+            restoreUnsavedItems(files, AppContext.getSecurityContext());
+            return null;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    protected void restoreUnsavedItems(File[] files, SecurityContext securityContext) {
+        for (File file : files) {
+            List<EntityLogItem> logItems;
+            try (InputStream is = new BufferedInputStream(new FileInputStream(file))) {
+                logItems = (List<EntityLogItem>) SerializationSupport.deserialize(is);
+            } catch (Exception e) {
+                log.error("Unable to read entity log items from {}", file, e);
+                continue;
+            }
+            log.info("Writing {} entity log items restored from {}", logItems.size(), file);
+            List<QueuedItem> batch = new ArrayList<>(logItems.size());
+            for (EntityLogItem logItem : logItems) {
+                batch.add(new QueuedItem(logItem, securityContext, logItem.getCreatedBy()));
+            }
+            writeBatch(batch);
+            if (!file.delete()) {
+                log.warn("Unable to delete {}", file);
+            }
+        }
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    public long getWrittenCount() {
+        return writtenCount.sum();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    public long getCallerWrittenCount() {
+        return callerWrittenCount.sum();
+    }
+
+    /**
+     * @return average time of writing a batch in milliseconds
+     */
+    public double getAvgFlushTime() {
+        long batches = batchCount.sum();
+        return batches == 0 ? 0 : flushNanos.sum() / 1_000_000.0 / batches;
+    }
+
+    /**
+     * @return time of writing the last batch in milliseconds
+     */
+    public double getLastFlushTime() {
+        return lastFlushNanos / 1_000_000.0;
+    }
+
+    protected static class QueuedItem {
+
+        protected final EntityLogItem item;
+        protected final SecurityContext securityContext;
+        protected final String createdBy;
+
+        public QueuedItem(EntityLogItem item, @Nullable SecurityContext securityContext, @Nullable String createdBy) {
+            this.item = item;
+            this.securityContext = securityContext;
+            this.createdBy = createdBy;
+        }
+    }
+}
@@ -21,6 +21,8 @@ import com.haulmont.cuba.core.config.Property;
 import com.haulmont.cuba.core.config.Source;
 import com.haulmont.cuba.core.config.SourceType;
 import com.haulmont.cuba.core.config.defaults.DefaultBoolean;
+import com.haulmont.cuba.core.config.defaults.DefaultInt;
+import com.haulmont.cuba.core.config.defaults.DefaultLong;
 
 /**
  * {@link com.haulmont.cuba.security.app.EntityLog} configuration parameters
@@ -35,4 +37,35 @@ public interface EntityLogConfig extends Config {
     @DefaultBoolean(true)
     boolean getEnabled();
     void setEnabled(boolean value);
+
+    /**
+     * @return Whether the log items are written by a background writer after the business transaction is committed
+     */
+    @Property("cuba.entityLog.asyncWriteEnabled")
+    @DefaultBoolean(false)
+    boolean getAsyncWriteEnabled();
+    void setAsyncWriteEnabled(boolean value);
+
+    /**
+     * @return Maximum number of log items waiting for the background writer
+     */
+    @Property("cuba.entityLog.asyncQueueCapacity")
+    @Source(type = SourceType.APP)
+    @DefaultInt(10000)
+    int getAsyncQueueCapacity();
+
+    /**
+     * @return Maximum number of log items written by the background writer in one transaction
+     */
+    @Property("cuba.entityLog.asyncBatchSize")
+    @DefaultInt(200)
+    int getAsyncBatchSize();
+
+    /**
+     * @return Time in milliseconds to wait for free space in the queue before writing a log item
+     * in the calling thread
+     */
+    @Property("cuba.entityLog.asyncEnqueueTimeout")
+    @DefaultLong(1000)
+    long getAsyncEnqueueTimeout();
 }
\ No newline at end of file
@@ -17,6 +17,7 @@ package com.haulmont.cuba.security.app;
 
 import com.haulmont.bali.util.Preconditions;
 import com.haulmont.cuba.core.app.ClusterListener;
+import com.haulmont.cuba.core.app.ClusterListenerAdapter;
 import com.haulmont.cuba.core.app.ClusterManagerAPI;
 import com.haulmont.cuba.core.app.ServerConfig;
 import com.haulmont.cuba.core.global.Configuration;
@@ -36,12 +37,26 @@ import javax.annotation.Nullable;
 import javax.inject.Inject;
 import java.io.*;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
  * User sessions distributed cache.
+ * <p>
+ * Besides the cache itself, the bean maintains local indexes of sessions:
+ * <ul>
+ *     <li>by user login, see {@link #findUserSessionsByLogin(String)};</li>
+ *     <li>by values of attributes listed in the {@code cuba.userSessionIndexedAttributes} application property,
+ *     see {@link #findUserSessionsByAttribute(String, Object)};</li>
+ *     <li>by last usage time rounded to {@link #EXPIRATION_BUCKET_MS}, so {@link #processEviction()} checks only
+ *     sessions that can be expired.</li>
+ * </ul>
  */
 @Component(UserSessionsAPI.NAME)
 public class UserSessions implements UserSessionsAPI {
@@ -84,10 +99,99 @@ public class UserSessions implements UserSessionsAPI {
         }
     }
 
+    /**
+     * Cluster message containing last usage timestamps of sessions. It is sent instead of {@link UserSessionInfo}
+     * when sessions are refreshed, if the {@code cuba.userSessionDeltaPropagation} application property is set.
+     */
+    public static class UserSessionTouches implements Serializable {
+        private static final long serialVersionUID = 2890186212945032151L;
+
+        // most and least significant bits of session identifiers
+        protected final long[] ids;
+        protected final long[] lastUsedTs;
+
+        public UserSessionTouches(Map<UUID, Long> touches) {
+            ids = new long[touches.size() * 2];
+            lastUsedTs = new long[touches.size()];
+            int i = 0;
+            for (Map.Entry<UUID, Long> entry : touches.entrySet()) {
+                ids[i * 2] = entry.getKey().getMostSignificantBits();
+                ids[i * 2 + 1] = entry.getKey().getLeastSignificantBits();
+                lastUsedTs[i] = entry.getValue();
+                i++;
+            }
+        }
+
+        public int size() {
+            return lastUsedTs.length;
+        }
+
+        public UUID getSessionId(int index) {
+            return new UUID(ids[index * 2], ids[index * 2 + 1]);
+        }
+
+        public long getLastUsedTs(int index) {
+            return lastUsedTs[index];
+        }
+
+        @Override
+        public String toString() {
+            return "UserSessionTouches{size=" + size() + "}";
+        }
+    }
+
+    /**
+     * Values of a session indexed by {@link UserSessions}.
+     */
+    protected static class SessionIndexEntry {
+        protected final String login;
+        protected final Long expirationBucket;
+        protected final Map<String, Object> attributes;
+
+        protected SessionIndexEntry(@Nullable String login, @Nullable Long expirationBucket,
+                                    Map<String, Object> attributes) {
+            this.login = login;
+            this.expirationBucket = expirationBucket;
+            this.attributes = attributes;
+        }
+    }
+
     private static final Logger log = LoggerFactory.getLogger(UserSessions.class);
 
+    /**
+     * Time interval of sessions grouped together for eviction.
+     */
+    public static final long EXPIRATION_BUCKET_MS = 10_000;
+
+    /**
+     * Maximum number of sessions in one {@link UserSessionTouches} message.
+     */
+    protected static final int TOUCHES_MESSAGE_SIZE = 1000;
+
+    /**
+     * Number of sessions written to the compressed cluster state between resets of the object stream.
+     */
+    protected static final int STATE_CHUNK_SIZE = 100;
+
     protected Map<UUID, UserSessionInfo> cache = new ConcurrentHashMap<>();
 
+    protected ConcurrentMap<UUID, SessionIndexEntry> indexEntries = new ConcurrentHashMap<>();
+
+    protected ConcurrentMap<String, Set<UUID>> loginIndex = new ConcurrentHashMap<>();
+
+    protected Map<String, ConcurrentMap<Object, Set<UUID>>> attributeIndexes = Collections.emptyMap();
+
+    protected ConcurrentNavigableMap<Long, Set<UUID>> expirationBuckets = new ConcurrentSkipListMap<>();
+
+    protected LongAdder evictionRuns = new LongAdder();
+    protected LongAdder evictedSessions = new LongAdder();
+    protected LongAdder evictionNanos = new LongAdder();
+    protected volatile long lastEvictionNanos;
+
+    protected volatile boolean deltaPropagation;
+
+    protected ConcurrentMap<UUID, Long> pendingTouches = new ConcurrentHashMap<>();
+
     protected volatile int expirationTimeout = 1800;
 
     protected volatile int sendTimeout = 10;
@@ -128,6 +232,16 @@ public class UserSessions implements UserSessionsAPI {
         setExpirationTimeoutSec(serverConfig.getUserSessionExpirationTimeoutSec());
         setSendTimeoutSec(serverConfig.getUserSessionSendTimeoutSec());
         touchTimeout = serverConfig.getUserSessionTouchTimeoutSec();
+        deltaPropagation = serverConfig.getUserSessionDeltaPropagation();
+
+        List<String> indexedAttributes = serverConfig.getUserSessionIndexedAttributes();
+        if (indexedAttributes != null && !indexedAttributes.isEmpty()) {
+            Map<String, ConcurrentMap<Object, Set<UUID>>> indexes = new HashMap<>();
+            for (String attribute : indexedAttributes) {
+                indexes.put(attribute, new ConcurrentHashMap<>());
+            }
+            attributeIndexes = indexes;
+        }
     }
 
     @Inject
@@ -153,6 +267,15 @@ public class UserSessions implements UserSessionsAPI {
                     }
                 }
         );
+        this.clusterManager.addListener(
+                UserSessionTouches.class,
+                new ClusterListenerAdapter<UserSessionTouches>() {
+                    @Override
+                    public void receive(UserSessionTouches message) {
+                        receiveClusterTouches(message);
+                    }
+                }
+        );
     }
 
     protected void receiveClusterMessage(UserSessionInfo message) {
@@ -164,6 +287,23 @@ public class UserSessions implements UserSessionsAPI {
             UserSessionInfo usi = getSessionInfo(id);
             if (usi == null || usi.lastUsedTs < message.lastUsedTs) {
                 putSessionInfo(id, message);
+            } else if (deltaPropagation) {
+                // full sessions are sent only on changes, and the local timestamp could have been updated by touches
+                message.lastUsedTs = usi.lastUsedTs;
+                putSessionInfo(id, message);
+            }
+        }
+    }
+
+    protected void receiveClusterTouches(UserSessionTouches message) {
+        for (int i = 0; i < message.size(); i++) {
+            UUID id = message.getSessionId(i);
+            long lastUsedTs = message.getLastUsedTs(i);
+            UserSessionInfo usi = getSessionInfo(id);
+            // sessions unknown to this node are received in full when created or with the cluster state
+            if (usi != null && usi.lastUsedTs != 0 && usi.lastUsedTs < lastUsedTs) {
+                usi.lastUsedTs = lastUsedTs;
+                putSessionInfo(id, usi);
             }
         }
     }
@@ -174,8 +314,11 @@ public class UserSessions implements UserSessionsAPI {
             return;
         }
 
-        ByteArrayInputStream bis = new ByteArrayInputStream(state);
+        InputStream bis = new ByteArrayInputStream(state);
         try {
+            if (isCompressed(state)) {
+                bis = new GZIPInputStream(bis);
+            }
             ObjectInputStream ois = new ObjectInputStream(bis);
             int size = ois.readInt();
             for (int i = 0; i < size; i++) {
@@ -195,10 +338,23 @@ public class UserSessions implements UserSessionsAPI {
 
         ByteArrayOutputStream bos = new ByteArrayOutputStream();
         try {
-            ObjectOutputStream oos = new ObjectOutputStream(bos);
-            oos.writeInt(infoList.size());
-            for (UserSessionInfo usi : infoList) {
-                oos.writeObject(usi);
+            if (deltaPropagation) {
+                // compress and do not keep references to all written sessions in the object stream
+                try (ObjectOutputStream oos = new ObjectOutputStream(new GZIPOutputStream(bos))) {
+                    oos.writeInt(infoList.size());
+                    for (int i = 0; i < infoList.size(); i++) {
+                        oos.writeObject(infoList.get(i));
+                        if ((i + 1) % STATE_CHUNK_SIZE == 0) {
+                            oos.reset();
+                        }
+                    }
+                }
+            } else {
+                ObjectOutputStream oos = new ObjectOutputStream(bos);
+                oos.writeInt(infoList.size());
+                for (UserSessionInfo usi : infoList) {
+                    oos.writeObject(usi);
+                }
             }
         } catch (IOException e) {
             throw new RuntimeException("Error sending state", e);
@@ -208,6 +364,36 @@ public class UserSessions implements UserSessionsAPI {
         return bytes;
     }
 
+    protected boolean isCompressed(byte[] state) {
+        return state.length > 1
+                && state[0] == (byte) GZIPInputStream.GZIP_MAGIC
+                && state[1] == (byte) (GZIPInputStream.GZIP_MAGIC >> 8);
+    }
+
+    /**
+     * Sends last usage timestamps of sessions refreshed since the previous invocation to the cluster.
+     * Does nothing unless the {@code cuba.userSessionDeltaPropagation} application property is set.
+     */
+    public void sendTouches() {
+        if (pendingTouches.isEmpty())
+            return;
+
+        Map<UUID, Long> touches = new HashMap<>();
+        for (UUID id : pendingTouches.keySet()) {
+            Long lastUsedTs = pendingTouches.remove(id);
+            if (lastUsedTs != null) {
+                touches.put(id, lastUsedTs);
+            }
+            if (touches.size() >= TOUCHES_MESSAGE_SIZE) {
+                clusterManager.send(new UserSessionTouches(touches));
+                touches.clear();
+            }
+        }
+        if (!touches.isEmpty()) {
+            clusterManager.send(new UserSessionTouches(touches));
+        }
+    }
+
     @Override
     public void add(UserSession session) {
         UserSessionInfo usi = new UserSessionInfo(session, timeSource.currentTimeMillis());
@@ -292,7 +478,11 @@ public class UserSessions implements UserSessionsAPI {
                 if (propagate && !usi.session.isSystem()) {
                     if (now > (usi.lastSentTs + toMillis(sendTimeout))) {
                         usi.lastSentTs = now;
-                        clusterManager.send(usi);
+                        if (deltaPropagation) {
+                            pendingTouches.merge(id, usi.lastUsedTs, Math::max);
+                        } else {
+                            clusterManager.send(usi);
+                        }
                     }
                 }
             }
@@ -381,13 +571,44 @@ public class UserSessions implements UserSessionsAPI {
     public List<UUID> findUserSessionsByAttribute(String attributeName, Object attributeValue) {
         Preconditions.checkNotNullArgument(attributeName);
 
-        //noinspection UnnecessaryLocalVariable
-        List<UUID> sessionIds = getSessionInfoStream()
-                .filter(usInfo -> Objects.equals(usInfo.session.getAttribute(attributeName), attributeValue))
-                .map(userSessionInfo -> userSessionInfo.session.getId())
-                .collect(Collectors.toList());
+        ConcurrentMap<Object, Set<UUID>> index = attributeValue != null ? attributeIndexes.get(attributeName) : null;
+        if (index == null) {
+            //noinspection UnnecessaryLocalVariable
+            List<UUID> sessionIds = getSessionInfoStream()
+                    .filter(usInfo -> Objects.equals(usInfo.session.getAttribute(attributeName), attributeValue))
+                    .map(userSessionInfo -> userSessionInfo.session.getId())
+                    .collect(Collectors.toList());
+
+            return sessionIds;
+        }
+
+        // the attribute could have been changed after the session was indexed
+        return findIndexedSessions(index, attributeValue,
+                usi -> Objects.equals(usi.session.getAttribute(attributeName), attributeValue));
+    }
+
+    @Override
+    public List<UUID> findUserSessionsByLogin(String login) {
+        Preconditions.checkNotNullArgument(login);
+
+        String loginLowerCase = login.toLowerCase();
+        return findIndexedSessions(loginIndex, loginLowerCase,
+                usi -> loginLowerCase.equalsIgnoreCase(usi.session.getUser().getLogin()));
+    }
 
-        return sessionIds;
+    protected <K> List<UUID> findIndexedSessions(Map<K, Set<UUID>> index, K key, Predicate<UserSessionInfo> filter) {
+        Set<UUID> ids = index.get(key);
+        if (ids == null) {
+            return Collections.emptyList();
+        }
+        List<UUID> result = new ArrayList<>(ids.size());
+        for (UUID id : ids) {
+            UserSessionInfo usi = getSessionInfo(id);
+            if (usi != null && filter.test(usi)) {
+                result.add(id);
+            }
+        }
+        return result;
     }
 
     @Override
@@ -396,33 +617,161 @@ public class UserSessions implements UserSessionsAPI {
             return;
 
         log.trace("Processing eviction");
+        long start = System.nanoTime();
         long now = timeSource.currentTimeMillis();
-
-        getSessionInfoStream()
-                .filter(info -> !info.session.isSystem() && now > (info.lastUsedTs + toMillis(expirationTimeout)))
-                .forEach(usi -> {
+        long expirationMillis = toMillis(expirationTimeout);
+
+        // only buckets of sessions last used before the expiration time can contain expired sessions
+        Long lastBucket = toExpirationBucket(now - expirationMillis);
+        for (Map.Entry<Long, Set<UUID>> entry : expirationBuckets.headMap(lastBucket, true).entrySet()) {
+            for (UUID id : entry.getValue()) {
+                UserSessionInfo usi = getSessionInfo(id);
+                if (usi == null) {
+                    removeFromIndex(expirationBuckets, entry.getKey(), id);
+                } else if (!usi.session.isSystem() && now > (usi.lastUsedTs + expirationMillis)) {
                     log.debug("Removing session due to timeout: {}", usi);
 
                     userSessionLog.updateSessionLogRecord(usi.getSession(), SessionAction.EXPIRATION);
 
-                    removeSessionInfo(usi.session.getId());
+                    removeSessionInfo(id);
 
                     usi.lastUsedTs = 0;
                     clusterManager.send(usi);
-                });
+
+                    evictedSessions.increment();
+                }
+            }
+        }
+
+        long nanos = System.nanoTime() - start;
+        lastEvictionNanos = nanos;
+        evictionNanos.add(nanos);
+        evictionRuns.increment();
+    }
+
+    /**
+     * @return sizes of session indexes and eviction statistics
+     */
+    public String printIndexStatistics() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Sessions: ").append(cache.size()).append("\n");
+        sb.append("Logins: ").append(loginIndex.size()).append("\n");
+        for (Map.Entry<String, ConcurrentMap<Object, Set<UUID>>> entry : new TreeMap<>(attributeIndexes).entrySet()) {
+            sb.append("Attribute '").append(entry.getKey()).append("' values: ")
+                    .append(entry.getValue().size()).append("\n");
+        }
+        sb.append("Expiration buckets: ").append(expirationBuckets.size()).append("\n");
+
+        long runs = evictionRuns.sum();
+        sb.append("Eviction runs: ").append(runs)
+                .append(", evicted sessions: ").append(evictedSessions.sum())
+                .append(", last run: ").append(TimeUnit.NANOSECONDS.toMicros(lastEvictionNanos)).append(" us")
+                .append(", average run: ")
+                .append(runs == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(evictionNanos.sum() / runs)).append(" us");
+        return sb.toString();
     }
 
     protected UserSessionInfo getSessionInfo(UUID id) {
         return cache.get(id);
     }
 
+    /**
+     * Puts the session to the cache and updates the indexes. Both are updated inside {@code compute()} of the
+     * session's index entry, which locks the entry. So concurrent updates of the same session, e.g. by a cluster
+     * message and by the local eviction, are applied to the cache and to the indexes in the same order.
+     */
     protected void putSessionInfo(UUID id, UserSessionInfo info) {
-        cache.put(id, info);
+        indexEntries.compute(id, (key, oldEntry) -> {
+            cache.put(id, info);
+            return index(id, info, oldEntry);
+        });
     }
 
+    /**
+     * Removes the session from the cache and from the indexes atomically, see {@link #putSessionInfo}.
+     */
     @Nullable
     protected UserSessionInfo removeSessionInfo(UUID id) {
-        return cache.remove(id);
+        AtomicReference<UserSessionInfo> removed = new AtomicReference<>();
+        indexEntries.compute(id, (key, entry) -> {
+            removed.set(cache.remove(id));
+            if (entry != null) {
+                unindex(id, entry);
+            }
+            return null;
+        });
+        return removed.get();
+    }
+
+    protected SessionIndexEntry index(UUID id, UserSessionInfo info, @Nullable SessionIndexEntry oldEntry) {
+        SessionIndexEntry entry = createIndexEntry(info);
+
+        reindex(loginIndex, oldEntry != null ? oldEntry.login : null, entry.login, id);
+        reindex(expirationBuckets, oldEntry != null ? oldEntry.expirationBucket : null, entry.expirationBucket, id);
+        for (Map.Entry<String, ConcurrentMap<Object, Set<UUID>>> index : attributeIndexes.entrySet()) {
+            String attribute = index.getKey();
+            reindex(index.getValue(), oldEntry != null ? oldEntry.attributes.get(attribute) : null,
+                    entry.attributes.get(attribute), id);
+        }
+        return entry;
+    }
+
+    protected void unindex(UUID id, SessionIndexEntry entry) {
+        if (entry.login != null) {
+            removeFromIndex(loginIndex, entry.login, id);
+        }
+        if (entry.expirationBucket != null) {
+            removeFromIndex(expirationBuckets, entry.expirationBucket, id);
+        }
+        for (Map.Entry<String, Object> attribute : entry.attributes.entrySet()) {
+            removeFromIndex(attributeIndexes.get(attribute.getKey()), attribute.getValue(), id);
+        }
+    }
+
+    protected SessionIndexEntry createIndexEntry(UserSessionInfo info) {
+        UserSession session = info.session;
+        Map<String, Object> attributes = Collections.emptyMap();
+        for (String attribute : attributeIndexes.keySet()) {
+            Object value = session.getAttribute(attribute);
+            if (value != null) {
+                if (attributes.isEmpty()) {
+                    attributes = new HashMap<>();
+                }
+                attributes.put(attribute, value);
+            }
+        }
+        Long expirationBucket = session.isSystem() ? null : toExpirationBucket(info.lastUsedTs);
+        String login = session.getUser().getLogin();
+        return new SessionIndexEntry(login != null ? login.toLowerCase() : null, expirationBucket, attributes);
+    }
+
+    protected <K> void reindex(ConcurrentMap<K, Set<UUID>> index, @Nullable K oldKey, @Nullable K newKey, UUID id) {
+        if (Objects.equals(oldKey, newKey)) {
+            return;
+        }
+        if (oldKey != null) {
+            removeFromIndex(index, oldKey, id);
+        }
+        if (newKey != null) {
+            index.compute(newKey, (key, ids) -> {
+                if (ids == null) {
+                    ids = ConcurrentHashMap.newKeySet();
+                }
+                ids.add(id);
+                return ids;
+            });
+        }
+    }
+
+    protected <K> void removeFromIndex(ConcurrentMap<K, Set<UUID>> index, K key, UUID id) {
+        index.computeIfPresent(key, (k, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    protected Long toExpirationBucket(long timestamp) {
+        return timestamp / EXPIRATION_BUCKET_MS;
     }
 
     protected Stream<UserSessionInfo> getSessionInfoStream() {
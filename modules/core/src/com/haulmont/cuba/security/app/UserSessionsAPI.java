@@ -24,6 +24,7 @@ import javax.annotation.Nullable;
 import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
@@ -143,6 +144,19 @@ public interface UserSessionsAPI extends UserSessionFinder {
     @Deprecated
     List<UUID> findUserSessionsByAttribute(String attributeName, Object attributeValue);
 
+    /**
+     * Finds sessions of a user.
+     *
+     * @param login user login, case-insensitive
+     * @return identifiers of the user sessions
+     */
+    default List<UUID> findUserSessionsByLogin(String login) {
+        return getUserSessionsStream()
+                .filter(session -> login.equalsIgnoreCase(session.getUser().getLogin()))
+                .map(UserSession::getId)
+                .collect(Collectors.toList());
+    }
+
     /**
      * INTERNAL.
      *
@@ -36,4 +36,34 @@ public interface EntityLogMBean {
      * The configuration will be recreated from the database on next lifecycle event.
      */
     void invalidateCache();
+
+    /**
+     * Number of log items waiting for the asynchronous writer.
+     */
+    int getAsyncQueueSize();
+
+    /**
+     * Number of log items written by the asynchronous writer.
+     */
+    long getAsyncWrittenCount();
+
+    /**
+     * Number of log items written by the calling threads because the queue was full.
+     */
+    long getAsyncCallerWrittenCount();
+
+    /**
+     * Number of log items that could not be written.
+     */
+    long getAsyncDroppedCount();
+
+    /**
+     * Average time of writing a batch of log items, ms.
+     */
+    double getAsyncAvgFlushTime();
+
+    /**
+     * Time of writing the last batch of log items, ms.
+     */
+    double getAsyncLastFlushTime();
 }
@@ -72,6 +72,14 @@ public class UserSessions implements UserSessionsMBean {
         userSessions.processEviction();
     }
 
+    @Override
+    public String printIndexStatistics() {
+        if (userSessions instanceof com.haulmont.cuba.security.app.UserSessions) {
+            return ((com.haulmont.cuba.security.app.UserSessions) userSessions).printIndexStatistics();
+        }
+        return "Not supported by " + userSessions.getClass().getName();
+    }
+
     @Override
     public String killSession(String id) {
         UUID sessionId;
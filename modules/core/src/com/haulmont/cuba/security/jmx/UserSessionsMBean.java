@@ -56,6 +56,11 @@ public interface UserSessionsMBean {
 
     void processEviction();
 
+    /**
+     * @return sizes of session indexes and eviction statistics
+     */
+    String printIndexStatistics();
+
     /**
      * Kill specified session
      *
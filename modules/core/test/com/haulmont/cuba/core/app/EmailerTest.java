@@ -425,6 +425,68 @@ public class EmailerTest {
         assertEquals(2, sendingMsg.getAttemptsCount().intValue());
     }
 
+    @Test
+    public void testPipelinedSending() throws Exception {
+        doTestPipelinedSending(false);
+    }
+
+    @Test
+    public void testPipelinedSendingFS() throws Exception {
+        doTestPipelinedSending(true);
+    }
+
+    private void doTestPipelinedSending(boolean useFs) throws Exception {
+        emailerConfig.setFileStorageUsed(useFs);
+        emailerConfig.setPipelinedSendingEnabled(true);
+        emailerConfig.setPipelineBatchSize(2);
+        testMailSender.clearBuffer();
+        testMailSender.failPleaseFor("failing@example.com");
+        List<SendingMessage> messages = new ArrayList<>();
+        try {
+            for (String address : Arrays.asList("first@example.com", "failing@example.com", "third@example.com")) {
+                EmailInfo myInfo = EmailInfoBuilder.create()
+                        .setAddresses(address)
+                        .setCaption("Test")
+                        .setBody("Body for " + address)
+                        .build();
+                messages.addAll(emailer.sendEmailAsync(myInfo, 1, getDeadlineWhichDoesntMatter()));
+            }
+            assertEquals(3, messages.size());
+            assertTrue(testMailSender.isEmpty());
+
+            emailer.processQueuedEmails();
+
+            // three messages are sent in two batches
+            assertEquals(2, testMailSender.getBatchCount());
+            assertEquals(2, testMailSender.getBufferSize());
+            Set<String> bodies = new HashSet<>();
+            while (!testMailSender.isEmpty()) {
+                bodies.add(getBody(testMailSender.fetchSentEmail()));
+            }
+            assertEquals(new HashSet<>(Arrays.asList("Body for first@example.com", "Body for third@example.com")), bodies);
+
+            SendingMessage sent = reload(messages.get(0));
+            assertEquals(SendingStatus.SENT, sent.getStatus());
+            assertEquals(1, sent.getAttemptsMade().intValue());
+            assertNotNull(sent.getDateSent());
+
+            SendingMessage failed = reload(messages.get(1));
+            assertEquals(SendingStatus.QUEUE, failed.getStatus());
+            assertEquals(1, failed.getAttemptsMade().intValue());
+            assertNull(failed.getDateSent());
+
+            assertEquals(SendingStatus.SENT, reload(messages.get(2)).getStatus());
+        } finally {
+            testMailSender.workNormallyPlease();
+            emailerConfig.setPipelinedSendingEnabled(false);
+        }
+
+        // the failed message exceeds its attempts limit and is marked as not sent
+        emailer.processQueuedEmails();
+        assertTrue(testMailSender.isEmpty());
+        assertEquals(SendingStatus.NOTSENT, reload(messages.get(1)).getStatus());
+    }
+
     @Test
     public void testSeveralRecipients() throws Exception {
         doTestSeveralRecipients(false);
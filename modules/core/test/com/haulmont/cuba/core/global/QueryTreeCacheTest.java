@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.global;
+
+import com.haulmont.cuba.core.sys.jpql.DomainModel;
+import com.haulmont.cuba.core.sys.jpql.JpqlSyntaxException;
+import com.haulmont.cuba.core.sys.jpql.QueryTreeCache;
+import com.haulmont.cuba.core.sys.jpql.model.EntityBuilder;
+import com.haulmont.cuba.core.sys.jpql.model.JpqlEntityModel;
+import com.haulmont.cuba.core.sys.jpql.transform.QueryTransformerAstBased;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QueryTreeCacheTest {
+
+    @Test
+    public void testTransformationsDoNotAffectCachedTree() {
+        DomainModel model = prepareDomainModel();
+        String query = "select u from sec$User u where u.login = :login";
+
+        QueryTransformerAstBased transformer = new QueryTransformerAstBased(model, query);
+        transformer.addWhere("{E}.group.name = :name");
+        assertEquals("select u from sec$User u where (u.login = :login) and (u.group.name = :name)",
+                transformer.getResult());
+
+        transformer = new QueryTransformerAstBased(model, query);
+        assertEquals(query, transformer.getResult());
+
+        QueryParserAstBased parser = new QueryParserAstBased(model, query);
+        assertEquals("sec$User", parser.getEntityName());
+
+        assertEquals(1, model.getQueryTreeCache().size());
+        assertEquals(1, model.getQueryTreeCache().getStats().missCount());
+        assertEquals(2, model.getQueryTreeCache().getStats().hitCount());
+    }
+
+    @Test
+    public void testUpdateQueryFromCache() {
+        DomainModel model = prepareDomainModel();
+        String query = "update sec$User u set u.login = :login where u.login = :oldLogin";
+
+        for (int i = 0; i < 2; i++) {
+            QueryTransformerAstBased transformer = new QueryTransformerAstBased(model, query);
+            assertEquals("update sec$User u set u.login=:login where u.login = :oldLogin", transformer.getResult());
+        }
+
+        for (int i = 0; i < 2; i++) {
+            QueryTransformerAstBased transformer = new QueryTransformerAstBased(model, query);
+            transformer.replaceEntityName("sec$ExtUser");
+            assertEquals("update sec$ExtUser u set u.login=:login where u.login = :oldLogin", transformer.getResult());
+        }
+
+        assertEquals(1, model.getQueryTreeCache().size());
+        assertEquals(3, model.getQueryTreeCache().getStats().hitCount());
+    }
+
+    @Test
+    public void testJoinQueryFromCache() {
+        DomainModel model = prepareDomainModel();
+        String query = "select u from sec$User u left join u.group g where g.name = :name";
+
+        for (int i = 0; i < 2; i++) {
+            QueryTransformerAstBased transformer = new QueryTransformerAstBased(model, query);
+            assertEquals(query, transformer.getResult());
+        }
+
+        for (int i = 0; i < 2; i++) {
+            QueryTransformerAstBased transformer = new QueryTransformerAstBased(model, query);
+            transformer.addWhere("{E}.login = :login");
+            assertEquals("select u from sec$User u left join u.group g where (g.name = :name) and (u.login = :login)",
+                    transformer.getResult());
+        }
+
+        assertEquals(1, model.getQueryTreeCache().size());
+        assertEquals(3, model.getQueryTreeCache().getStats().hitCount());
+    }
+
+    @Test
+    public void testSyntaxErrorIsNotCached() {
+        DomainModel model = prepareDomainModel();
+
+        QueryTransformerAstBased transformer = new QueryTransformerAstBased(model, "select u from sec$User u where u.");
+        assertThrows(JpqlSyntaxException.class, transformer::getResult);
+
+        assertEquals(0, model.getQueryTreeCache().size());
+    }
+
+    private DomainModel prepareDomainModel() {
+        EntityBuilder builder = new EntityBuilder();
+        JpqlEntityModel groupEntity = builder.produceImmediately("sec$Group", "name");
+
+        builder = new EntityBuilder();
+        builder.startNewEntity("sec$User");
+        builder.addStringAttribute("login");
+        builder.addReferenceAttribute("group", "sec$Group");
+        JpqlEntityModel userEntity = builder.produce();
+
+        DomainModel model = new DomainModel(userEntity, groupEntity);
+        model.setQueryTreeCache(new QueryTreeCache(model, 10));
+        return model;
+    }
+}
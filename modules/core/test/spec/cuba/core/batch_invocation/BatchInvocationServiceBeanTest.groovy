@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.core.batch_invocation
+
+import com.haulmont.cuba.core.app.BatchInvocationService
+import com.haulmont.cuba.core.app.BatchInvocationServiceBean
+import com.haulmont.cuba.core.app.ServerConfig
+import com.haulmont.cuba.core.sys.AppContext
+import com.haulmont.cuba.core.sys.SecurityContext
+import com.haulmont.cuba.core.sys.UserInvocationContext
+import com.haulmont.cuba.core.sys.remoting.BatchInvocation
+import org.springframework.remoting.support.DefaultRemoteInvocationExecutor
+import org.springframework.remoting.support.RemoteInvocation
+import org.springframework.remoting.support.RemoteInvocationExecutor
+import spock.lang.Specification
+
+import java.lang.reflect.InvocationTargetException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+
+class BatchInvocationServiceBeanTest extends Specification {
+
+    private TestBatchInvocationServiceBean batchService
+    private SecurityContext callerContext
+
+    void setup() {
+        batchService = new TestBatchInvocationServiceBean()
+        batchService.serverConfig = Stub(ServerConfig) {
+            getBatchInvocationThreads() >> 2
+        }
+        batchService.invocationExecutor = new DefaultRemoteInvocationExecutor()
+
+        callerContext = new SecurityContext(UUID.randomUUID())
+        AppContext.setSecurityContext(callerContext)
+    }
+
+    void cleanup() {
+        batchService.shutdown()
+        AppContext.setSecurityContext(null)
+        UserInvocationContext.clearRequestScopeInfo()
+    }
+
+    def "results are returned in the order of invocations"() {
+        def invocations = (1..20).collect {
+            new BatchInvocation('test_EchoService', echo("value $it"))
+        }
+
+        when:
+        def results = batchService.invoke(invocations)
+
+        then:
+        results*.value == (1..20).collect { "value $it" }
+        results.every { !it.hasException() }
+        AppContext.getSecurityContext() == callerContext
+    }
+
+    def "invocations of different services are executed in one batch"() {
+        when:
+        def results = batchService.invoke([
+                new BatchInvocation('test_EchoService', echo('a')),
+                new BatchInvocation('test_CounterService', new RemoteInvocation('increment', [] as Class[], [] as Object[])),
+                new BatchInvocation('test_EchoService', echo('b')),
+                new BatchInvocation('test_CounterService', new RemoteInvocation('increment', [] as Class[], [] as Object[]))
+        ])
+
+        then:
+        results[0].value == 'a'
+        results[2].value == 'b'
+        [results[1].value, results[3].value].sort() == [1, 2]
+        batchService.counterService.counter == 2
+    }
+
+    def "invocations run with the session of the caller in their own security context"() {
+        when:
+        def results = batchService.invoke([
+                new BatchInvocation('test_EchoService', new RemoteInvocation('currentSessionId', [] as Class[], [] as Object[]))
+        ])
+
+        then:
+        results[0].value == callerContext.sessionId
+        !batchService.echoService.securityContexts.any { it.is(callerContext) }
+    }
+
+    def "exceptions of service methods are mapped to their results"() {
+        when:
+        def results = batchService.invoke([
+                new BatchInvocation('test_EchoService', echo('a')),
+                new BatchInvocation('test_EchoService', new RemoteInvocation('fail', [String] as Class[], ['error'] as Object[])),
+                new BatchInvocation('test_EchoService', echo('b'))
+        ])
+
+        then:
+        results[0].value == 'a'
+
+        results[1].hasInvocationTargetException()
+        ((InvocationTargetException) results[1].exception).targetException instanceof IllegalStateException
+        ((InvocationTargetException) results[1].exception).targetException.message == 'error'
+
+        when:
+        results[1].recreate()
+
+        then:
+        def e = thrown(IllegalStateException)
+        e.message == 'error'
+        results[2].value == 'b'
+    }
+
+    def "unknown services and methods are reported as invocation errors"() {
+        when:
+        def results = batchService.invoke([
+                new BatchInvocation('test_UnknownService', echo('a')),
+                new BatchInvocation('test_EchoService', new RemoteInvocation('unknown', [] as Class[], [] as Object[])),
+                new BatchInvocation(BatchInvocationService.NAME, echo('a'))
+        ])
+
+        then:
+        results[0].exception instanceof IllegalArgumentException
+        results[1].exception instanceof NoSuchMethodException
+        results[2].exception instanceof IllegalArgumentException
+        !results.any { it.hasInvocationTargetException() }
+    }
+
+    def "invocations rejected by the executor run in the calling thread keeping its context"() {
+        ExecutorService rejecting = Executors.newSingleThreadExecutor()
+        rejecting.shutdown()
+        batchService.executor = rejecting
+
+        def invocationExecutor = Mock(RemoteInvocationExecutor)
+        batchService.invocationExecutor = invocationExecutor
+
+        UserInvocationContext.setRequestScopeInfo(callerContext.sessionId, Locale.FRENCH, null, null, null)
+
+        when:
+        def results = batchService.invoke([
+                new BatchInvocation('test_EchoService', echo('a')),
+                new BatchInvocation('test_EchoService', new RemoteInvocation('currentSessionId', [] as Class[], [] as Object[]))
+        ])
+
+        then:
+        0 * invocationExecutor.invoke(_, _)
+
+        results*.value == ['a', callerContext.sessionId]
+        AppContext.getSecurityContext().is(callerContext)
+        UserInvocationContext.getRequestScopeLocale(callerContext.sessionId) == Locale.FRENCH
+    }
+
+    private static RemoteInvocation echo(String value) {
+        return new RemoteInvocation('echo', [String] as Class[], [value] as Object[])
+    }
+
+    static class TestBatchInvocationServiceBean extends BatchInvocationServiceBean {
+
+        EchoService echoService = new EchoService()
+        CounterService counterService = new CounterService()
+
+        @Override
+        protected Object getService(String serviceName) {
+            switch (serviceName) {
+                case 'test_EchoService':
+                    return echoService
+                case 'test_CounterService':
+                    return counterService
+                case BatchInvocationService.NAME:
+                    return super.getService(serviceName)
+                default:
+                    throw new IllegalArgumentException("Service not found: " + serviceName)
+            }
+        }
+
+        @Override
+        protected void shutdown() {
+            super.shutdown()
+        }
+    }
+
+    static class EchoService {
+
+        List<SecurityContext> securityContexts = Collections.synchronizedList([])
+
+        String echo(String value) {
+            return value
+        }
+
+        UUID currentSessionId() {
+            securityContexts.add(AppContext.getSecurityContextNN())
+            return AppContext.getSecurityContextNN().sessionId
+        }
+
+        String fail(String message) {
+            throw new IllegalStateException(message)
+        }
+    }
+
+    static class CounterService {
+
+        int counter
+
+        synchronized int increment() {
+            return ++counter
+        }
+    }
+}
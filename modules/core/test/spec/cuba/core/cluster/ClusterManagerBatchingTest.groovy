@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.core.cluster
+
+import com.haulmont.cuba.core.app.ClusterConfig
+import com.haulmont.cuba.core.app.ClusterManager
+import com.haulmont.cuba.core.app.ClusterMessageBatch
+import com.haulmont.cuba.core.app.IdempotentClusterMessage
+import groovy.transform.EqualsAndHashCode
+import org.jgroups.JChannel
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import java.util.concurrent.CopyOnWriteArrayList
+
+class ClusterManagerBatchingTest extends Specification {
+
+    private TestClusterManager clusterManager
+
+    void cleanup() {
+        clusterManager.executor.shutdownNow()
+        clusterManager.batchSender.shutdownNow()
+    }
+
+    def "messages are sent in batch of max size"() {
+        createClusterManager(60_000)
+
+        when:
+        clusterManager.send('message1')
+        clusterManager.send('message2')
+        clusterManager.send('message3')
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            assert clusterManager.sentMessages.size() == 1
+        }
+        def batch = clusterManager.sentMessages[0]
+        batch instanceof ClusterMessageBatch
+        ((ClusterMessageBatch) batch).messages == ['message1', 'message2', 'message3']
+        clusterManager.getSentBatches() == 1
+        clusterManager.getBatchedMessages() == 3
+    }
+
+    def "single message is sent without batch after max delay"() {
+        createClusterManager(100)
+
+        when:
+        clusterManager.send('message1')
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            assert clusterManager.sentMessages == ['message1']
+        }
+        clusterManager.getSentBatches() == 0
+    }
+
+    def "repeated idempotent messages are sent once keeping the last occurrence"() {
+        createClusterManager(60_000)
+
+        when:
+        clusterManager.sendBatch([new TestIdempotentMessage(key: 'a'), 'message', new TestIdempotentMessage(key: 'a')])
+
+        then:
+        clusterManager.sentMessages.size() == 1
+        ((ClusterMessageBatch) clusterManager.sentMessages[0]).messages == ['message', new TestIdempotentMessage(key: 'a')]
+        clusterManager.getDeduplicatedMessages() == 1
+
+        when:
+        clusterManager.sendBatch(['message', 'message', new TestIdempotentMessage(key: 'b')])
+
+        then: "only idempotent messages are deduplicated"
+        ((ClusterMessageBatch) clusterManager.sentMessages[1]).messages == ['message', 'message', new TestIdempotentMessage(key: 'b')]
+        clusterManager.getDeduplicatedMessages() == 1
+    }
+
+    def "batch reduced to single message is sent without batch"() {
+        createClusterManager(60_000)
+
+        when:
+        clusterManager.sendBatch([new TestIdempotentMessage(key: 'a'), new TestIdempotentMessage(key: 'a')])
+
+        then:
+        clusterManager.sentMessages == [new TestIdempotentMessage(key: 'a')]
+        clusterManager.getSentBatches() == 0
+    }
+
+    def "queued messages are sent when batch sender stops"() {
+        createClusterManager(60_000)
+
+        when:
+        clusterManager.send('message1')
+        clusterManager.send('message2')
+        clusterManager.stopBatchSender()
+
+        then:
+        clusterManager.sentMessages.size() == 1
+        ((ClusterMessageBatch) clusterManager.sentMessages[0]).messages == ['message1', 'message2']
+    }
+
+    protected void createClusterManager(long maxDelay) {
+        def config = Stub(ClusterConfig) {
+            getMessageBatchingEnabled() >> true
+            getMessageBatchingMaxSize() >> 3
+            getMessageBatchingMaxDelay() >> maxDelay
+            getClusterMessageSendingThreadPoolSize() >> 1
+            getClusterMessageSendingQueueCapacity() >> 100
+            getMessageCodec() >> ''
+        }
+        clusterManager = new TestClusterManager()
+        clusterManager.clusterConfig = config
+        clusterManager.messageCodecs = []
+        clusterManager.init()
+        clusterManager.channel = new JChannel(false)
+    }
+
+    static class TestClusterManager extends ClusterManager {
+
+        List<Serializable> sentMessages = new CopyOnWriteArrayList<>()
+
+        @Override
+        protected void internalSend(Serializable message, boolean sync) {
+            sentMessages.add(message)
+        }
+    }
+
+    @EqualsAndHashCode
+    static class TestIdempotentMessage implements IdempotentClusterMessage {
+        String key
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.core.cluster
+
+import com.haulmont.cuba.core.app.ClusterConfig
+import com.haulmont.cuba.core.app.ClusterManager
+import com.haulmont.cuba.core.app.ClusterMessageBatch
+import com.haulmont.cuba.core.app.KryoClusterMessageCodec
+import com.haulmont.cuba.core.app.StandardClusterMessageCodec
+import com.haulmont.cuba.core.sys.serialization.SerializationSupport
+import com.haulmont.cuba.testsupport.TestContainer
+import org.junit.ClassRule
+import spock.lang.Shared
+import spock.lang.Specification
+
+class ClusterMessageCodecTest extends Specification {
+
+    @Shared @ClassRule
+    public TestContainer cont = TestContainer.Common.INSTANCE
+
+    private TestClusterManager clusterManager
+
+    void setup() {
+        clusterManager = createClusterManager('kryo')
+    }
+
+    def "message is encoded by configured codec and decoded back"() {
+        def message = new ClusterMessageBatch([UUID.randomUUID(), 'message', [key: 'value'] as HashMap])
+
+        when:
+        def bytes = clusterManager.encode(message)
+        def decoded = clusterManager.decode(bytes)
+
+        then:
+        codecId(bytes) == KryoClusterMessageCodec.ID
+        decoded instanceof ClusterMessageBatch
+        ((ClusterMessageBatch) decoded).messages == message.messages
+        clusterManager.legacyDecoded == 0
+    }
+
+    def "excluded message class is encoded by standard codec"() {
+        def message = new ArrayList(['message'])
+
+        when:
+        def bytes = clusterManager.encode(message)
+
+        then:
+        codecId(bytes) == StandardClusterMessageCodec.ID
+        clusterManager.decode(bytes) == message
+        clusterManager.legacyDecoded == 0
+    }
+
+    def "message sent without codec is decoded"() {
+        def sender = createClusterManager('')
+        def message = 'message'
+
+        when:
+        def bytes = sender.encode(message)
+
+        then:
+        bytes == SerializationSupport.serialize(message)
+        clusterManager.decode(bytes) == message
+        clusterManager.legacyDecoded == 1
+    }
+
+    def "message without codec starting with first byte of header is not taken for encoded one"() {
+        byte[] bytes = [(byte) 0xCB, KryoClusterMessageCodec.ID, 1, 2, 3]
+        clusterManager.legacyResult = 'legacy'
+
+        expect:
+        clusterManager.decode(bytes) == 'legacy'
+        clusterManager.legacyDecoded == 1
+    }
+
+    def "message without codec starting with whole header is decoded if codec fails"() {
+        byte[] bytes = header(KryoClusterMessageCodec.ID) + ([1, 2, 3] as byte[])
+        clusterManager.legacyResult = 'legacy'
+
+        expect:
+        clusterManager.decode(bytes) == 'legacy'
+        clusterManager.legacyDecoded == 1
+    }
+
+    def "codec error is thrown if message cannot be decoded without codec either"() {
+        byte[] bytes = header((byte) 42) + ([1, 2, 3] as byte[])
+
+        when:
+        clusterManager.decode(bytes)
+
+        then:
+        def e = thrown(IllegalStateException)
+        e.message.contains('Unknown cluster message codec id')
+        e.suppressed.length == 1
+    }
+
+    protected TestClusterManager createClusterManager(String codecName) {
+        def config = Stub(ClusterConfig) {
+            getMessageCodec() >> codecName
+            getMessageCodecExcludedClasses() >> [ArrayList.name]
+        }
+        def manager = new TestClusterManager()
+        manager.clusterConfig = config
+        manager.messageCodecs = [new StandardClusterMessageCodec(), new KryoClusterMessageCodec()]
+        manager.initMessageCodecs()
+        return manager
+    }
+
+    protected static byte codecId(byte[] bytes) {
+        return bytes[TestClusterManager.CODEC_MAGIC.length]
+    }
+
+    protected static byte[] header(byte codecId) {
+        return TestClusterManager.CODEC_MAGIC + ([codecId] as byte[])
+    }
+
+    static class TestClusterManager extends ClusterManager {
+
+        int legacyDecoded
+        Serializable legacyResult
+
+        @Override
+        protected Serializable decodeWithoutCodec(byte[] bytes) {
+            legacyDecoded++
+            return legacyResult != null ? legacyResult : super.decodeWithoutCodec(bytes)
+        }
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.core.cross_datastore
+
+import com.haulmont.chile.core.model.MetaClass
+import com.haulmont.chile.core.model.MetaProperty
+import com.haulmont.cuba.core.app.CrossDataStoreReferenceLoader
+import com.haulmont.cuba.core.app.CrossDataStoreReferenceLoadingSupport
+import com.haulmont.cuba.core.app.ServerConfig
+import com.haulmont.cuba.core.global.AppBeans
+import com.haulmont.cuba.core.global.DataManager
+import com.haulmont.cuba.core.global.LoadContext
+import com.haulmont.cuba.core.global.Metadata
+import com.haulmont.cuba.core.global.MetadataTools
+import com.haulmont.cuba.core.global.View
+import com.haulmont.cuba.core.sys.AppContext
+import com.haulmont.cuba.core.sys.SecurityContext
+import com.haulmont.cuba.security.entity.User
+import com.haulmont.cuba.testmodel.sales.Customer
+import com.haulmont.cuba.testmodel.sales.Order
+import com.haulmont.cuba.testsupport.TestContainer
+import org.junit.ClassRule
+import spock.lang.Shared
+import spock.lang.Specification
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.ThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+
+class CrossDataStoreReferenceLoaderTest extends Specification {
+
+    @Shared @ClassRule
+    public TestContainer cont = TestContainer.Common.INSTANCE
+
+    private Metadata metadata
+    private SecurityContext savedContext
+    private SecurityContext callerContext
+    private Map<Class, String> loadingThreads = new ConcurrentHashMap<>()
+    private Map<Class, SecurityContext> loadingContexts = new ConcurrentHashMap<>()
+    private View view
+
+    void setup() {
+        metadata = AppBeans.get(Metadata)
+        savedContext = AppContext.getSecurityContext()
+        callerContext = new SecurityContext(UUID.randomUUID())
+        AppContext.setSecurityContext(callerContext)
+
+        view = new View(Order)
+                .addProperty('number')
+                .addProperty('customer', new View(Customer).addProperty('name'))
+                .addProperty('user', new View(User).addProperty('login'))
+    }
+
+    void cleanup() {
+        AppContext.setSecurityContext(savedContext)
+    }
+
+    def "references of different properties are loaded concurrently"() {
+        def loadingSupport = new CrossDataStoreReferenceLoadingSupport(serverConfig: serverConfig(true))
+        def loader = createLoader(loadingSupport, createDataManager(), false)
+        def orders = [createOrder(), createOrder()]
+
+        when:
+        loader.processEntities(orders)
+
+        then:
+        orders.every { it.customer?.id == it.id && it.customer.name == 'customer' }
+        orders.every { it.user?.id == it.id && it.user.login == 'user' }
+
+        loadingThreads[Customer].startsWith('CrossDataStoreReferenceLoader-')
+        loadingThreads[User].startsWith('CrossDataStoreReferenceLoader-')
+        loadingContexts[Customer].is(callerContext)
+        loadingContexts[User].is(callerContext)
+
+        loadingSupport.printStat().contains('customers: loads=1, entities=2')
+        loadingSupport.printStat().contains('users: loads=1, entities=2')
+
+        cleanup:
+        loadingSupport.shutdown()
+    }
+
+    def "references are loaded in calling thread if loading is not parallel"() {
+        def loadingSupport = new CrossDataStoreReferenceLoadingSupport(serverConfig: serverConfig(parallel))
+        def loader = createLoader(loadingSupport, createDataManager(), joinTransaction)
+        def orders = [createOrder(), createOrder()]
+
+        when:
+        loader.processEntities(orders)
+
+        then:
+        orders.every { it.customer?.id == it.id && it.user?.id == it.id }
+        loadingThreads[Customer] == Thread.currentThread().name
+        loadingThreads[User] == Thread.currentThread().name
+        loadingSupport.executor == null
+
+        where:
+        parallel | joinTransaction
+        false    | false
+        true     | true
+    }
+
+    def "references are loaded in calling thread if executor rejects loading"() {
+        def loadingSupport = new RejectingLoadingSupport(serverConfig: serverConfig(true))
+        def loader = createLoader(loadingSupport, createDataManager(), false)
+        def orders = [createOrder(), createOrder()]
+
+        when:
+        loader.processEntities(orders)
+
+        then:
+        orders.every { it.customer?.id == it.id && it.user?.id == it.id }
+        loadingThreads[Customer] == Thread.currentThread().name
+        loadingThreads[User] == Thread.currentThread().name
+    }
+
+    def "loading error is thrown to caller"() {
+        def dataManager = Stub(DataManager) {
+            loadList(_) >> { LoadContext context ->
+                if (context.entityMetaClass == 'sec$User') {
+                    throw new IllegalStateException('User store is unavailable')
+                }
+                return loadEntities(context)
+            }
+        }
+        def loadingSupport = new CrossDataStoreReferenceLoadingSupport(serverConfig: serverConfig(true))
+        def loader = createLoader(loadingSupport, dataManager, false)
+        def orders = [createOrder(), createOrder()]
+
+        when:
+        loader.processEntities(orders)
+
+        then:
+        def e = thrown(IllegalStateException)
+        e.message == 'User store is unavailable'
+        orders.every { it.user == null }
+
+        cleanup:
+        loadingSupport.shutdown()
+    }
+
+    protected CrossDataStoreReferenceLoader createLoader(CrossDataStoreReferenceLoadingSupport loadingSupport,
+                                                         DataManager dataManager, boolean joinTransaction) {
+        MetaClass metaClass = metadata.getClassNN(Order)
+        CrossDataStoreReferenceLoader loader = AppBeans.getPrototype(CrossDataStoreReferenceLoader.NAME,
+                metaClass, view, joinTransaction)
+        def metadataTools = new TestMetadataTools()
+        AppContext.getApplicationContext().getAutowireCapableBeanFactory().autowireBean(metadataTools)
+
+        loader.@metadataTools = metadataTools
+        loader.@dataManager = dataManager
+        loader.@loadingSupport = loadingSupport
+        return loader
+    }
+
+    protected DataManager createDataManager() {
+        return Stub(DataManager) {
+            loadList(_) >> { LoadContext context -> loadEntities(context) }
+        }
+    }
+
+    protected List loadEntities(LoadContext context) {
+        Class entityClass = metadata.getClassNN(context.entityMetaClass).javaClass
+        loadingThreads.put(entityClass, Thread.currentThread().name)
+        loadingContexts.put(entityClass, AppContext.getSecurityContext())
+
+        List<UUID> ids = (List<UUID>) context.query.parameters['idList']
+        return ids.collect { id ->
+            if (entityClass == Customer) {
+                Customer customer = metadata.create(Customer)
+                customer.id = id
+                customer.name = 'customer'
+                return customer
+            }
+            User user = metadata.create(User)
+            user.id = id
+            user.login = 'user'
+            return user
+        }
+    }
+
+    protected ServerConfig serverConfig(boolean parallel) {
+        return Stub(ServerConfig) {
+            getCrossDataStoreReferenceLoadingBatchSize() >> 50
+            getCrossDataStoreReferenceLoadingParallel() >> parallel
+            getCrossDataStoreReferenceLoadingThreads() >> 2
+        }
+    }
+
+    protected Order createOrder() {
+        Order order = metadata.create(Order)
+        return order
+    }
+
+    /**
+     * Places customers and users to separate data stores. They share the primary key with the order.
+     */
+    static class TestMetadataTools extends MetadataTools {
+
+        @Override
+        String getStoreName(MetaClass metaClass) {
+            if (metaClass.javaClass == Customer) {
+                return 'customers'
+            }
+            if (metaClass.javaClass == User) {
+                return 'users'
+            }
+            return super.getStoreName(metaClass)
+        }
+
+        @Override
+        List<String> getRelatedProperties(MetaProperty metaProperty) {
+            if (metaProperty.domain.javaClass == Order && metaProperty.name in ['customer', 'user']) {
+                return ['id']
+            }
+            return super.getRelatedProperties(metaProperty)
+        }
+    }
+
+    static class RejectingLoadingSupport extends CrossDataStoreReferenceLoadingSupport {
+
+        @Override
+        protected ExecutorService getExecutor() {
+            def executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>())
+            executor.shutdown()
+            return executor
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.core.data_manager
+
+import com.haulmont.cuba.core.global.AppBeans
+import com.haulmont.cuba.core.global.CommitContext
+import com.haulmont.cuba.core.global.DataManager
+import com.haulmont.cuba.core.global.LoadContext
+import com.haulmont.cuba.core.global.ValueLoadContext
+import com.haulmont.cuba.testmodel.sales.Customer
+import com.haulmont.cuba.testsupport.TestContainer
+import org.junit.ClassRule
+import spock.lang.Shared
+import spock.lang.Specification
+
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.TimeUnit
+
+class DataManagerAsyncTest extends Specification {
+
+    @Shared @ClassRule
+    public TestContainer cont = TestContainer.Common.INSTANCE
+
+    private DataManager dataManager
+    private List<Customer> customers = []
+
+    void setup() {
+        dataManager = AppBeans.get(DataManager)
+
+        (1..3).each {
+            Customer customer = cont.metadata().create(Customer)
+            customer.name = "async-customer-$it"
+            customers << customer
+        }
+    }
+
+    void cleanup() {
+        cont.deleteRecord(customers as Customer[])
+    }
+
+    def "entities are committed and loaded asynchronously"() {
+        when:
+        def committed = dataManager.commitAsync(new CommitContext(customers)).get(10, TimeUnit.SECONDS)
+
+        then:
+        committed.size() == 3
+
+        when:
+        def listFuture = dataManager.loadListAsync(createLoadContext())
+        def countFuture = dataManager.getCountAsync(createLoadContext())
+        def oneFuture = dataManager.loadAsync(LoadContext.create(Customer).setId(customers[0].id))
+
+        then:
+        listFuture.get(10, TimeUnit.SECONDS)*.name == ['async-customer-1', 'async-customer-2', 'async-customer-3']
+        countFuture.get(10, TimeUnit.SECONDS) == 3
+        oneFuture.get(10, TimeUnit.SECONDS) == customers[0]
+    }
+
+    def "values are loaded asynchronously"() {
+        dataManager.commit(customers as Customer[])
+
+        def context = ValueLoadContext.create()
+                .setQuery(ValueLoadContext.createQuery('select count(c) from test$Customer c where c.name like :name')
+                        .setParameter('name', 'async-customer-%'))
+                .addProperty('count')
+
+        when:
+        def values = dataManager.loadValuesAsync(context).get(10, TimeUnit.SECONDS)
+
+        then:
+        values.size() == 1
+        values[0].getValue('count') == 3
+    }
+
+    def "exception of the operation completes the future"() {
+        def context = LoadContext.create(Customer)
+                .setQuery(LoadContext.createQuery('select c from test$Customer c where c.unknownAttribute = 1'))
+
+        when:
+        dataManager.loadListAsync(context).get(10, TimeUnit.SECONDS)
+
+        then:
+        thrown(ExecutionException)
+    }
+
+    private static LoadContext<Customer> createLoadContext() {
+        LoadContext.create(Customer)
+                .setQuery(LoadContext.createQuery('select c from test$Customer c where c.name like :name order by c.name')
+                        .setParameter('name', 'async-customer-%'))
+                .setView('_local')
+    }
+}
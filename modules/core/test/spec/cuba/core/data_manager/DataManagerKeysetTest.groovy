@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.core.data_manager
+
+import com.haulmont.cuba.core.app.JpqlQueryBuilder
+import com.haulmont.cuba.core.global.AppBeans
+import com.haulmont.cuba.core.global.DataManager
+import com.haulmont.cuba.core.global.DevelopmentException
+import com.haulmont.cuba.core.global.Sort
+import com.haulmont.cuba.testmodel.sales.Customer
+import com.haulmont.cuba.testsupport.TestContainer
+import org.junit.ClassRule
+import spock.lang.Shared
+import spock.lang.Specification
+
+class DataManagerKeysetTest extends Specification {
+
+    @Shared @ClassRule
+    public TestContainer cont = TestContainer.Common.INSTANCE
+
+    private DataManager dataManager
+    private List<Customer> customers = []
+
+    void setup() {
+        dataManager = AppBeans.get(DataManager)
+
+        // duplicate names check that the primary key makes the key unique
+        ['a', 'b', 'b', 'c', 'd', 'd', 'e'].each {
+            Customer customer = cont.metadata().create(Customer)
+            customer.name = "keyset-customer-$it"
+            customers << customer
+        }
+        dataManager.commit(customers as Customer[])
+    }
+
+    void cleanup() {
+        cont.deleteRecord(customers as Customer[])
+    }
+
+    def "pages loaded by keyset contain all entities in the sort order"() {
+        when:
+        List<Customer> loaded = []
+        Map<String, Object> keyset = null
+        List<Customer> page
+        while (!(page = loadPage(Sort.by('name'), keyset)).isEmpty()) {
+            loaded.addAll(page)
+            keyset = [name: page.last().name, id: page.last().id]
+        }
+
+        then:
+        loaded.size() == customers.size()
+        loaded.collect { it.id } as Set == customers.collect { it.id } as Set
+        loaded.collect { it.name } == customers.collect { it.name }.sort()
+    }
+
+    def "pages loaded by keyset in descending order"() {
+        when:
+        def firstPage = loadPage(Sort.by(Sort.Direction.DESC, 'name'), null)
+        def secondPage = loadPage(Sort.by(Sort.Direction.DESC, 'name'), [name: firstPage.last().name, id: firstPage.last().id])
+
+        then:
+        firstPage.collect { it.name } == ['keyset-customer-e', 'keyset-customer-d', 'keyset-customer-d']
+        secondPage.collect { it.name } == ['keyset-customer-c', 'keyset-customer-b', 'keyset-customer-b']
+    }
+
+    def "keyset value must be specified for each sort property and the primary key"() {
+        when:
+        def queryBuilder = AppBeans.get(JpqlQueryBuilder)
+        queryBuilder.setQueryString('select c from test$Customer c')
+                .setEntityName('test$Customer')
+                .setQueryParameters([:])
+                .setSort(Sort.by('name'))
+                .setKeysetValues([name: 'keyset-customer-a'])
+        queryBuilder.getResultQueryString()
+
+        then:
+        thrown(DevelopmentException)
+    }
+
+    private List<Customer> loadPage(Sort sort, Map<String, Object> keyset) {
+        dataManager.load(Customer)
+                .query('select c from test$Customer c where c.name like :name')
+                .parameter('name', 'keyset-customer-%')
+                .sort(sort)
+                .keyset(keyset)
+                .maxResults(3)
+                .list()
+    }
+}
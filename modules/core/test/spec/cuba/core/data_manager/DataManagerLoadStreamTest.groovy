@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.core.data_manager
+
+import com.haulmont.cuba.core.global.AppBeans
+import com.haulmont.cuba.core.global.DataManager
+import com.haulmont.cuba.core.global.LoadContext
+import com.haulmont.cuba.core.global.PersistenceHelper
+import com.haulmont.cuba.testmodel.sales.Customer
+import com.haulmont.cuba.testsupport.TestContainer
+import org.junit.ClassRule
+import spock.lang.Shared
+import spock.lang.Specification
+
+import java.util.stream.Collectors
+
+class DataManagerLoadStreamTest extends Specification {
+
+    @Shared @ClassRule
+    public TestContainer cont = TestContainer.Common.INSTANCE
+
+    private DataManager dataManager
+    private List<Customer> customers = []
+
+    void setup() {
+        dataManager = AppBeans.get(DataManager)
+
+        (1..7).each {
+            Customer customer = cont.metadata().create(Customer)
+            customer.name = "stream-customer-$it"
+            customers << customer
+        }
+        dataManager.commit(customers as Customer[])
+    }
+
+    void cleanup() {
+        cont.deleteRecord(customers as Customer[])
+    }
+
+    def "entities are loaded in batches in the query order"() {
+        def context = LoadContext.create(Customer)
+                .setQuery(LoadContext.createQuery('select c from test$Customer c where c.name like :name order by c.name')
+                        .setParameter('name', 'stream-customer-%'))
+                .setView('_local')
+
+        when:
+        List<Customer> loaded
+        def stream = dataManager.loadStream(context, 3)
+        try {
+            loaded = stream.collect(Collectors.toList())
+        } finally {
+            stream.close()
+        }
+
+        then:
+        loaded.collect { it.name } == customers.collect { it.name }
+        loaded.every { PersistenceHelper.isDetached(it) }
+    }
+
+    def "distinct queries return each entity once"() {
+        when:
+        List<Customer> unordered = streamToList('select distinct c from test$Customer c where c.name like :name')
+        List<Customer> ordered = streamToList('select distinct c from test$Customer c where c.name like :name order by c.name')
+
+        then:
+        unordered.collect { it.name }.sort() == customers.collect { it.name }
+        ordered.collect { it.name } == customers.collect { it.name }
+    }
+
+    def "stream respects first and max results"() {
+        when:
+        List<Customer> loaded
+        def stream = dataManager.load(Customer)
+                .query('select c from test$Customer c where c.name like :name order by c.name')
+                .parameter('name', 'stream-customer-%')
+                .firstResult(2)
+                .maxResults(4)
+                .stream(3)
+        try {
+            loaded = stream.collect(Collectors.toList())
+        } finally {
+            stream.close()
+        }
+
+        then:
+        loaded.collect { it.name } == customers.subList(2, 6).collect { it.name }
+    }
+
+    private List<Customer> streamToList(String query) {
+        def stream = dataManager.load(Customer)
+                .query(query)
+                .parameter('name', 'stream-customer-%')
+                .stream(3)
+        try {
+            return stream.collect(Collectors.toList())
+        } finally {
+            stream.close()
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.core.entity_log
+
+import com.haulmont.cuba.core.EntityManager
+import com.haulmont.cuba.core.global.AppBeans
+import com.haulmont.cuba.core.global.Configuration
+import com.haulmont.cuba.core.sys.AuditInfoProvider
+import com.haulmont.cuba.security.app.Authentication
+import com.haulmont.cuba.security.app.EntityLogAsyncWriter
+import com.haulmont.cuba.security.app.EntityLogConfig
+import com.haulmont.cuba.security.entity.EntityLogItem
+import com.haulmont.cuba.security.entity.User
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.util.concurrent.PollingConditions
+
+import java.util.concurrent.LinkedBlockingQueue
+
+class EntityLogAsyncWriterTest extends AbstractEntityLogTest {
+
+    private EntityLogConfig entityLogConfig
+    private EntityLogAsyncWriter asyncWriter
+    private UUID userId
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder()
+
+    void setup() {
+        clearTables("SEC_LOGGED_ATTR", "SEC_LOGGED_ENTITY")
+
+        withTransaction { EntityManager em ->
+            clearTable(em, "SEC_ENTITY_LOG")
+            saveEntityLogAutoConfFor(em, 'sec$User', 'name', 'email')
+        }
+
+        initEntityLogAPI()
+
+        entityLogConfig = AppBeans.get(Configuration).getConfig(EntityLogConfig)
+        entityLogConfig.asyncWriteEnabled = true
+
+        asyncWriter = AppBeans.get(EntityLogAsyncWriter)
+    }
+
+    void cleanup() {
+        entityLogConfig.asyncWriteEnabled = false
+
+        clearTables("SEC_LOGGED_ATTR", "SEC_LOGGED_ENTITY")
+
+        if (userId != null)
+            cont.deleteRecord("SEC_USER", userId)
+    }
+
+    def "log items are written after commit by the background writer"() {
+        def conditions = new PollingConditions(timeout: 10)
+        long writtenBefore = asyncWriter.writtenCount
+
+        when:
+        withTransaction { EntityManager em ->
+            User user = cont.metadata().create(User)
+            user.login = 'async-entity-log'
+            user.name = 'async-name'
+            user.group = findCompanyGroup()
+            em.persist(user)
+            userId = user.id
+        }
+
+        then:
+        conditions.eventually {
+            assert getEntityLogItems('sec$User', userId).size() == 1
+        }
+        asyncWriter.writtenCount == writtenBefore + 1
+        getLatestEntityLogItem('sec$User', userId).createdBy != null
+    }
+
+    def "log items are not written if the transaction is rolled back"() {
+        when:
+        def tx = cont.persistence().createTransaction()
+        try {
+            EntityManager em = cont.persistence().entityManager
+            User user = cont.metadata().create(User)
+            user.login = 'async-entity-log'
+            user.group = findCompanyGroup()
+            em.persist(user)
+            em.flush()
+            userId = user.id
+        } finally {
+            tx.end()
+        }
+
+        then:
+        asyncWriter.queueSize == 0
+        getEntityLogItems('sec$User', userId).isEmpty()
+
+        cleanup:
+        userId = null
+    }
+
+    def "log items enqueued after stop are written in the calling thread"() {
+        def writer = createWriter()
+        writer.applicationStopped()
+        def entityId = UUID.randomUUID()
+
+        when:
+        writer.enqueue(createLogItem(entityId))
+
+        then:
+        writer.queueSize == 0
+        writer.callerWrittenCount == 1
+        getEntityLogItems('sec$User', entityId).size() == 1
+    }
+
+    def "unsaved log items are restored with the login of the user who made the changes"() {
+        def writer = createWriter()
+        def entityId = UUID.randomUUID()
+        writer.saveUnsavedItems([new EntityLogAsyncWriter.QueuedItem(createLogItem(entityId), null, 'changes-author')])
+
+        when:
+        writer.applicationStarted()
+        writer.applicationStopped()
+
+        then:
+        getLatestEntityLogItem('sec$User', entityId).createdBy == 'changes-author'
+        temporaryFolder.root.listFiles().length == 0
+    }
+
+    private EntityLogAsyncWriter createWriter() {
+        def unsavedItemsDir = temporaryFolder.root
+        def writer = new EntityLogAsyncWriter() {
+            @Override
+            protected File getUnsavedItemsDir() {
+                unsavedItemsDir
+            }
+        }
+        writer.persistence = cont.persistence()
+        writer.auditInfoProvider = AppBeans.get(AuditInfoProvider)
+        writer.authentication = AppBeans.get(Authentication)
+        writer.configuration = AppBeans.get(Configuration)
+        writer.queue = new LinkedBlockingQueue<>(10)
+        return writer
+    }
+
+    private EntityLogItem createLogItem(UUID entityId) {
+        EntityLogItem item = cont.metadata().create(EntityLogItem)
+        item.entity = 'sec$User'
+        item.type = EntityLogItem.Type.CREATE
+        item.eventTs = new Date()
+        item.objectEntityId = entityId
+        return item
+    }
+}
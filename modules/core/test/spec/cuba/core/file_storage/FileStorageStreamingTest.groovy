@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.core.file_storage
+
+import com.haulmont.cuba.core.app.FileStorageAPI
+import com.haulmont.cuba.core.entity.FileDescriptor
+import com.haulmont.cuba.core.global.AppBeans
+import com.haulmont.cuba.core.global.Metadata
+import com.haulmont.cuba.testsupport.TestContainer
+import org.apache.commons.io.IOUtils
+import org.junit.ClassRule
+import spock.lang.Shared
+import spock.lang.Specification
+
+import java.nio.charset.StandardCharsets
+
+class FileStorageStreamingTest extends Specification {
+
+    @Shared @ClassRule
+    public TestContainer cont = TestContainer.Common.INSTANCE
+
+    private FileStorageAPI fileStorage
+    private FileDescriptor fd
+
+    void setup() {
+        fileStorage = AppBeans.get(FileStorageAPI)
+
+        fd = AppBeans.get(Metadata).create(FileDescriptor)
+        fd.name = 'test.txt'
+        fd.extension = 'txt'
+        fd.createDate = new Date()
+    }
+
+    void cleanup() {
+        fileStorage.removeFile(fd)
+    }
+
+    def "saved file is loaded entirely"() {
+        def content = ('0123456789' * 1000).getBytes(StandardCharsets.UTF_8)
+
+        when:
+        def size = fileStorage.saveStream(fd, new ByteArrayInputStream(content))
+
+        then:
+        size == content.length
+        fileStorage.loadFile(fd) == content
+    }
+
+    def "file is read by range"() {
+        fileStorage.saveFile(fd, '0123456789'.getBytes(StandardCharsets.UTF_8))
+
+        expect:
+        read(2, 3) == '234'
+        read(8, 10) == '89'
+        read(0, 0) == ''
+        read(20, 5) == ''
+    }
+
+    private String read(long offset, long length) {
+        def stream = fileStorage.openStream(fd, offset, length)
+        try {
+            return IOUtils.toString(stream, StandardCharsets.UTF_8)
+        } finally {
+            stream.close()
+        }
+    }
+}
@@ -106,6 +106,28 @@ class NumberIdConcurrencyTest extends Specification {
         AppContext.setProperty('cuba.numberIdCacheSize', null)
     }
 
+    def "generating ids with prefetching of blocks"() {
+
+        AppContext.setProperty('cuba.numberIdCacheSize', '20')
+        AppContext.setProperty('cuba.numberIdCachePrefetchThreshold', '50')
+        def numberIdCache = AppBeans.get(NumberIdCache)
+        def prefetches = numberIdCache.prefetches
+
+        when:
+
+        generateSomeEntities(500)
+
+        then:
+
+        countEntities() == 500
+        numberIdCache.prefetches > prefetches
+
+        cleanup:
+
+        AppContext.setProperty('cuba.numberIdCacheSize', null)
+        AppContext.setProperty('cuba.numberIdCachePrefetchThreshold', null)
+    }
+
     def "generate with zero size cache"() {
         AppContext.setProperty('cuba.numberIdCacheSize', '0')
 
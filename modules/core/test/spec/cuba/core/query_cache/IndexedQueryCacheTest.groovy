@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.core.query_cache
+
+import com.haulmont.cuba.core.sys.entitycache.IndexedQueryCache
+import com.haulmont.cuba.core.sys.entitycache.QueryCacheConfig
+import com.haulmont.cuba.core.sys.entitycache.QueryKey
+import com.haulmont.cuba.core.sys.entitycache.QueryResult
+import spock.lang.Specification
+
+class IndexedQueryCacheTest extends Specification {
+
+    private IndexedQueryCache cache
+
+    void setup() {
+        cache = new IndexedQueryCache()
+        cache.queryCacheConfig = [getQueryCacheMaxSize: { 2 }] as QueryCacheConfig
+        cache.init()
+    }
+
+    def "query key is found by id and invalidated by id"() {
+        def key = createKey('select u from sec$User u')
+        cache.put(key, createResult('sec$User'))
+
+        expect:
+        cache.findQueryKeyById(key.id) == key
+
+        when:
+        def invalidated = cache.invalidate(key.id)
+
+        then:
+        invalidated == key
+        cache.findQueryKeyById(key.id) == null
+        cache.get(key) == null
+        cache.stats.invalidationCount == 1
+    }
+
+    def "queries are invalidated by related type"() {
+        def userKey = createKey('select u from sec$User u')
+        def groupKey = createKey('select g from sec$Group g')
+        cache.put(userKey, createResult('sec$User', 'sec$Group'))
+        cache.put(groupKey, createResult('sec$Group'))
+
+        when:
+        cache.invalidate('sec$User')
+
+        then:
+        cache.get(userKey) == null
+        cache.get(groupKey) != null
+        cache.typeIndex['sec$User'].isEmpty()
+        cache.typeIndex['sec$Group'] == [groupKey] as Set
+    }
+
+    def "evicted queries are removed from indexes"() {
+        def keys = (1..3).collect { createKey("select u from sec\$User u where u.id = $it") }
+
+        when:
+        keys.each { cache.put(it, createResult('sec$User')) }
+
+        then:
+        cache.size() == 2
+        cache.typeIndex['sec$User'].size() == 2
+        cache.idIndex.size() == 2
+        cache.stats.evictionCount == 1
+    }
+
+    def "hits and misses are counted"() {
+        def key = createKey('select u from sec$User u')
+        cache.put(key, createResult('sec$User'))
+
+        when:
+        cache.get(key)
+        cache.get(key)
+        cache.get(createKey('select g from sec$Group g'))
+
+        then:
+        cache.stats.hitCount == 2
+        cache.stats.missCount == 1
+    }
+
+    private static QueryKey createKey(String queryString) {
+        new QueryKey(queryString, 0, 0, true, false, null, null)
+    }
+
+    private static QueryResult createResult(String... types) {
+        new QueryResult([], types[0], types as Set)
+    }
+}
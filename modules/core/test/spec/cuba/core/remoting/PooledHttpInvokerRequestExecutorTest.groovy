@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.core.remoting
+
+import com.haulmont.cuba.core.sys.AppContext
+import com.haulmont.cuba.core.sys.remoting.PooledHttpInvokerRequestExecutor
+import com.haulmont.cuba.core.sys.remoting.RemotingCallStatistics
+import com.haulmont.cuba.core.sys.remoting.discovery.ServerSelector
+import com.haulmont.cuba.testsupport.TestContainer
+import com.sun.net.httpserver.HttpExchange
+import com.sun.net.httpserver.HttpServer
+import org.junit.ClassRule
+import org.springframework.remoting.httpinvoker.HttpInvokerClientConfiguration
+import org.springframework.remoting.support.RemoteInvocation
+import org.springframework.remoting.support.RemoteInvocationResult
+import spock.lang.Shared
+import spock.lang.Specification
+
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.zip.GZIPInputStream
+
+class PooledHttpInvokerRequestExecutorTest extends Specification {
+
+    @Shared @ClassRule
+    public TestContainer cont = TestContainer.Common.INSTANCE
+
+    private HttpServer server
+    private List<Integer> clientPorts = new CopyOnWriteArrayList<>()
+    private List<String> requestEncodings = new CopyOnWriteArrayList<>()
+    private String savedCompressionThreshold
+
+    void setup() {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0)
+        server.createContext('/remoting', this.&handle)
+        server.start()
+
+        savedCompressionThreshold = AppContext.getProperty('cuba.remotingCompressionThreshold')
+        AppContext.setProperty('cuba.remotingCompressionThreshold', '1000')
+    }
+
+    void cleanup() {
+        server.stop(0)
+        AppContext.setProperty('cuba.remotingCompressionThreshold', savedCompressionThreshold)
+    }
+
+    def "requests reuse pooled connection"() {
+        def executor = createExecutor()
+        def config = createConfig('remoting/cuba_PooledEchoService')
+
+        when:
+        def results = (1..5).collect { executor.executeRequest(config, createInvocation("message$it")) }
+
+        then:
+        results*.value == (1..5).collect { "echo message$it".toString() }
+        clientPorts.size() == 5
+        clientPorts.toSet().size() == 1
+
+        RemotingCallStatistics.getInstance().print().contains('remoting/cuba_PooledEchoService: calls=5, errors=0')
+    }
+
+    def "large requests are compressed after server advertises gzip support"() {
+        def executor = createExecutor()
+        def config = createConfig('remoting/cuba_CompressedEchoService')
+        def largeMessage = 'x' * 10_000
+
+        when:
+        def result1 = executor.executeRequest(config, createInvocation(largeMessage))
+        def result2 = executor.executeRequest(config, createInvocation(largeMessage))
+        def result3 = executor.executeRequest(config, createInvocation('message'))
+
+        then:
+        result1.value == "echo $largeMessage"
+        result2.value == "echo $largeMessage"
+        result3.value == 'echo message'
+        requestEncodings == ['identity', 'gzip', 'identity']
+    }
+
+    protected PooledHttpInvokerRequestExecutor createExecutor() {
+        def serverUrl = "http://localhost:${server.address.port}".toString()
+        def serverSelector = Stub(ServerSelector) {
+            initContext() >> new Object()
+            getUrl(_) >> serverUrl
+        }
+        return new PooledHttpInvokerRequestExecutor(serverSelector)
+    }
+
+    protected HttpInvokerClientConfiguration createConfig(String serviceUrl) {
+        return Stub(HttpInvokerClientConfiguration) {
+            getServiceUrl() >> serviceUrl
+        }
+    }
+
+    protected static RemoteInvocation createInvocation(String message) {
+        return new RemoteInvocation('echo', [String] as Class[], [message] as Object[])
+    }
+
+    protected void handle(HttpExchange exchange) {
+        clientPorts.add(exchange.remoteAddress.port)
+        String encoding = exchange.requestHeaders.getFirst('Content-Encoding')
+        requestEncodings.add(encoding ?: 'identity')
+
+        InputStream body = encoding == 'gzip' ? new GZIPInputStream(exchange.requestBody) : exchange.requestBody
+        RemoteInvocation invocation = (RemoteInvocation) new ObjectInputStream(body).readObject()
+
+        def bytes = new ByteArrayOutputStream()
+        new ObjectOutputStream(bytes).withCloseable {
+            it.writeObject(new RemoteInvocationResult("echo ${invocation.arguments[0]}".toString()))
+        }
+
+        exchange.responseHeaders.set('Content-Type', 'application/x-java-serialized-object')
+        exchange.responseHeaders.set('Accept-Encoding', 'gzip')
+        exchange.sendResponseHeaders(200, bytes.size())
+        exchange.responseBody.withCloseable { it.write(bytes.toByteArray()) }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.core.remoting
+
+import com.haulmont.cuba.core.sys.remoting.RemotingCallStatistics
+import spock.lang.Specification
+
+import java.util.concurrent.TimeUnit
+
+class RemotingCallStatisticsTest extends Specification {
+
+    private RemotingCallStatistics statistics = new RemotingCallStatistics()
+
+    def "calls are counted in latency and size buckets"() {
+        when:
+        statistics.record('cuba_TestService', TimeUnit.MILLISECONDS.toNanos(1), 1024, 1025)
+        statistics.record('cuba_TestService', TimeUnit.MILLISECONDS.toNanos(3), 10, 5_000_000)
+        statistics.record('cuba_TestService', TimeUnit.SECONDS.toNanos(10), 10, -1)
+
+        then:
+        statistics.print() == '''\
+cuba_TestService: calls=3, errors=1, avgTime=3334ms
+  time, ms: <=1=1 <=5=1 >5000=1
+  request, bytes: <=1024=3
+  response, bytes: <=4096=1 >4194304=1
+'''
+    }
+
+    def "services are printed in alphabetical order"() {
+        when:
+        statistics.record('cuba_SecondService', 0, 0, 0)
+        statistics.record('cuba_FirstService', 0, 0, 0)
+        def lines = statistics.print().readLines()
+
+        then:
+        lines.findAll { !it.startsWith(' ') } == ['cuba_FirstService: calls=1, errors=0, avgTime=0ms',
+                                                   'cuba_SecondService: calls=1, errors=0, avgTime=0ms']
+    }
+
+    def "statistics is reset"() {
+        statistics.record('cuba_TestService', 0, 0, 0)
+
+        when:
+        statistics.reset()
+
+        then:
+        statistics.print() == ''
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.core.remoting
+
+import com.haulmont.cuba.core.sys.remoting.ThresholdGzipOutputStream
+import spock.lang.Specification
+
+import javax.servlet.http.HttpServletResponse
+import java.util.zip.GZIPInputStream
+
+class ThresholdGzipOutputStreamTest extends Specification {
+
+    private HttpServletResponse response = Mock(HttpServletResponse)
+    private ByteArrayOutputStream target = new ByteArrayOutputStream()
+
+    def "response of threshold size is written as is"() {
+        def data = bytes(100)
+        def stream = new ThresholdGzipOutputStream(response, target, 100)
+
+        when:
+        stream.write(data, 0, 60)
+        stream.write(data, 60, 40)
+        stream.close()
+
+        then:
+        0 * response.setHeader('Content-Encoding', _)
+        1 * response.setContentLength(100)
+        target.toByteArray() == data
+    }
+
+    def "response larger than threshold is compressed"() {
+        def data = bytes(101)
+        def stream = new ThresholdGzipOutputStream(response, target, 100)
+
+        when:
+        stream.write(data, 0, 100)
+
+        then: "nothing is written until the threshold is exceeded"
+        target.size() == 0
+        0 * response.setHeader('Content-Encoding', _)
+
+        when:
+        stream.write(data[100])
+        stream.close()
+
+        then:
+        1 * response.setHeader('Content-Encoding', 'gzip')
+        0 * response.setContentLength(_)
+        gunzip(target.toByteArray()) == data
+    }
+
+    def "response exceeding threshold by single write is compressed"() {
+        def data = bytes(10_000)
+        def stream = new ThresholdGzipOutputStream(response, target, 100)
+
+        when:
+        stream.write(data)
+        stream.close()
+
+        then:
+        1 * response.setHeader('Content-Encoding', 'gzip')
+        gunzip(target.toByteArray()) == data
+    }
+
+    protected static byte[] bytes(int size) {
+        def bytes = new byte[size]
+        new Random(size).nextBytes(bytes)
+        return bytes
+    }
+
+    protected static byte[] gunzip(byte[] bytes) {
+        return new GZIPInputStream(new ByteArrayInputStream(bytes)).bytes
+    }
+}
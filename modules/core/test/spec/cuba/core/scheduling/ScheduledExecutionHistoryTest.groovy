@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spec.cuba.core.scheduling
+
+import com.haulmont.cuba.core.EntityManager
+import com.haulmont.cuba.core.Persistence
+import com.haulmont.cuba.core.Query
+import com.haulmont.cuba.core.Transaction
+import com.haulmont.cuba.core.TypedQuery
+import com.haulmont.cuba.core.app.ServerConfig
+import com.haulmont.cuba.core.app.scheduling.ScheduledExecutionHistory
+import com.haulmont.cuba.core.entity.ScheduledExecution
+import com.haulmont.cuba.core.entity.ScheduledTask
+import com.haulmont.cuba.core.global.EntityStates
+import spock.lang.Specification
+
+class ScheduledExecutionHistoryTest extends Specification {
+
+    private ScheduledExecutionHistory history
+
+    void setup() {
+        history = new ScheduledExecutionHistory()
+        history.serverConfig = [
+                getSchedulingHistorySamplingRate     : { 10 },
+                getSchedulingHistorySamplingMaxPeriod: { 60 }
+        ] as ServerConfig
+    }
+
+    def "executions of high-frequency tasks are sampled"() {
+        def frequentTask = new ScheduledTask(period: 5)
+        def rareTask = new ScheduledTask(period: 3600)
+        def cronTask = new ScheduledTask()
+
+        expect:
+        (1..100).count { history.isSampled(frequentTask) } == 10
+        (1..100).every { history.isSampled(rareTask) }
+        (1..100).every { history.isSampled(cronTask) }
+    }
+
+    def "execution statistics are aggregated by task"() {
+        def task = new ScheduledTask(period: 5)
+
+        when:
+        history.recordExecution(task, 10, false)
+        history.recordExecution(task, 30, true)
+        history.recordExecution(task, 20, false)
+
+        then:
+        def statistics = history.statistics[task.id]
+        statistics.executionCount == 3
+        statistics.failureCount == 1
+        statistics.minDuration == 10
+        statistics.maxDuration == 30
+        statistics.lastDuration == 20
+        statistics.averageDuration == 20
+    }
+
+    def "queued executions are written in batches"() {
+        def task = new ScheduledTask(period: 5)
+        def stored = new ScheduledExecution(task: task)
+        def em = Mock(EntityManager)
+        history.persistence = Mock(Persistence) {
+            runInTransaction(_) >> { Transaction.Runnable runnable -> runnable.run(em) }
+        }
+        history.entityStates = Mock(EntityStates) {
+            isNew(_) >> { args -> !args[0].is(stored) }
+        }
+
+        (1..600).each { history.add(new ScheduledExecution(task: task)) }
+        history.add(stored)
+
+        when:
+        history.flush()
+
+        then:
+        600 * em.persist(_)
+        1 * em.merge(stored)
+        _ * em.getReference(ScheduledTask, task.id) >> task
+
+        when:
+        history.flush()
+
+        then:
+        0 * em.persist(_)
+        0 * em.merge(_)
+    }
+
+    def "full queue is written synchronously instead of dropping executions"() {
+        def task = new ScheduledTask(period: 5)
+        def em = Mock(EntityManager)
+        history.persistence = Mock(Persistence) {
+            runInTransaction(_) >> { Transaction.Runnable runnable -> runnable.run(em) }
+        }
+        history.entityStates = Mock(EntityStates) {
+            isNew(_) >> true
+        }
+
+        when:
+        (1..<ScheduledExecutionHistory.MAX_QUEUE_SIZE).each { history.add(new ScheduledExecution(task: task)) }
+
+        then:
+        0 * em.persist(_)
+
+        when:
+        history.add(new ScheduledExecution(task: task))
+
+        then:
+        ScheduledExecutionHistory.MAX_QUEUE_SIZE * em.persist(_)
+        history.queue.isEmpty()
+        history.queueSize.get() == 0
+    }
+
+    def "execution history is removed in batches of existing executions"() {
+        def batches = [(1..1000).collect { UUID.randomUUID() }, (1..5).collect { UUID.randomUUID() }]
+        def deleted = []
+
+        def selectQuery = Mock(TypedQuery)
+        selectQuery.setParameter(_, _) >> selectQuery
+        selectQuery.setMaxResults(_) >> selectQuery
+        selectQuery.getResultList() >>> batches
+
+        def deleteQuery = Mock(Query)
+        List<UUID> ids = null
+        deleteQuery.setParameter('ids', _) >> { name, value -> ids = value; deleteQuery }
+        deleteQuery.executeUpdate() >> { deleted.addAll(ids); ids.size() }
+
+        def em = Mock(EntityManager)
+        em.createQuery(_, UUID) >> selectQuery
+        em.createQuery(_) >> deleteQuery
+        history.persistence = Mock(Persistence) {
+            callInTransaction(_) >> { Transaction.Callable callable -> callable.call(em) }
+        }
+
+        when:
+        def count = history.removeExecutionHistory(new Date(), 60)
+
+        then:
+        count == 1005
+        deleted == batches.flatten()
+    }
+}
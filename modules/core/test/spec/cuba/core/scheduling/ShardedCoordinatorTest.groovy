@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spec.cuba.core.scheduling
+
+import com.haulmont.cuba.core.app.ClusterManagerAPI
+import com.haulmont.cuba.core.app.scheduling.ShardedCoordinator
+import com.haulmont.cuba.core.entity.ScheduledTask
+import spock.lang.Specification
+
+class ShardedCoordinatorTest extends Specification {
+
+    def "each singleton task is owned by exactly one cluster member"() {
+        def members = ['node-1', 'node-2', 'node-3']
+        def coordinators = members.collect { createCoordinator(members, it) }
+        def tasks = (1..300).collect { new ScheduledTask(singleton: true) }
+
+        when:
+        def owners = tasks.collect { task -> coordinators.findAll { it.isSingletonTaskOwner(task) } }
+
+        then:
+        owners.every { it.size() == 1 }
+        owners.countBy { it[0] }.size() == members.size()
+    }
+
+    def "only tasks of the left member change the owner"() {
+        def members = ['node-1', 'node-2', 'node-3']
+        def remaining = ['node-1', 'node-3']
+        def tasks = (1..300).collect { new ScheduledTask(singleton: true) }
+
+        when:
+        def before = tasks.collect { owner(it, members) }
+        def after = tasks.collect { owner(it, remaining) }
+
+        then:
+        (0..<tasks.size()).every { before[it] == 'node-2' || before[it] == after[it] }
+    }
+
+    def "all tasks are owned when the cluster is not started"() {
+        def coordinator = createCoordinator([], null)
+
+        expect:
+        coordinator.isSingletonTaskOwner(new ScheduledTask(singleton: true))
+    }
+
+    private static String owner(ScheduledTask task, List<String> members) {
+        members.find { createCoordinator(members, it).isSingletonTaskOwner(task) }
+    }
+
+    private static ShardedCoordinator createCoordinator(List<String> members, String localMember) {
+        def coordinator = new ShardedCoordinator()
+        coordinator.clusterManager = [
+                getCurrentViewMembers: { members },
+                getLocalMember       : { localMember }
+        ] as ClusterManagerAPI
+        coordinator
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.core.serialization
+
+import com.haulmont.cuba.core.global.Metadata
+import com.haulmont.cuba.core.sys.remoting.RemotingSerialization
+import com.haulmont.cuba.security.entity.User
+import com.haulmont.cuba.testsupport.TestContainer
+import org.junit.ClassRule
+import org.springframework.remoting.support.RemoteInvocationResult
+import spock.lang.Shared
+import spock.lang.Specification
+
+import java.lang.reflect.InvocationTargetException
+
+class RemotingSerializationTest extends Specification {
+
+    @Shared
+    @ClassRule
+    public TestContainer cont = TestContainer.Common.INSTANCE
+
+    private Metadata metadata = cont.metadata()
+
+    def "invocation result with entities is transferred in Kryo format"() {
+        def users = (1..100).collect {
+            User user = metadata.create(User)
+            user.login = "user$it"
+            user
+        }
+        def os = new RemotingSerialization.KryoBuffer(1024)
+
+        when:
+        RemotingSerialization.writeKryo(new RemoteInvocationResult(users), os)
+        def result = RemotingSerialization.readKryo(new ByteArrayInputStream(os.toByteArray())) as RemoteInvocationResult
+
+        then:
+        result.value.size() == 100
+        result.value[0] instanceof User
+        result.value[0].id == users[0].id
+        result.value[99].login == 'user100'
+    }
+
+    def "content types are negotiated"() {
+        expect:
+        RemotingSerialization.isKryoContentType(RemotingSerialization.KRYO_CONTENT_TYPE)
+        !RemotingSerialization.isKryoContentType('application/x-java-serialized-object')
+        !RemotingSerialization.isKryoContentType(null)
+        RemotingSerialization.acceptsKryo(RemotingSerialization.getAcceptHeader('application/x-java-serialized-object'))
+        !RemotingSerialization.acceptsKryo('application/x-java-serialized-object')
+    }
+
+    def "invocation result with exception is transferred in Kryo format"() {
+        def cause = new IllegalArgumentException('wrong argument')
+        def exception = new InvocationTargetException(new IllegalStateException('failed', cause))
+        def os = new RemotingSerialization.KryoBuffer(1024)
+
+        when:
+        RemotingSerialization.writeKryo(new RemoteInvocationResult(exception), os)
+        def result = RemotingSerialization.readKryo(new ByteArrayInputStream(os.toByteArray())) as RemoteInvocationResult
+
+        then:
+        result.hasException()
+        result.hasInvocationTargetException()
+        result.exception instanceof InvocationTargetException
+        result.exception.targetException instanceof IllegalStateException
+        result.exception.targetException.message == 'failed'
+        result.exception.targetException.cause instanceof IllegalArgumentException
+        result.exception.targetException.cause.message == 'wrong argument'
+        result.value == null
+    }
+
+    def "rethrown exception of the result keeps its type"() {
+        def os = new RemotingSerialization.KryoBuffer(1024)
+        RemotingSerialization.writeKryo(new RemoteInvocationResult(
+                new InvocationTargetException(new UnsupportedOperationException('not supported'))), os)
+        def result = RemotingSerialization.readKryo(new ByteArrayInputStream(os.toByteArray())) as RemoteInvocationResult
+
+        when:
+        result.recreate()
+
+        then:
+        def e = thrown(UnsupportedOperationException)
+        e.message == 'not supported'
+    }
+
+    def "Kryo acceptance is tracked by server"() {
+        when:
+        RemotingSerialization.setKryoAccepted('http://server1/app-core', true)
+
+        then:
+        RemotingSerialization.isKryoAccepted('http://server1/app-core')
+        !RemotingSerialization.isKryoAccepted('http://server2/app-core')
+        !RemotingSerialization.isKryoAccepted(null)
+
+        when: "the server rejects a Kryo request"
+        RemotingSerialization.setKryoAccepted('http://server1/app-core', false)
+
+        then:
+        !RemotingSerialization.isKryoAccepted('http://server1/app-core')
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.core.user_sessions
+
+import com.haulmont.cuba.core.global.AppBeans
+import com.haulmont.cuba.security.app.UserSessions
+import com.haulmont.cuba.security.entity.User
+import com.haulmont.cuba.security.global.UserSession
+import com.haulmont.cuba.testsupport.TestContainer
+import org.junit.ClassRule
+import spock.lang.Shared
+import spock.lang.Specification
+
+import java.util.concurrent.ConcurrentHashMap
+
+class UserSessionsIndexTest extends Specification {
+
+    @Shared @ClassRule
+    public TestContainer cont = TestContainer.Common.INSTANCE
+
+    private UserSessions userSessions
+    private Map savedAttributeIndexes
+    private List<UserSession> sessions = []
+
+    void setup() {
+        userSessions = AppBeans.get(UserSessions)
+        savedAttributeIndexes = userSessions.attributeIndexes
+        userSessions.attributeIndexes = ['indexTestTenant': new ConcurrentHashMap()]
+    }
+
+    void cleanup() {
+        sessions.each { userSessions.remove(it) }
+        userSessions.attributeIndexes = savedAttributeIndexes
+    }
+
+    def "sessions are found by login"() {
+        def session1 = createSession('Index-Test-User')
+        def session2 = createSession('index-test-user')
+        createSession('index-test-other')
+
+        expect:
+        userSessions.findUserSessionsByLogin('INDEX-TEST-USER') as Set == [session1.id, session2.id] as Set
+
+        when:
+        userSessions.remove(session1)
+
+        then:
+        userSessions.findUserSessionsByLogin('index-test-user') == [session2.id]
+    }
+
+    def "sessions are found by indexed attribute"() {
+        def session1 = createSession('index-test-user', 'tenant1')
+        def session2 = createSession('index-test-user', 'tenant2')
+
+        expect:
+        userSessions.findUserSessionsByAttribute('indexTestTenant', 'tenant1') == [session1.id]
+        userSessions.attributeIndexes['indexTestTenant'].keySet() == ['tenant1', 'tenant2'] as Set
+
+        when:
+        session2.setAttribute('indexTestTenant', 'tenant1')
+        userSessions.propagate(session2.id)
+
+        then:
+        userSessions.findUserSessionsByAttribute('indexTestTenant', 'tenant1') as Set == [session1.id, session2.id] as Set
+        userSessions.findUserSessionsByAttribute('indexTestTenant', 'tenant2').isEmpty()
+        userSessions.attributeIndexes['indexTestTenant'].keySet() == ['tenant1'] as Set
+    }
+
+    def "removed sessions are removed from indexes"() {
+        def session = createSession('index-test-user', 'tenant1')
+
+        when:
+        userSessions.remove(session)
+
+        then:
+        userSessions.findUserSessionsByAttribute('indexTestTenant', 'tenant1').isEmpty()
+        !userSessions.indexEntries.containsKey(session.id)
+        userSessions.expirationBuckets.values().every { !it.contains(session.id) }
+    }
+
+    def "indexes are consistent with cache after concurrent updates of session"() {
+        def id = UUID.randomUUID()
+        def infos = ['tenant1', 'tenant2'].collect { tenant ->
+            def session = new UserSession(id, new User(login: 'index-test-user'), Collections.emptyList(), Locale.ENGLISH, false)
+            session.setAttribute('indexTestTenant', tenant)
+            new UserSessions.UserSessionInfo(session, System.currentTimeMillis())
+        }
+        sessions << infos[0].session
+
+        when:
+        def threads = (1..4).collect { n ->
+            Thread.start {
+                def random = new Random(n)
+                2000.times {
+                    if (random.nextInt(3) == 0) {
+                        userSessions.removeSessionInfo(id)
+                    } else {
+                        userSessions.putSessionInfo(id, infos[random.nextInt(2)])
+                    }
+                }
+            }
+        }
+        threads*.join()
+
+        then:
+        def info = userSessions.getSessionInfo(id)
+        def index = userSessions.attributeIndexes['indexTestTenant']
+        if (info != null) {
+            def tenant = info.session.getAttribute('indexTestTenant')
+            assert userSessions.indexEntries[id].attributes['indexTestTenant'] == tenant
+            assert index.findAll { it.value.contains(id) }.keySet() == [tenant] as Set
+            assert userSessions.findUserSessionsByLogin('index-test-user') == [id]
+        } else {
+            assert !userSessions.indexEntries.containsKey(id)
+            assert index.values().every { !it.contains(id) }
+            assert userSessions.loginIndex.values().every { !it.contains(id) }
+        }
+    }
+
+    private UserSession createSession(String login, String tenant = null) {
+        def user = new User(login: login)
+        def session = new UserSession(UUID.randomUUID(), user, Collections.emptyList(), Locale.ENGLISH, false)
+        if (tenant != null) {
+            session.setAttribute('indexTestTenant', tenant)
+        }
+        userSessions.add(session)
+        sessions << session
+        session
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.core.user_sessions
+
+import com.haulmont.cuba.core.global.AppBeans
+import com.haulmont.cuba.security.app.UserSessions
+import com.haulmont.cuba.security.entity.User
+import com.haulmont.cuba.security.global.UserSession
+import com.haulmont.cuba.testsupport.TestContainer
+import org.junit.ClassRule
+import spock.lang.Shared
+import spock.lang.Specification
+
+class UserSessionsPropagationTest extends Specification {
+
+    @Shared @ClassRule
+    public TestContainer cont = TestContainer.Common.INSTANCE
+
+    private UserSessions userSessions
+    private UserSession session
+
+    void setup() {
+        userSessions = AppBeans.get(UserSessions)
+        session = new UserSession(UUID.randomUUID(), new User(login: 'propagation-test'),
+                Collections.emptyList(), Locale.ENGLISH, false)
+        userSessions.add(session)
+    }
+
+    void cleanup() {
+        userSessions.remove(session)
+        userSessions.deltaPropagation = false
+    }
+
+    def "touches message keeps session identifiers and timestamps"() {
+        def id1 = UUID.randomUUID()
+        def id2 = UUID.randomUUID()
+
+        when:
+        def message = new UserSessions.UserSessionTouches([(id1): 10L, (id2): 20L])
+
+        then:
+        message.size() == 2
+        (0..1).collectEntries { [(message.getSessionId(it)): message.getLastUsedTs(it)] } == [(id1): 10L, (id2): 20L]
+    }
+
+    def "received touches update last usage time of known sessions"() {
+        def lastUsedTs = userSessions.getSessionInfo(session.id).lastUsedTs
+        def unknownId = UUID.randomUUID()
+
+        when:
+        userSessions.receiveClusterTouches(new UserSessions.UserSessionTouches(
+                [(session.id): lastUsedTs + 1000, (unknownId): lastUsedTs + 1000]))
+
+        then:
+        userSessions.getSessionInfo(session.id).lastUsedTs == lastUsedTs + 1000
+        userSessions.getSessionInfo(unknownId) == null
+
+        when:
+        userSessions.receiveClusterTouches(new UserSessions.UserSessionTouches([(session.id): lastUsedTs]))
+
+        then:
+        userSessions.getSessionInfo(session.id).lastUsedTs == lastUsedTs + 1000
+    }
+
+    def "compressed cluster state is received"() {
+        userSessions.deltaPropagation = true
+
+        when:
+        byte[] state = userSessions.sendClusterState()
+
+        then:
+        userSessions.isCompressed(state)
+
+        when:
+        userSessions.removeSessionInfo(session.id)
+        userSessions.receiveClusterState(state)
+
+        then:
+        userSessions.get(session.id)?.id == session.id
+    }
+}
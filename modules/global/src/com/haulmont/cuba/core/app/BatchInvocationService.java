@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.app;
+
+import com.haulmont.cuba.core.sys.remoting.BatchInvocation;
+import org.springframework.remoting.support.RemoteInvocationResult;
+
+import java.util.List;
+
+/**
+ * INTERNAL.
+ * Executes several service invocations received in one request. Don't use it directly, use
+ * {@code com.haulmont.cuba.client.RemoteServiceBatch} on the client tier.
+ */
+public interface BatchInvocationService {
+
+    String NAME = "cuba_BatchInvocationService";
+
+    /**
+     * Executes the invocations in parallel.
+     *
+     * @param invocations invocations of middleware services
+     * @return results in the order of invocations. Exceptions thrown by service methods are returned in results.
+     */
+    List<RemoteInvocationResult> invoke(List<BatchInvocation> invocations);
+}
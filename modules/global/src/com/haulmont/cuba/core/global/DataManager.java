@@ -23,10 +23,14 @@ import com.haulmont.cuba.core.entity.BaseGenericIdEntity;
 import com.haulmont.cuba.core.entity.Entity;
 import com.haulmont.cuba.core.entity.KeyValueEntity;
 import com.haulmont.cuba.core.entity.contracts.Id;
+import com.haulmont.cuba.core.sys.DataManagerAsyncExecutor;
+import com.haulmont.cuba.core.sys.PagingLoadIterator;
 
 import javax.annotation.CheckReturnValue;
 import javax.annotation.Nullable;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 /**
  * Central interface to provide CRUD functionality. Can be used on both middle and client tiers.
@@ -43,6 +47,11 @@ public interface DataManager {
 
     String NAME = "cuba_DataManager";
 
+    /**
+     * Default number of instances loaded at once by {@link #loadStream(LoadContext)}.
+     */
+    int DEFAULT_STREAM_BATCH_SIZE = 1000;
+
     /**
      * Loads a single entity instance.
      * <p>The depth of object graphs, starting from loaded instances, defined by {@link com.haulmont.cuba.core.global.View}
@@ -64,6 +73,38 @@ public interface DataManager {
     @CheckReturnValue
     <E extends Entity> List<E> loadList(LoadContext<E> context);
 
+    /**
+     * Loads entity instances lazily in batches of {@link #DEFAULT_STREAM_BATCH_SIZE} instances.
+     *
+     * @see #loadStream(LoadContext, int)
+     */
+    @CheckReturnValue
+    default <E extends Entity> Stream<E> loadStream(LoadContext<E> context) {
+        return loadStream(context, DEFAULT_STREAM_BATCH_SIZE);
+    }
+
+    /**
+     * Loads entity instances lazily in batches, so only the current batch is kept in memory.
+     * <p>On the middleware, {@code RdbmsStore} reads identifiers of the instances through a database cursor and
+     * loads object graphs defined by the view for each batch of identifiers. The cursor holds an open transaction
+     * and a database connection, so the returned stream must be closed, preferably in a try-with-resources block:
+     * <pre>
+     *     try (Stream&lt;Customer&gt; stream = dataManager.loadStream(context, 500)) {
+     *         stream.forEach(customer -&gt; ...);
+     *     }
+     * </pre>
+     * <p>On the client tier and for data stores without cursor support, batches are loaded by separate queries
+     * using {@code firstResult} and {@code maxResults}, so the query should define a unique sort order.</p>
+     *
+     * @param context   {@link LoadContext} object, defining what and how to load
+     * @param batchSize number of instances loaded at once
+     * @return          a sequential stream of detached instances
+     */
+    @CheckReturnValue
+    default <E extends Entity> Stream<E> loadStream(LoadContext<E> context, int batchSize) {
+        return PagingLoadIterator.stream(context, batchSize, this::loadList);
+    }
+
     /**
      * Returns the number of entity instances for the given query passed in the {@link LoadContext}.
      * @param context   defines the query
@@ -176,6 +217,69 @@ public interface DataManager {
     @CheckReturnValue
     List<KeyValueEntity> loadValues(ValueLoadContext context);
 
+    /**
+     * Loads a single entity instance asynchronously.
+     * <p>The operation is executed by a thread pool of the current application block, which size is defined
+     * by the {@code cuba.dataManagerAsyncThreads} application property. The current security context is
+     * propagated to the executing thread.</p>
+     * @param context   {@link LoadContext} object, defining what and how to load
+     * @return          future completed with the loaded detached object or null if not found
+     * @see #load(LoadContext)
+     */
+    @CheckReturnValue
+    default <E extends Entity> CompletableFuture<E> loadAsync(LoadContext<E> context) {
+        DataManagerAsyncExecutor executor = AppBeans.get(DataManagerAsyncExecutor.NAME);
+        return executor.submit(() -> load(context));
+    }
+
+    /**
+     * Loads collection of entity instances asynchronously.
+     * @param context   {@link LoadContext} object, defining what and how to load
+     * @return          future completed with a list of detached instances
+     * @see #loadList(LoadContext)
+     * @see #loadAsync(LoadContext)
+     */
+    @CheckReturnValue
+    default <E extends Entity> CompletableFuture<List<E>> loadListAsync(LoadContext<E> context) {
+        DataManagerAsyncExecutor executor = AppBeans.get(DataManagerAsyncExecutor.NAME);
+        return executor.submit(() -> loadList(context));
+    }
+
+    /**
+     * Returns the number of entity instances asynchronously.
+     * @param context   defines the query
+     * @return          future completed with the number of instances in the data store
+     * @see #getCount(LoadContext)
+     */
+    @CheckReturnValue
+    default CompletableFuture<Long> getCountAsync(LoadContext<? extends Entity> context) {
+        DataManagerAsyncExecutor executor = AppBeans.get(DataManagerAsyncExecutor.NAME);
+        return executor.submit(() -> getCount(context));
+    }
+
+    /**
+     * Commits a collection of new or detached entity instances to the data store asynchronously.
+     * @param context   {@link CommitContext} object, containing committing entities and other information
+     * @return          future completed with the set of committed instances
+     * @see #commit(CommitContext)
+     */
+    default CompletableFuture<EntitySet> commitAsync(CommitContext context) {
+        DataManagerAsyncExecutor executor = AppBeans.get(DataManagerAsyncExecutor.NAME);
+        return executor.submit(() -> commit(context));
+    }
+
+    /**
+     * Loads list of key-value pairs asynchronously.
+     * @param context   defines a query for scalar values and a list of keys for returned KeyValueEntity
+     * @return          future completed with a list of KeyValueEntity instances
+     * @see #loadValues(ValueLoadContext)
+     */
+    @CheckReturnValue
+    default CompletableFuture<List<KeyValueEntity>> loadValuesAsync(ValueLoadContext context) {
+        DataManagerAsyncExecutor executor = AppBeans.get(DataManagerAsyncExecutor.NAME);
+        return executor.submit(() -> loadValues(context));
+    }
+
     /**
      * By default, DataManager does not apply security restrictions on entity operations and attributes, only row-level
      * constraints take effect.
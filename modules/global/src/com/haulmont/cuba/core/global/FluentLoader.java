@@ -25,6 +25,7 @@ import javax.annotation.CheckReturnValue;
 import javax.persistence.TemporalType;
 import java.util.*;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public class FluentLoader<E extends Entity<K>, K> {
 
@@ -96,6 +97,27 @@ public class FluentLoader<E extends Entity<K>, K> {
         return dataManager.loadList(loadContext);
     }
 
+    /**
+     * Loads entities lazily in batches. The returned stream must be closed.
+     *
+     * @see DataManager#loadStream(LoadContext, int)
+     */
+    @CheckReturnValue
+    public Stream<E> stream() {
+        return stream(DataManager.DEFAULT_STREAM_BATCH_SIZE);
+    }
+
+    /**
+     * Loads entities lazily in batches of the given size. The returned stream must be closed.
+     *
+     * @see DataManager#loadStream(LoadContext, int)
+     */
+    @CheckReturnValue
+    public Stream<E> stream(int batchSize) {
+        LoadContext<E> loadContext = createLoadContext();
+        return dataManager.loadStream(loadContext, batchSize);
+    }
+
     /**
      * Loads a single instance and wraps it in Optional.
      */
@@ -446,6 +468,8 @@ public class FluentLoader<E extends Entity<K>, K> {
         private int maxResults;
         private boolean cacheable;
         private Condition condition;
+        private Sort sort;
+        private Map<String, Object> keysetValues;
 
         ByQuery(FluentLoader<E, K> loader, String queryString) {
             Preconditions.checkNotEmptyString(queryString, "queryString is empty");
@@ -489,6 +513,8 @@ public class FluentLoader<E extends Entity<K>, K> {
             loadContext.getQuery().setFirstResult(firstResult);
             loadContext.getQuery().setMaxResults(maxResults);
             loadContext.getQuery().setCacheable(cacheable);
+            loadContext.getQuery().setSort(sort);
+            loadContext.getQuery().setKeysetValues(keysetValues);
 
             return loadContext;
         }
@@ -501,6 +527,25 @@ public class FluentLoader<E extends Entity<K>, K> {
             return loader.dataManager.loadList(loadContext);
         }
 
+        /**
+         * Loads entities lazily in batches. The returned stream must be closed.
+         *
+         * @see DataManager#loadStream(LoadContext, int)
+         */
+        public Stream<E> stream() {
+            return stream(DataManager.DEFAULT_STREAM_BATCH_SIZE);
+        }
+
+        /**
+         * Loads entities lazily in batches of the given size. The returned stream must be closed.
+         *
+         * @see DataManager#loadStream(LoadContext, int)
+         */
+        public Stream<E> stream(int batchSize) {
+            LoadContext<E> loadContext = createLoadContext();
+            return loader.dataManager.loadStream(loadContext, batchSize);
+        }
+
         /**
          * Loads a single instance and wraps it in Optional.
          */
@@ -671,5 +716,24 @@ public class FluentLoader<E extends Entity<K>, K> {
             this.cacheable = cacheable;
             return this;
         }
+
+        /**
+         * Sets sort, replacing the order specified in the query.
+         */
+        public ByQuery<E, K> sort(Sort sort) {
+            this.sort = sort;
+            return this;
+        }
+
+        /**
+         * Loads the page following the entity with the given sort key values instead of skipping
+         * {@code firstResult} rows.
+         *
+         * @see LoadContext.Query#setKeysetValues(Map)
+         */
+        public ByQuery<E, K> keyset(Map<String, Object> keysetValues) {
+            this.keysetValues = keysetValues;
+            return this;
+        }
     }
 }
@@ -185,6 +185,21 @@ public interface GlobalConfig extends Config {
     @DefaultInt(100)
     int getNumberIdCacheSize();
 
+    /**
+     * @return percentage of a cached block of ids after which the next block is requested from the database
+     * sequence in background. 0 disables prefetching.
+     */
+    @Property("cuba.numberIdCachePrefetchThreshold")
+    @DefaultInt(0)
+    int getNumberIdCachePrefetchThreshold();
+
+    /**
+     * @return maximum number of parsed JPQL queries kept by {@link QueryTransformerFactory}. 0 disables caching.
+     */
+    @Property("cuba.jpqlTreeCacheMaxSize")
+    @DefaultInt(1000)
+    int getJpqlTreeCacheMaxSize();
+
     @Property("cuba.anonymousSessionId")
     @Factory(factory = UuidTypeFactory.class)
     @Nullable
@@ -277,4 +292,11 @@ public interface GlobalConfig extends Config {
     @Property("cuba.rememberMeExpirationTimeoutSec")
     @DefaultInt(30 * 24 * 60 * 60)
     int getRememberMeExpirationTimeoutSec();
+
+    /**
+     * @return maximum number of threads executing asynchronous {@link DataManager} operations
+     */
+    @Property("cuba.dataManagerAsyncThreads")
+    @DefaultInt(8)
+    int getDataManagerAsyncThreads();
 }
\ No newline at end of file
@@ -359,6 +359,7 @@ public class LoadContext<E extends Entity> implements DataLoadContext, Serializa
         private boolean cacheable;
         private Condition condition;
         private Sort sort;
+        private Map<String, Object> keysetValues;
 
         /**
          * @param queryString JPQL query string. Only named parameters are supported.
@@ -491,6 +492,31 @@ public class LoadContext<E extends Entity> implements DataLoadContext, Serializa
             return this;
         }
 
+        /**
+         * @return sort key values of the last entity of the previous page, or null if keyset pagination is not used
+         */
+        @Nullable
+        public Map<String, Object> getKeysetValues() {
+            return keysetValues;
+        }
+
+        /**
+         * Switches the query to keyset (seek) pagination. Instead of skipping {@code firstResult} rows, the query
+         * returns only rows following the given sort key values in the sort order, so loading any page costs
+         * the same as loading the first one.
+         * <p>The map must contain values of all {@link #getSort() sort} properties and of the primary key,
+         * usually taken from the last entity of the previous page. If the sort is not set, entities are ordered
+         * by the primary key. Only persistent non-null datatype properties are supported in the sort.
+         *
+         * @param keysetValues map of sort property names to the values of the last loaded entity,
+         *                     or null to use offset pagination
+         * @return this query instance for chaining
+         */
+        public Query setKeysetValues(@Nullable Map<String, Object> keysetValues) {
+            this.keysetValues = keysetValues == null ? null : new LinkedHashMap<>(keysetValues);
+            return this;
+        }
+
         /**
          * Indicates that the query results should be cached.
          * @return the same query instance
@@ -535,6 +561,7 @@ public class LoadContext<E extends Entity> implements DataLoadContext, Serializa
             query.cacheable = cacheable;
             query.condition = condition == null ? null : condition.copy();
             query.sort = sort;
+            query.keysetValues = keysetValues == null ? null : new LinkedHashMap<>(keysetValues);
             return query;
         }
 
@@ -548,6 +575,7 @@ public class LoadContext<E extends Entity> implements DataLoadContext, Serializa
             if (firstResult != query.firstResult) return false;
             if (maxResults != query.maxResults) return false;
             if (!parameters.equals(query.parameters)) return false;
+            if (!Objects.equals(keysetValues, query.keysetValues)) return false;
             return queryString.equals(query.queryString);
         }
 
@@ -557,6 +585,7 @@ public class LoadContext<E extends Entity> implements DataLoadContext, Serializa
             result = 31 * result + queryString.hashCode();
             result = 31 * result + firstResult;
             result = 31 * result + maxResults;
+            result = 31 * result + (keysetValues != null ? keysetValues.hashCode() : 0);
             return result;
         }
 
@@ -568,6 +597,7 @@ public class LoadContext<E extends Entity> implements DataLoadContext, Serializa
                     ", sort=" + sort +
                     ", firstResult=" + firstResult +
                     ", maxResults=" + maxResults +
+                    (keysetValues == null ? "" : ", keysetValues=" + keysetValues) +
                     "}";
             return StringHelper.removeExtraSpaces(stringResult.replace('\n', ' '));
         }
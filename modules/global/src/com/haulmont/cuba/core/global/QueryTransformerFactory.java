@@ -16,10 +16,13 @@
  */
 package com.haulmont.cuba.core.global;
 
+import com.google.common.cache.CacheStats;
 import com.haulmont.cuba.core.sys.jpql.DomainModel;
 import com.haulmont.cuba.core.sys.jpql.DomainModelBuilder;
+import com.haulmont.cuba.core.sys.jpql.QueryTreeCache;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 
 /**
@@ -44,18 +47,41 @@ public class QueryTransformerFactory {
     }
 
     public QueryTransformer transformer(String query) {
-        if (domainModel == null) {
-            DomainModelBuilder builder = beanLocator.get(DomainModelBuilder.NAME);
-            domainModel = builder.produce();
-        }
-        return beanLocator.getPrototype(QueryTransformer.NAME, domainModel, query);
+        return beanLocator.getPrototype(QueryTransformer.NAME, getDomainModel(), query);
     }
 
     public QueryParser parser(String query) {
-        if (domainModel == null) {
-            DomainModelBuilder builder = AppBeans.get(DomainModelBuilder.NAME);
-            domainModel = builder.produce();
+        return beanLocator.getPrototype(QueryParser.NAME, getDomainModel(), query);
+    }
+
+    /**
+     * Discards the domain model and parsed queries. The model will be rebuilt on the next request.
+     */
+    public void resetDomainModel() {
+        domainModel = null;
+    }
+
+    /**
+     * @return statistics of the parsed queries cache, or null if the cache is disabled or not created yet
+     */
+    @Nullable
+    public CacheStats getQueryTreeCacheStats() {
+        DomainModel model = domainModel;
+        QueryTreeCache cache = model != null ? model.getQueryTreeCache() : null;
+        return cache != null ? cache.getStats() : null;
+    }
+
+    protected DomainModel getDomainModel() {
+        DomainModel model = domainModel;
+        if (model == null) {
+            DomainModelBuilder builder = beanLocator.get(DomainModelBuilder.NAME);
+            model = builder.produce();
+            int cacheSize = beanLocator.get(Configuration.class).getConfig(GlobalConfig.class).getJpqlTreeCacheMaxSize();
+            if (cacheSize > 0) {
+                model.setQueryTreeCache(new QueryTreeCache(model, cacheSize));
+            }
+            domainModel = model;
         }
-        return beanLocator.getPrototype(QueryParser.NAME, domainModel, query);
+        return model;
     }
 }
\ No newline at end of file
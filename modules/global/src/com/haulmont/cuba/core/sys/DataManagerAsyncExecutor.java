@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.haulmont.cuba.core.global.Configuration;
+import com.haulmont.cuba.core.global.GlobalConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import java.util.concurrent.*;
+
+/**
+ * INTERNAL.
+ * Executes asynchronous operations of {@link com.haulmont.cuba.core.global.DataManager} propagating the current
+ * {@link SecurityContext} to the executing thread.
+ */
+@Component(DataManagerAsyncExecutor.NAME)
+public class DataManagerAsyncExecutor {
+
+    public static final String NAME = "cuba_DataManagerAsyncExecutor";
+
+    private static final Logger log = LoggerFactory.getLogger(DataManagerAsyncExecutor.class);
+
+    @Inject
+    protected Configuration configuration;
+
+    protected volatile ExecutorService executor;
+
+    /**
+     * Submits an operation. The operation is executed in the calling thread if the executor queue is full.
+     *
+     * @param operation operation
+     * @return future completed with the result of the operation or with the exception thrown by it
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> operation) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Callable<T> securityAwareOperation = new SecurityContextAwareCallable<>(operation);
+        try {
+            getExecutor().execute(() -> complete(future, securityAwareOperation));
+        } catch (RejectedExecutionException e) {
+            log.debug("DataManager async queue is full, executing in the calling thread");
+            complete(future, operation);
+        }
+        return future;
+    }
+
+    protected <T> void complete(CompletableFuture<T> future, Callable<T> operation) {
+        if (future.isDone()) {
+            // cancelled before start
+            return;
+        }
+        try {
+            future.complete(operation.call());
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    protected ExecutorService getExecutor() {
+        if (executor == null) {
+            synchronized (this) {
+                if (executor == null) {
+                    int threads = configuration.getConfig(GlobalConfig.class).getDataManagerAsyncThreads();
+                    ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(threads, threads,
+                            60L, TimeUnit.SECONDS,
+                            new LinkedBlockingQueue<>(threads * 64),
+                            new ThreadFactoryBuilder()
+                                    .setNameFormat("DataManagerAsync-%d")
+                                    .setDaemon(true)
+                                    .build());
+                    threadPoolExecutor.allowCoreThreadTimeOut(true);
+                    executor = threadPoolExecutor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    @PreDestroy
+    protected void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -17,37 +17,68 @@
 
 package com.haulmont.cuba.core.sys;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.haulmont.chile.core.model.MetaClass;
 import com.haulmont.cuba.core.entity.annotation.IdSequence;
 import com.haulmont.cuba.core.global.GlobalConfig;
 import com.haulmont.cuba.core.global.Metadata;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.Nullable;
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Intermediate cache for generated ids of entities with long/integer PK.
  * The cache size is determined by the {@code cuba.numberIdCacheSize} app property.
+ * <p>
+ * Ids of a cached block are allocated without locking. If the {@code cuba.numberIdCachePrefetchThreshold} app property
+ * is set, the next block is requested from the database sequence in background when the specified percentage
+ * of the current block is allocated, so threads do not wait for the database when the block is exhausted.
  */
 @Component(NumberIdCache.NAME)
 public class NumberIdCache {
 
     public static final String NAME = "cuba_NumberIdCache";
 
+    private static final Logger log = LoggerFactory.getLogger(NumberIdCache.class);
+
     @Inject
     protected Metadata metadata;
 
+    /**
+     * Range of ids obtained from a database sequence.
+     */
+    protected static class Block {
+        protected final AtomicLong counter;
+        protected final long last;
+        protected final long prefetchAt;
+
+        public Block(long sequenceValue, int size, int prefetchThreshold) {
+            this.counter = new AtomicLong(sequenceValue);
+            this.last = sequenceValue + size;
+            this.prefetchAt = prefetchThreshold > 0 && prefetchThreshold < 100
+                    ? sequenceValue + Math.max(1, (long) size * prefetchThreshold / 100)
+                    : Long.MAX_VALUE;
+        }
+    }
+
     protected class Generator {
-        protected long counter;
-        protected long sequenceValue;
         protected String entityName;
         protected String sequenceName;
         protected boolean cached;
         protected NumberIdSequence numberIdSequence;
 
+        protected volatile Block block;
+        protected final AtomicReference<CompletableFuture<Block>> nextBlock = new AtomicReference<>();
+
         public Generator(String entityName,
                          String sequenceName,
                          boolean cached,
@@ -56,36 +87,89 @@ public class NumberIdCache {
             this.sequenceName = sequenceName;
             this.cached = cached;
             this.numberIdSequence = sequence;
-            if (useIdCache()) {
-                createCachedCounter();
-            }
         }
 
         protected boolean useIdCache() {
             return config.getNumberIdCacheSize() != 0 && cached;
         }
 
-        protected void createCachedCounter() {
-            sequenceValue = numberIdSequence.createCachedLongId(entityName, sequenceName);
-            counter = sequenceValue;
-        }
-
-        public synchronized long getNext() {
+        public long getNext() {
             if (!useIdCache()) {
+                sequenceFetches.increment();
                 return numberIdSequence.createLongId(entityName, sequenceName);
-            } else {
-                long next = ++counter;
-                if (next > sequenceValue + config.getNumberIdCacheSize()) {
-                    createCachedCounter();
-                    next = ++counter;
+            }
+            while (true) {
+                Block current = block;
+                if (current != null) {
+                    long next = current.counter.incrementAndGet();
+                    if (next <= current.last) {
+                        if (next == current.prefetchAt) {
+                            prefetchBlock();
+                        }
+                        return next;
+                    }
                 }
-                return next;
+                switchBlock(current);
             }
         }
+
+        protected synchronized void switchBlock(@Nullable Block exhausted) {
+            if (block != exhausted) {
+                // already switched by another thread
+                return;
+            }
+            long start = System.nanoTime();
+            Block newBlock = null;
+            CompletableFuture<Block> prefetched = nextBlock.getAndSet(null);
+            if (prefetched != null) {
+                try {
+                    newBlock = prefetched.join();
+                } catch (CompletionException e) {
+                    log.warn("Unable to prefetch ids for {}: {}", entityName, e.getCause().toString());
+                }
+            }
+            if (newBlock == null) {
+                newBlock = fetchBlock();
+            }
+            block = newBlock;
+            blockWaits.increment();
+            blockWaitNanos.add(System.nanoTime() - start);
+        }
+
+        protected void prefetchBlock() {
+            CompletableFuture<Block> future = new CompletableFuture<>();
+            if (nextBlock.compareAndSet(null, future)) {
+                try {
+                    getPrefetchExecutor().execute(new SecurityContextAwareRunnable(() -> {
+                        try {
+                            future.complete(fetchBlock());
+                        } catch (Throwable e) {
+                            future.completeExceptionally(e);
+                        }
+                    }));
+                    prefetches.increment();
+                } catch (RejectedExecutionException e) {
+                    nextBlock.compareAndSet(future, null);
+                }
+            }
+        }
+
+        protected Block fetchBlock() {
+            long sequenceValue = numberIdSequence.createCachedLongId(entityName, sequenceName);
+            sequenceFetches.increment();
+            return new Block(sequenceValue, config.getNumberIdCacheSize(), config.getNumberIdCachePrefetchThreshold());
+        }
     }
 
     protected ConcurrentMap<String, Generator> cache = new ConcurrentHashMap<>();
 
+    protected volatile ExecutorService prefetchExecutor;
+
+    protected LongAdder sequenceFetches = new LongAdder();
+    protected LongAdder prefetches = new LongAdder();
+    protected LongAdder blockWaits = new LongAdder();
+    protected LongAdder blockWaitNanos = new LongAdder();
+
     @Inject
     protected GlobalConfig config;
 
@@ -125,7 +209,61 @@ public class NumberIdCache {
         cache.clear();
     }
 
+    /**
+     * @return number of requests to database sequences
+     */
+    public long getSequenceFetches() {
+        return sequenceFetches.sum();
+    }
+
+    /**
+     * @return number of blocks of ids requested in background
+     */
+    public long getPrefetches() {
+        return prefetches.sum();
+    }
+
+    /**
+     * @return number of times when a thread switched an exhausted block of ids
+     */
+    public long getBlockWaits() {
+        return blockWaits.sum();
+    }
+
+    /**
+     * @return total time in nanoseconds spent by threads switching exhausted blocks of ids
+     */
+    public long getBlockWaitNanos() {
+        return blockWaitNanos.sum();
+    }
+
     protected String getCacheKey(String entityName, String sequenceName) {
         return sequenceName == null ? entityName : sequenceName;
     }
-}
\ No newline at end of file
+
+    protected ExecutorService getPrefetchExecutor() {
+        if (prefetchExecutor == null) {
+            synchronized (this) {
+                if (prefetchExecutor == null) {
+                    ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(2, 2,
+                            60L, TimeUnit.SECONDS,
+                            new LinkedBlockingQueue<>(100),
+                            new ThreadFactoryBuilder()
+                                    .setNameFormat("NumberIdPrefetch-%d")
+                                    .setDaemon(true)
+                                    .build());
+                    threadPoolExecutor.allowCoreThreadTimeOut(true);
+                    prefetchExecutor = threadPoolExecutor;
+                }
+            }
+        }
+        return prefetchExecutor;
+    }
+
+    @PreDestroy
+    protected void shutdown() {
+        if (prefetchExecutor != null) {
+            prefetchExecutor.shutdownNow();
+        }
+    }
+}
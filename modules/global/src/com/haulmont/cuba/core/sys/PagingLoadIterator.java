@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys;
+
+import com.haulmont.cuba.core.entity.Entity;
+import com.haulmont.cuba.core.global.LoadContext;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * INTERNAL.
+ * Iterates over the results of a {@link LoadContext} loading them page by page with the given loader function.
+ * Used by {@code DataManager.loadStream()} when the data store does not support cursors.
+ * To get consistent results, the query should define a unique sort order.
+ */
+public class PagingLoadIterator<E extends Entity> implements Iterator<E> {
+
+    protected final LoadContext<E> context;
+    protected final Function<LoadContext<E>, List<E>> loader;
+    protected final int batchSize;
+
+    protected final int firstResult;
+    protected final int maxResults;
+
+    protected Iterator<E> currentBatch = Collections.emptyIterator();
+    protected int loaded;
+    protected boolean exhausted;
+
+    @SuppressWarnings("unchecked")
+    public PagingLoadIterator(LoadContext<E> context, int batchSize, Function<LoadContext<E>, List<E>> loader) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+        this.context = (LoadContext<E>) context.copy();
+        this.loader = loader;
+        this.batchSize = batchSize;
+
+        LoadContext.Query query = context.getQuery();
+        this.firstResult = query != null ? query.getFirstResult() : 0;
+        this.maxResults = query != null ? query.getMaxResults() : 0;
+    }
+
+    /**
+     * Creates a sequential stream of the loaded entities.
+     */
+    public static <E extends Entity> Stream<E> stream(LoadContext<E> context, int batchSize,
+                                                     Function<LoadContext<E>, List<E>> loader) {
+        Iterator<E> iterator = new PagingLoadIterator<>(context, batchSize, loader);
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!currentBatch.hasNext() && !exhausted) {
+            currentBatch = loadNextBatch().iterator();
+        }
+        return currentBatch.hasNext();
+    }
+
+    @Override
+    public E next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return currentBatch.next();
+    }
+
+    protected List<E> loadNextBatch() {
+        LoadContext.Query query = context.getQuery();
+        if (query == null) {
+            // loading by id or ids, the result is bounded anyway
+            exhausted = true;
+            return loader.apply(context);
+        }
+
+        int size = maxResults > 0 ? Math.min(batchSize, maxResults - loaded) : batchSize;
+        query.setFirstResult(firstResult + loaded);
+        query.setMaxResults(size);
+
+        List<E> batch = loader.apply(context);
+        loaded += size;
+        if (batch.size() < size || (maxResults > 0 && loaded >= maxResults)) {
+            exhausted = true;
+        }
+        return batch;
+    }
+}
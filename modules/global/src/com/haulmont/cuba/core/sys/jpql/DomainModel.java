@@ -22,6 +22,7 @@ import com.haulmont.cuba.core.global.ExtendedEntities;
 import com.haulmont.cuba.core.global.Metadata;
 import com.haulmont.cuba.core.sys.jpql.model.JpqlEntityModel;
 
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.NotThreadSafe;
 import java.util.HashMap;
 import java.util.List;
@@ -33,6 +34,7 @@ public class DomainModel {
     protected Map<String, JpqlEntityModel> entities = new HashMap<>();
     protected ExtendedEntities extendedEntities;
     protected Metadata metadata;
+    protected QueryTreeCache queryTreeCache;
 
     public DomainModel(ExtendedEntities extendedEntities, Metadata metadata, JpqlEntityModel... initialEntities) {
         this(initialEntities);
@@ -60,6 +62,26 @@ public class DomainModel {
         return result;
     }
 
+    /**
+     * @return cache of parsed queries built for this model, or null if parsed queries are not cached
+     */
+    @Nullable
+    public QueryTreeCache getQueryTreeCache() {
+        return queryTreeCache;
+    }
+
+    public void setQueryTreeCache(@Nullable QueryTreeCache queryTreeCache) {
+        this.queryTreeCache = queryTreeCache;
+    }
+
+    /**
+     * Returns a parsed tree of the query. The tree is taken from the cache if it is set, otherwise the query
+     * is parsed.
+     */
+    public QueryTree createQueryTree(String query) {
+        return queryTreeCache != null ? queryTreeCache.get(query) : new QueryTree(this, query);
+    }
+
     public JpqlEntityModel getEntityByName(String requiredEntityName) throws UnknownEntityNameException {
         if (extendedEntities != null) {
             if (metadata.getSession().getClass(requiredEntityName) == null) {
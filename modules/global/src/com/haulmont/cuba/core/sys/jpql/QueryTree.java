@@ -57,6 +57,35 @@ public class QueryTree {
         new TreeVisitor().visit(tree, idVarSelector);
     }
 
+    protected QueryTree(DomainModel model, String queryString, CommonTree tree) {
+        this.model = model;
+        this.queryString = queryString;
+        this.tree = tree;
+
+        this.idVarSelector = new IdVarSelector(model);
+        new TreeVisitor().visit(tree, idVarSelector);
+    }
+
+    /**
+     * Creates an independent copy of this tree without parsing the query string again.
+     * Transformations of the copy do not affect this tree.
+     */
+    public QueryTree copy() {
+        return new QueryTree(model, queryString, copyNode(tree));
+    }
+
+    protected CommonTree copyNode(CommonTree node) {
+        CommonTree copy = (CommonTree) node.dupNode();
+        // custom nodes duplicate their direct children only, so replace them by deep copies
+        for (int i = copy.getChildCount() - 1; i >= 0; i--) {
+            copy.deleteChild(i);
+        }
+        for (int i = 0; i < node.getChildCount(); i++) {
+            copy.addChild(copyNode((CommonTree) node.getChild(i)));
+        }
+        return copy;
+    }
+
     public DomainModel getModel() {
         return model;
     }
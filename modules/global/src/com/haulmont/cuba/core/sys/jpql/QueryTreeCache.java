@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys.jpql;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import java.util.concurrent.ExecutionException;
+
+/**
+ * INTERNAL.
+ * Bounded thread-safe cache of parsed JPQL queries keyed by the query text.
+ * <p>
+ * Cached trees are never exposed: {@link #get(String)} returns a copy which can be transformed freely.
+ * The cache belongs to a {@link DomainModel} and is discarded together with it.
+ */
+public class QueryTreeCache {
+
+    protected DomainModel model;
+    protected Cache<String, QueryTree> trees;
+
+    public QueryTreeCache(DomainModel model, int maxSize) {
+        this.model = model;
+        this.trees = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns a parsed tree of the query, parsing it only if the cache does not contain it yet.
+     *
+     * @param query JPQL query string
+     * @return a copy of the cached tree
+     * @throws JPA2RecognitionException if the query cannot be parsed
+     */
+    public QueryTree get(String query) {
+        QueryTree tree;
+        try {
+            tree = trees.get(query, () -> new QueryTree(model, query));
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Error parsing query " + query, e.getCause());
+        } catch (UncheckedExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        return tree.copy();
+    }
+
+    public void invalidateAll() {
+        trees.invalidateAll();
+    }
+
+    public long size() {
+        return trees.size();
+    }
+
+    public CacheStats getStats() {
+        return trees.stats();
+    }
+}
@@ -30,6 +30,13 @@ public class BaseCustomNode extends CommonTree implements TreeToQueryCapable {
         super(t);
     }
 
+    @Override
+    public Tree dupNode() {
+        BaseCustomNode result = new BaseCustomNode(token);
+        dupChildren(result);
+        return result;
+    }
+
     @Override
     public CommonTree treeToQueryPre(QueryBuilder sb, List<ErrorRec> invalidNodes) {
         return this;
@@ -53,6 +60,9 @@ public class BaseCustomNode extends CommonTree implements TreeToQueryCapable {
     }
 
     protected void dupChildren(CommonTree result) {
+        if (children == null) {
+            return;
+        }
         for (Object child : children) {
             CommonTree t = (CommonTree) child;
             Tree copy = t.dupNode();
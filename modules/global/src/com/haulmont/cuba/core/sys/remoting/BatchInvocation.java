@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys.remoting;
+
+import org.springframework.remoting.support.RemoteInvocation;
+
+import java.io.Serializable;
+
+/**
+ * INTERNAL.
+ * Invocation of a middleware service method which is sent to the middleware as a part of a batch.
+ *
+ * @see com.haulmont.cuba.core.app.BatchInvocationService
+ */
+public class BatchInvocation implements Serializable {
+
+    private static final long serialVersionUID = -2207532983384520766L;
+
+    private final String serviceName;
+    private final RemoteInvocation invocation;
+
+    public BatchInvocation(String serviceName, RemoteInvocation invocation) {
+        this.serviceName = serviceName;
+        this.invocation = invocation;
+    }
+
+    public String getServiceName() {
+        return serviceName;
+    }
+
+    public RemoteInvocation getInvocation() {
+        return invocation;
+    }
+
+    @Override
+    public String toString() {
+        return serviceName + "." + invocation.getMethodName();
+    }
+}
@@ -32,6 +32,7 @@ import org.springframework.util.StopWatch;
 import javax.annotation.Nullable;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.net.HttpURLConnection;
@@ -46,6 +47,14 @@ public class ClusteredHttpInvokerRequestExecutor extends SimpleHttpInvokerReques
 
     private ServerSelector serverSelector;
 
+    protected boolean kryoEnabled = RemotingSerialization.isKryoEnabled();
+
+    /**
+     * Base URL of the server which has executed the last request. Requests are serialized in Kryo if this server
+     * accepts it.
+     */
+    protected volatile String lastServerUrl;
+
     private static final Logger log = LoggerFactory.getLogger(ClusteredHttpInvokerRequestExecutor.class);
 
     public ClusteredHttpInvokerRequestExecutor(ServerSelector serverSelector) {
@@ -63,30 +72,56 @@ public class ClusteredHttpInvokerRequestExecutor extends SimpleHttpInvokerReques
             throws IOException, ClassNotFoundException {
 
         RemoteInvocationResult result;
+        long start = System.nanoTime();
 
         Object context = serverSelector.initContext();
-        String url = currentServiceUrl(serverSelector.getUrl(context), config);
-        if (url == null)
+        String serverUrl = serverSelector.getUrl(context);
+        if (serverUrl == null)
             throw new IllegalStateException("Server URL list is empty");
 
         while (true) {
+            String url = currentServiceUrl(serverUrl, config);
+            ByteArrayOutputStream body = getRequestBody(serverUrl, baos);
             HttpURLConnection con = openConnection(url);
             try {
                 StopWatch sw = new StopWatch();
-                prepareConnection(con, baos.size());
-                writeRequestBody(config, con, baos);
+                prepareConnection(con, body.size());
+                if (body instanceof RemotingSerialization.KryoBuffer) {
+                    con.setRequestProperty(HTTP_HEADER_CONTENT_TYPE, RemotingSerialization.KRYO_CONTENT_TYPE);
+                }
+                if (kryoEnabled) {
+                    con.setRequestProperty("Accept", RemotingSerialization.getAcceptHeader(getContentType()));
+                }
+                writeRequestBody(config, con, body);
                 sw.start("waiting time");
+                if (body instanceof RemotingSerialization.KryoBuffer
+                        && ((RemotingSerialization.KryoBuffer) body).getSource() != null
+                        && con.getResponseCode() == HttpURLConnection.HTTP_UNSUPPORTED_TYPE) {
+                    log.debug("{} does not accept Kryo, repeat the request in the default format", url);
+                    RemotingSerialization.setKryoAccepted(serverUrl, false);
+                    continue;
+                }
                 validateResponse(config, con);
                 CountingInputStream responseInputStream = new CountingInputStream(readResponseBody(config, con));
                 sw.stop();
 
                 serverSelector.success(context);
+                lastServerUrl = serverUrl;
 
                 sw.start("reading time");
-                try (ObjectInputStream ois = createObjectInputStream(decorateInputStream(responseInputStream), config.getCodebaseUrl())) {
-                    result = doReadRemoteInvocationResult(ois);
+                if (RemotingSerialization.isKryoContentType(con.getContentType())) {
+                    RemotingSerialization.setKryoAccepted(serverUrl, true);
+                    try (InputStream is = decorateInputStream(responseInputStream)) {
+                        result = (RemoteInvocationResult) RemotingSerialization.readKryo(is);
+                    }
+                } else {
+                    try (ObjectInputStream ois = createObjectInputStream(decorateInputStream(responseInputStream), config.getCodebaseUrl())) {
+                        result = doReadRemoteInvocationResult(ois);
+                    }
                 }
                 sw.stop();
+                RemotingCallStatistics.getInstance().record(config.getServiceUrl(),
+                        System.nanoTime() - start, body.size(), responseInputStream.getCount());
                 if (log.isDebugEnabled()) {
                     log.debug(String.format("Receiving HTTP invoker response for service at [%s], with size %s, %s", config.getServiceUrl(),
                             responseInputStream.getCount(), printStopWatch(sw)));
@@ -96,12 +131,14 @@ public class ClusteredHttpInvokerRequestExecutor extends SimpleHttpInvokerReques
                 log.info(String.format("Invocation of %s failed: %s", url, e));
 
                 serverSelector.fail(context);
-                url = currentServiceUrl(serverSelector.getUrl(context), config);
-                if (url != null) {
-                    log.info("Trying to invoke the next available URL: " + url);
+                serverUrl = serverSelector.getUrl(context);
+                if (serverUrl != null) {
+                    log.info("Trying to invoke the next available URL: " + currentServiceUrl(serverUrl, config));
                     continue;
                 }
                 log.info("No more URL available");
+                RemotingCallStatistics.getInstance().record(config.getServiceUrl(),
+                        System.nanoTime() - start, body.size(), -1);
                 throw e;
             }
         }
@@ -121,6 +158,31 @@ public class ClusteredHttpInvokerRequestExecutor extends SimpleHttpInvokerReques
         return (HttpURLConnection) con;
     }
 
+    @Override
+    protected ByteArrayOutputStream getByteArrayOutputStream(RemoteInvocation invocation) throws IOException {
+        if (kryoEnabled && RemotingSerialization.isKryoAccepted(lastServerUrl)) {
+            ByteArrayOutputStream baos = new RemotingSerialization.KryoBuffer(SERIALIZED_INVOCATION_BYTE_ARRAY_INITIAL_SIZE,
+                    invocation);
+            RemotingSerialization.writeKryo(invocation, baos);
+            return baos;
+        }
+        return super.getByteArrayOutputStream(invocation);
+    }
+
+    /**
+     * Returns the invocation serialized in the default format if it is serialized in Kryo, but the server has not
+     * answered in Kryo yet, e.g. after failover to another server.
+     */
+    protected ByteArrayOutputStream getRequestBody(String serverUrl, ByteArrayOutputStream baos) throws IOException {
+        if (baos instanceof RemotingSerialization.KryoBuffer && !RemotingSerialization.isKryoAccepted(serverUrl)) {
+            RemoteInvocation invocation = (RemoteInvocation) ((RemotingSerialization.KryoBuffer) baos).getSource();
+            if (invocation != null) {
+                return super.getByteArrayOutputStream(invocation);
+            }
+        }
+        return baos;
+    }
+
     @Override
     protected void doWriteRemoteInvocation(RemoteInvocation invocation, ObjectOutputStream oos) throws IOException {
         SerializationSupport.serialize(invocation, oos);
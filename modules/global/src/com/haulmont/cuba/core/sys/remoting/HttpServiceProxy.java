@@ -18,7 +18,9 @@
 package com.haulmont.cuba.core.sys.remoting;
 
 import com.haulmont.cuba.core.global.RemoteException;
+import com.haulmont.cuba.core.sys.AppContext;
 import com.haulmont.cuba.core.sys.remoting.discovery.ServerSelector;
+import org.springframework.remoting.httpinvoker.AbstractHttpInvokerRequestExecutor;
 import org.springframework.remoting.httpinvoker.HttpInvokerProxyFactoryBean;
 import org.springframework.remoting.support.RemoteInvocationResult;
 import org.springframework.remoting.support.RemoteInvocationUtils;
@@ -30,7 +32,12 @@ public class HttpServiceProxy extends HttpInvokerProxyFactoryBean {
     public HttpServiceProxy(ServerSelector selector) {
         setRemoteInvocationFactory(new CubaRemoteInvocationFactory());
 
-        ClusteredHttpInvokerRequestExecutor executor = new ClusteredHttpInvokerRequestExecutor(selector);
+        AbstractHttpInvokerRequestExecutor executor;
+        if (Boolean.parseBoolean(AppContext.getProperty("cuba.remotingPooledHttpClient"))) {
+            executor = new PooledHttpInvokerRequestExecutor(selector);
+        } else {
+            executor = new ClusteredHttpInvokerRequestExecutor(selector);
+        }
         executor.setBeanClassLoader(getBeanClassLoader());
         setHttpInvokerRequestExecutor(executor);
     }
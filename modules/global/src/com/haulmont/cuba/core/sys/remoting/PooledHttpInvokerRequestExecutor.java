@@ -0,0 +1,293 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys.remoting;
+
+import com.google.common.io.CountingInputStream;
+import com.haulmont.cuba.core.sys.AppContext;
+import com.haulmont.cuba.core.sys.remoting.discovery.ServerSelector;
+import com.haulmont.cuba.core.sys.serialization.SerializationSupport;
+import org.apache.http.Header;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.EntityTemplate;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.remoting.httpinvoker.HttpComponentsHttpInvokerRequestExecutor;
+import org.springframework.remoting.httpinvoker.HttpInvokerClientConfiguration;
+import org.springframework.remoting.support.RemoteInvocation;
+import org.springframework.remoting.support.RemoteInvocationResult;
+
+import java.io.*;
+import java.net.URI;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * HttpInvokerRequestExecutor that executes a request on a server which is selected according to the current cluster
+ * topology, provided by {@link ServerSelector}, through a pool of keep-alive connections.
+ * <p>
+ * All instances share one connection pool, bounded by {@code cuba.remotingMaxConnectionsPerServer} and
+ * {@code cuba.remotingMaxConnections} app properties. Requests larger than {@code cuba.remotingCompressionThreshold}
+ * bytes are compressed by gzip if the server has advertised that it accepts compressed requests.
+ * <p>
+ * Used instead of {@link ClusteredHttpInvokerRequestExecutor} if {@code cuba.remotingPooledHttpClient} app property
+ * is set to true.
+ */
+public class PooledHttpInvokerRequestExecutor extends HttpComponentsHttpInvokerRequestExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger(PooledHttpInvokerRequestExecutor.class);
+
+    protected static volatile HttpClient sharedHttpClient;
+
+    /**
+     * Base URLs of servers which accept compressed requests.
+     */
+    protected static final Set<String> compressingServers = ConcurrentHashMap.newKeySet();
+
+    private ServerSelector serverSelector;
+
+    protected int compressionThreshold;
+
+    protected boolean kryoEnabled = RemotingSerialization.isKryoEnabled();
+
+    /**
+     * Base URL of the server which has executed the last request. Requests are serialized in Kryo if this server
+     * accepts it.
+     */
+    protected volatile String lastServerUrl;
+
+    public PooledHttpInvokerRequestExecutor(ServerSelector serverSelector) {
+        super(getSharedHttpClient());
+        this.serverSelector = serverSelector;
+
+        String connectTimeoutProp = AppContext.getProperty("cuba.connectionTimeout");
+        if (connectTimeoutProp != null)
+            setConnectTimeout(Integer.parseInt(connectTimeoutProp));
+
+        String readTimeoutProp = AppContext.getProperty("cuba.connectionReadTimeout");
+        if (readTimeoutProp != null)
+            setReadTimeout(Integer.parseInt(readTimeoutProp));
+
+        String compressionThresholdProp = AppContext.getProperty("cuba.remotingCompressionThreshold");
+        compressionThreshold = compressionThresholdProp == null ? 0 : Integer.parseInt(compressionThresholdProp);
+    }
+
+    protected static HttpClient getSharedHttpClient() {
+        if (sharedHttpClient == null) {
+            synchronized (PooledHttpInvokerRequestExecutor.class) {
+                if (sharedHttpClient == null) {
+                    PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+                    connectionManager.setDefaultMaxPerRoute(getIntProperty("cuba.remotingMaxConnectionsPerServer", 20));
+                    connectionManager.setMaxTotal(getIntProperty("cuba.remotingMaxConnections", 200));
+                    connectionManager.setValidateAfterInactivity(2000);
+
+                    sharedHttpClient = HttpClientBuilder.create()
+                            .setConnectionManager(connectionManager)
+                            // gzip responses are decompressed by the executor
+                            .disableContentCompression()
+                            .disableCookieManagement()
+                            // servlet containers drop idle keep-alive connections after 20 sec by default
+                            .evictIdleConnections(15, TimeUnit.SECONDS)
+                            .build();
+                }
+            }
+        }
+        return sharedHttpClient;
+    }
+
+    protected static int getIntProperty(String name, int defaultValue) {
+        String value = AppContext.getProperty(name);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    @Override
+    protected RemoteInvocationResult doExecuteRequest(HttpInvokerClientConfiguration config, ByteArrayOutputStream baos)
+            throws IOException, ClassNotFoundException {
+
+        long start = System.nanoTime();
+
+        Object context = serverSelector.initContext();
+        String serverUrl = serverSelector.getUrl(context);
+        if (serverUrl == null)
+            throw new IllegalStateException("Server URL list is empty");
+
+        while (true) {
+            String url = serverUrl + "/" + config.getServiceUrl();
+            ByteArrayOutputStream body = getRequestBody(serverUrl, baos);
+            HttpPost post = createHttpPost(config);
+            post.setURI(URI.create(url));
+            setRequestBody(post, body, compressingServers.contains(serverUrl));
+            if (kryoEnabled) {
+                post.setHeader("Accept", RemotingSerialization.getAcceptHeader(getContentType()));
+            }
+            try {
+                HttpResponse response = executeHttpPost(config, getHttpClient(), post);
+                try {
+                    if (body instanceof RemotingSerialization.KryoBuffer
+                            && ((RemotingSerialization.KryoBuffer) body).getSource() != null
+                            && response.getStatusLine().getStatusCode() == HttpStatus.SC_UNSUPPORTED_MEDIA_TYPE) {
+                        log.debug("{} does not accept Kryo, repeat the request in the default format", url);
+                        RemotingSerialization.setKryoAccepted(serverUrl, false);
+                        continue;
+                    }
+                    validateResponse(config, response);
+                    if (acceptsCompressedRequests(response)) {
+                        compressingServers.add(serverUrl);
+                    }
+
+                    serverSelector.success(context);
+                    lastServerUrl = serverUrl;
+
+                    CountingInputStream responseInputStream = new CountingInputStream(getResponseBody(config, response));
+                    RemoteInvocationResult result;
+                    Header contentType = response.getEntity().getContentType();
+                    if (contentType != null && RemotingSerialization.isKryoContentType(contentType.getValue())) {
+                        RemotingSerialization.setKryoAccepted(serverUrl, true);
+                        try (InputStream is = decorateInputStream(responseInputStream)) {
+                            result = (RemoteInvocationResult) RemotingSerialization.readKryo(is);
+                        }
+                    } else {
+                        result = readRemoteInvocationResult(responseInputStream, config.getCodebaseUrl());
+                    }
+                    RemotingCallStatistics.getInstance().record(config.getServiceUrl(),
+                            System.nanoTime() - start, body.size(), responseInputStream.getCount());
+                    return result;
+                } finally {
+                    EntityUtils.consumeQuietly(response.getEntity());
+                }
+            } catch (IOException e) {
+                log.info(String.format("Invocation of %s failed: %s", url, e));
+
+                serverSelector.fail(context);
+                serverUrl = serverSelector.getUrl(context);
+                if (serverUrl != null) {
+                    log.info("Trying to invoke the next available URL: " + serverUrl + "/" + config.getServiceUrl());
+                    continue;
+                }
+                log.info("No more URL available");
+                RemotingCallStatistics.getInstance().record(config.getServiceUrl(),
+                        System.nanoTime() - start, body.size(), -1);
+                throw e;
+            } finally {
+                post.releaseConnection();
+            }
+        }
+    }
+
+    protected void setRequestBody(HttpPost httpPost, ByteArrayOutputStream baos, boolean compressionAccepted) {
+        AbstractHttpEntity entity;
+        if (compressionAccepted && compressionThreshold > 0 && baos.size() >= compressionThreshold) {
+            entity = new EntityTemplate(out -> {
+                GZIPOutputStream gzip = new GZIPOutputStream(out, 8192);
+                baos.writeTo(gzip);
+                gzip.finish();
+            });
+            entity.setContentEncoding(ENCODING_GZIP);
+        } else {
+            entity = new BufferEntity(baos);
+        }
+        entity.setContentType(baos instanceof RemotingSerialization.KryoBuffer
+                ? RemotingSerialization.KRYO_CONTENT_TYPE : getContentType());
+        httpPost.setEntity(entity);
+    }
+
+    protected boolean acceptsCompressedRequests(HttpResponse response) {
+        // servers advertise accepted request encodings by the Accept-Encoding response header, see RFC 7694
+        Header header = response.getFirstHeader(HTTP_HEADER_ACCEPT_ENCODING);
+        return header != null && header.getValue() != null && header.getValue().toLowerCase().contains(ENCODING_GZIP);
+    }
+
+    @Override
+    protected ByteArrayOutputStream getByteArrayOutputStream(RemoteInvocation invocation) throws IOException {
+        if (kryoEnabled && RemotingSerialization.isKryoAccepted(lastServerUrl)) {
+            ByteArrayOutputStream baos = new RemotingSerialization.KryoBuffer(SERIALIZED_INVOCATION_BYTE_ARRAY_INITIAL_SIZE,
+                    invocation);
+            RemotingSerialization.writeKryo(invocation, baos);
+            return baos;
+        }
+        return super.getByteArrayOutputStream(invocation);
+    }
+
+    /**
+     * Returns the invocation serialized in the default format if it is serialized in Kryo, but the server has not
+     * answered in Kryo yet, e.g. after failover to another server.
+     */
+    protected ByteArrayOutputStream getRequestBody(String serverUrl, ByteArrayOutputStream baos) throws IOException {
+        if (baos instanceof RemotingSerialization.KryoBuffer && !RemotingSerialization.isKryoAccepted(serverUrl)) {
+            RemoteInvocation invocation = (RemoteInvocation) ((RemotingSerialization.KryoBuffer) baos).getSource();
+            if (invocation != null) {
+                return super.getByteArrayOutputStream(invocation);
+            }
+        }
+        return baos;
+    }
+
+    @Override
+    protected void doWriteRemoteInvocation(RemoteInvocation invocation, ObjectOutputStream oos) throws IOException {
+        SerializationSupport.serialize(invocation, oos);
+    }
+
+    @Override
+    protected RemoteInvocationResult doReadRemoteInvocationResult(ObjectInputStream ois) throws IOException, ClassNotFoundException {
+        return (RemoteInvocationResult) SerializationSupport.deserialize(ois);
+    }
+
+    /**
+     * Writes the serialized invocation straight from the buffer it was serialized to, without copying it.
+     */
+    protected static class BufferEntity extends AbstractHttpEntity {
+
+        private final ByteArrayOutputStream buffer;
+
+        public BufferEntity(ByteArrayOutputStream buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return true;
+        }
+
+        @Override
+        public long getContentLength() {
+            return buffer.size();
+        }
+
+        @Override
+        public InputStream getContent() {
+            return new ByteArrayInputStream(buffer.toByteArray());
+        }
+
+        @Override
+        public void writeTo(OutputStream outStream) throws IOException {
+            buffer.writeTo(outStream);
+        }
+
+        @Override
+        public boolean isStreaming() {
+            return false;
+        }
+    }
+}
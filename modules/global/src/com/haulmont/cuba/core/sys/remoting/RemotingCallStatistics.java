@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys.remoting;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects latency and payload size histograms of remote service calls made by the client tier.
+ */
+public class RemotingCallStatistics {
+
+    protected static final RemotingCallStatistics INSTANCE = new RemotingCallStatistics();
+
+    /**
+     * Upper bounds of latency buckets, ms. The last bucket holds all slower calls.
+     */
+    protected static final long[] LATENCY_BOUNDS = {1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000};
+
+    /**
+     * Upper bounds of payload size buckets, bytes. The last bucket holds all larger payloads.
+     */
+    protected static final long[] SIZE_BOUNDS = {1024, 4096, 16384, 65536, 262144, 1048576, 4194304};
+
+    protected ConcurrentMap<String, ServiceStat> stats = new ConcurrentHashMap<>();
+
+    public static RemotingCallStatistics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Registers a completed call.
+     *
+     * @param service      service name
+     * @param nanos        call duration including failover attempts
+     * @param requestSize  size of the serialized invocation, bytes
+     * @param responseSize size of the received result, bytes, or -1 if the call failed
+     */
+    public void record(String service, long nanos, long requestSize, long responseSize) {
+        ServiceStat stat = stats.computeIfAbsent(service, s -> new ServiceStat());
+        stat.count.increment();
+        stat.totalNanos.add(nanos);
+        stat.latency.incrementAndGet(bucket(LATENCY_BOUNDS, nanos / 1_000_000));
+        stat.requestSize.incrementAndGet(bucket(SIZE_BOUNDS, requestSize));
+        if (responseSize >= 0) {
+            stat.responseSize.incrementAndGet(bucket(SIZE_BOUNDS, responseSize));
+        } else {
+            stat.errors.increment();
+        }
+    }
+
+    public void reset() {
+        stats.clear();
+    }
+
+    public String print() {
+        StringBuilder sb = new StringBuilder();
+        Map<String, ServiceStat> sorted = new TreeMap<>(stats);
+        for (Map.Entry<String, ServiceStat> entry : sorted.entrySet()) {
+            ServiceStat stat = entry.getValue();
+            long count = stat.count.sum();
+            sb.append(entry.getKey())
+                    .append(": calls=").append(count)
+                    .append(", errors=").append(stat.errors.sum())
+                    .append(", avgTime=").append(count == 0 ? 0 : stat.totalNanos.sum() / count / 1_000_000).append("ms\n");
+            printHistogram(sb, "  time, ms", LATENCY_BOUNDS, stat.latency);
+            printHistogram(sb, "  request, bytes", SIZE_BOUNDS, stat.requestSize);
+            printHistogram(sb, "  response, bytes", SIZE_BOUNDS, stat.responseSize);
+        }
+        return sb.toString();
+    }
+
+    protected void printHistogram(StringBuilder sb, String caption, long[] bounds, AtomicLongArray buckets) {
+        sb.append(caption).append(":");
+        for (int i = 0; i < buckets.length(); i++) {
+            long value = buckets.get(i);
+            if (value == 0) {
+                continue;
+            }
+            sb.append(" ").append(i < bounds.length ? "<=" + bounds[i] : ">" + bounds[bounds.length - 1])
+                    .append("=").append(value);
+        }
+        sb.append("\n");
+    }
+
+    protected static int bucket(long[] bounds, long value) {
+        for (int i = 0; i < bounds.length; i++) {
+            if (value <= bounds[i]) {
+                return i;
+            }
+        }
+        return bounds.length;
+    }
+
+    protected static class ServiceStat {
+        protected final LongAdder count = new LongAdder();
+        protected final LongAdder errors = new LongAdder();
+        protected final LongAdder totalNanos = new LongAdder();
+        protected final AtomicLongArray latency = new AtomicLongArray(LATENCY_BOUNDS.length + 1);
+        protected final AtomicLongArray requestSize = new AtomicLongArray(SIZE_BOUNDS.length + 1);
+        protected final AtomicLongArray responseSize = new AtomicLongArray(SIZE_BOUNDS.length + 1);
+    }
+}
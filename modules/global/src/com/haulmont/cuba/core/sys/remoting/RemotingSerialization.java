@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys.remoting;
+
+import com.haulmont.cuba.core.sys.AppContext;
+import com.haulmont.cuba.core.sys.serialization.SerializationSupport;
+
+import javax.annotation.Nullable;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Wire formats of service remoting.
+ * <p>
+ * By default, invocations and results are transferred using the serialization defined by
+ * {@code cuba.serialization.impl} inside a Java serialization stream. If {@code cuba.remotingKryoSerialization}
+ * app property is set to true on both tiers, the format is negotiated by content types:
+ * <ul>
+ *     <li>The client lists {@link #KRYO_CONTENT_TYPE} in the {@code Accept} header of its requests.</li>
+ *     <li>The server answers in Kryo if the client accepts it, otherwise it falls back to the default format.</li>
+ *     <li>After receiving a Kryo response from a server, the client sends its further requests to this server
+ *     in Kryo too. Servers are tracked by their URLs, so requests to other servers, e.g. after failover, are sent
+ *     in the default format until these servers answer in Kryo.</li>
+ *     <li>A server with Kryo disabled rejects Kryo requests with {@code 415 Unsupported Media Type}, and the client
+ *     repeats the request in the default format.</li>
+ * </ul>
+ * Kryo instances are borrowed from the pool of {@link SerializationSupport#getKryoSerialization()}.
+ */
+public final class RemotingSerialization {
+
+    public static final String KRYO_CONTENT_TYPE = "application/x-cuba-kryo";
+
+    /**
+     * Base URLs of servers which have answered in Kryo.
+     */
+    private static final Set<String> kryoServers = ConcurrentHashMap.newKeySet();
+
+    private RemotingSerialization() {
+    }
+
+    public static boolean isKryoEnabled() {
+        return Boolean.parseBoolean(AppContext.getProperty("cuba.remotingKryoSerialization"));
+    }
+
+    public static boolean isKryoContentType(@Nullable String contentType) {
+        return contentType != null && contentType.startsWith(KRYO_CONTENT_TYPE);
+    }
+
+    public static boolean acceptsKryo(@Nullable String accept) {
+        return accept != null && accept.contains(KRYO_CONTENT_TYPE);
+    }
+
+    /**
+     * @param defaultContentType content type of the default format
+     * @return value of the {@code Accept} header of a client that prefers Kryo
+     */
+    public static String getAcceptHeader(String defaultContentType) {
+        return KRYO_CONTENT_TYPE + ", " + defaultContentType;
+    }
+
+    /**
+     * Tells whether requests to the server can be sent in Kryo.
+     *
+     * @param serverUrl base URL of the server
+     */
+    public static boolean isKryoAccepted(@Nullable String serverUrl) {
+        return serverUrl != null && kryoServers.contains(serverUrl);
+    }
+
+    /**
+     * Registers whether the server accepts requests in Kryo.
+     *
+     * @param serverUrl base URL of the server
+     * @param accepted  true if the server has answered in Kryo, false if it has rejected a Kryo request
+     */
+    public static void setKryoAccepted(String serverUrl, boolean accepted) {
+        if (accepted) {
+            kryoServers.add(serverUrl);
+        } else {
+            kryoServers.remove(serverUrl);
+        }
+    }
+
+    public static void writeKryo(Object object, OutputStream os) {
+        SerializationSupport.getKryoSerialization().serialize(object, os);
+    }
+
+    public static Object readKryo(InputStream is) {
+        return SerializationSupport.getKryoSerialization().deserialize(is);
+    }
+
+    /**
+     * Buffer of an invocation serialized by Kryo.
+     */
+    public static class KryoBuffer extends ByteArrayOutputStream {
+
+        protected Object source;
+
+        public KryoBuffer(int size) {
+            super(size);
+        }
+
+        public KryoBuffer(int size, @Nullable Object source) {
+            super(size);
+            this.source = source;
+        }
+
+        /**
+         * @return serialized object, so it can be serialized again in another format
+         */
+        @Nullable
+        public Object getSource() {
+            return source;
+        }
+    }
+}
@@ -28,6 +28,7 @@ import com.haulmont.cuba.gui.components.actions.ListAction;
 import com.haulmont.cuba.gui.components.data.meta.ContainerDataUnit;
 import com.haulmont.cuba.gui.export.ExcelExporter;
 import com.haulmont.cuba.gui.export.ExportDisplay;
+import com.haulmont.cuba.gui.export.StreamingExcelExporter;
 import com.haulmont.cuba.gui.icons.CubaIcon;
 import com.haulmont.cuba.gui.icons.Icons;
 import com.haulmont.cuba.gui.meta.StudioAction;
@@ -59,6 +60,11 @@ public class ExcelAction extends ListAction {
      */
     protected boolean exportAggregation = true;
 
+    /**
+     * If true, all rows of a table are exported to XLSX file by {@link StreamingExcelExporter}.
+     */
+    protected boolean streaming = false;
+
     public ExcelAction() {
         super(ID);
     }
@@ -154,6 +160,15 @@ public class ExcelAction extends ListAction {
         this.exportAggregation = exportAggregation;
     }
 
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    @StudioPropertiesItem(defaultValue = "false")
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
     public String getFileName() {
         return fileName;
     }
@@ -167,6 +182,11 @@ public class ExcelAction extends ListAction {
      * Export via {@link ExcelExporter}.
      */
     protected void export(ExcelExporter.ExportMode exportMode) {
+        if (streaming && exportMode == ExcelExporter.ExportMode.ALL_ROWS && target instanceof Table) {
+            exportStreaming();
+            return;
+        }
+
         ExcelExporter exporter = new ExcelExporter();
         exporter.setExportAggregation(exportAggregation);
 
@@ -199,4 +219,18 @@ public class ExcelAction extends ListAction {
                     .show();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Export all rows of the table via {@link StreamingExcelExporter}.
+     */
+    protected void exportStreaming() {
+        StreamingExcelExporter exporter = new StreamingExcelExporter();
+
+        ExportDisplay display = beanLocator.get(ExportDisplay.NAME);
+        display.setFrame(ComponentsHelper.getWindowNN(target));
+
+        @SuppressWarnings("unchecked")
+        Table<Entity> table = (Table<Entity>) target;
+        exporter.exportTable(table, table.getNotCollapsedColumns(), display, fileName);
+    }
+}
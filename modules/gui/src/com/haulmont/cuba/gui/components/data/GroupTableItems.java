@@ -100,4 +100,21 @@ public interface GroupTableItems<I> extends TableItems.Sortable<I> {
      * Indicates that a group is contained in the groups tree
      */
     boolean containsGroup(GroupInfo groupId);
+
+    /**
+     * Invoked by the table before the group is expanded. Implementations which load items of groups lazily
+     * load the items of the group here.
+     */
+    default void beforeExpand(GroupInfo groupId) {
+    }
+
+    /**
+     * Invoked by the table before all groups are expanded. Implementations which load items of groups lazily
+     * load the items of the groups here.
+     */
+    default void beforeExpandAll(Collection<GroupInfo> groupIds) {
+        for (GroupInfo groupId : groupIds) {
+            beforeExpand(groupId);
+        }
+    }
 }
\ No newline at end of file
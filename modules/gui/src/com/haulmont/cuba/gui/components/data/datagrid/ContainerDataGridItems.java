@@ -31,13 +31,16 @@ import com.haulmont.cuba.gui.components.data.meta.EntityDataGridItems;
 import com.haulmont.cuba.gui.data.impl.AggregatableDelegate;
 import com.haulmont.cuba.gui.model.CollectionContainer;
 import com.haulmont.cuba.gui.model.CollectionLoader;
+import com.haulmont.cuba.gui.model.DataLoader;
 import com.haulmont.cuba.gui.model.HasLoader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Consumer;
@@ -243,6 +246,26 @@ public class ContainerDataGridItems<E extends Entity>
             public Object getItemValue(MetaPropertyPath property, Object itemId) {
                 return container.getItem(itemId).getValueEx(property);
             }
+
+            @Override
+            protected Map<AggregationInfo, Object> aggregateInDatabase(AggregationInfo[] aggregationInfos,
+                                                                       Collection itemIds) {
+                return ContainerDataGridItems.this.aggregateInDatabase(aggregationInfos, itemIds);
+            }
         };
     }
+
+    /**
+     * Calculates aggregations by the loader of the container if it is in the database aggregation mode. The database
+     * calculates totals of the whole result set, so it is used only when all items of the container are aggregated.
+     */
+    protected Map<AggregationInfo, Object> aggregateInDatabase(AggregationInfo[] aggregationInfos, Collection<?> itemIds) {
+        if (container instanceof HasLoader && itemIds.size() == container.getItems().size()) {
+            DataLoader loader = ((HasLoader) container).getLoader();
+            if (loader instanceof CollectionLoader && ((CollectionLoader) loader).isDatabaseAggregation()) {
+                return ((CollectionLoader<?>) loader).aggregate(Arrays.asList(aggregationInfos));
+            }
+        }
+        return Collections.emptyMap();
+    }
 }
\ No newline at end of file
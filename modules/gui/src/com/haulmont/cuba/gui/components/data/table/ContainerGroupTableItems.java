@@ -20,9 +20,11 @@ import com.google.common.collect.ImmutableList;
 import com.haulmont.bali.util.Preconditions;
 import com.haulmont.chile.core.model.MetaPropertyPath;
 import com.haulmont.cuba.core.entity.Entity;
+import com.haulmont.cuba.core.global.AppBeans;
+import com.haulmont.cuba.core.global.LoadContext;
 import com.haulmont.cuba.gui.components.data.GroupTableItems;
 import com.haulmont.cuba.gui.data.GroupInfo;
-import com.haulmont.cuba.gui.model.CollectionContainer;
+import com.haulmont.cuba.gui.model.*;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.collections4.map.LinkedMap;
 import org.apache.commons.lang3.ArrayUtils;
@@ -52,6 +54,16 @@ public class ContainerGroupTableItems<E extends Entity<K>, K>
     protected Object[] sortProperties;
     protected boolean[] sortAscending;
 
+    // state of database grouping, see CollectionLoader#isDatabaseGrouping()
+    protected Map<GroupInfo, Integer> groupCounts;
+    protected Map<List<Object>, GroupInfo> leafGroups;
+    // number of database entities of a leaf group requested so far
+    protected Map<GroupInfo, Integer> groupOffsets;
+    protected Object[] databaseGroupProperties;
+    protected boolean databaseGroupsStale = true;
+    protected CollectionLoader<E> groupingLoader;
+    protected int groupItemsPageSize = 100;
+
     public ContainerGroupTableItems(CollectionContainer<E> container) {
         super(container);
     }
@@ -81,6 +93,7 @@ public class ContainerGroupTableItems<E extends Entity<K>, K>
                     children = null;
                     groupItems = null;
                     itemGroups = null;
+                    groupCounts = null;
                 }
             }
         } finally {
@@ -92,6 +105,14 @@ public class ContainerGroupTableItems<E extends Entity<K>, K>
     }
 
     protected void doGroup() {
+        CollectionLoader<E> loader = getDatabaseGroupingLoader();
+        if (loader != null && getDatabaseGroupingSupport().isSupported(container.getEntityMetaClass(),
+                getGroupPropertyPaths())) {
+            doDatabaseGroup(loader);
+            return;
+        }
+
+        groupCounts = null;
         roots = new LinkedList<>();
         parents = new LinkedHashMap<>();
         children = new LinkedHashMap<>();
@@ -110,6 +131,271 @@ public class ContainerGroupTableItems<E extends Entity<K>, K>
         }
     }
 
+    /**
+     * Builds the tree of groups from the database, and places the loaded items to their groups. The groups are
+     * queried again only after the loader starts loading or if the grouping properties are changed.
+     */
+    protected void doDatabaseGroup(CollectionLoader<E> loader) {
+        if (groupingLoader != loader) {
+            groupingLoader = loader;
+            loader.addPreLoadListener(event -> databaseGroupsStale = true);
+            databaseGroupsStale = true;
+        }
+
+        DatabaseGroupingSupport groupingSupport = getDatabaseGroupingSupport();
+        List<MetaPropertyPath> properties = getGroupPropertyPaths();
+
+        if (databaseGroupsStale || groupCounts == null || !Arrays.equals(groupProperties, databaseGroupProperties)) {
+            roots = new LinkedList<>();
+            parents = new LinkedHashMap<>();
+            children = new LinkedHashMap<>();
+            groupCounts = new HashMap<>();
+            leafGroups = new HashMap<>();
+            groupOffsets = new HashMap<>();
+
+            LoadContext<E> loadContext = loader.createLoadContext();
+            List<DatabaseGroupingSupport.GroupRow> rows = groupingSupport.loadGroups(container.getEntityMetaClass(),
+                    loadContext, properties);
+            for (DatabaseGroupingSupport.GroupRow row : rows) {
+                LinkedMap<MetaPropertyPath, Object> groupValues = new LinkedMap<>();
+                GroupInfo parent = null;
+                List<GroupInfo> siblings = roots;
+                for (int i = 0; i < properties.size(); i++) {
+                    groupValues.put(properties.get(i), row.getValues().get(i));
+                    GroupInfo<MetaPropertyPath> groupInfo = new GroupInfo<>(groupValues);
+                    if (!parents.containsKey(groupInfo)) {
+                        parents.put(groupInfo, parent);
+                        siblings.add(groupInfo);
+                    }
+                    groupCounts.merge(groupInfo, row.getCount(), Integer::sum);
+
+                    siblings = children.computeIfAbsent(groupInfo, k -> new ArrayList<>());
+                    parent = groupInfo;
+                }
+                leafGroups.put(groupingSupport.getGroupKey(row.getValues()), parent);
+            }
+
+            databaseGroupProperties = groupProperties;
+            databaseGroupsStale = false;
+        }
+
+        groupItems = new HashMap<>();
+        itemGroups = new HashMap<>();
+        for (E item : container.getItems()) {
+            List<Object> values = new ArrayList<>(properties.size());
+            for (MetaPropertyPath property : properties) {
+                values.add(getValueByProperty(item, property));
+            }
+
+            GroupInfo groupInfo = leafGroups.get(groupingSupport.getGroupKey(values));
+            if (groupInfo != null) {
+                itemGroups.put(item.getId(), groupInfo);
+            } else {
+                // the item is not in the database, e.g. it has been created or changed in the screen
+                groupInfo = groupItems(0, null, roots, item, new LinkedMap<>());
+            }
+            groupItems.computeIfAbsent(groupInfo, k -> new ArrayList<>()).add(item.getId());
+        }
+    }
+
+    /**
+     * Loads the next page of items of the leaf group if the groups are obtained from the database. So the first
+     * expanding of the group loads the first page, and each next expanding after collapsing loads one more page
+     * until the group is fully loaded.
+     */
+    @Override
+    public void beforeExpand(GroupInfo groupId) {
+        loadNextGroupItems(groupId);
+    }
+
+    /**
+     * Loads the first page of items of the leaf groups which are obtained from the database and are not loaded
+     * yet, by one query for all groups.
+     */
+    @Override
+    public void beforeExpandAll(Collection<GroupInfo> groupIds) {
+        loadFirstGroupsItems(groupIds);
+    }
+
+    /**
+     * Loads the next page of items of the leaf group obtained from the database.
+     *
+     * @param groupId leaf group
+     * @return true if the items have been loaded, false if the group is not obtained from the database
+     * or it is already fully loaded
+     */
+    public boolean loadNextGroupItems(GroupInfo groupId) {
+        CollectionLoader<E> loader = getDatabaseGroupingLoader();
+        if (loader == null || groupCounts == null || !containsGroup(groupId) || hasChildren(groupId)
+                || isGroupFullyLoaded(groupId)) {
+            return false;
+        }
+
+        int offset = groupOffsets.getOrDefault(groupId, 0);
+        List<E> entities = getDatabaseGroupingSupport().loadGroupItems(loader.createLoadContext(),
+                getGroupValues(groupId), offset, groupItemsPageSize);
+        groupOffsets.put(groupId, entities.size() < groupItemsPageSize
+                ? groupCounts.getOrDefault(groupId, 0)
+                : offset + entities.size());
+
+        addLoadedItems(loader, entities);
+        return true;
+    }
+
+    /**
+     * Loads the first page of items of the leaf groups obtained from the database, which have not been loaded yet,
+     * by one query. The query loads up to a page per group, so a group gets less than a page if the other
+     * groups take the place of its items. A group which gets no items is loaded when it is expanded next time.
+     *
+     * @param groupIds groups to load, groups which are not leaf groups obtained from the database are skipped
+     */
+    public void loadFirstGroupsItems(Collection<GroupInfo> groupIds) {
+        CollectionLoader<E> loader = getDatabaseGroupingLoader();
+        if (loader == null || groupCounts == null) {
+            return;
+        }
+
+        List<GroupInfo> groupsToLoad = groupIds.stream()
+                .filter(groupId -> containsGroup(groupId) && !hasChildren(groupId)
+                        && !groupOffsets.containsKey(groupId) && !isGroupFullyLoaded(groupId))
+                .collect(Collectors.toList());
+        if (groupsToLoad.size() <= 1) {
+            groupsToLoad.forEach(this::loadNextGroupItems);
+            return;
+        }
+
+        DatabaseGroupingSupport groupingSupport = getDatabaseGroupingSupport();
+        List<Map<MetaPropertyPath, Object>> groupsValues = groupsToLoad.stream()
+                .map(this::getGroupValues)
+                .collect(Collectors.toList());
+        int maxResults = groupItemsPageSize * groupsToLoad.size();
+        List<E> entities = groupingSupport.loadGroupsItems(loader.createLoadContext(), groupsValues, maxResults);
+
+        // entities of each group come in the order of its pages, so the first ones form the first page
+        List<MetaPropertyPath> properties = getGroupPropertyPaths();
+        Map<GroupInfo, List<E>> entitiesByGroup = new HashMap<>();
+        for (E entity : entities) {
+            List<Object> values = new ArrayList<>(properties.size());
+            for (MetaPropertyPath property : properties) {
+                values.add(getValueByProperty(entity, property));
+            }
+            GroupInfo groupId = leafGroups.get(groupingSupport.getGroupKey(values));
+            if (groupId != null) {
+                List<E> groupEntities = entitiesByGroup.computeIfAbsent(groupId, k -> new ArrayList<>());
+                if (groupEntities.size() < groupItemsPageSize) {
+                    groupEntities.add(entity);
+                }
+            }
+        }
+
+        boolean allLoaded = entities.size() < maxResults;
+        List<E> loadedEntities = new ArrayList<>(entities.size());
+        for (GroupInfo groupId : groupsToLoad) {
+            List<E> groupEntities = entitiesByGroup.getOrDefault(groupId, Collections.emptyList());
+            if (groupEntities.isEmpty() && !allLoaded) {
+                continue;
+            }
+            groupOffsets.put(groupId, allLoaded && groupEntities.size() < groupItemsPageSize
+                    ? groupCounts.getOrDefault(groupId, 0)
+                    : groupEntities.size());
+            loadedEntities.addAll(groupEntities);
+        }
+
+        addLoadedItems(loader, loadedEntities);
+    }
+
+    protected Map<MetaPropertyPath, Object> getGroupValues(GroupInfo groupId) {
+        Map<MetaPropertyPath, Object> groupValues = new LinkedHashMap<>();
+        for (MetaPropertyPath property : getGroupPropertyPaths()) {
+            //noinspection unchecked
+            groupValues.put(property, groupId.getPropertyValue(property));
+        }
+        return groupValues;
+    }
+
+    protected void addLoadedItems(CollectionLoader<E> loader, List<E> entities) {
+        DataContext dataContext = loader.getDataContext();
+        List<E> newItems = new ArrayList<>(entities.size());
+        for (E entity : entities) {
+            if (container.getItemOrNull(entity.getId()) == null) {
+                newItems.add(dataContext != null ? dataContext.merge(entity) : entity);
+            }
+        }
+        if (!newItems.isEmpty()) {
+            container.getMutableItems().addAll(newItems);
+        }
+    }
+
+    /**
+     * Tells whether all items of the group are loaded. Groups which are not obtained from the database are
+     * always fully loaded.
+     */
+    public boolean isGroupFullyLoaded(GroupInfo groupId) {
+        if (groupCounts == null || !groupCounts.containsKey(groupId)) {
+            return true;
+        }
+        if (hasChildren(groupId)) {
+            for (GroupInfo child : getChildrenInternal(groupId)) {
+                if (!isGroupFullyLoaded(child)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        int count = groupCounts.get(groupId);
+        return groupOffsets.getOrDefault(groupId, 0) >= count
+                || groupItems.getOrDefault(groupId, Collections.emptyList()).size() >= count;
+    }
+
+    /**
+     * Returns the number of entities of the group in the database if the groups are obtained from the database,
+     * otherwise the number of items in the group.
+     */
+    public int getGroupTotalCount(GroupInfo groupId) {
+        if (groupCounts != null && groupCounts.containsKey(groupId)) {
+            return groupCounts.get(groupId);
+        }
+        return getGroupItemsCount(groupId);
+    }
+
+    /**
+     * Returns the maximum number of items loaded at once for a group obtained from the database.
+     */
+    public int getGroupItemsPageSize() {
+        return groupItemsPageSize;
+    }
+
+    /**
+     * Sets the maximum number of items loaded at once for a group obtained from the database.
+     */
+    public void setGroupItemsPageSize(int groupItemsPageSize) {
+        this.groupItemsPageSize = groupItemsPageSize;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Nullable
+    protected CollectionLoader<E> getDatabaseGroupingLoader() {
+        if (container instanceof HasLoader) {
+            DataLoader loader = ((HasLoader) container).getLoader();
+            if (loader instanceof CollectionLoader && ((CollectionLoader) loader).isDatabaseGrouping()) {
+                return (CollectionLoader<E>) loader;
+            }
+        }
+        return null;
+    }
+
+    protected DatabaseGroupingSupport getDatabaseGroupingSupport() {
+        return AppBeans.get(DatabaseGroupingSupport.NAME);
+    }
+
+    protected List<MetaPropertyPath> getGroupPropertyPaths() {
+        List<MetaPropertyPath> properties = new ArrayList<>(groupProperties.length);
+        for (Object groupProperty : groupProperties) {
+            properties.add((MetaPropertyPath) groupProperty);
+        }
+        return properties;
+    }
+
     @Nullable
     protected GroupInfo<MetaPropertyPath> groupItems(int propertyIndex, @Nullable GroupInfo parent, List<GroupInfo> children,
                                                      E item, LinkedMap<MetaPropertyPath, Object> groupValues) {
@@ -291,8 +577,16 @@ public class ContainerGroupTableItems<E extends Entity<K>, K>
         return Collections.emptyList();
     }
 
+    /**
+     * Returns the number of items of the group in the container. For groups obtained from the database, it is
+     * the number of entities in the database only when the group is fully loaded, see
+     * {@link #getGroupTotalCount(GroupInfo)}.
+     */
     @Override
     public int getGroupItemsCount(GroupInfo groupId) {
+        if (groupCounts != null && groupCounts.containsKey(groupId) && isGroupFullyLoaded(groupId)) {
+            return groupCounts.get(groupId);
+        }
         if (containsGroup(groupId)) {
             List<K> itemIds;
             if ((itemIds = groupItems.get(groupId)) == null) {
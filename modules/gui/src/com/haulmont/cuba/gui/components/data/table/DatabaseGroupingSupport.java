@@ -0,0 +1,376 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.haulmont.cuba.gui.components.data.table;
+
+import com.haulmont.chile.core.datatypes.impl.EnumClass;
+import com.haulmont.chile.core.model.MetaClass;
+import com.haulmont.chile.core.model.MetaProperty;
+import com.haulmont.chile.core.model.MetaPropertyPath;
+import com.haulmont.chile.core.model.Range;
+import com.haulmont.cuba.core.entity.Entity;
+import com.haulmont.cuba.core.entity.KeyValueEntity;
+import com.haulmont.cuba.core.global.*;
+import com.haulmont.cuba.core.global.queryconditions.JpqlCondition;
+import com.haulmont.cuba.core.global.queryconditions.LogicalCondition;
+import com.haulmont.cuba.gui.data.aggregation.DatabaseAggregationSupport;
+import org.springframework.stereotype.Component;
+
+import javax.inject.Inject;
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Obtains groups of a group table by a {@code GROUP BY} query and loads items of groups, so the table
+ * can show all groups with their sizes without loading all entities of the load query.
+ *
+ * @see ContainerGroupTableItems
+ */
+@Component(DatabaseGroupingSupport.NAME)
+public class DatabaseGroupingSupport {
+
+    public static final String NAME = "cuba_DatabaseGroupingSupport";
+
+    protected static final String ENTITY_ALIAS = "grpE";
+    protected static final String GROUP_VALUE_PARAM = "cubaGroupValue";
+
+    /**
+     * Values of the grouping properties of a leaf group and the number of entities in it.
+     */
+    public static class GroupRow {
+
+        protected final List<Object> values;
+        protected final int count;
+
+        public GroupRow(List<Object> values, int count) {
+            this.values = values;
+            this.count = count;
+        }
+
+        /**
+         * @return values in the order of grouping properties. References are loaded entities, enumerations
+         * are constants of the enumeration.
+         */
+        public List<Object> getValues() {
+            return values;
+        }
+
+        public int getCount() {
+            return count;
+        }
+    }
+
+    @Inject
+    protected DataManager dataManager;
+
+    @Inject
+    protected Metadata metadata;
+
+    @Inject
+    protected MetadataTools metadataTools;
+
+    @Inject
+    protected QueryTransformerFactory queryTransformerFactory;
+
+    @Inject
+    protected DatabaseAggregationSupport aggregationSupport;
+
+    /**
+     * Tells whether entities can be grouped by the given properties in the database. All properties in the paths
+     * must be persistent and must not be collections.
+     */
+    public boolean isSupported(MetaClass metaClass, List<MetaPropertyPath> groupProperties) {
+        if (groupProperties.isEmpty() || !metadataTools.isPersistent(metaClass)) {
+            return false;
+        }
+        for (MetaPropertyPath propertyPath : groupProperties) {
+            for (MetaProperty property : propertyPath.getMetaProperties()) {
+                if (!metadataTools.isPersistent(property) || property.getRange().getCardinality().isMany()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Loads leaf groups of the load query result with the numbers of entities in them.
+     *
+     * @param metaClass       entity of the container
+     * @param loadContext     context of the load query, paging and sorting of the query are ignored
+     * @param groupProperties grouping properties
+     * @return leaf groups ordered by the values of grouping properties. Groups by references which cannot be
+     * loaded, e.g. due to access constraints, are not returned.
+     */
+    public List<GroupRow> loadGroups(MetaClass metaClass, LoadContext<?> loadContext,
+                                     List<MetaPropertyPath> groupProperties) {
+        String idQuery = aggregationSupport.createIdQuery(metaClass, loadContext);
+
+        StringBuilder joins = new StringBuilder();
+        List<String> expressions = new ArrayList<>(groupProperties.size());
+        for (int i = 0; i < groupProperties.size(); i++) {
+            expressions.add(createGroupExpression(groupProperties.get(i), i, joins));
+        }
+        String groupBy = String.join(", ", expressions);
+
+        String queryString = "select " + groupBy + ", count(" + ENTITY_ALIAS + ")"
+                + " from " + metaClass.getName() + " " + ENTITY_ALIAS + joins
+                + " where " + ENTITY_ALIAS + "." + metadataTools.getPrimaryKeyName(metaClass) + " in (" + idQuery + ")"
+                + " group by " + groupBy
+                + " order by " + groupBy;
+
+        ValueLoadContext context = ValueLoadContext.create()
+                .setQuery(ValueLoadContext.createQuery(queryString)
+                        .setParameters(aggregationSupport.getParameters(idQuery, loadContext)))
+                .setStoreName(metadataTools.getStoreName(metaClass))
+                .setSoftDeletion(loadContext.isSoftDeletion());
+        for (int i = 0; i < groupProperties.size(); i++) {
+            context.addProperty(getPropertyName(i));
+        }
+        context.addProperty("count");
+
+        List<KeyValueEntity> rows = dataManager.loadValues(context);
+
+        List<Map<Object, Object>> convertedValues = new ArrayList<>(groupProperties.size());
+        for (int i = 0; i < groupProperties.size(); i++) {
+            String property = getPropertyName(i);
+            List<Object> values = rows.stream()
+                    .map(row -> row.getValue(property))
+                    .collect(Collectors.toList());
+            convertedValues.add(convertValues(groupProperties.get(i), values));
+        }
+
+        List<GroupRow> result = new ArrayList<>(rows.size());
+        for (KeyValueEntity row : rows) {
+            List<Object> values = new ArrayList<>(groupProperties.size());
+            for (int i = 0; i < groupProperties.size(); i++) {
+                Object value = row.getValue(getPropertyName(i));
+                if (value != null && !convertedValues.get(i).containsKey(value)) {
+                    // a reference the user cannot read, it must not be mixed up with an empty reference
+                    values = null;
+                    break;
+                }
+                values.add(value != null ? convertedValues.get(i).get(value) : null);
+            }
+            if (values != null) {
+                Number count = row.getValue("count");
+                result.add(new GroupRow(values, count.intValue()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Loads a page of entities of a leaf group. Entities are ordered by the sort of the load query and then by
+     * the primary key, so the pages neither skip nor repeat entities with equal values of the sort properties.
+     *
+     * @param loadContext context of the load query, it is not modified
+     * @param groupValues values of grouping properties of the group
+     * @param firstResult index of the first entity in the group
+     * @param maxResults  maximum number of entities to load
+     * @return loaded entities
+     */
+    @SuppressWarnings("unchecked")
+    public <E extends Entity> List<E> loadGroupItems(LoadContext<E> loadContext,
+                                                     Map<MetaPropertyPath, Object> groupValues,
+                                                     int firstResult, int maxResults) {
+        LoadContext<E> groupContext = (LoadContext<E>) loadContext.copy();
+        LoadContext.Query query = groupContext.getQuery();
+
+        LogicalCondition condition = LogicalCondition.and();
+        if (query.getCondition() != null) {
+            condition.add(query.getCondition());
+        }
+        addGroupConditions(condition, query, groupValues, GROUP_VALUE_PARAM);
+
+        query.setCondition(condition);
+        query.setKeysetValues(null);
+        query.setFirstResult(firstResult);
+        query.setMaxResults(maxResults);
+        addPrimaryKeyOrder(groupContext);
+        return dataManager.loadList(groupContext);
+    }
+
+    /**
+     * Loads entities of several leaf groups by one query. Entities are ordered the same way as by
+     * {@link #loadGroupItems(LoadContext, Map, int, int)}, so the entities loaded for each group are the first
+     * entities of the group, and the next pages of the group can be loaded after them.
+     *
+     * @param loadContext  context of the load query, it is not modified
+     * @param groupsValues values of grouping properties of the groups
+     * @param maxResults   maximum number of entities to load for all groups
+     * @return loaded entities in the order of the groups' pages
+     */
+    @SuppressWarnings("unchecked")
+    public <E extends Entity> List<E> loadGroupsItems(LoadContext<E> loadContext,
+                                                      List<Map<MetaPropertyPath, Object>> groupsValues,
+                                                      int maxResults) {
+        LoadContext<E> groupsContext = (LoadContext<E>) loadContext.copy();
+        LoadContext.Query query = groupsContext.getQuery();
+
+        LogicalCondition groupsCondition = LogicalCondition.or();
+        for (int i = 0; i < groupsValues.size(); i++) {
+            LogicalCondition groupCondition = LogicalCondition.and();
+            addGroupConditions(groupCondition, query, groupsValues.get(i), GROUP_VALUE_PARAM + i + "_");
+            groupsCondition.add(groupCondition);
+        }
+
+        LogicalCondition condition = LogicalCondition.and();
+        if (query.getCondition() != null) {
+            condition.add(query.getCondition());
+        }
+        condition.add(groupsCondition);
+
+        query.setCondition(condition);
+        query.setKeysetValues(null);
+        query.setFirstResult(0);
+        query.setMaxResults(maxResults);
+        addPrimaryKeyOrder(groupsContext);
+        return dataManager.loadList(groupsContext);
+    }
+
+    protected void addGroupConditions(LogicalCondition condition, LoadContext.Query query,
+                                      Map<MetaPropertyPath, Object> groupValues, String paramPrefix) {
+        int index = 0;
+        for (Map.Entry<MetaPropertyPath, Object> entry : groupValues.entrySet()) {
+            String path = "{E}." + entry.getKey().toPathString();
+            if (entry.getValue() == null) {
+                condition.add(JpqlCondition.where(path + " is null"));
+            } else {
+                String paramName = paramPrefix + index++;
+                condition.add(JpqlCondition.where(path + " = :" + paramName));
+                query.setParameter(paramName, entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Appends the primary key to the order of the query if the query is not ordered by it. If the sort is not
+     * set, the key is appended to the order of the query string, otherwise to the sort.
+     */
+    protected void addPrimaryKeyOrder(LoadContext<?> loadContext) {
+        MetaClass metaClass = metadata.getClassNN(loadContext.getMetaClass());
+        String pkName = metadataTools.getPrimaryKeyName(metaClass);
+        if (pkName == null) {
+            return;
+        }
+
+        LoadContext.Query query = loadContext.getQuery();
+        Sort sort = query.getSort();
+        if (sort == null || sort.getOrders().isEmpty()) {
+            QueryTransformer transformer = queryTransformerFactory.transformer(query.getQueryString());
+            transformer.addOrderByIdIfNotExists(pkName);
+            query.setQueryString(transformer.getResult());
+        } else if (sort.getOrders().stream().noneMatch(order -> pkName.equals(order.getProperty()))) {
+            List<Sort.Order> orders = new ArrayList<>(sort.getOrders());
+            orders.add(Sort.Order.asc(pkName));
+            query.setSort(Sort.by(orders));
+        }
+    }
+
+    /**
+     * Returns a key which is equal for equal lists of grouping values, regardless of how the values were obtained:
+     * entities are compared by identifiers, enumerations by ids, dates by time.
+     */
+    public List<Object> getGroupKey(List<Object> values) {
+        List<Object> key = new ArrayList<>(values.size());
+        for (Object value : values) {
+            if (value instanceof Entity) {
+                key.add(((Entity) value).getId());
+            } else if (value instanceof EnumClass) {
+                key.add(((EnumClass) value).getId());
+            } else if (value instanceof Date) {
+                key.add(((Date) value).getTime());
+            } else if (value instanceof BigDecimal) {
+                key.add(((BigDecimal) value).stripTrailingZeros());
+            } else {
+                key.add(value);
+            }
+        }
+        return key;
+    }
+
+    /**
+     * Creates a select expression for the grouping property. References are selected by identifiers through
+     * left joins, so entities with empty references are grouped too.
+     */
+    protected String createGroupExpression(MetaPropertyPath propertyPath, int index, StringBuilder joins) {
+        String path = ENTITY_ALIAS;
+        MetaProperty[] properties = propertyPath.getMetaProperties();
+        for (int i = 0; i < properties.length; i++) {
+            MetaProperty property = properties[i];
+            path = path + "." + property.getName();
+            if (property.getRange().isClass() && !metadataTools.isEmbedded(property)) {
+                String alias = "grpJ" + index + "_" + i;
+                joins.append(" left join ").append(path).append(" ").append(alias);
+                path = alias;
+                if (i == properties.length - 1) {
+                    path = path + "." + metadataTools.getPrimaryKeyName(property.getRange().asClass());
+                }
+            }
+        }
+        return path;
+    }
+
+    /**
+     * Converts values selected by the group query to the values of the property: identifiers to entities
+     * and ids of enumerations to their constants.
+     *
+     * @return converted values by the selected values, it does not contain identifiers of entities which
+     * cannot be loaded
+     */
+    protected Map<Object, Object> convertValues(MetaPropertyPath propertyPath, List<Object> values) {
+        Map<Object, Object> result = new HashMap<>();
+        Range range = propertyPath.getRange();
+        if (range.isClass()) {
+            Set<Object> ids = values.stream().filter(Objects::nonNull).collect(Collectors.toSet());
+            if (!ids.isEmpty()) {
+                for (Entity entity : loadReferences(range.asClass(), ids)) {
+                    result.put(entity.getId(), entity);
+                }
+            }
+        } else if (range.isEnum()) {
+            for (Object constant : range.asEnumeration().getValues()) {
+                result.put(((EnumClass) constant).getId(), constant);
+            }
+            for (Object value : values) {
+                if (value instanceof EnumClass) {
+                    result.put(value, value);
+                }
+            }
+        } else {
+            for (Object value : values) {
+                result.put(value, value);
+            }
+        }
+        return result;
+    }
+
+    protected List<Entity> loadReferences(MetaClass metaClass, Collection<Object> ids) {
+        LoadContext<Entity> context = LoadContext.create(metaClass.getJavaClass());
+        context.setQueryString("select e from " + metaClass.getName() + " e where e."
+                + metadataTools.getPrimaryKeyName(metaClass) + " in :ids")
+                .setParameter("ids", new ArrayList<>(ids));
+        context.setView(View.MINIMAL);
+        // groups of entities referencing deleted instances are shown too
+        context.setSoftDeletion(false);
+        return dataManager.loadList(context);
+    }
+
+    protected String getPropertyName(int index) {
+        return "g" + index;
+    }
+}
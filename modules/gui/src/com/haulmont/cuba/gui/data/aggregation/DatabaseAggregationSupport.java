@@ -0,0 +1,247 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.haulmont.cuba.gui.data.aggregation;
+
+import com.haulmont.chile.core.model.MetaClass;
+import com.haulmont.chile.core.model.MetaProperty;
+import com.haulmont.chile.core.model.MetaPropertyPath;
+import com.haulmont.cuba.core.entity.KeyValueEntity;
+import com.haulmont.cuba.core.global.*;
+import com.haulmont.cuba.core.global.queryconditions.Condition;
+import com.haulmont.cuba.core.global.queryconditions.ConditionJpqlGenerator;
+import com.haulmont.cuba.gui.components.AggregationInfo;
+import org.springframework.stereotype.Component;
+
+import javax.inject.Inject;
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Calculates aggregations of a table or a data grid by a single aggregate query, so the totals cover the whole
+ * result set of the load query rather than the loaded page only.
+ * <p>The aggregate query selects from the entity of the container, restricted by the identifiers selected by the
+ * load query with its conditions, parameters and previous queries of the "apply to selected" filter mode. Only {@code SUM}, {@code AVG}, {@code COUNT}, {@code MIN} and
+ * {@code MAX} aggregations of persistent properties which are not collections can be calculated this way, see
+ * {@link #isSupported(MetaClass, AggregationInfo)}.</p>
+ */
+@Component(DatabaseAggregationSupport.NAME)
+public class DatabaseAggregationSupport {
+
+    public static final String NAME = "cuba_DatabaseAggregationSupport";
+
+    protected static final String ENTITY_ALIAS = "aggE";
+
+    protected static final String QUERY_RESULT_SESSION_PARAM = "_qr_sessionId";
+
+    @Inject
+    protected DataManager dataManager;
+
+    @Inject
+    protected MetadataTools metadataTools;
+
+    @Inject
+    protected QueryTransformerFactory queryTransformerFactory;
+
+    @Inject
+    protected ConditionJpqlGenerator conditionJpqlGenerator;
+
+    @Inject
+    protected UserSessionSource userSessionSource;
+
+    /**
+     * Tells whether the aggregation can be calculated by the database.
+     */
+    public boolean isSupported(MetaClass metaClass, AggregationInfo aggregationInfo) {
+        MetaPropertyPath propertyPath = aggregationInfo.getPropertyPath();
+        if (aggregationInfo.getType() == AggregationInfo.Type.CUSTOM
+                || aggregationInfo.getStrategy() != null
+                || propertyPath == null
+                || !metadataTools.isPersistent(metaClass)) {
+            return false;
+        }
+
+        for (MetaProperty property : propertyPath.getMetaProperties()) {
+            if (!metadataTools.isPersistent(property) || property.getRange().getCardinality().isMany()) {
+                return false;
+            }
+        }
+
+        Aggregation aggregation = Aggregations.get(propertyPath.getRangeJavaClass());
+        //noinspection unchecked
+        return aggregation != null && aggregation.getSupportedAggregationTypes().contains(aggregationInfo.getType());
+    }
+
+    /**
+     * Calculates supported aggregations by one query.
+     *
+     * @param metaClass        entity of the container
+     * @param loadContext      context of the load query, paging and sorting of the query are ignored
+     * @param aggregationInfos aggregations to calculate
+     * @return values by aggregation info, only for the aggregations which are supported
+     */
+    public Map<AggregationInfo, Object> aggregate(MetaClass metaClass, LoadContext<?> loadContext,
+                                                  Collection<AggregationInfo> aggregationInfos) {
+        List<AggregationInfo> supported = aggregationInfos.stream()
+                .filter(info -> isSupported(metaClass, info))
+                .collect(Collectors.toList());
+        if (supported.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        ValueLoadContext context = createValueLoadContext(metaClass, loadContext, supported);
+        KeyValueEntity row = dataManager.loadValues(context).stream().findFirst().orElse(null);
+
+        Map<AggregationInfo, Object> result = new HashMap<>(supported.size());
+        for (int i = 0; i < supported.size(); i++) {
+            AggregationInfo info = supported.get(i);
+            Object value = row != null ? row.getValue(getPropertyName(i)) : null;
+            result.put(info, convertValue(info, value));
+        }
+        return result;
+    }
+
+    protected ValueLoadContext createValueLoadContext(MetaClass metaClass, LoadContext<?> loadContext,
+                                                      List<AggregationInfo> aggregationInfos) {
+        String idQuery = createIdQuery(metaClass, loadContext);
+
+        StringBuilder sb = new StringBuilder("select ");
+        for (int i = 0; i < aggregationInfos.size(); i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            AggregationInfo info = aggregationInfos.get(i);
+            sb.append(info.getType().name().toLowerCase())
+                    .append("(").append(ENTITY_ALIAS).append(".").append(info.getPropertyPath().toPathString())
+                    .append(")");
+        }
+        sb.append(" from ").append(metaClass.getName()).append(" ").append(ENTITY_ALIAS)
+                .append(" where ").append(ENTITY_ALIAS).append(".").append(metadataTools.getPrimaryKeyName(metaClass))
+                .append(" in (").append(idQuery).append(")");
+
+        ValueLoadContext context = ValueLoadContext.create()
+                .setQuery(ValueLoadContext.createQuery(sb.toString()).setParameters(getParameters(idQuery, loadContext)))
+                .setStoreName(metadataTools.getStoreName(metaClass))
+                .setSoftDeletion(loadContext.isSoftDeletion());
+        for (int i = 0; i < aggregationInfos.size(); i++) {
+            context.addProperty(getPropertyName(i));
+        }
+        return context;
+    }
+
+    /**
+     * Turns the load query into a query selecting identifiers, with the conditions and the restriction by results
+     * of previous queries applied the same way as they are applied on the middleware. Paging, sorting and keyset
+     * values of the load query are ignored.
+     */
+    public String createIdQuery(MetaClass metaClass, LoadContext<?> loadContext) {
+        LoadContext.Query query = loadContext.getQuery();
+        String queryString = query.getQueryString();
+
+        Condition condition = query.getCondition();
+        if (condition != null) {
+            Set<String> nonNullParamNames = query.getParameters().entrySet().stream()
+                    .filter(e -> e.getValue() != null)
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toSet());
+            queryString = conditionJpqlGenerator.processQuery(queryString, condition.actualize(nonNullParamNames));
+        }
+
+        QueryTransformer transformer = queryTransformerFactory.transformer(queryString);
+        if (!loadContext.getPrevQueries().isEmpty()) {
+            restrictByPreviousResults(transformer, metaClass, loadContext.getQueryKey());
+        }
+        transformer.replaceWithSelectId(metadataTools.getPrimaryKeyName(metaClass));
+        transformer.removeOrderBy();
+        return transformer.getResult();
+    }
+
+    /**
+     * Restricts the query by the results of previous queries, which are saved by the middleware when the load
+     * query is executed.
+     *
+     * @see LoadContext#getPrevQueries()
+     */
+    protected void restrictByPreviousResults(QueryTransformer transformer, MetaClass metaClass, int queryKey) {
+        MetaProperty primaryKeyProperty = metadataTools.getPrimaryKeyProperty(metaClass);
+        if (primaryKeyProperty == null) {
+            throw new IllegalStateException("Entity without primary key: " + metaClass.getName());
+        }
+
+        Class<?> type = primaryKeyProperty.getJavaType();
+        String entityIdField;
+        if (UUID.class.equals(type)) {
+            entityIdField = "entityId";
+        } else if (Long.class.equals(type)) {
+            entityIdField = "longEntityId";
+        } else if (Integer.class.equals(type)) {
+            entityIdField = "intEntityId";
+        } else if (String.class.equals(type)) {
+            entityIdField = "stringEntityId";
+        } else {
+            throw new IllegalStateException(String.format("Unsupported primary key type: %s for %s",
+                    type.getSimpleName(), metaClass.getName()));
+        }
+
+        transformer.addJoinAndWhere(
+                ", sys$QueryResult _qr",
+                String.format("_qr.%s = {E}.%s and _qr.sessionId = :%s and _qr.queryKey = %s",
+                        entityIdField, primaryKeyProperty.getName(), QUERY_RESULT_SESSION_PARAM, queryKey)
+        );
+    }
+
+    /**
+     * Returns parameters of the load query which are used in the given query string.
+     */
+    public Map<String, Object> getParameters(String queryString, LoadContext<?> loadContext) {
+        Set<String> paramNames = queryTransformerFactory.parser(queryString).getParamNames();
+        Map<String, Object> parameters = new HashMap<>();
+        for (Map.Entry<String, Object> entry : loadContext.getQuery().getParameters().entrySet()) {
+            if (paramNames.contains(entry.getKey())) {
+                parameters.put(entry.getKey(), entry.getValue());
+            }
+        }
+        if (paramNames.contains(QUERY_RESULT_SESSION_PARAM)) {
+            parameters.put(QUERY_RESULT_SESSION_PARAM, userSessionSource.getUserSession().getId());
+        }
+        return parameters;
+    }
+
+    protected String getPropertyName(int index) {
+        return "a" + index;
+    }
+
+    protected Object convertValue(AggregationInfo aggregationInfo, Object value) {
+        if (aggregationInfo.getType() == AggregationInfo.Type.COUNT) {
+            return value != null ? ((Number) value).intValue() : 0;
+        }
+        if (!(value instanceof Number)) {
+            return value;
+        }
+
+        Number number = (Number) value;
+        Aggregation aggregation = Aggregations.get(aggregationInfo.getPropertyPath().getRangeJavaClass());
+        Class resultClass = aggregation.getResultClass();
+        if (Long.class.equals(resultClass)) {
+            return number.longValue();
+        } else if (Double.class.equals(resultClass)) {
+            return number.doubleValue();
+        } else if (BigDecimal.class.equals(resultClass) && !(number instanceof BigDecimal)) {
+            return new BigDecimal(number.toString());
+        }
+        return value;
+    }
+}
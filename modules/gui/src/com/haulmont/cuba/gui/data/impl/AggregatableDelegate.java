@@ -41,8 +41,11 @@ public abstract class AggregatableDelegate<K> {
 
     protected Map<AggregationInfo, String> doAggregation(Collection<K> itemIds, AggregationInfo[] aggregationInfos) {
         Map<AggregationInfo, String> aggregationResults = new HashMap<>();
+        Map<AggregationInfo, Object> databaseResults = aggregateInDatabase(aggregationInfos, itemIds);
         for (AggregationInfo aggregationInfo : aggregationInfos) {
-            final Object value = doPropertyAggregation(aggregationInfo, itemIds);
+            final Object value = databaseResults.containsKey(aggregationInfo)
+                    ? databaseResults.get(aggregationInfo)
+                    : doPropertyAggregation(aggregationInfo, itemIds);
 
             String formattedValue;
             if (aggregationInfo.getFormatter() != null) {
@@ -93,15 +96,26 @@ public abstract class AggregatableDelegate<K> {
         }
 
         Map<AggregationInfo, Object> aggregationResults = new HashMap<>();
+        Map<AggregationInfo, Object> databaseResults = aggregateInDatabase(aggregationInfos, itemIds);
 
         for (AggregationInfo aggregationInfo : aggregationInfos) {
-            Object value = doPropertyAggregation(aggregationInfo, itemIds);
+            Object value = databaseResults.containsKey(aggregationInfo)
+                    ? databaseResults.get(aggregationInfo)
+                    : doPropertyAggregation(aggregationInfo, itemIds);
             aggregationResults.put(aggregationInfo, value);
         }
 
         return aggregationResults;
     }
 
+    /**
+     * Returns values of the aggregations calculated by the database over the whole result set of the load query.
+     * The aggregations absent in the returned map are calculated in memory for the given items.
+     */
+    protected Map<AggregationInfo, Object> aggregateInDatabase(AggregationInfo[] aggregationInfos, Collection<K> itemIds) {
+        return Collections.emptyMap();
+    }
+
     @SuppressWarnings("unchecked")
     protected Object doPropertyAggregation(AggregationInfo aggregationInfo, Collection<K> itemIds) {
         List items;
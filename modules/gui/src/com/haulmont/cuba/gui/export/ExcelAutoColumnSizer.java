@@ -16,7 +16,7 @@
  */
 package com.haulmont.cuba.gui.export;
 
-import org.apache.poi.hssf.usermodel.HSSFFont;
+import org.apache.poi.ss.usermodel.Font;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
@@ -41,26 +41,26 @@ public class ExcelAutoColumnSizer {
     /** Graphics context used for obtaining FontMetrics objects */
     private Graphics2D graphics = null;
 
-    /** Maps a Short (HSSF font index) to a FontMetrics object */
-    private Map<Short, FontMetrics> fontMetrics = new HashMap<>();
+    /** Maps a workbook font index to a FontMetrics object */
+    private Map<Integer, FontMetrics> fontMetrics = new HashMap<>();
 
     private short currentWidth = WIDTH_MIN;
 
-    private FontMetrics getFontMetrics(HSSFFont hf){
+    private FontMetrics getFontMetrics(Font hf){
         FontMetrics fm;
-        Short pFont = hf.getIndex();
+        Integer pFont = hf.getIndexAsInt();
 
         fm = fontMetrics.get(pFont);
         if (fm == null) {
             int style;
             if (hf.getBold() || hf.getItalic()) {
                 style = 0;
-                if (hf.getBold()) style ^= Font.BOLD;
-                if (hf.getItalic()) style ^= Font.ITALIC;
+                if (hf.getBold()) style ^= java.awt.Font.BOLD;
+                if (hf.getItalic()) style ^= java.awt.Font.ITALIC;
             } else {
-                style = Font.PLAIN;
+                style = java.awt.Font.PLAIN;
             }
-            Font f = new java.awt.Font(hf.getFontName(), style, hf.getFontHeightInPoints());
+            java.awt.Font f = new java.awt.Font(hf.getFontName(), style, hf.getFontHeightInPoints());
 
             if (graphics == null) {
                 BufferedImage i = new BufferedImage(1, 1, BufferedImage.TYPE_BYTE_GRAY);
@@ -101,7 +101,7 @@ public class ExcelAutoColumnSizer {
         }
     }
 
-    public void notifyCellValue(String val, HSSFFont font) {
+    public void notifyCellValue(String val, Font font) {
         if (val == null || val.length() == 0) return;
         if (font == null) throw new IllegalArgumentException("font is null");
 
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.gui.export;
+
+import com.haulmont.chile.core.datatypes.Datatype;
+import com.haulmont.chile.core.datatypes.Datatypes;
+import com.haulmont.chile.core.model.MetaProperty;
+import com.haulmont.chile.core.model.MetaPropertyPath;
+import com.haulmont.chile.core.model.Range;
+import com.haulmont.cuba.core.entity.annotation.IgnoreUserTimeZone;
+import com.haulmont.cuba.core.global.AppBeans;
+import com.haulmont.cuba.core.global.Messages;
+import com.haulmont.cuba.core.global.MetadataTools;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.util.LocaleUtil;
+
+import javax.annotation.Nullable;
+import java.text.ParseException;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Objects;
+import java.util.TimeZone;
+
+/**
+ * Cell formats and value conversions shared by {@link ExcelExporter} and {@link StreamingExcelExporter}.
+ */
+public class ExcelExportSupport {
+
+    protected final Messages messages;
+    protected final MetadataTools metadataTools;
+
+    public ExcelExportSupport() {
+        messages = AppBeans.get(Messages.NAME);
+        metadataTools = AppBeans.get(MetadataTools.NAME);
+    }
+
+    /**
+     * Creates a cell style with the data format defined by the main message with the given key. Built-in formats
+     * are used if the format string matches one of them.
+     */
+    public CellStyle createFormatCellStyle(Workbook wb, String formatMessageKey) {
+        CellStyle cellStyle = wb.createCellStyle();
+        cellStyle.setDataFormat(wb.createDataFormat().getFormat(messages.getMainMessage(formatMessageKey)));
+        return cellStyle;
+    }
+
+    /**
+     * Returns the height of a header row containing the captions, and enables wrapping of the header cell style
+     * if a caption contains line breaks.
+     */
+    public float getHeaderRowHeight(Sheet sheet, Collection<String> captions, CellStyle headerCellStyle) {
+        float maxHeight = sheet.getDefaultRowHeightInPoints();
+        for (String caption : captions) {
+            int countOfReturnSymbols = StringUtils.countMatches(caption, "\n");
+            if (countOfReturnSymbols > 0) {
+                maxHeight = Math.max(maxHeight, (countOfReturnSymbols + 1) * sheet.getDefaultRowHeightInPoints());
+                headerCellStyle.setWrapText(true);
+            }
+        }
+        return maxHeight;
+    }
+
+    /**
+     * Sets a number formatted by the datatype of the property to the cell.
+     *
+     * @return the number formatted by the datatype
+     */
+    public String setNumericCellValue(Cell cell, Number n, @Nullable MetaPropertyPath metaPropertyPath,
+                                      CellStyle integerFormatCellStyle, CellStyle doubleFormatCellStyle) {
+        Datatype datatype = getNumberDatatype(n, metaPropertyPath);
+        try {
+            String str = datatype.format(n);
+            Number result = (Number) datatype.parse(str);
+            if (result != null) {
+                if (n instanceof Integer || n instanceof Long || n instanceof Byte || n instanceof Short) {
+                    cell.setCellValue(result.longValue());
+                    cell.setCellStyle(integerFormatCellStyle);
+                } else {
+                    cell.setCellValue(result.doubleValue());
+                    cell.setCellStyle(doubleFormatCellStyle);
+                }
+            }
+            return str;
+        } catch (ParseException e) {
+            throw new RuntimeException("Unable to parse numeric value", e);
+        }
+    }
+
+    public Datatype getNumberDatatype(Number n, @Nullable MetaPropertyPath metaPropertyPath) {
+        Datatype datatype = null;
+        if (metaPropertyPath != null) {
+            Range range = metaPropertyPath.getMetaProperty().getRange();
+            if (range.isDatatype()) {
+                datatype = range.asDatatype();
+            }
+        }
+        return datatype == null ? Datatypes.getNN(n.getClass()) : datatype;
+    }
+
+    /**
+     * Sets a date to the cell in the time zone of the user unless the property is a date without time or is
+     * annotated with {@link IgnoreUserTimeZone}. The cell style is chosen by the type of the property.
+     *
+     * @return the date formatted by the default date datatype
+     */
+    public String setDateCellValue(Cell cell, Date date, @Nullable MetaPropertyPath metaPropertyPath,
+                                   @Nullable TimeZone timeZone, CellStyle timeFormatCellStyle,
+                                   CellStyle dateFormatCellStyle, CellStyle dateTimeFormatCellStyle) {
+        Class javaClass = null;
+        boolean supportTimezones = false;
+        if (metaPropertyPath != null) {
+            MetaProperty metaProperty = metaPropertyPath.getMetaProperty();
+            if (metaProperty.getRange().isDatatype()) {
+                javaClass = metaProperty.getRange().asDatatype().getJavaClass();
+            }
+            Boolean ignoreUserTimeZone = metadataTools.getMetaAnnotationValue(metaProperty, IgnoreUserTimeZone.class);
+            supportTimezones = timeZone != null
+                    && Objects.equals(Date.class, javaClass)
+                    && !Boolean.TRUE.equals(ignoreUserTimeZone);
+        }
+        if (supportTimezones) {
+            TimeZone currentTimeZone = LocaleUtil.getUserTimeZone();
+            try {
+                LocaleUtil.setUserTimeZone(timeZone);
+                cell.setCellValue(date);
+            } finally {
+                if (Objects.equals(currentTimeZone, TimeZone.getDefault())) {
+                    LocaleUtil.resetUserTimeZone();
+                } else {
+                    LocaleUtil.setUserTimeZone(currentTimeZone);
+                }
+            }
+        } else {
+            cell.setCellValue(date);
+        }
+
+        if (Objects.equals(java.sql.Time.class, javaClass)) {
+            cell.setCellStyle(timeFormatCellStyle);
+        } else if (Objects.equals(java.sql.Date.class, javaClass)) {
+            cell.setCellStyle(dateFormatCellStyle);
+        } else {
+            cell.setCellStyle(dateTimeFormatCellStyle);
+        }
+        return Datatypes.getNN(Date.class).format(date);
+    }
+}
@@ -16,14 +16,11 @@
  */
 package com.haulmont.cuba.gui.export;
 
-import com.haulmont.chile.core.datatypes.Datatype;
-import com.haulmont.chile.core.datatypes.Datatypes;
 import com.haulmont.chile.core.datatypes.impl.EnumClass;
 import com.haulmont.chile.core.model.*;
 import com.haulmont.chile.core.model.utils.InstanceUtils;
 import com.haulmont.cuba.core.entity.Entity;
 import com.haulmont.cuba.core.entity.IdProxy;
-import com.haulmont.cuba.core.entity.annotation.IgnoreUserTimeZone;
 import com.haulmont.cuba.core.global.*;
 import com.haulmont.cuba.gui.components.*;
 import com.haulmont.cuba.gui.components.data.*;
@@ -36,15 +33,12 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.poi.hssf.usermodel.*;
 import org.apache.poi.ss.usermodel.CellStyle;
 import org.apache.poi.ss.usermodel.CellType;
-import org.apache.poi.ss.usermodel.DataFormat;
 import org.apache.poi.ss.usermodel.VerticalAlignment;
-import org.apache.poi.util.LocaleUtil;
 import org.dom4j.Element;
 
 import javax.annotation.Nullable;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.text.ParseException;
 import java.util.*;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -83,6 +77,7 @@ public class ExcelExporter {
     protected final Messages messages;
     protected final UserSessionSource userSessionSource;
     protected final MetadataTools metadataTools;
+    protected final ExcelExportSupport exportSupport;
 
     protected boolean isRowNumberExceeded = false;
 
@@ -95,6 +90,7 @@ public class ExcelExporter {
         messages = AppBeans.get(Messages.NAME);
         userSessionSource = AppBeans.get(UserSessionSource.NAME);
         metadataTools = AppBeans.get(MetadataTools.NAME);
+        exportSupport = new ExcelExportSupport();
 
         trueStr = messages.getMessage(ExcelExporter.class, "excelExporter.true");
         falseStr = messages.getMessage(ExcelExporter.class, "excelExporter.false");
@@ -165,20 +161,12 @@ public class ExcelExporter {
         HSSFRow row = sheet.createRow(r);
         createAutoColumnSizers(columns.size());
 
-        float maxHeight = sheet.getDefaultRowHeightInPoints();
-
         CellStyle headerCellStyle = wb.createCellStyle();
         headerCellStyle.setVerticalAlignment(VerticalAlignment.CENTER);
-        for (Table.Column column : columns) {
-            String caption = column.getCaption();
-
-            int countOfReturnSymbols = StringUtils.countMatches(caption, "\n");
-            if (countOfReturnSymbols > 0) {
-                maxHeight = Math.max(maxHeight, (countOfReturnSymbols + 1) * sheet.getDefaultRowHeightInPoints());
-                headerCellStyle.setWrapText(true);
-            }
-        }
-        row.setHeightInPoints(maxHeight);
+        List<String> captions = columns.stream()
+                .map(Table.Column::getCaption)
+                .collect(Collectors.toList());
+        row.setHeightInPoints(exportSupport.getHeaderRowHeight(sheet, captions, headerCellStyle));
 
         for (int c = 0; c < columns.size(); c++) {
             Table.Column column = columns.get(c);
@@ -321,20 +309,12 @@ public class ExcelExporter {
         HSSFRow row = sheet.createRow(r);
         createAutoColumnSizers(columns.size());
 
-        float maxHeight = sheet.getDefaultRowHeightInPoints();
-
         CellStyle headerCellStyle = wb.createCellStyle();
         headerCellStyle.setVerticalAlignment(VerticalAlignment.CENTER);
-        for (DataGrid.Column column : columns) {
-            String caption = column.getCaption();
-
-            int countOfReturnSymbols = StringUtils.countMatches(caption, "\n");
-            if (countOfReturnSymbols > 0) {
-                maxHeight = Math.max(maxHeight, (countOfReturnSymbols + 1) * sheet.getDefaultRowHeightInPoints());
-                headerCellStyle.setWrapText(true);
-            }
-        }
-        row.setHeightInPoints(maxHeight);
+        List<String> captions = columns.stream()
+                .map(DataGrid.Column::getCaption)
+                .collect(Collectors.toList());
+        row.setHeightInPoints(exportSupport.getHeaderRowHeight(sheet, captions, headerCellStyle));
 
         for (int c = 0; c < columns.size(); c++) {
             DataGrid.Column column = columns.get(c);
@@ -409,26 +389,13 @@ public class ExcelExporter {
     }
 
     protected void createFormats() {
-        timeFormatCellStyle = wb.createCellStyle();
-        String timeFormat = messages.getMainMessage("excelExporter.timeFormat");
-        timeFormatCellStyle.setDataFormat(HSSFDataFormat.getBuiltinFormat(timeFormat));
-
-        dateFormatCellStyle = wb.createCellStyle();
-        String dateFormat = messages.getMainMessage("excelExporter.dateFormat");
-        dateFormatCellStyle.setDataFormat(HSSFDataFormat.getBuiltinFormat(dateFormat));
-
-        dateTimeFormatCellStyle = wb.createCellStyle();
-        String dateTimeFormat = messages.getMainMessage("excelExporter.dateTimeFormat");
-        dateTimeFormatCellStyle.setDataFormat(HSSFDataFormat.getBuiltinFormat(dateTimeFormat));
-
-        integerFormatCellStyle = wb.createCellStyle();
-        String integerFormat = messages.getMainMessage("excelExporter.integerFormat");
-        integerFormatCellStyle.setDataFormat(HSSFDataFormat.getBuiltinFormat(integerFormat));
-
-        DataFormat format = wb.createDataFormat();
-        doubleFormatCellStyle = wb.createCellStyle();
-        String doubleFormat = messages.getMainMessage("excelExporter.doubleFormat");
-        doubleFormatCellStyle.setDataFormat(format.getFormat(doubleFormat));
+        timeFormatCellStyle = (HSSFCellStyle) exportSupport.createFormatCellStyle(wb, "excelExporter.timeFormat");
+        dateFormatCellStyle = (HSSFCellStyle) exportSupport.createFormatCellStyle(wb, "excelExporter.dateFormat");
+        dateTimeFormatCellStyle = (HSSFCellStyle) exportSupport.createFormatCellStyle(wb,
+                "excelExporter.dateTimeFormat");
+        integerFormatCellStyle = (HSSFCellStyle) exportSupport.createFormatCellStyle(wb,
+                "excelExporter.integerFormat");
+        doubleFormatCellStyle = (HSSFCellStyle) exportSupport.createFormatCellStyle(wb, "excelExporter.doubleFormat");
     }
 
     protected int createHierarhicalRow(TreeTable table, List<Table.Column> columns,
@@ -726,82 +693,25 @@ public class ExcelExporter {
 
         if (cellValue instanceof Number) {
             Number n = (Number) cellValue;
-            Datatype datatype = null;
-            if (metaPropertyPath != null) {
-                Range range = metaPropertyPath.getMetaProperty().getRange();
-                if (range.isDatatype()) {
-                    datatype = range.asDatatype();
-                }
-            }
-
-            datatype = datatype == null ? Datatypes.getNN(n.getClass()) : datatype;
             String str;
             // level is used for TreeTable, so level with 0 doesn't create spacing
             // and we should skip it
             if (sizersIndex == 0 && level > 0) {
-                str = createSpaceString(level) + datatype.format(n);
+                str = createSpaceString(level) + exportSupport.getNumberDatatype(n, metaPropertyPath).format(n);
                 cell.setCellValue(str);
             } else {
-                try {
-                    str = datatype.format(n);
-                    Number result = (Number) datatype.parse(str);
-                    if (result != null) {
-                        if (n instanceof Integer || n instanceof Long || n instanceof Byte || n instanceof Short) {
-                            cell.setCellValue(result.longValue());
-                            cell.setCellStyle(integerFormatCellStyle);
-                        } else {
-                            cell.setCellValue(result.doubleValue());
-                            cell.setCellStyle(doubleFormatCellStyle);
-                        }
-                    }
-                } catch (ParseException e) {
-                    throw new RuntimeException("Unable to parse numeric value", e);
-                }
+                str = exportSupport.setNumericCellValue(cell, n, metaPropertyPath,
+                        integerFormatCellStyle, doubleFormatCellStyle);
                 cell.setCellType(CellType.NUMERIC);
             }
             if (sizers[sizersIndex].isNotificationRequired(notificationRequired)) {
                 sizers[sizersIndex].notifyCellValue(str, stdFont);
             }
         } else if (cellValue instanceof Date) {
-            Class javaClass = null;
-            boolean supportTimezones = false;
             TimeZone timeZone = userSessionSource.getUserSession().getTimeZone();
-            if (metaPropertyPath != null) {
-                MetaProperty metaProperty = metaPropertyPath.getMetaProperty();
-                if (metaProperty.getRange().isDatatype()) {
-                    javaClass = metaProperty.getRange().asDatatype().getJavaClass();
-                }
-                Boolean ignoreUserTimeZone = metadataTools.getMetaAnnotationValue(metaProperty, IgnoreUserTimeZone.class);
-                supportTimezones = timeZone != null
-                        && Objects.equals(Date.class, javaClass)
-                        && !Boolean.TRUE.equals(ignoreUserTimeZone);
-            }
-            Date date = (Date) cellValue;
-            if (supportTimezones) {
-                TimeZone currentTimeZone = LocaleUtil.getUserTimeZone();
-                try {
-                    LocaleUtil.setUserTimeZone(timeZone);
-                    cell.setCellValue(date);
-                } finally {
-                    if (Objects.equals(currentTimeZone, TimeZone.getDefault())) {
-                        LocaleUtil.resetUserTimeZone();
-                    } else {
-                        LocaleUtil.setUserTimeZone(currentTimeZone);
-                    }
-                }
-            } else {
-                cell.setCellValue(date);
-            }
-
-            if (Objects.equals(java.sql.Time.class, javaClass)) {
-                cell.setCellStyle(timeFormatCellStyle);
-            } else if (Objects.equals(java.sql.Date.class, javaClass)) {
-                cell.setCellStyle(dateFormatCellStyle);
-            } else {
-                cell.setCellStyle(dateTimeFormatCellStyle);
-            }
+            String str = exportSupport.setDateCellValue(cell, (Date) cellValue, metaPropertyPath, timeZone,
+                    timeFormatCellStyle, dateFormatCellStyle, dateTimeFormatCellStyle);
             if (sizers[sizersIndex].isNotificationRequired(notificationRequired)) {
-                String str = Datatypes.getNN(Date.class).format(date);
                 sizers[sizersIndex].notifyCellValue(str, stdFont);
             }
         } else if (cellValue instanceof Boolean) {
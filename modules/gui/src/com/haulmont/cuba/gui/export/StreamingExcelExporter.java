@@ -0,0 +1,474 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.gui.export;
+
+import com.haulmont.chile.core.datatypes.impl.EnumClass;
+import com.haulmont.chile.core.model.MetaClass;
+import com.haulmont.chile.core.model.MetaPropertyPath;
+import com.haulmont.chile.core.model.utils.InstanceUtils;
+import com.haulmont.cuba.core.entity.Entity;
+import com.haulmont.cuba.core.entity.IdProxy;
+import com.haulmont.cuba.core.global.*;
+import com.haulmont.cuba.gui.ComponentsHelper;
+import com.haulmont.cuba.gui.Notifications;
+import com.haulmont.cuba.gui.backgroundwork.BackgroundWorkProgressWindow;
+import com.haulmont.cuba.gui.components.Table;
+import com.haulmont.cuba.gui.components.data.meta.ContainerDataUnit;
+import com.haulmont.cuba.gui.executors.BackgroundTask;
+import com.haulmont.cuba.gui.executors.TaskLifeCycle;
+import com.haulmont.cuba.gui.model.CollectionContainer;
+import com.haulmont.cuba.gui.model.CollectionLoader;
+import com.haulmont.cuba.gui.model.DataLoader;
+import com.haulmont.cuba.gui.model.HasLoader;
+import com.haulmont.cuba.gui.screen.Screen;
+import com.haulmont.cuba.gui.screen.UiControllerUtils;
+import com.haulmont.cuba.gui.upload.FileUploadingAPI;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.dom4j.Element;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.*;
+
+/**
+ * Use this class to export all entities of a {@link Table} bound to a collection loader into XLSX format.
+ * <p>
+ * Unlike {@link ExcelExporter}, it does not keep the whole document and all the entities in memory:
+ * <ul>
+ *     <li>Entities are loaded page by page with the load context of the loader, so all entities matching
+ *     the loader's query are exported regardless of the loader's {@code firstResult} and {@code maxResults}.</li>
+ *     <li>Only a window of the last rows is kept in memory, other rows are flushed to a temporary file.</li>
+ *     <li>The document is written to a temporary file which is shown using {@link ExportDisplay}.</li>
+ * </ul>
+ * The export runs in a {@link BackgroundTask} and shows its progress in a modal window which allows
+ * the user to cancel it. Column generators and formatters are invoked in the background thread, so they
+ * must not access UI components.
+ * <p>
+ * Groups, tree structure and aggregations of the table are not exported.
+ */
+public class StreamingExcelExporter {
+
+    private static final Logger log = LoggerFactory.getLogger(StreamingExcelExporter.class);
+
+    protected static final int COL_WIDTH_MAGIC = 48;
+
+    public static final int MAX_ROW_COUNT = SpreadsheetVersion.EXCEL2007.getLastRowIndex();
+
+    protected SXSSFWorkbook wb;
+    protected SXSSFSheet sheet;
+
+    protected Font boldFont;
+    protected Font stdFont;
+
+    protected CellStyle timeFormatCellStyle;
+    protected CellStyle dateFormatCellStyle;
+    protected CellStyle dateTimeFormatCellStyle;
+    protected CellStyle integerFormatCellStyle;
+    protected CellStyle doubleFormatCellStyle;
+
+    protected ExcelAutoColumnSizer[] sizers;
+
+    protected String trueStr;
+    protected String falseStr;
+
+    protected TimeZone timeZone;
+
+    protected int pageSize = 1000;
+    protected int rowAccessWindowSize = 100;
+    protected long timeoutSeconds = 3600;
+
+    protected boolean isRowNumberExceeded = false;
+
+    protected final Messages messages;
+    protected final UserSessionSource userSessionSource;
+    protected final MetadataTools metadataTools;
+    protected final DataManager dataManager;
+    protected final FileUploadingAPI fileUploading;
+    protected final ExcelExportSupport exportSupport;
+
+    public StreamingExcelExporter() {
+        messages = AppBeans.get(Messages.NAME);
+        userSessionSource = AppBeans.get(UserSessionSource.NAME);
+        metadataTools = AppBeans.get(MetadataTools.NAME);
+        dataManager = AppBeans.get(DataManager.NAME);
+        fileUploading = AppBeans.get(FileUploadingAPI.NAME);
+        exportSupport = new ExcelExportSupport();
+
+        trueStr = messages.getMessage(ExcelExporter.class, "excelExporter.true");
+        falseStr = messages.getMessage(ExcelExporter.class, "excelExporter.false");
+    }
+
+    public void exportTable(Table<Entity> table, @Nullable ExportDisplay display) {
+        exportTable(table, table.getNotCollapsedColumns(), display, null);
+    }
+
+    /**
+     * Starts the export of the table in a background task.
+     *
+     * @param table    table bound to a collection container with a collection loader
+     * @param columns  columns to export
+     * @param display  display used to show the exported file
+     * @param fileName file name without extension, the entity caption is used if null
+     */
+    public void exportTable(Table<Entity> table, List<Table.Column> columns, @Nullable ExportDisplay display,
+                            @Nullable String fileName) {
+        if (display == null) {
+            throw new IllegalArgumentException("ExportDisplay is null");
+        }
+
+        CollectionLoader<Entity> loader = getLoader(table);
+        LoadContext<Entity> loadContext = loader.createLoadContext();
+        loadContext.getQuery()
+                .setFirstResult(0)
+                .setMaxResults(0)
+                .setKeysetValues(null);
+
+        long total = dataManager.getCount(loadContext);
+
+        String name = fileName != null
+                ? fileName
+                : messages.getTools().getEntityCaption(loader.getContainer().getEntityMetaClass());
+        timeZone = userSessionSource.getUserSession().getTimeZone();
+
+        Screen screen = UiControllerUtils.getScreen(ComponentsHelper.getWindowNN(table).getFrameOwner());
+
+        BackgroundTask<Integer, UUID> task = new BackgroundTask<Integer, UUID>(timeoutSeconds, screen) {
+            @Override
+            public UUID run(TaskLifeCycle<Integer> taskLifeCycle) throws Exception {
+                return writeWorkbook(table, columns, loadContext, taskLifeCycle);
+            }
+
+            @Override
+            public void done(UUID fileId) {
+                display.show(new TempFileDataProvider(fileId), name + ".xlsx", ExportFormat.XLSX);
+
+                if (isRowNumberExceeded) {
+                    ComponentsHelper.getScreenContext(table).getNotifications()
+                            .create(Notifications.NotificationType.WARNING)
+                            .withCaption(messages.getMainMessage("actions.warningExport.title"))
+                            .withDescription(messages.getMainMessage("actions.warningExportXlsx.message"))
+                            .show();
+                }
+            }
+        };
+
+        BackgroundWorkProgressWindow.show(task, messages.getMainMessage("excelExporter.progressTitle"), null,
+                Math.min(total, MAX_ROW_COUNT), true, true);
+    }
+
+    @SuppressWarnings("unchecked")
+    protected CollectionLoader<Entity> getLoader(Table<Entity> table) {
+        if (table.getItems() instanceof ContainerDataUnit) {
+            CollectionContainer container = ((ContainerDataUnit) table.getItems()).getContainer();
+            if (container instanceof HasLoader) {
+                DataLoader loader = ((HasLoader) container).getLoader();
+                if (loader instanceof CollectionLoader) {
+                    return (CollectionLoader<Entity>) loader;
+                }
+            }
+        }
+        throw new IllegalStateException("Table is not bound to a collection container with a collection loader");
+    }
+
+    /**
+     * Loads the entities by pages and writes them to a temporary file.
+     *
+     * @return identifier of the temporary file in {@link FileUploadingAPI}
+     */
+    protected UUID writeWorkbook(Table<Entity> table, List<Table.Column> columns, LoadContext<Entity> loadContext,
+                                 TaskLifeCycle<Integer> taskLifeCycle) throws Exception {
+        FileUploadingAPI.FileInfo fileInfo = fileUploading.createFile();
+        boolean completed = false;
+
+        isRowNumberExceeded = false;
+        sizers = new ExcelAutoColumnSizer[columns.size()];
+
+        wb = new SXSSFWorkbook(rowAccessWindowSize);
+        wb.setCompressTempFiles(true);
+        try {
+            sheet = wb.createSheet("Export");
+            createFonts();
+            createFormats();
+            createHeaderRow(columns);
+
+            MetaClass metaClass = table.getItems() instanceof ContainerDataUnit
+                    ? ((ContainerDataUnit) table.getItems()).getEntityMetaClass()
+                    : null;
+            String pkName = metaClass != null && !metadataTools.hasCompositePrimaryKey(metaClass)
+                    ? metadataTools.getPrimaryKeyName(metaClass)
+                    : null;
+
+            int rowNumber = 0;
+            int loadedCount = 0;
+            List<Entity> entities;
+            Entity last = null;
+            do {
+                entities = loadPage(loadContext, pkName, loadedCount, last);
+                for (Entity entity : entities) {
+                    if (checkIsRowNumberExceed(rowNumber)) {
+                        break;
+                    }
+                    createRow(table, columns, ++rowNumber, entity);
+                }
+
+                loadedCount += entities.size();
+                last = entities.isEmpty() ? null : entities.get(entities.size() - 1);
+
+                if (taskLifeCycle.isInterrupted()) {
+                    throw new InterruptedException("Export is cancelled");
+                }
+                taskLifeCycle.publish(rowNumber);
+            } while (entities.size() == pageSize && !isRowNumberExceeded);
+
+            for (int c = 0; c < columns.size(); c++) {
+                sheet.setColumnWidth(c, sizers[c].getWidth() * COL_WIDTH_MAGIC);
+            }
+
+            try (OutputStream out = new FileOutputStream(fileInfo.getFile())) {
+                wb.write(out);
+            } catch (IOException e) {
+                throw new RuntimeException("Unable to write document", e);
+            }
+
+            completed = true;
+            return fileInfo.getId();
+        } finally {
+            wb.dispose();
+            for (ExcelAutoColumnSizer sizer : sizers) {
+                if (sizer != null) {
+                    sizer.dispose();
+                }
+            }
+            if (!completed) {
+                try {
+                    fileUploading.deleteFile(fileInfo.getId());
+                } catch (FileStorageException e) {
+                    log.warn("Unable to delete temporary file {}", fileInfo.getId(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads the next page of entities. If the query is not sorted and the primary key is known, the entities are
+     * sorted by the primary key on all pages and the next page is found by the primary key of the last entity.
+     * Otherwise, the pages are loaded by offset and the primary key is added to the sort, so the entities with equal
+     * sort values keep their order between pages.
+     *
+     * @param loadContext load context of the loader
+     * @param pkName      name of the primary key attribute, or null if keyset pagination cannot be used
+     * @param loadedCount number of entities loaded by previous pages
+     * @param last        last entity of the previous page, or null for the first page
+     */
+    protected List<Entity> loadPage(LoadContext<Entity> loadContext, @Nullable String pkName, int loadedCount,
+                                    @Nullable Entity last) {
+        @SuppressWarnings("unchecked")
+        LoadContext<Entity> pageContext = (LoadContext<Entity>) loadContext.copy();
+        LoadContext.Query query = pageContext.getQuery();
+        query.setMaxResults(pageSize);
+
+        Sort sort = query.getSort();
+        if (pkName != null && (sort == null || sort.getOrders().isEmpty())) {
+            // the order of the query string is replaced, otherwise the first page would not be ordered by the key
+            query.setSort(Sort.by(pkName));
+            if (last != null) {
+                query.setKeysetValues(Collections.singletonMap(pkName, last.getValueEx(pkName)));
+            }
+        } else {
+            if (pkName != null && sort.getOrders().stream().noneMatch(order -> pkName.equals(order.getProperty()))) {
+                List<Sort.Order> orders = new ArrayList<>(sort.getOrders());
+                orders.add(Sort.Order.asc(pkName));
+                query.setSort(Sort.by(orders));
+            }
+            query.setFirstResult(loadedCount);
+        }
+
+        return dataManager.loadList(pageContext);
+    }
+
+    protected void createFonts() {
+        stdFont = wb.createFont();
+        boldFont = wb.createFont();
+        boldFont.setBold(true);
+    }
+
+    protected void createFormats() {
+        timeFormatCellStyle = exportSupport.createFormatCellStyle(wb, "excelExporter.timeFormat");
+        dateFormatCellStyle = exportSupport.createFormatCellStyle(wb, "excelExporter.dateFormat");
+        dateTimeFormatCellStyle = exportSupport.createFormatCellStyle(wb, "excelExporter.dateTimeFormat");
+        integerFormatCellStyle = exportSupport.createFormatCellStyle(wb, "excelExporter.integerFormat");
+        doubleFormatCellStyle = exportSupport.createFormatCellStyle(wb, "excelExporter.doubleFormat");
+    }
+
+    protected void createHeaderRow(List<Table.Column> columns) {
+        Row row = sheet.createRow(0);
+
+        CellStyle headerCellStyle = wb.createCellStyle();
+        headerCellStyle.setVerticalAlignment(VerticalAlignment.CENTER);
+        headerCellStyle.setFont(boldFont);
+
+        List<String> captions = new ArrayList<>(columns.size());
+        for (Table.Column column : columns) {
+            captions.add(column.getCaption());
+        }
+        row.setHeightInPoints(exportSupport.getHeaderRowHeight(sheet, captions, headerCellStyle));
+
+        for (int c = 0; c < columns.size(); c++) {
+            String caption = captions.get(c);
+
+            Cell cell = row.createCell(c);
+            cell.setCellValue(caption);
+            cell.setCellStyle(headerCellStyle);
+
+            ExcelAutoColumnSizer sizer = new ExcelAutoColumnSizer();
+            sizer.notifyCellValue(caption, boldFont);
+            sizers[c] = sizer;
+        }
+    }
+
+    protected void createRow(Table<Entity> table, List<Table.Column> columns, int rowNumber, Entity instance) {
+        Row row = sheet.createRow(rowNumber);
+
+        for (int c = 0; c < columns.size(); c++) {
+            Table.Column column = columns.get(c);
+            Object cellValue = null;
+
+            MetaPropertyPath propertyPath = null;
+            Table.Printable printable = table.getPrintable(column);
+            if (column.getId() instanceof MetaPropertyPath) {
+                propertyPath = (MetaPropertyPath) column.getId();
+
+                if (printable != null) {
+                    cellValue = printable.getValue(instance);
+                } else {
+                    Element xmlDescriptor = column.getXmlDescriptor();
+                    if (xmlDescriptor != null && StringUtils.isNotEmpty(xmlDescriptor.attributeValue("captionProperty"))) {
+                        String captionProperty = xmlDescriptor.attributeValue("captionProperty");
+                        cellValue = InstanceUtils.getValueEx(instance, captionProperty);
+                    } else {
+                        cellValue = InstanceUtils.getValueEx(instance, propertyPath.getPath());
+                    }
+                    if (column.getFormatter() != null) {
+                        cellValue = column.getFormatter().apply(cellValue);
+                    }
+                }
+            } else if (printable != null) {
+                cellValue = printable.getValue(instance);
+            } else if (column.getValueProvider() != null) {
+                cellValue = column.getValueProvider().apply(instance);
+            }
+
+            formatValueCell(row, c, cellValue, propertyPath, rowNumber);
+        }
+    }
+
+    protected void formatValueCell(Row row, int column, @Nullable Object cellValue,
+                                   @Nullable MetaPropertyPath metaPropertyPath, int rowNumber) {
+        if (cellValue == null) {
+            if (metaPropertyPath != null
+                    && metaPropertyPath.getRange().isDatatype()
+                    && Boolean.class.equals(metaPropertyPath.getRange().asDatatype().getJavaClass())) {
+                cellValue = false;
+            } else {
+                return;
+            }
+        }
+
+        if (cellValue instanceof IdProxy) {
+            cellValue = ((IdProxy) cellValue).get();
+        }
+
+        Cell cell = row.createCell(column);
+        String str;
+        if (cellValue instanceof Number) {
+            str = exportSupport.setNumericCellValue(cell, (Number) cellValue, metaPropertyPath,
+                    integerFormatCellStyle, doubleFormatCellStyle);
+        } else if (cellValue instanceof Date) {
+            str = exportSupport.setDateCellValue(cell, (Date) cellValue, metaPropertyPath, timeZone,
+                    timeFormatCellStyle, dateFormatCellStyle, dateTimeFormatCellStyle);
+        } else if (cellValue instanceof Boolean) {
+            str = ((Boolean) cellValue) ? trueStr : falseStr;
+            cell.setCellValue(str);
+        } else if (cellValue instanceof EnumClass) {
+            String nameKey = cellValue.getClass().getSimpleName() + "." + cellValue.toString();
+            str = messages.getMessage(cellValue.getClass(), nameKey);
+            cell.setCellValue(str);
+        } else if (cellValue instanceof Entity) {
+            str = metadataTools.getInstanceName((Entity) cellValue);
+            cell.setCellValue(str);
+        } else if (cellValue instanceof Collection) {
+            str = "";
+            cell.setCellValue(str);
+        } else {
+            str = cellValue.toString();
+            cell.setCellValue(str);
+        }
+
+        if (sizers[column].isNotificationRequired(rowNumber)) {
+            sizers[column].notifyCellValue(str, stdFont);
+        }
+    }
+
+    protected boolean checkIsRowNumberExceed(int r) {
+        return isRowNumberExceeded = r >= MAX_ROW_COUNT;
+    }
+
+    /**
+     * @return true if the table contains more entities than the maximum number of rows in an XLSX sheet
+     */
+    public boolean isXlsxMaxRowNumberExceeded() {
+        return isRowNumberExceeded;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Sets the number of entities loaded from the middleware at once.
+     */
+    public void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    public int getRowAccessWindowSize() {
+        return rowAccessWindowSize;
+    }
+
+    /**
+     * Sets the number of rows kept in memory, other rows are flushed to a temporary file.
+     */
+    public void setRowAccessWindowSize(int rowAccessWindowSize) {
+        this.rowAccessWindowSize = rowAccessWindowSize;
+    }
+
+    public long getTimeoutSeconds() {
+        return timeoutSeconds;
+    }
+
+    public void setTimeoutSeconds(long timeoutSeconds) {
+        this.timeoutSeconds = timeoutSeconds;
+    }
+}
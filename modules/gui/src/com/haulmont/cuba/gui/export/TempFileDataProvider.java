@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.gui.export;
+
+import com.haulmont.cuba.core.global.AppBeans;
+import com.haulmont.cuba.core.global.FileStorageException;
+import com.haulmont.cuba.core.global.UserSessionSource;
+import com.haulmont.cuba.gui.upload.FileUploadingAPI;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.util.UUID;
+
+import static com.haulmont.bali.util.Preconditions.checkNotNullArgument;
+
+/**
+ * Data provider for a temporary file created by {@link FileUploadingAPI}.
+ * The file can be provided several times. It is deleted by {@link #dispose()} or, if the provider is created
+ * in a user session, when the session is finished.
+ */
+public class TempFileDataProvider implements ExportDataProvider {
+
+    private static final Logger log = LoggerFactory.getLogger(TempFileDataProvider.class);
+
+    protected UUID fileId;
+    protected FileUploadingAPI fileUploading = AppBeans.get(FileUploadingAPI.NAME);
+
+    public TempFileDataProvider(UUID fileId) {
+        checkNotNullArgument(fileId, "Null file id");
+
+        this.fileId = fileId;
+
+        UserSessionSource userSessionSource = AppBeans.get(UserSessionSource.NAME);
+        if (userSessionSource.checkCurrentUserSession()) {
+            fileUploading.deleteFileOnSessionFinish(fileId, userSessionSource.getUserSession().getId());
+        }
+    }
+
+    @Override
+    public InputStream provide() {
+        File file = fileUploading.getFile(fileId);
+        if (file == null) {
+            throw new IllegalStateException("Temporary file " + fileId + " does not exist");
+        }
+        try {
+            return new FileInputStream(file);
+        } catch (FileNotFoundException e) {
+            throw new RuntimeException("Unable to open temporary file " + fileId, e);
+        }
+    }
+
+    /**
+     * Deletes the temporary file. The data cannot be provided after that.
+     */
+    public void dispose() {
+        try {
+            fileUploading.deleteFile(fileId);
+        } catch (FileStorageException e) {
+            log.warn("Unable to delete temporary file {}", fileId, e);
+        }
+    }
+}
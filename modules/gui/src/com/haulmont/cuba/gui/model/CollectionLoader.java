@@ -20,11 +20,17 @@ import com.haulmont.bali.events.Subscription;
 import com.haulmont.cuba.core.entity.Entity;
 import com.haulmont.cuba.core.global.LoadContext;
 import com.haulmont.cuba.core.global.View;
+import com.haulmont.cuba.gui.components.AggregationInfo;
 import com.haulmont.cuba.gui.screen.InstallSubject;
 import com.haulmont.cuba.gui.screen.Subscribe;
 
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.EventObject;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -50,6 +56,22 @@ public interface CollectionLoader<E extends Entity> extends BaseCollectionLoader
      */
     LoadContext<E> createLoadContext();
 
+    /**
+     * Loads data to the connected container asynchronously. Entities are loaded in a background thread by
+     * {@code DataManager.loadListAsync()} or by the load delegate, and the container is updated in the UI thread,
+     * so several loaders of a screen can load data concurrently.
+     * <p>The method must be invoked in the UI thread. If the load delegate is set, it is invoked in a background
+     * thread and must not access UI components.
+     *
+     * <p>The default implementation loads data synchronously.
+     *
+     * @return future completed with loaded entities after the container is updated
+     */
+    default CompletableFuture<List<E>> loadAsync() {
+        load();
+        return CompletableFuture.completedFuture(getContainer().getItems());
+    }
+
     /**
      * Returns true if the entity's dynamic attributes are loaded.
      */
@@ -70,6 +92,95 @@ public interface CollectionLoader<E extends Entity> extends BaseCollectionLoader
      */
     void setCacheable(boolean cacheable);
 
+    /**
+     * Returns true if aggregations of the connected table or data grid are calculated by the database.
+     */
+    default boolean isDatabaseAggregation() {
+        return false;
+    }
+
+    /**
+     * Set to true to calculate aggregations of the connected table or data grid by an aggregate query over
+     * the whole result set of the loader's query, instead of calculating them in memory for the loaded entities.
+     * Aggregations which cannot be expressed in JPQL are still calculated in memory.
+     *
+     * @see #aggregate(Collection)
+     */
+    default void setDatabaseAggregation(boolean databaseAggregation) {
+        if (databaseAggregation) {
+            throw new UnsupportedOperationException("Database aggregation is not supported by " + getClass());
+        }
+    }
+
+    /**
+     * Calculates aggregations by one aggregate query built from the last executed load query, ignoring its
+     * paging and keyset values.
+     *
+     * The values are calculated once after each loading or committing of the data context, and the map is empty
+     * while the data context contains unsaved changes of the entities of the container.
+     *
+     * @param aggregationInfos aggregations to calculate
+     * @return values of the aggregations supported by the database, or empty map if the data was not loaded
+     * by the query yet
+     */
+    default Map<AggregationInfo, Object> aggregate(Collection<AggregationInfo> aggregationInfos) {
+        return Collections.emptyMap();
+    }
+
+    /**
+     * Returns true if groups of the connected group table are obtained from the database.
+     */
+    default boolean isDatabaseGrouping() {
+        return false;
+    }
+
+    /**
+     * Set to true to obtain groups of the connected group table and their sizes by a {@code GROUP BY} query
+     * over the whole result set of the loader's query. Entities of a group are loaded when the group is expanded,
+     * so the loader itself can load just a page of entities.
+     */
+    default void setDatabaseGrouping(boolean databaseGrouping) {
+        if (databaseGrouping) {
+            throw new UnsupportedOperationException("Database grouping is not supported by " + getClass());
+        }
+    }
+
+    /**
+     * Returns sort key values of the entity after which the data is loaded, or null if keyset pagination
+     * is not used.
+     */
+    @Nullable
+    default Map<String, Object> getKeysetValues() {
+        return null;
+    }
+
+    /**
+     * Sets sort key values of the entity after which the data is loaded. With keyset pagination, the next page
+     * is selected by a condition on the sort key instead of skipping {@code firstResult} rows, so deep pages
+     * are loaded as fast as the first one. Keep {@code firstResult} equal to 0 in this mode.
+     *
+     * @param keysetValues sort key values, or null to use offset pagination
+     * @see LoadContext.Query#setKeysetValues(Map)
+     */
+    default void setKeysetValues(@Nullable Map<String, Object> keysetValues) {
+        if (keysetValues != null) {
+            throw new UnsupportedOperationException("Keyset pagination is not supported by " + getClass());
+        }
+    }
+
+    /**
+     * Sets keyset values taken from the given entity, so that the next {@link #load()} loads the page following it.
+     * Typically, the entity is the last item of the container.
+     *
+     * @param entity entity to take the values of the sort properties and of the primary key from,
+     *               or null to use offset pagination
+     */
+    default void setKeysetAfter(@Nullable E entity) {
+        if (entity != null) {
+            throw new UnsupportedOperationException("Keyset pagination is not supported by " + getClass());
+        }
+    }
+
     /**
      * Returns the view which is used when loading.
      */
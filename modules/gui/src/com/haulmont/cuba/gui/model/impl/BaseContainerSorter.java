@@ -24,9 +24,9 @@ import com.haulmont.cuba.core.global.Sort;
 import com.haulmont.cuba.gui.model.CollectionContainer;
 import com.haulmont.cuba.gui.model.Sorter;
 
-import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.function.Function;
 
 /**
  * Base implementation of sorting collection containers.
@@ -53,29 +53,51 @@ public abstract class BaseContainerSorter implements Sorter {
         if (sort.getOrders().isEmpty() || container.getItems().isEmpty()) {
             return;
         }
-        List list = new ArrayList(container.getItems());
-        list.sort(createComparator(sort, container.getEntityMetaClass()));
+        List list = createSorter(sort, container.getEntityMetaClass()).sort(container.getItems());
         setItemsToContainer(list);
     }
 
     protected abstract void setItemsToContainer(List list);
 
-    protected Comparator<? extends Entity> createComparator(Sort sort, MetaClass metaClass) {
-        if (sort.getOrders().size() > 1) {
-            throw new UnsupportedOperationException("Sort by multiple properties is not supported");
+    /**
+     * Creates a sorter which obtains sort values from each entity once before sorting.
+     */
+    protected EntityValuesSorter createSorter(Sort sort, MetaClass metaClass) {
+        EntityValuesSorter sorter = new EntityValuesSorter();
+        for (Sort.Order order : sort.getOrders()) {
+            sorter.addProperty(createValueProvider(order.getProperty(), metaClass),
+                    order.getDirection() == Sort.Direction.ASC);
         }
+        return sorter;
+    }
 
-        String propertyName = sort.getOrders().get(0).getProperty();
-        boolean asc = sort.getOrders().get(0).getDirection() == Sort.Direction.ASC;
+    /**
+     * Creates a comparator of entities by the given sort.
+     *
+     * @deprecated is not used by {@link #sortInMemory(Sort)} anymore. Override {@link #createSorter(Sort, MetaClass)}
+     * or {@link #createValueProvider(String, MetaClass)} to change the sorting.
+     */
+    @Deprecated
+    protected Comparator<? extends Entity> createComparator(Sort sort, MetaClass metaClass) {
+        Comparator<Entity> comparator = null;
+        for (Sort.Order order : sort.getOrders()) {
+            boolean asc = order.getDirection() == Sort.Direction.ASC;
+            Comparator<Entity> orderComparator = Comparator.comparing(
+                    createValueProvider(order.getProperty(), metaClass), EntityValuesComparator.asc(asc));
+            comparator = comparator == null ? orderComparator : comparator.thenComparing(orderComparator);
+        }
+        return comparator;
+    }
 
+    protected Function<Entity, Object> createValueProvider(String propertyName, MetaClass metaClass) {
         if (DynamicAttributesUtils.isDynamicAttribute(propertyName)) {
-            return Comparator.comparing(e -> e.getValueEx(propertyName), EntityValuesComparator.asc(asc));
+            return e -> e.getValueEx(propertyName);
         }
 
         MetaPropertyPath propertyPath = metaClass.getPropertyPath(propertyName);
         if (propertyPath == null) {
             throw new IllegalArgumentException("Property " + propertyName + " is invalid");
         }
-        return Comparator.comparing(e -> e.getValueEx(propertyPath), EntityValuesComparator.asc(asc));
+        return e -> e.getValueEx(propertyPath);
     }
 }
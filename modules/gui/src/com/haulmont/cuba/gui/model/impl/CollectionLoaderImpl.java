@@ -21,11 +21,17 @@ import com.haulmont.bali.events.Subscription;
 import com.haulmont.cuba.core.entity.Entity;
 import com.haulmont.cuba.core.global.*;
 import com.haulmont.cuba.core.global.queryconditions.Condition;
+import com.haulmont.cuba.core.sys.DataManagerAsyncExecutor;
+import com.haulmont.cuba.gui.components.AggregationInfo;
+import com.haulmont.cuba.gui.data.aggregation.DatabaseAggregationSupport;
+import com.haulmont.cuba.gui.executors.BackgroundWorker;
+import com.haulmont.cuba.gui.executors.UIAccessor;
 import com.haulmont.cuba.gui.model.*;
 import org.springframework.context.ApplicationContext;
 
 import javax.annotation.Nullable;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -46,13 +52,20 @@ public class CollectionLoaderImpl<E extends Entity> implements CollectionLoader<
     protected boolean softDeletion = true;
     protected boolean loadDynamicAttributes;
     protected boolean cacheable;
+    protected boolean databaseAggregation;
+    protected boolean databaseGrouping;
     protected View view;
     protected String viewName;
     protected Sort sort;
+    protected Map<String, Object> keysetValues;
     protected Function<LoadContext<E>, List<E>> delegate;
     protected LoadContext.Query lastQuery;
+    protected LoadContext<E> lastLoadContext;
     protected List<LoadContext.Query> prevQueries;
     protected Integer queryKey;
+    protected Map<AggregationInfo, Object> aggregationResults = new HashMap<>();
+    protected Set<AggregationInfo> aggregatedInfos = new HashSet<>();
+    protected Subscription postCommitSubscription;
 
     protected EventHub events = new EventHub();
 
@@ -68,14 +81,30 @@ public class CollectionLoaderImpl<E extends Entity> implements CollectionLoader<
         return applicationContext.getBean(DataManager.NAME, DataManager.class);
     }
 
+    protected DataManagerAsyncExecutor getDataManagerAsyncExecutor() {
+        return applicationContext.getBean(DataManagerAsyncExecutor.NAME, DataManagerAsyncExecutor.class);
+    }
+
+    protected BackgroundWorker getBackgroundWorker() {
+        return applicationContext.getBean(BackgroundWorker.NAME, BackgroundWorker.class);
+    }
+
     protected SorterFactory getSorterFactory() {
         return applicationContext.getBean(SorterFactory.NAME, SorterFactory.class);
     }
 
+    protected MetadataTools getMetadataTools() {
+        return applicationContext.getBean(MetadataTools.NAME, MetadataTools.class);
+    }
+
     protected QueryStringProcessor getQueryStringProcessor() {
         return applicationContext.getBean(QueryStringProcessor.NAME, QueryStringProcessor.class);
     }
 
+    protected DatabaseAggregationSupport getDatabaseAggregationSupport() {
+        return applicationContext.getBean(DatabaseAggregationSupport.NAME, DatabaseAggregationSupport.class);
+    }
+
     @Nullable
     @Override
     public DataContext getDataContext() {
@@ -84,7 +113,14 @@ public class CollectionLoaderImpl<E extends Entity> implements CollectionLoader<
 
     @Override
     public void setDataContext(DataContext dataContext) {
+        if (postCommitSubscription != null) {
+            postCommitSubscription.remove();
+            postCommitSubscription = null;
+        }
         this.dataContext = dataContext;
+        if (dataContext != null) {
+            postCommitSubscription = dataContext.addPostCommitListener(event -> resetAggregationResults());
+        }
     }
 
     @Override
@@ -101,6 +137,7 @@ public class CollectionLoaderImpl<E extends Entity> implements CollectionLoader<
         }
 
         lastQuery = loadContext.getQuery();
+        lastLoadContext = loadContext;
 
         List<E> list;
         if (delegate == null) {
@@ -109,6 +146,54 @@ public class CollectionLoaderImpl<E extends Entity> implements CollectionLoader<
             list = delegate.apply(loadContext);
         }
 
+        setLoadedItems(list);
+    }
+
+    @Override
+    public CompletableFuture<List<E>> loadAsync() {
+        if (container == null)
+            throw new IllegalStateException("container is null");
+        if (query == null && delegate == null)
+            throw new IllegalStateException("both query and delegate are null");
+
+        LoadContext<E> loadContext = createLoadContext();
+
+        if (!sendPreLoadEvent(loadContext)) {
+            return CompletableFuture.completedFuture(container.getItems());
+        }
+
+        lastQuery = loadContext.getQuery();
+        lastLoadContext = loadContext;
+
+        UIAccessor uiAccessor = getBackgroundWorker().getUIAccessor();
+
+        CompletableFuture<List<E>> loadFuture;
+        if (delegate == null) {
+            loadFuture = getDataManager().loadListAsync(loadContext);
+        } else {
+            Function<LoadContext<E>, List<E>> delegate = this.delegate;
+            loadFuture = getDataManagerAsyncExecutor().submit(() -> delegate.apply(loadContext));
+        }
+
+        CompletableFuture<List<E>> result = new CompletableFuture<>();
+        loadFuture.whenComplete((list, throwable) -> uiAccessor.access(() -> {
+            if (throwable != null) {
+                result.completeExceptionally(throwable);
+                return;
+            }
+            try {
+                setLoadedItems(list);
+                result.complete(list);
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        }));
+        return result;
+    }
+
+    protected void setLoadedItems(List<E> list) {
+        resetAggregationResults();
+
         if (dataContext != null) {
             List<E> mergedList = new ArrayList<>(list.size());
             for (E entity : list) {
@@ -133,6 +218,7 @@ public class CollectionLoaderImpl<E extends Entity> implements CollectionLoader<
 
         query.setCondition(condition);
         query.setSort(sort);
+        query.setKeysetValues(keysetValues);
         query.setParameters(parameters);
 
         query.setCacheable(cacheable);
@@ -290,6 +376,80 @@ public class CollectionLoaderImpl<E extends Entity> implements CollectionLoader<
         this.cacheable = cacheable;
     }
 
+    @Override
+    public boolean isDatabaseAggregation() {
+        return databaseAggregation;
+    }
+
+    @Override
+    public void setDatabaseAggregation(boolean databaseAggregation) {
+        this.databaseAggregation = databaseAggregation;
+    }
+
+    @Override
+    public boolean isDatabaseGrouping() {
+        return databaseGrouping;
+    }
+
+    @Override
+    public void setDatabaseGrouping(boolean databaseGrouping) {
+        this.databaseGrouping = databaseGrouping;
+    }
+
+    @Override
+    public Map<AggregationInfo, Object> aggregate(Collection<AggregationInfo> aggregationInfos) {
+        if (container == null || lastLoadContext == null || delegate != null || hasUnsavedChanges()) {
+            return Collections.emptyMap();
+        }
+
+        List<AggregationInfo> notAggregated = new ArrayList<>();
+        for (AggregationInfo aggregationInfo : aggregationInfos) {
+            if (!aggregatedInfos.contains(aggregationInfo)) {
+                notAggregated.add(aggregationInfo);
+            }
+        }
+        if (!notAggregated.isEmpty()) {
+            aggregationResults.putAll(getDatabaseAggregationSupport().aggregate(container.getEntityMetaClass(),
+                    lastLoadContext, notAggregated));
+            aggregatedInfos.addAll(notAggregated);
+        }
+
+        Map<AggregationInfo, Object> result = new HashMap<>();
+        for (AggregationInfo aggregationInfo : aggregationInfos) {
+            if (aggregationResults.containsKey(aggregationInfo)) {
+                result.put(aggregationInfo, aggregationResults.get(aggregationInfo));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Tells whether the data context contains changes of the entities of the container, which are not reflected
+     * by the database aggregations yet.
+     */
+    protected boolean hasUnsavedChanges() {
+        if (dataContext == null) {
+            return false;
+        }
+        Class<?> entityClass = container.getEntityMetaClass().getJavaClass();
+        for (Entity entity : dataContext.getModified()) {
+            if (entityClass.isInstance(entity)) {
+                return true;
+            }
+        }
+        for (Entity entity : dataContext.getRemoved()) {
+            if (entityClass.isInstance(entity)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    protected void resetAggregationResults() {
+        aggregationResults.clear();
+        aggregatedInfos.clear();
+    }
+
     @Override
     public View getView() {
         return view;
@@ -321,6 +481,36 @@ public class CollectionLoaderImpl<E extends Entity> implements CollectionLoader<
         }
     }
 
+    @Nullable
+    @Override
+    public Map<String, Object> getKeysetValues() {
+        return keysetValues;
+    }
+
+    @Override
+    public void setKeysetValues(@Nullable Map<String, Object> keysetValues) {
+        this.keysetValues = keysetValues;
+    }
+
+    @Override
+    public void setKeysetAfter(@Nullable E entity) {
+        if (entity == null) {
+            keysetValues = null;
+            return;
+        }
+        Map<String, Object> values = new LinkedHashMap<>();
+        if (sort != null) {
+            for (Sort.Order order : sort.getOrders()) {
+                values.put(order.getProperty(), entity.getValueEx(order.getProperty()));
+            }
+        }
+        String pkName = getMetadataTools().getPrimaryKeyName(container.getEntityMetaClass());
+        if (pkName != null) {
+            values.put(pkName, entity.getValueEx(pkName));
+        }
+        keysetValues = values;
+    }
+
     @Override
     public Function<LoadContext<E>, List<E>> getLoadDelegate() {
         return delegate;
@@ -26,6 +26,7 @@ import com.haulmont.chile.core.model.impl.AbstractInstance;
 import com.haulmont.cuba.core.entity.*;
 import com.haulmont.cuba.core.global.*;
 import com.haulmont.cuba.core.sys.persistence.FetchGroupUtils;
+import com.haulmont.cuba.gui.model.CollectionChangeType;
 import com.haulmont.cuba.gui.model.DataContext;
 import org.apache.commons.lang3.StringUtils;
 import org.eclipse.persistence.queries.FetchGroup;
@@ -73,6 +74,11 @@ public class DataContextImpl implements DataContext {
 
     protected Map<Entity, Map<String, EmbeddedPropertyChangeListener>> embeddedPropertyListeners = new WeakHashMap<>();
 
+    protected Map<Class<?>, MergePlan> mergePlans = new HashMap<>();
+
+    // entity class -> entity id -> managed entities containing the entity in their collection attributes
+    protected Map<Class<?>, Map<Object, Set<Entity>>> collectionOwners = new HashMap<>();
+
     public DataContextImpl(ApplicationContext applicationContext) {
         this.applicationContext = applicationContext;
     }
@@ -196,7 +202,7 @@ public class DataContextImpl implements DataContext {
             managed = copyEntity(entity);
             entityMap.put(managed.getId(), managed);
 
-            mergeState(entity, managed, mergedSet, isRoot);
+            mergeState(entity, managed, mergedSet, isRoot, true);
 
             managed.addPropertyChangeListener(propertyChangeListener);
 
@@ -229,21 +235,30 @@ public class DataContextImpl implements DataContext {
     }
 
     protected void mergeState(Entity srcEntity, Entity dstEntity, Set<Entity> mergedSet, boolean isRoot) {
+        mergeState(srcEntity, dstEntity, mergedSet, isRoot, false);
+    }
+
+    /**
+     * Copies the state of the source entity to the managed one.
+     *
+     * @param fresh true if the managed entity has just been created by {@link #copyEntity(Entity)}, so its
+     *              attributes are not compared with the new values and nobody listens to their changes
+     */
+    protected void mergeState(Entity srcEntity, Entity dstEntity, Set<Entity> mergedSet, boolean isRoot,
+                              boolean fresh) {
         EntityStates entityStates = getEntityStates();
 
         boolean srcNew = entityStates.isNew(srcEntity);
         boolean dstNew = entityStates.isNew(dstEntity);
+        boolean checkEquals = !fresh;
 
         mergeSystemState(srcEntity, dstEntity, isRoot);
 
-        MetaClass metaClass = getMetadata().getClassNN(srcEntity.getClass());
-        MetaProperty primaryKeyProperty = getMetadataTools().getPrimaryKeyProperty(metaClass);
+        MergePlan mergePlan = getMergePlan(srcEntity.getClass());
 
-        for (MetaProperty property : metaClass.getProperties()) {
+        for (MetaProperty property : mergePlan.localProperties) {
             String propertyName = property.getName();
-            if (!property.getRange().isClass()                                             // local
-                    && property != primaryKeyProperty                                      // not PK
-                    && (srcNew || entityStates.isLoaded(srcEntity, propertyName))          // loaded src
+            if ((srcNew || entityStates.isLoaded(srcEntity, propertyName))                 // loaded src
                     && (dstNew || entityStates.isLoaded(dstEntity, propertyName))) {       // loaded dst
 
                 Object value = srcEntity.getValue(propertyName);
@@ -253,15 +268,13 @@ public class DataContextImpl implements DataContext {
                     continue;
                 }
 
-                setPropertyValue(dstEntity, property, value);
+                setPropertyValue(dstEntity, property, value, checkEquals);
             }
         }
 
-        for (MetaProperty property : metaClass.getProperties()) {
+        for (MetaProperty property : mergePlan.referenceProperties) {
             String propertyName = property.getName();
-            if (property.getRange().isClass()                                              // refs and collections
-                    && property != primaryKeyProperty                                      // not PK
-                    && (srcNew || entityStates.isLoaded(srcEntity, propertyName))          // loaded src
+            if ((srcNew || entityStates.isLoaded(srcEntity, propertyName))                 // loaded src
                     && (dstNew || entityStates.isLoaded(dstEntity, propertyName))) {       // loaded dst
 
                 Object value = srcEntity.getValue(propertyName);
@@ -272,7 +285,7 @@ public class DataContextImpl implements DataContext {
                 }
 
                 if (value == null) {
-                    setPropertyValue(dstEntity, property, null);
+                    setPropertyValue(dstEntity, property, null, checkEquals);
                     continue;
                 }
 
@@ -289,7 +302,7 @@ public class DataContextImpl implements DataContext {
                     if (!mergedSet.contains(srcRef)) {
                         Entity managedRef = internalMerge(srcRef, mergedSet, false);
                         setPropertyValue(dstEntity, property, managedRef, false);
-                        if (getMetadataTools().isEmbedded(property)) {
+                        if (mergePlan.embeddedProperties.contains(property)) {
                             EmbeddedPropertyChangeListener listener = new EmbeddedPropertyChangeListener(dstEntity);
                             managedRef.addPropertyChangeListener(listener);
                             embeddedPropertyListeners.computeIfAbsent(dstEntity, e -> new HashMap<>()).put(propertyName, listener);
@@ -308,6 +321,35 @@ public class DataContextImpl implements DataContext {
         }
     }
 
+    protected MergePlan getMergePlan(Class<?> entityClass) {
+        return mergePlans.computeIfAbsent(entityClass, this::createMergePlan);
+    }
+
+    protected MergePlan createMergePlan(Class<?> entityClass) {
+        MetaClass metaClass = getMetadata().getClassNN(entityClass);
+        MetadataTools metadataTools = getMetadataTools();
+        MetaProperty primaryKeyProperty = metadataTools.getPrimaryKeyProperty(metaClass);
+
+        MergePlan mergePlan = new MergePlan();
+        for (MetaProperty property : metaClass.getProperties()) {
+            if (property == primaryKeyProperty) {
+                continue;
+            }
+            if (property.getRange().isClass()) {
+                mergePlan.referenceProperties.add(property);
+                if (property.getRange().getCardinality().isMany()) {
+                    mergePlan.collectionProperties.add(property);
+                }
+                if (metadataTools.isEmbedded(property)) {
+                    mergePlan.embeddedProperties.add(property);
+                }
+            } else {
+                mergePlan.localProperties.add(property);
+            }
+        }
+        return mergePlan;
+    }
+
     protected void setPropertyValue(Entity entity, MetaProperty property, @Nullable Object value) {
         setPropertyValue(entity, property, value, true);
     }
@@ -446,7 +488,17 @@ public class DataContextImpl implements DataContext {
     }
 
     protected List<Entity> createObservableList(List<Entity> list, Entity notifiedEntity) {
-        return new ObservableList<>(list, (changeType, changes) -> modified(notifiedEntity));
+        addCollectionOwner(notifiedEntity, list);
+        return new ObservableList<>(list, (changeType, changes) -> {
+            if (changeType == CollectionChangeType.ADD_ITEMS || changeType == CollectionChangeType.SET_ITEM) {
+                addCollectionOwner(notifiedEntity, changes);
+            } else if (changeType == CollectionChangeType.REMOVE_ITEMS) {
+                removeCollectionOwner(notifiedEntity, changes);
+            } else if (changeType == CollectionChangeType.REFRESH) {
+                refreshCollectionOwner(notifiedEntity);
+            }
+            modified(notifiedEntity);
+        });
     }
 
     protected Set<Entity> createObservableSet(Entity notifiedEntity) {
@@ -454,7 +506,128 @@ public class DataContextImpl implements DataContext {
     }
 
     protected ObservableSet<Entity> createObservableSet(Set<Entity> set, Entity notifiedEntity) {
-        return new ObservableSet<>(set, (changeType, changes) -> modified(notifiedEntity));
+        addCollectionOwner(notifiedEntity, set);
+        return new ObservableSet<>(set, (changeType, changes) -> {
+            if (changeType == CollectionChangeType.ADD_ITEMS || changeType == CollectionChangeType.SET_ITEM) {
+                addCollectionOwner(notifiedEntity, changes);
+            } else if (changeType == CollectionChangeType.REMOVE_ITEMS) {
+                removeCollectionOwner(notifiedEntity, changes);
+            } else if (changeType == CollectionChangeType.REFRESH) {
+                refreshCollectionOwner(notifiedEntity);
+            }
+            modified(notifiedEntity);
+        });
+    }
+
+    protected void addCollectionOwner(Entity owner, Collection<?> entities) {
+        for (Object entity : entities) {
+            if (entity instanceof Entity) {
+                collectionOwners.computeIfAbsent(entity.getClass(), c -> new HashMap<>())
+                        .computeIfAbsent(((Entity) entity).getId(), id -> Sets.newIdentityHashSet())
+                        .add(owner);
+            }
+        }
+    }
+
+    protected void removeCollectionOwner(Entity owner, Collection<?> entities) {
+        for (Object entity : entities) {
+            if (entity instanceof Entity && !isInCollections(owner, (Entity) entity)) {
+                Map<Object, Set<Entity>> ownersById = collectionOwners.get(entity.getClass());
+                Set<Entity> owners = ownersById != null ? ownersById.get(((Entity) entity).getId()) : null;
+                if (owners != null) {
+                    owners.remove(owner);
+                    if (owners.isEmpty()) {
+                        ownersById.remove(((Entity) entity).getId());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops the owner from the entities which are not contained in its collection attributes anymore, and registers
+     * it for the contained ones. Used when a collection is changed without reporting the removed items.
+     */
+    protected void refreshCollectionOwner(Entity owner) {
+        Map<Class<?>, Set<Object>> containedIds = new HashMap<>();
+        for (Collection<?> collection : getCollections(owner)) {
+            addCollectionOwner(owner, collection);
+            for (Object entity : collection) {
+                if (entity instanceof Entity) {
+                    containedIds.computeIfAbsent(entity.getClass(), c -> new HashSet<>()).add(((Entity) entity).getId());
+                }
+            }
+        }
+
+        for (Map.Entry<Class<?>, Map<Object, Set<Entity>>> classEntry : collectionOwners.entrySet()) {
+            Set<Object> ids = containedIds.getOrDefault(classEntry.getKey(), Collections.emptySet());
+            classEntry.getValue().entrySet().removeIf(idEntry -> {
+                if (!ids.contains(idEntry.getKey())) {
+                    idEntry.getValue().remove(owner);
+                }
+                return idEntry.getValue().isEmpty();
+            });
+        }
+    }
+
+    /**
+     * Drops the owner from the entities contained in its collection attributes, e.g. when the owner is evicted.
+     */
+    protected void dropCollectionOwner(Entity owner) {
+        for (Collection<?> collection : getCollections(owner)) {
+            for (Object entity : collection) {
+                if (entity instanceof Entity) {
+                    Map<Object, Set<Entity>> ownersById = collectionOwners.get(entity.getClass());
+                    Set<Entity> owners = ownersById != null ? ownersById.get(((Entity) entity).getId()) : null;
+                    if (owners != null) {
+                        owners.remove(owner);
+                        if (owners.isEmpty()) {
+                            ownersById.remove(((Entity) entity).getId());
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Nullable
+    protected Set<Entity> removeCollectionOwners(Entity entity) {
+        Map<Object, Set<Entity>> ownersById = collectionOwners.get(entity.getClass());
+        return ownersById != null ? ownersById.remove(entity.getId()) : null;
+    }
+
+    /**
+     * Tells whether the entity, or another instance with the same id, is still contained in a loaded collection
+     * attribute of the owner.
+     */
+    protected boolean isInCollections(Entity owner, Entity entity) {
+        for (Collection<?> collection : getCollections(owner)) {
+            if (collection.contains(entity)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns values of the loaded collection attributes of the entity.
+     */
+    protected List<Collection<?>> getCollections(Entity entity) {
+        List<MetaProperty> properties = getMergePlan(entity.getClass()).collectionProperties;
+        if (properties.isEmpty()) {
+            return Collections.emptyList();
+        }
+        EntityStates entityStates = getEntityStates();
+        List<Collection<?>> collections = new ArrayList<>(properties.size());
+        for (MetaProperty metaProperty : properties) {
+            if (entityStates.isLoaded(entity, metaProperty.getName())) {
+                Collection<?> collection = entity.getValue(metaProperty.getName());
+                if (collection != null) {
+                    collections.add(collection);
+                }
+            }
+        }
+        return collections;
     }
 
     @Override
@@ -473,6 +646,7 @@ public class DataContextImpl implements DataContext {
             Entity mergedEntity = entityMap.get(entity.getId());
             if (mergedEntity != null) {
                 entityMap.remove(entity.getId());
+                dropCollectionOwner(mergedEntity);
                 removeFromCollections(mergedEntity);
             }
         }
@@ -481,23 +655,23 @@ public class DataContextImpl implements DataContext {
     }
 
     protected void removeFromCollections(Entity entityToRemove) {
-        for (Map.Entry<Class<?>, Map<Object, Entity>> entry : content.entrySet()) {
-            Class<?> entityClass = entry.getKey();
-
-            MetaClass metaClass = getMetadata().getClassNN(entityClass);
-            for (MetaProperty metaProperty : metaClass.getProperties()) {
-                if (metaProperty.getRange().isClass()
-                        && metaProperty.getRange().getCardinality().isMany()
-                        && metaProperty.getRange().asClass().getJavaClass().isAssignableFrom(entityToRemove.getClass())) {
-
-                    Map<Object, Entity> entityMap = entry.getValue();
-                    for (Entity entity : entityMap.values()) {
-                        if (getEntityStates().isLoaded(entity, metaProperty.getName())) {
-                            Collection collection = entity.getValue(metaProperty.getName());
-                            if (collection != null) {
-                                collection.remove(entityToRemove);
-                            }
-                        }
+        Set<Entity> owners = removeCollectionOwners(entityToRemove);
+        if (owners == null) {
+            return;
+        }
+
+        EntityStates entityStates = getEntityStates();
+        for (Entity owner : owners) {
+            // the owner could have been evicted or removed after the entity was added to its collection
+            if (find(owner.getClass(), owner.getId()) != owner) {
+                continue;
+            }
+            for (MetaProperty metaProperty : getMergePlan(owner.getClass()).collectionProperties) {
+                if (metaProperty.getRange().asClass().getJavaClass().isAssignableFrom(entityToRemove.getClass())
+                        && entityStates.isLoaded(owner, metaProperty.getName())) {
+                    Collection collection = owner.getValue(metaProperty.getName());
+                    if (collection != null) {
+                        collection.remove(entityToRemove);
                     }
                 }
             }
@@ -513,6 +687,8 @@ public class DataContextImpl implements DataContext {
             Entity mergedEntity = entityMap.get(entity.getId());
             if (mergedEntity != null) {
                 entityMap.remove(entity.getId());
+                removeCollectionOwners(mergedEntity);
+                dropCollectionOwner(mergedEntity);
                 removeListeners(entity);
             }
             modifiedInstances.remove(entity);
@@ -538,6 +714,7 @@ public class DataContextImpl implements DataContext {
         for (Entity entity : getAll()) {
             evict(entity);
         }
+        collectionOwners.clear();
     }
 
     @Override
@@ -788,6 +965,31 @@ public class DataContextImpl implements DataContext {
     protected class PropertyChangeListener implements Instance.PropertyChangeListener {
         @Override
         public void propertyChanged(Instance.PropertyChangeEvent e) {
+            // collection owners are maintained during merge too
+            Entity entity = (Entity) e.getItem();
+            if (e.getValue() instanceof Collection) {
+                Collection<?> collection = (Collection<?>) e.getValue();
+                MetaProperty collectionProperty = getCollectionProperty(entity, e.getProperty());
+                if (collectionProperty != null && !(collection instanceof ObservableList)
+                        && !(collection instanceof ObservableSet)
+                        && (collection instanceof List || collection instanceof Set)) {
+                    // a plain collection is set by the application, observe it to keep collection owners up to date;
+                    // this listener is invoked again for the observable collection
+                    //noinspection unchecked
+                    setPropertyValue(entity, collectionProperty, collection instanceof List
+                            ? createObservableList((List<Entity>) collection, entity)
+                            : createObservableSet((Set<Entity>) collection, entity));
+                    if (e.getPrevValue() instanceof Collection) {
+                        removeCollectionOwner(entity, (Collection<?>) e.getPrevValue());
+                    }
+                    return;
+                }
+                addCollectionOwner(entity, collection);
+            }
+            if (e.getPrevValue() instanceof Collection) {
+                removeCollectionOwner(entity, (Collection<?>) e.getPrevValue());
+            }
+
             if (!disableListeners) {
                 // if id has been changed, update put the entity to the content with the new id
                 MetaProperty primaryKeyProperty = getMetadataTools().getPrimaryKeyProperty(e.getItem().getClass());
@@ -805,6 +1007,28 @@ public class DataContextImpl implements DataContext {
         }
     }
 
+    @Nullable
+    protected MetaProperty getCollectionProperty(Entity entity, String propertyName) {
+        for (MetaProperty metaProperty : getMergePlan(entity.getClass()).collectionProperties) {
+            if (metaProperty.getName().equals(propertyName)) {
+                return metaProperty;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Attributes of an entity class grouped for merging and removal.
+     */
+    protected static class MergePlan {
+        // local attributes except the primary key
+        protected final List<MetaProperty> localProperties = new ArrayList<>();
+        // references and collections
+        protected final List<MetaProperty> referenceProperties = new ArrayList<>();
+        protected final List<MetaProperty> collectionProperties = new ArrayList<>();
+        protected final Set<MetaProperty> embeddedProperties = new HashSet<>();
+    }
+
     protected class EmbeddedPropertyChangeListener implements Instance.PropertyChangeListener {
 
         private final Entity entity;
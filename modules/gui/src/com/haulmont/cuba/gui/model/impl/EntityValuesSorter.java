@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.gui.model.impl;
+
+import com.haulmont.cuba.core.entity.Entity;
+import com.haulmont.cuba.core.entity.IdProxy;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Sorts entities by values of one or more properties in memory.
+ * <p>
+ * Unlike a comparator that obtains property values from entities on each comparison, the sorter obtains
+ * the values once per entity before sorting. Integer, boolean and date values are stored in {@code long}
+ * arrays and floating-point values in {@code double} arrays, so comparing them does not involve boxing.
+ * Other values are compared by {@link EntityValuesComparator}. Large lists are sorted by
+ * {@link Arrays#parallelSort(Object[], Comparator)}. The sorting is stable.
+ */
+public class EntityValuesSorter {
+
+    public static final int DEFAULT_PARALLEL_SORT_THRESHOLD = 20_000;
+
+    protected static final Object NOT_NULL = Boolean.TRUE;
+
+    protected final List<Function<Entity, Object>> valueProviders = new ArrayList<>();
+    protected final List<Boolean> ascending = new ArrayList<>();
+
+    protected int parallelSortThreshold = DEFAULT_PARALLEL_SORT_THRESHOLD;
+
+    /**
+     * Adds a sort property. The entities are sorted by the properties in the order they are added.
+     *
+     * @param valueProvider function returning the property value of an entity
+     * @param asc           true for ascending order
+     * @return this sorter for chaining
+     */
+    public EntityValuesSorter addProperty(Function<Entity, Object> valueProvider, boolean asc) {
+        valueProviders.add(valueProvider);
+        ascending.add(asc);
+        return this;
+    }
+
+    public int getParallelSortThreshold() {
+        return parallelSortThreshold;
+    }
+
+    /**
+     * Sets the minimal number of entities that are sorted in parallel.
+     */
+    public void setParallelSortThreshold(int parallelSortThreshold) {
+        this.parallelSortThreshold = parallelSortThreshold;
+    }
+
+    /**
+     * @param entities entities to sort, the list is not modified
+     * @return new list containing the entities in the sort order
+     */
+    public <E extends Entity> List<E> sort(List<E> entities) {
+        int size = entities.size();
+        if (valueProviders.isEmpty() || size < 2) {
+            return new ArrayList<>(entities);
+        }
+
+        KeyColumn[] columns = new KeyColumn[valueProviders.size()];
+        for (int c = 0; c < columns.length; c++) {
+            columns[c] = createColumn(entities, valueProviders.get(c), ascending.get(c));
+        }
+
+        Integer[] indexes = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            indexes[i] = i;
+        }
+
+        Comparator<Integer> comparator = (i1, i2) -> {
+            for (KeyColumn column : columns) {
+                int c = column.compare(i1, i2);
+                if (c != 0) {
+                    return column.asc ? c : -c;
+                }
+            }
+            return 0;
+        };
+        if (size >= parallelSortThreshold) {
+            Arrays.parallelSort(indexes, comparator);
+        } else {
+            Arrays.sort(indexes, comparator);
+        }
+
+        List<E> result = new ArrayList<>(size);
+        for (Integer index : indexes) {
+            result.add(entities.get(index));
+        }
+        return result;
+    }
+
+    protected KeyColumn createColumn(List<? extends Entity> entities, Function<Entity, Object> valueProvider,
+                                     boolean asc) {
+        int size = entities.size();
+        Object[] values = new Object[size];
+        boolean integral = true;
+        boolean floating = true;
+        for (int i = 0; i < size; i++) {
+            Object value = valueProvider.apply(entities.get(i));
+            if (value instanceof IdProxy) {
+                value = ((IdProxy) value).get();
+            }
+            values[i] = value;
+            if (value != null) {
+                integral = integral && isIntegralKey(value);
+                floating = floating && (value instanceof Double || value instanceof Float);
+            }
+        }
+
+        if (integral) {
+            long[] keys = new long[size];
+            boolean[] nulls = new boolean[size];
+            for (int i = 0; i < size; i++) {
+                if (values[i] == null) {
+                    nulls[i] = true;
+                } else {
+                    keys[i] = toLongKey(values[i]);
+                }
+            }
+            return new LongKeyColumn(asc, keys, nulls);
+        }
+        if (floating) {
+            double[] keys = new double[size];
+            boolean[] nulls = new boolean[size];
+            for (int i = 0; i < size; i++) {
+                if (values[i] == null) {
+                    nulls[i] = true;
+                } else {
+                    keys[i] = ((Number) values[i]).doubleValue();
+                }
+            }
+            return new DoubleKeyColumn(asc, keys, nulls);
+        }
+        return new ObjectKeyColumn(asc, values);
+    }
+
+    protected boolean isIntegralKey(Object value) {
+        Class<?> valueClass = value.getClass();
+        // Timestamp is excluded because it compares nanoseconds too
+        return value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte
+                || value instanceof Boolean
+                || valueClass == Date.class || valueClass == java.sql.Date.class || valueClass == java.sql.Time.class;
+    }
+
+    protected long toLongKey(Object value) {
+        if (value instanceof Boolean) {
+            return (Boolean) value ? 1 : 0;
+        }
+        if (value instanceof Date) {
+            return ((Date) value).getTime();
+        }
+        return ((Number) value).longValue();
+    }
+
+    /**
+     * Compares nulls the same way as {@link EntityValuesComparator}.
+     */
+    protected static int compareNulls(boolean null1, boolean null2) {
+        return EntityValuesComparator.NATURAL_ORDER.compare(null1 ? null : NOT_NULL, null2 ? null : NOT_NULL);
+    }
+
+    protected abstract static class KeyColumn {
+
+        protected final boolean asc;
+
+        protected KeyColumn(boolean asc) {
+            this.asc = asc;
+        }
+
+        /**
+         * Compares values of the entities with the given indexes in ascending order.
+         */
+        protected abstract int compare(int i1, int i2);
+    }
+
+    protected static class LongKeyColumn extends KeyColumn {
+
+        protected final long[] keys;
+        protected final boolean[] nulls;
+
+        protected LongKeyColumn(boolean asc, long[] keys, boolean[] nulls) {
+            super(asc);
+            this.keys = keys;
+            this.nulls = nulls;
+        }
+
+        @Override
+        protected int compare(int i1, int i2) {
+            if (nulls[i1] || nulls[i2]) {
+                return compareNulls(nulls[i1], nulls[i2]);
+            }
+            return Long.compare(keys[i1], keys[i2]);
+        }
+    }
+
+    protected static class DoubleKeyColumn extends KeyColumn {
+
+        protected final double[] keys;
+        protected final boolean[] nulls;
+
+        protected DoubleKeyColumn(boolean asc, double[] keys, boolean[] nulls) {
+            super(asc);
+            this.keys = keys;
+            this.nulls = nulls;
+        }
+
+        @Override
+        protected int compare(int i1, int i2) {
+            if (nulls[i1] || nulls[i2]) {
+                return compareNulls(nulls[i1], nulls[i2]);
+            }
+            return Double.compare(keys[i1], keys[i2]);
+        }
+    }
+
+    protected static class ObjectKeyColumn extends KeyColumn {
+
+        protected final Object[] keys;
+
+        protected ObjectKeyColumn(boolean asc, Object[] keys) {
+            super(asc);
+            this.keys = keys;
+        }
+
+        @Override
+        protected int compare(int i1, int i2) {
+            return EntityValuesComparator.NATURAL_ORDER.compare(keys[i1], keys[i2]);
+        }
+    }
+}
@@ -313,6 +313,8 @@ public class ScreenDataXmlLoader {
             loadFirstResult(element, loader);
             loadMaxResults(element, loader);
             loadCacheable(element, loader);
+            loadDatabaseAggregation(element, loader);
+            loadDatabaseGrouping(element, loader);
         }
 
         screenData.registerLoader(loaderId, loader);
@@ -480,6 +482,18 @@ public class ScreenDataXmlLoader {
             loader.setCacheable(Boolean.valueOf(cacheableVal));
     }
 
+    protected void loadDatabaseAggregation(Element element, CollectionLoader<Entity> loader) {
+        String databaseAggregationVal = element.attributeValue("databaseAggregation");
+        if (!Strings.isNullOrEmpty(databaseAggregationVal))
+            loader.setDatabaseAggregation(Boolean.valueOf(databaseAggregationVal));
+    }
+
+    protected void loadDatabaseGrouping(Element element, CollectionLoader<Entity> loader) {
+        String databaseGroupingVal = element.attributeValue("databaseGrouping");
+        if (!Strings.isNullOrEmpty(databaseGroupingVal))
+            loader.setDatabaseGrouping(Boolean.valueOf(databaseGroupingVal));
+    }
+
     protected String getRequiredAttr(Element element, String attributeName) {
         String id = element.attributeValue(attributeName);
         if (id == null)
@@ -46,6 +46,8 @@ public class FileUploading implements FileUploadingAPI, FileUploadingMBean {
 
     protected Map<UUID, File> tempFiles = new ConcurrentHashMap<>();
 
+    protected Map<UUID, Set<UUID>> sessionFiles = new ConcurrentHashMap<>();
+
     /**
      * Upload buffer size.
      * Default: 64 KB
@@ -223,6 +225,28 @@ public class FileUploading implements FileUploadingAPI, FileUploadingMBean {
         }
     }
 
+    @Override
+    public void deleteFileOnSessionFinish(UUID fileId, UUID sessionId) {
+        checkNotNullArgument(fileId, "Null file id");
+        checkNotNullArgument(sessionId, "Null session id");
+
+        sessionFiles.computeIfAbsent(sessionId, id -> ConcurrentHashMap.newKeySet()).add(fileId);
+    }
+
+    @Override
+    public void deleteSessionFiles(UUID sessionId) {
+        Set<UUID> fileIds = sessionFiles.remove(sessionId);
+        if (fileIds != null) {
+            for (UUID fileId : fileIds) {
+                try {
+                    deleteFile(fileId);
+                } catch (FileStorageException e) {
+                    log.warn("Unable to delete temp file {}", fileId, e);
+                }
+            }
+        }
+    }
+
     @Override
     public void putFileIntoStorage(UUID fileId, FileDescriptor fileDescr) throws FileStorageException {
         try {
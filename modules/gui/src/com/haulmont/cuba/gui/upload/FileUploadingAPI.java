@@ -124,6 +124,22 @@ public interface FileUploadingAPI {
      */
     void deleteFileLink(String fileName);
 
+    /**
+     * Remove a file from the temporary storage when the user session is finished, if it is not removed earlier.
+     *
+     * @param fileId    temporary file ID
+     * @param sessionId user session ID
+     */
+    void deleteFileOnSessionFinish(UUID fileId, UUID sessionId);
+
+    /**
+     * Remove files registered by {@link #deleteFileOnSessionFinish(UUID, UUID)} from the temporary storage.
+     * This method is used by the framework when a user session is finished.
+     *
+     * @param sessionId user session ID
+     */
+    void deleteSessionFiles(UUID sessionId);
+
     /**
      * Upload a file from the client's temporary storage to the middleware FileStorage.
      *
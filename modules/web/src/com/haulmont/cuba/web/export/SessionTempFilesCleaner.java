@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.web.export;
+
+import com.haulmont.cuba.gui.upload.FileUploadingAPI;
+import com.haulmont.cuba.security.global.UserSession;
+import com.haulmont.cuba.web.App;
+import com.haulmont.cuba.web.security.events.UserSessionFinishedEvent;
+import com.haulmont.cuba.web.sys.events.WebSessionDestroyedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.inject.Inject;
+
+/**
+ * Deletes temporary files registered by {@link FileUploadingAPI#deleteFileOnSessionFinish(java.util.UUID,
+ * java.util.UUID)} when a user logs out or the HTTP session expires.
+ */
+@Component(SessionTempFilesCleaner.NAME)
+public class SessionTempFilesCleaner {
+
+    public static final String NAME = "cuba_SessionTempFilesCleaner";
+
+    @Inject
+    protected FileUploadingAPI fileUploading;
+
+    @EventListener
+    protected void onUserSessionFinished(UserSessionFinishedEvent event) {
+        fileUploading.deleteSessionFiles(event.getUserSession().getId());
+    }
+
+    @EventListener
+    protected void onWebSessionDestroyed(WebSessionDestroyedEvent event) {
+        App app = event.getSession().getAttribute(App.class);
+        if (app != null && app.getConnection() != null) {
+            UserSession userSession = app.getConnection().getSession();
+            if (userSession != null) {
+                fileUploading.deleteSessionFiles(userSession.getId());
+            }
+        }
+    }
+}
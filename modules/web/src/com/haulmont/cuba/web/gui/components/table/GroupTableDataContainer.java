@@ -160,6 +160,7 @@ public class GroupTableDataContainer<I> extends SortableDataContainer<I> impleme
             expandedGroups.clear();
 
             expand(rootGroups());
+            getGroupTableSource().beforeExpandAll(new ArrayList<>(expandedGroups));
             resetGroupCachedItems();
         }
     }
@@ -176,6 +177,7 @@ public class GroupTableDataContainer<I> extends SortableDataContainer<I> impleme
     @Override
     public void expand(Object id) {
         if (isGroup(id)) {
+            getGroupTableSource().beforeExpand((GroupInfo) id);
             expandedGroups.add((GroupInfo) id);
             resetGroupCachedItems();
         }
@@ -17,6 +17,7 @@
 
 package com.haulmont.cuba.web.jmx;
 
+import com.haulmont.cuba.core.sys.remoting.RemotingCallStatistics;
 import com.haulmont.cuba.web.app.WebStatisticsAccumulator;
 
 import org.springframework.stereotype.Component;
@@ -82,4 +83,14 @@ public class StatisticsCounter implements StatisticsCounterMBean {
     public double getAvgThreadCount() {
         return accumulator.getAvgThreadCount();
     }
-}
\ No newline at end of file
+
+    @Override
+    public String printRemotingCallStatistics() {
+        return RemotingCallStatistics.getInstance().print();
+    }
+
+    @Override
+    public void resetRemotingCallStatistics() {
+        RemotingCallStatistics.getInstance().reset();
+    }
+}
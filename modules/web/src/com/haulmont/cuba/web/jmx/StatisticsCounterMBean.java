@@ -17,6 +17,7 @@
 
 package com.haulmont.cuba.web.jmx;
 
+import org.springframework.jmx.export.annotation.ManagedOperation;
 import org.springframework.jmx.export.annotation.ManagedResource;
 
 @SuppressWarnings("unused")
@@ -44,4 +45,10 @@ public interface StatisticsCounterMBean {
     double getAvgProcessCpuLoad();
 
     double getAvgThreadCount();
+
+    @ManagedOperation(description = "Show latency and payload size histograms of middleware service calls")
+    String printRemotingCallStatistics();
+
+    @ManagedOperation(description = "Reset statistics of middleware service calls")
+    void resetRemotingCallStatistics();
 }
\ No newline at end of file
@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.web.aggregation
+
+import com.haulmont.cuba.core.app.DataService
+import com.haulmont.cuba.core.entity.KeyValueEntity
+import com.haulmont.cuba.core.global.LoadContext
+import com.haulmont.cuba.core.global.ValueLoadContext
+import com.haulmont.cuba.gui.components.AggregationInfo
+import com.haulmont.cuba.gui.data.aggregation.AggregationStrategy
+import com.haulmont.cuba.gui.data.aggregation.DatabaseAggregationSupport
+import com.haulmont.cuba.gui.model.CollectionContainer
+import com.haulmont.cuba.gui.model.CollectionLoader
+import com.haulmont.cuba.web.testmodel.sales.Order
+import com.haulmont.cuba.web.testsupport.proxy.TestServiceProxy
+import spec.cuba.web.WebSpec
+
+class DatabaseAggregationSupportTest extends WebSpec {
+
+    DatabaseAggregationSupport aggregationSupport
+
+    void setup() {
+        aggregationSupport = cont.getBean(DatabaseAggregationSupport)
+    }
+
+    void cleanup() {
+        TestServiceProxy.clear()
+    }
+
+    def "aggregations of persistent datatype properties are supported"() {
+        def metaClass = metadata.getClassNN(Order)
+
+        expect:
+
+        aggregationSupport.isSupported(metaClass, aggregation('amount', AggregationInfo.Type.SUM))
+        aggregationSupport.isSupported(metaClass, aggregation('date', AggregationInfo.Type.MAX))
+        !aggregationSupport.isSupported(metaClass, aggregation('amount', AggregationInfo.Type.CUSTOM))
+        !aggregationSupport.isSupported(metaClass, aggregation('customer', AggregationInfo.Type.COUNT))
+
+        def withStrategy = aggregation('amount', AggregationInfo.Type.SUM)
+        withStrategy.strategy = Mock(AggregationStrategy)
+        !aggregationSupport.isSupported(metaClass, withStrategy)
+    }
+
+    def "aggregations are calculated by one query over the whole result set"() {
+        ValueLoadContext valueContext = null
+        TestServiceProxy.mock(DataService, Mock(DataService) {
+            loadValues(_) >> { ValueLoadContext ctx ->
+                valueContext = ctx
+                [row(a0: 150.5G, a1: 3L)]
+            }
+        })
+
+        def metaClass = metadata.getClassNN(Order)
+        def query = LoadContext.createQuery('select e from test$Order e where e.number like :number order by e.date')
+                .setParameter('number', 'A%')
+                .setParameter('unused', 1)
+        query.setFirstResult(10)
+        query.setMaxResults(10)
+        def loadContext = LoadContext.create(Order).setQuery(query)
+
+        def sum = aggregation('amount', AggregationInfo.Type.SUM)
+        def count = aggregation('amount', AggregationInfo.Type.COUNT)
+        def custom = aggregation('amount', AggregationInfo.Type.CUSTOM)
+
+        when:
+
+        def result = aggregationSupport.aggregate(metaClass, loadContext, [sum, count, custom])
+
+        then:
+
+        result == [(sum): 150.5G, (count): 3]
+
+        def queryString = valueContext.query.queryString
+        queryString.startsWith('select sum(aggE.amount), count(aggE.amount) from test$Order aggE where aggE.id in (')
+        queryString.contains('e.number like :number')
+        !queryString.contains('order by')
+        valueContext.query.parameters == [number: 'A%']
+        valueContext.query.firstResult == 0
+        valueContext.query.maxResults == 0
+        valueContext.softDeletion
+    }
+
+    def "aggregations are restricted by results of previous queries"() {
+        ValueLoadContext valueContext = null
+        TestServiceProxy.mock(DataService, Mock(DataService) {
+            loadValues(_) >> { ValueLoadContext ctx ->
+                valueContext = ctx
+                [row(a0: 10G)]
+            }
+        })
+
+        def metaClass = metadata.getClassNN(Order)
+        def prevQuery = LoadContext.createQuery('select e from test$Order e where e.amount > 5')
+        def loadContext = LoadContext.create(Order)
+                .setQuery(LoadContext.createQuery('select e from test$Order e where e.number like :number')
+                        .setParameter('number', 'A%'))
+                .setQueryKey(42)
+        loadContext.prevQueries.add(prevQuery)
+
+        def sum = aggregation('amount', AggregationInfo.Type.SUM)
+
+        when:
+
+        def result = aggregationSupport.aggregate(metaClass, loadContext, [sum])
+
+        then:
+
+        result == [(sum): 10G]
+
+        def queryString = valueContext.query.queryString
+        queryString.contains('sys$QueryResult _qr')
+        queryString.contains('_qr.entityId = e.id')
+        queryString.contains('_qr.queryKey = 42')
+        valueContext.query.parameters == [number: 'A%', _qr_sessionId: sessionSource.userSession.id]
+    }
+
+    def "loader calculates aggregations once per load and not with unsaved changes"() {
+        def dataService = Mock(DataService)
+        TestServiceProxy.mock(DataService, dataService)
+
+        def context = dataComponents.createDataContext()
+        CollectionContainer<Order> container = dataComponents.createCollectionContainer(Order)
+        CollectionLoader<Order> loader = dataComponents.createCollectionLoader()
+        loader.setContainer(container)
+        loader.setDataContext(context)
+        loader.setQuery('select e from test$Order e')
+        loader.setMaxResults(10)
+        loader.setDatabaseAggregation(true)
+
+        def sum = aggregation('amount', AggregationInfo.Type.SUM)
+
+        when: "aggregations are refreshed several times after a load"
+
+        loader.load()
+        def first = loader.aggregate([sum])
+        def second = loader.aggregate([sum])
+
+        then: "the aggregate query is executed once"
+
+        1 * dataService.loadList(_) >> [new Order(amount: 10.0G)]
+        1 * dataService.loadValues(_) >> [row(a0: 150.0G)]
+        first == [(sum): 150.0G]
+        second == [(sum): 150.0G]
+
+        when: "the data is loaded again"
+
+        loader.load()
+        def reloaded = loader.aggregate([sum])
+
+        then: "the aggregate query is executed again"
+
+        1 * dataService.loadList(_) >> [new Order(amount: 20.0G)]
+        1 * dataService.loadValues(_) >> [row(a0: 160.0G)]
+        reloaded == [(sum): 160.0G]
+
+        when: "an item of the container is changed"
+
+        container.items[0].amount = 30.0G
+        def changed = loader.aggregate([sum])
+
+        then: "the database result is not used"
+
+        0 * dataService.loadValues(_)
+        changed.isEmpty()
+    }
+
+    private AggregationInfo aggregation(String property, AggregationInfo.Type type) {
+        def info = new AggregationInfo()
+        info.propertyPath = metadata.getClassNN(Order).getPropertyPath(property)
+        info.type = type
+        return info
+    }
+
+    private static KeyValueEntity row(Map<String, Object> values) {
+        def row = new KeyValueEntity()
+        values.each { name, value -> row.setValue(name, value) }
+        return row
+    }
+}
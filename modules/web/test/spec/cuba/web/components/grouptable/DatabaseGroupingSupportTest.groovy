@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.web.components.grouptable
+
+import com.haulmont.cuba.core.app.DataService
+import com.haulmont.cuba.core.entity.KeyValueEntity
+import com.haulmont.cuba.core.global.LoadContext
+import com.haulmont.cuba.core.global.Sort
+import com.haulmont.cuba.core.global.ValueLoadContext
+import com.haulmont.cuba.core.global.queryconditions.LogicalCondition
+import com.haulmont.cuba.gui.components.data.table.ContainerGroupTableItems
+import com.haulmont.cuba.gui.components.data.table.DatabaseGroupingSupport
+import com.haulmont.cuba.gui.model.CollectionContainer
+import com.haulmont.cuba.gui.model.CollectionLoader
+import com.haulmont.cuba.web.testmodel.sales.Customer
+import com.haulmont.cuba.web.testmodel.sales.Order
+import com.haulmont.cuba.web.testsupport.proxy.TestServiceProxy
+import spec.cuba.web.WebSpec
+
+class DatabaseGroupingSupportTest extends WebSpec {
+
+    DatabaseGroupingSupport groupingSupport
+
+    void setup() {
+        groupingSupport = cont.getBean(DatabaseGroupingSupport)
+    }
+
+    @Override
+    void cleanup() {
+        TestServiceProxy.clear()
+    }
+
+    def "groups by references the user cannot read are skipped"() {
+        def readable = new Customer(name: 'readable')
+        def hiddenId = UUID.randomUUID()
+
+        ValueLoadContext groupContext = null
+        def dataService = Mock(DataService)
+        dataService.loadValues(_) >> { ValueLoadContext ctx ->
+            groupContext = ctx
+            [row(readable.id, 2), row(null, 1), row(hiddenId, 3)]
+        }
+        // the hidden customer is filtered out by access constraints
+        dataService.loadList(_) >> [readable]
+        TestServiceProxy.mock(DataService, dataService)
+
+        def metaClass = metadata.getClassNN(Order)
+        def loadContext = LoadContext.create(Order)
+                .setQuery(LoadContext.createQuery('select e from test$Order e where e.number like :number')
+                        .setParameter('number', 'A%'))
+
+        when:
+
+        def groups = groupingSupport.loadGroups(metaClass, loadContext, [metaClass.getPropertyPath('customer')])
+
+        then:
+
+        groups.size() == 2
+        groups[0].values == [readable]
+        groups[0].count == 2
+        groups[1].values == [null]
+        groups[1].count == 1
+
+        groupContext.query.queryString.contains('group by')
+        groupContext.query.parameters == [number: 'A%']
+    }
+
+    def "group items are loaded by group values"() {
+        def customer = new Customer(name: 'customer')
+
+        LoadContext itemsContext = null
+        def dataService = Mock(DataService)
+        dataService.loadList(_) >> { LoadContext ctx ->
+            itemsContext = ctx
+            []
+        }
+        TestServiceProxy.mock(DataService, dataService)
+
+        def metaClass = metadata.getClassNN(Order)
+        def loadContext = LoadContext.create(Order)
+                .setQuery(LoadContext.createQuery('select e from test$Order e'))
+        def groupValues = new LinkedHashMap()
+        groupValues.put(metaClass.getPropertyPath('customer'), customer)
+        groupValues.put(metaClass.getPropertyPath('number'), null)
+
+        when:
+
+        groupingSupport.loadGroupItems(loadContext, groupValues, 100, 50)
+
+        then:
+
+        itemsContext.query.condition.conditions*.getValue('where') ==
+                ['{E}.customer = :cubaGroupValue0', '{E}.number is null']
+        itemsContext.query.parameters == [cubaGroupValue0: customer]
+        itemsContext.query.firstResult == 100
+        itemsContext.query.maxResults == 50
+
+        loadContext.query.condition == null
+    }
+
+    def "group items are ordered by primary key after sort"() {
+        List<LoadContext> contexts = []
+        def dataService = Mock(DataService)
+        dataService.loadList(_) >> { LoadContext ctx ->
+            contexts.add(ctx)
+            []
+        }
+        TestServiceProxy.mock(DataService, dataService)
+
+        def metaClass = metadata.getClassNN(Order)
+        def groupValues = [(metaClass.getPropertyPath('number')): 'A']
+        def unsorted = LoadContext.create(Order)
+                .setQuery(LoadContext.createQuery('select e from test$Order e'))
+        def sorted = LoadContext.create(Order)
+                .setQuery(LoadContext.createQuery('select e from test$Order e').setSort(Sort.by('date')))
+
+        when:
+
+        groupingSupport.loadGroupItems(unsorted, groupValues, 0, 50)
+        groupingSupport.loadGroupItems(sorted, groupValues, 0, 50)
+
+        then:
+
+        contexts[0].query.queryString.endsWith('order by e.id')
+        contexts[1].query.sort.orders*.property == ['date', 'id']
+
+        unsorted.query.queryString == 'select e from test$Order e'
+        sorted.query.sort.orders*.property == ['date']
+    }
+
+    def "items of several groups are loaded by one query"() {
+        LoadContext itemsContext = null
+        def dataService = Mock(DataService)
+        TestServiceProxy.mock(DataService, dataService)
+
+        def metaClass = metadata.getClassNN(Order)
+        def loadContext = LoadContext.create(Order)
+                .setQuery(LoadContext.createQuery('select e from test$Order e'))
+        def numberPath = metaClass.getPropertyPath('number')
+
+        when:
+
+        groupingSupport.loadGroupsItems(loadContext, [[(numberPath): 'A'], [(numberPath): null]], 200)
+
+        then:
+
+        1 * dataService.loadList(_) >> { LoadContext ctx ->
+            itemsContext = ctx
+            []
+        }
+
+        def groupsCondition = itemsContext.query.condition.conditions[0]
+        groupsCondition instanceof LogicalCondition
+        groupsCondition.type == LogicalCondition.Type.OR
+        groupsCondition.conditions.collect { it.conditions[0].getValue('where') } ==
+                ['{E}.number = :cubaGroupValue0_0', '{E}.number is null']
+        itemsContext.query.parameters == [cubaGroupValue0_0: 'A']
+        itemsContext.query.firstResult == 0
+        itemsContext.query.maxResults == 200
+    }
+
+    def "first pages of expanded groups are loaded by one query"() {
+        def dataService = Mock(DataService)
+        dataService.loadValues(_) >> [row('A', 3), row('B', 2), row('C', 150)]
+        TestServiceProxy.mock(DataService, dataService)
+
+        CollectionContainer<Order> container = dataComponents.createCollectionContainer(Order)
+        CollectionLoader<Order> loader = dataComponents.createCollectionLoader()
+        loader.setContainer(container)
+        loader.setQuery('select e from test$Order e')
+        loader.setDatabaseGrouping(true)
+
+        def tableItems = new ContainerGroupTableItems(container)
+        tableItems.groupItemsPageSize = 2
+        tableItems.groupBy([metadata.getClassNN(Order).getPropertyPath('number')] as Object[])
+
+        def groups = tableItems.rootGroups()
+        def a1 = new Order(number: 'A'), a2 = new Order(number: 'A'), a3 = new Order(number: 'A')
+        def b1 = new Order(number: 'B'), b2 = new Order(number: 'B')
+        def c1 = new Order(number: 'C')
+
+        when:
+
+        tableItems.beforeExpandAll(groups)
+
+        then:
+
+        1 * dataService.loadList({ LoadContext ctx -> ctx.query.maxResults == 6 }) >> [a1, a2, a3, b1, b2, c1]
+
+        container.items as Set == [a1, a2, b1, b2, c1] as Set
+        !tableItems.isGroupFullyLoaded(groups[0])
+        tableItems.isGroupFullyLoaded(groups[1])
+        !tableItems.isGroupFullyLoaded(groups[2])
+
+        when: "the next page of a group is loaded after the loaded items"
+
+        tableItems.beforeExpand(groups[0])
+
+        then:
+
+        1 * dataService.loadList({ LoadContext ctx -> ctx.query.firstResult == 2 }) >> [a3]
+        tableItems.isGroupFullyLoaded(groups[0])
+    }
+
+    def "group key does not depend on how values are obtained"() {
+        def customer = new Customer()
+        def copy = new Customer(id: customer.id)
+
+        expect:
+
+        groupingSupport.getGroupKey([customer, new Date(1000), 1.50G]) ==
+                groupingSupport.getGroupKey([copy, new java.sql.Timestamp(1000), 1.5G])
+    }
+
+    private static KeyValueEntity row(Object value, long count) {
+        def row = new KeyValueEntity()
+        row.setValue('g0', value)
+        row.setValue('count', count)
+        return row
+    }
+}
@@ -493,6 +493,134 @@ class DataContextTest extends Specification {
         !order1_1.orderLines.contains(orderLine12_1)
     }
 
+    def "removed object is removed from collections it was added to after merge"() {
+
+        def dataContext = factory.createDataContext()
+
+        Order order1 = makeSaved(new Order(number: "111", orderLines: []))
+        Order order2 = makeSaved(new Order(number: "222", orderLines: []))
+        OrderLine orderLine1 = makeSaved(new OrderLine(quantity: 10))
+        OrderLine orderLine2 = makeSaved(new OrderLine(quantity: 20))
+
+        Order order1_1 = dataContext.merge(order1)
+        Order order2_1 = dataContext.merge(order2)
+        OrderLine orderLine1_1 = dataContext.merge(orderLine1)
+        OrderLine orderLine2_1 = dataContext.merge(orderLine2)
+
+        when:
+
+        order1_1.orderLines.add(orderLine1_1)
+        order2_1.orderLines = [orderLine1_1, orderLine2_1]
+        dataContext.remove(orderLine1_1)
+
+        then:
+
+        order1_1.orderLines.isEmpty()
+        order2_1.orderLines == [orderLine2_1]
+
+        when: "the owner is evicted before the removal"
+
+        dataContext.evict(order2_1)
+        dataContext.remove(orderLine2_1)
+
+        then:
+
+        order2_1.orderLines == [orderLine2_1]
+    }
+
+    def "removed object is found in collections by id"() {
+
+        def dataContext = factory.createDataContext()
+
+        Order order1 = makeSaved(new Order(number: "111", orderLines: []))
+        OrderLine orderLine1 = makeSaved(new OrderLine(quantity: 10))
+
+        Order order1_1 = dataContext.merge(order1)
+        OrderLine orderLine1_1 = dataContext.merge(orderLine1)
+
+        when: "a different instance with the same id is added to the collection"
+
+        order1_1.orderLines.add(makeSaved(new OrderLine(id: orderLine1.id, quantity: 10)))
+        dataContext.remove(orderLine1_1)
+
+        then:
+
+        order1_1.orderLines.isEmpty()
+    }
+
+    def "removed object is removed from collections set by setter"() {
+
+        def dataContext = factory.createDataContext()
+
+        Order order1 = makeSaved(new Order(number: "111", orderLines: []))
+        OrderLine orderLine1 = makeSaved(new OrderLine(quantity: 10))
+        OrderLine orderLine2 = makeSaved(new OrderLine(quantity: 20))
+
+        Order order1_1 = dataContext.merge(order1)
+        OrderLine orderLine1_1 = dataContext.merge(orderLine1)
+        OrderLine orderLine2_1 = dataContext.merge(orderLine2)
+
+        when:
+
+        order1_1.orderLines = [orderLine1_1]
+        order1_1.orderLines.add(orderLine2_1)
+        dataContext.remove(orderLine2_1)
+
+        then:
+
+        order1_1.orderLines == [orderLine1_1]
+    }
+
+    def "removed object is removed from collections after clear"() {
+
+        def dataContext = factory.createDataContext()
+
+        Order order1 = makeSaved(new Order(number: "111", orderLines: []))
+        OrderLine orderLine1 = makeSaved(new OrderLine(quantity: 10))
+        OrderLine orderLine2 = makeSaved(new OrderLine(quantity: 20))
+
+        Order order1_1 = dataContext.merge(order1)
+        OrderLine orderLine1_1 = dataContext.merge(orderLine1)
+        OrderLine orderLine2_1 = dataContext.merge(orderLine2)
+
+        when:
+
+        order1_1.orderLines.add(orderLine1_1)
+        order1_1.orderLines.clear()
+        order1_1.orderLines.add(orderLine2_1)
+        order1_1.orderLines.add(orderLine1_1)
+        dataContext.remove(orderLine1_1)
+
+        then:
+
+        order1_1.orderLines == [orderLine2_1]
+    }
+
+    def "removed object is removed only from collections containing it"() {
+
+        def dataContext = factory.createDataContext()
+
+        Order order1 = makeSaved(new Order(number: "111", orderLines: []))
+        Order order2 = makeSaved(new Order(number: "222", orderLines: []))
+        OrderLine orderLine1 = makeSaved(new OrderLine(quantity: 10))
+
+        Order order1_1 = dataContext.merge(order1)
+        Order order2_1 = dataContext.merge(order2)
+        OrderLine orderLine1_1 = dataContext.merge(orderLine1)
+
+        when:
+
+        order1_1.orderLines.add(orderLine1_1)
+        order1_1.orderLines.remove(orderLine1_1)
+        order2_1.orderLines.add(orderLine1_1)
+        dataContext.remove(orderLine1_1)
+
+        then:
+
+        order1_1.orderLines.isEmpty()
+        order2_1.orderLines.isEmpty()
+    }
+
     def "system fields are preserved on merge"() {
 
         def dataContext = factory.createDataContext()
@@ -101,4 +101,35 @@ class SortingTest extends WebSpec {
         1 * dataService.loadList(_) >> products.sort { it.name }.reverse()
         container.items[0].name == 'p3'
     }
+
+    def "sort in memory by multiple properties"() {
+        def products = [
+                new Product(name: 'p1', price: 20),
+                new Product(name: 'p2', price: 10),
+                new Product(name: 'p3', price: 20),
+                new Product(name: 'p4', price: null)
+        ]
+        def dataService = Mock(DataService)
+        TestServiceProxy.mock(DataService, dataService)
+
+        when:
+
+        loader.setQuery('select p from test$Product p')
+        loader.setFirstResult(0)
+        loader.setMaxResults(10)
+        loader.load()
+
+        then:
+
+        1 * dataService.loadList(_) >> products
+
+        when:
+
+        container.getSorter().sort(Sort.by(Sort.Order.desc('price'), Sort.Order.desc('name')))
+
+        then:
+
+        0 * dataService.loadList(_)
+        container.items.findAll { it.price != null }*.name == ['p3', 'p1', 'p2']
+    }
 }
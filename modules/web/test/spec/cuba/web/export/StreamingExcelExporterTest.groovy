@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.web.export
+
+import com.haulmont.cuba.core.app.DataService
+import com.haulmont.cuba.core.entity.Entity
+import com.haulmont.cuba.core.global.LoadContext
+import com.haulmont.cuba.core.global.Sort
+import com.haulmont.cuba.gui.export.StreamingExcelExporter
+import com.haulmont.cuba.web.testmodel.sales.Product
+import com.haulmont.cuba.web.testsupport.proxy.TestServiceProxy
+import spec.cuba.web.WebSpec
+
+class StreamingExcelExporterTest extends WebSpec {
+
+    @Override
+    void cleanup() {
+        TestServiceProxy.clear()
+    }
+
+    def "all rows are loaded exactly once when the query has its own order"() {
+        def ids = (1..7).collect { UUID.randomUUID() }.sort()
+        // names are in the reverse order of ids, so the query order differs from the key order
+        def products = ids.withIndex().collect { id, i -> new Product(id: id, name: "p${7 - i}") }
+
+        def dataService = Mock(DataService)
+        dataService.loadList(_) >> { LoadContext ctx -> simulateLoad(products, ctx) }
+        TestServiceProxy.mock(DataService, dataService)
+
+        def exporter = new StreamingExcelExporter()
+        exporter.pageSize = 3
+
+        def loadContext = LoadContext.create(Product)
+                .setQuery(LoadContext.createQuery('select p from test$Product p order by p.name'))
+
+        when:
+
+        List<Entity> exported = []
+        List<Entity> page
+        Entity last = null
+        while (!(page = exporter.loadPage(loadContext, 'id', exported.size(), last)).isEmpty()) {
+            exported.addAll(page)
+            last = page.last()
+        }
+
+        then:
+
+        exported*.id == ids
+    }
+
+    def "pages are loaded by offset when the query is sorted"() {
+        def products = (1..5).collect { new Product(name: "p$it") }
+
+        def dataService = Mock(DataService)
+        dataService.loadList(_) >> { LoadContext ctx -> simulateLoad(products, ctx) }
+        TestServiceProxy.mock(DataService, dataService)
+
+        def exporter = new StreamingExcelExporter()
+        exporter.pageSize = 2
+
+        def loadContext = LoadContext.create(Product)
+        loadContext.setQueryString('select p from test$Product p').setSort(Sort.by('name'))
+
+        when:
+
+        List<Entity> exported = []
+        List<Entity> page
+        while (!(page = exporter.loadPage(loadContext, 'id', exported.size(), null)).isEmpty()) {
+            exported.addAll(page)
+        }
+
+        then:
+
+        exported*.name == ['p1', 'p2', 'p3', 'p4', 'p5']
+    }
+
+    def "primary key breaks ties of the sort when pages are loaded by offset"() {
+        def products = (1..5).collect { new Product(name: 'same') }
+        List<Sort> sorts = []
+
+        def dataService = Mock(DataService)
+        dataService.loadList(_) >> { LoadContext ctx ->
+            sorts << ctx.query.sort
+            simulateLoad(products, ctx)
+        }
+        TestServiceProxy.mock(DataService, dataService)
+
+        def exporter = new StreamingExcelExporter()
+        exporter.pageSize = 2
+
+        def loadContext = LoadContext.create(Product)
+        loadContext.setQueryString('select p from test$Product p').setSort(Sort.by('name'))
+
+        when:
+
+        List<Entity> exported = []
+        List<Entity> page
+        while (!(page = exporter.loadPage(loadContext, 'id', exported.size(), null)).isEmpty()) {
+            exported.addAll(page)
+        }
+
+        then:
+
+        exported*.id == products*.id.sort(false)
+        sorts.every { it.orders*.property == ['name', 'id'] }
+        loadContext.query.sort.orders*.property == ['name']
+    }
+
+    /**
+     * Imitates the middleware: keyset values imply the order by the primary key, the sort replaces the order
+     * of the query string which is by name.
+     */
+    private static List<Product> simulateLoad(List<Product> products, LoadContext ctx) {
+        def query = ctx.query
+        List<String> sortProperties = query.sort?.orders?.collect { it.property } ?:
+                [query.keysetValues ? 'id' : 'name']
+        List<Product> result = products.sort(false) { a, b ->
+            sortProperties.collect { a."$it" <=> b."$it" }.find { it != 0 } ?: 0
+        }
+        if (query.keysetValues) {
+            result = result.findAll { it.id > query.keysetValues['id'] }
+        }
+        result = result.drop(query.firstResult)
+        return query.maxResults > 0 ? result.take(query.maxResults) : result
+    }
+}